@@ -28,6 +28,8 @@ import org.codeqinvest.codechanges.scm.factory.CodeChurnCalculatorFactory;
 import org.joda.time.LocalDate;
 
 import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
  * Helper base class for {@code CodeChangeProbabilityCalculator} implementations
@@ -68,5 +70,24 @@ abstract class AbstractCodeChangeProbabilityCalculator implements CodeChangeProb
     return Math.min(1.0, computedChangeProbability);
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public final Map<String, Double> calculateCodeChangeProbabilities(ScmConnectionSettings connectionSettings, Collection<String> files)
+      throws CodeChurnCalculationException, ScmConnectionEncodingException {
+
+    log.info("Calculate code change probability for {} files", files.size());
+
+    final CodeChurnCalculator codeChurnCalculator = codeChurnCalculatorFactory.create(connectionSettings);
+    final Map<String, Collection<DailyCodeChurn>> codeChurnsByFile = codeChurnCalculator.calculateCodeChurn(connectionSettings, files, startDay, days);
+
+    final Map<String, Double> changeProbabilities = new LinkedHashMap<String, Double>();
+    for (Map.Entry<String, Collection<DailyCodeChurn>> codeChurns : codeChurnsByFile.entrySet()) {
+      changeProbabilities.put(codeChurns.getKey(), Math.min(1.0, computeChangeProbability(days, codeChurns.getValue())));
+    }
+    return changeProbabilities;
+  }
+
   protected abstract double computeChangeProbability(int days, Collection<DailyCodeChurn> codeChurns);
 }
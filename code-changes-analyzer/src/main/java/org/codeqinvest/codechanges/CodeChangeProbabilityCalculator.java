@@ -22,6 +22,9 @@ import org.codeqinvest.codechanges.scm.CodeChurnCalculationException;
 import org.codeqinvest.codechanges.scm.ScmConnectionEncodingException;
 import org.codeqinvest.codechanges.scm.ScmConnectionSettings;
 
+import java.util.Collection;
+import java.util.Map;
+
 /**
  * Describes a calculator for the probability that a given
  * code file will be changed in the near future.
@@ -42,4 +45,17 @@ public interface CodeChangeProbabilityCalculator {
    */
   double calculateCodeChangeProbability(ScmConnectionSettings connectionSettings, String file)
       throws CodeChurnCalculationException, ScmConnectionEncodingException;
+
+  /**
+   * Calculates the probability that the code files will be changed in the near
+   * future. The history of the scm system is only retrieved once for all files.
+   *
+   * @param connectionSettings the connection setting for the scm system where the {@code files} can be found
+   * @param files              the files for which the change probability will be calculated
+   * @return the calculated probabilities mapped by the requested files
+   * @throws CodeChurnCalculationException  if an error with scm server communication or calculation happens
+   * @throws ScmConnectionEncodingException if an error with the supplied encoding of the {@code connectionSettings} happens
+   */
+  Map<String, Double> calculateCodeChangeProbabilities(ScmConnectionSettings connectionSettings, Collection<String> files)
+      throws CodeChurnCalculationException, ScmConnectionEncodingException;
 }
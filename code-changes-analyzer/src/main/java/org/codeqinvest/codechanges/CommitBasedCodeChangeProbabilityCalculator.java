@@ -26,6 +26,10 @@ import org.codeqinvest.codechanges.scm.ScmConnectionEncodingException;
 import org.codeqinvest.codechanges.scm.ScmConnectionSettings;
 import org.codeqinvest.codechanges.scm.factory.CodeChurnCalculatorFactory;
 
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 /**
  * This code change probability calculator uses a fixed number of
  * the last commits to estimate the change probability of a file.
@@ -53,7 +57,29 @@ public class CommitBasedCodeChangeProbabilityCalculator implements CodeChangePro
     log.info("Calculate code change probability for file {}", file);
 
     final CodeChurnCalculator codeChurnCalculator = codeChurnCalculatorFactory.create(connectionSettings);
-    CodeChurn codeChurn = codeChurnCalculator.calculateCodeChurnForLastCommits(connectionSettings, file, numberOfCommits);
+    return computeChangeProbability(codeChurnCalculator.calculateCodeChurnForLastCommits(connectionSettings, file, numberOfCommits));
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Map<String, Double> calculateCodeChangeProbabilities(ScmConnectionSettings connectionSettings, Collection<String> files)
+      throws CodeChurnCalculationException, ScmConnectionEncodingException {
+
+    log.info("Calculate code change probability for {} files", files.size());
+
+    final CodeChurnCalculator codeChurnCalculator = codeChurnCalculatorFactory.create(connectionSettings);
+    final Map<String, CodeChurn> codeChurnByFile = codeChurnCalculator.calculateCodeChurnForLastCommits(connectionSettings, files, numberOfCommits);
+
+    final Map<String, Double> changeProbabilities = new LinkedHashMap<String, Double>();
+    for (Map.Entry<String, CodeChurn> codeChurn : codeChurnByFile.entrySet()) {
+      changeProbabilities.put(codeChurn.getKey(), computeChangeProbability(codeChurn.getValue()));
+    }
+    return changeProbabilities;
+  }
+
+  private double computeChangeProbability(CodeChurn codeChurn) {
     double changeProbability = 0.0;
     for (Double codeChurnProportion : codeChurn.getCodeChurnProportions()) {
       changeProbability += codeChurnProportion * (1 / (double) numberOfCommits);
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2013 Felix Müller
+ *
+ * This file is part of CodeQ Invest.
+ *
+ * CodeQ Invest is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CodeQ Invest is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CodeQ Invest.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.codeqinvest.codechanges.scm;
+
+import org.joda.time.DateTime;
+
+import java.util.Set;
+
+/**
+ * Implementations of this interface retrieve all files
+ * that were changed by commits after a given point in time.
+ *
+ * @author fmueller
+ */
+public interface ChangedFilesRetriever {
+
+  /**
+   * Retrieves the paths of all files that were added, modified, deleted or moved
+   * by commits after {@code since}. For moved files both paths are part of the result.
+   *
+   * @throws CodeChurnCalculationException if an error with the scm server communication happens
+   */
+  Set<String> retrieveChangedFiles(ScmConnectionSettings connectionSettings, DateTime since) throws CodeChurnCalculationException;
+}
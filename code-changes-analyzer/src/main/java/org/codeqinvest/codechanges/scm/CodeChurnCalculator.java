@@ -21,6 +21,7 @@ package org.codeqinvest.codechanges.scm;
 import org.joda.time.LocalDate;
 
 import java.util.Collection;
+import java.util.Map;
 
 /**
  * Implementations of this interface calculate the daily
@@ -42,6 +43,27 @@ public interface CodeChurnCalculator {
   Collection<DailyCodeChurn> calculateCodeChurn(ScmConnectionSettings connectionSettings, String file, LocalDate startDay, int numberOfDays)
       throws CodeChurnCalculationException, ScmConnectionEncodingException;
 
+  /**
+   * Calculates the code churn proportions of many files like {@link #calculateCodeChurn(ScmConnectionSettings, String, LocalDate, int)},
+   * but walks the history of the scm system for the given days only once for all files. Renamed and moved files are followed.
+   *
+   * @return all code churn proportions for the given days mapped by the requested files
+   * @throws CodeChurnCalculationException  if an error with scm server communication or calculation happens
+   * @throws ScmConnectionEncodingException if an error with the supplied encoding of the {@code connectionSettings} happens
+   */
+  Map<String, Collection<DailyCodeChurn>> calculateCodeChurn(ScmConnectionSettings connectionSettings, Collection<String> files, LocalDate startDay, int numberOfDays)
+      throws CodeChurnCalculationException, ScmConnectionEncodingException;
+
   CodeChurn calculateCodeChurnForLastCommits(ScmConnectionSettings connectionSettings, String file, int numberOfCommits)
       throws CodeChurnCalculationException, ScmConnectionEncodingException;
+
+  /**
+   * Calculates the code churn of many files for the last commits with only one walk over these commits.
+   *
+   * @return the code churn mapped by the requested files
+   * @throws CodeChurnCalculationException  if an error with scm server communication or calculation happens
+   * @throws ScmConnectionEncodingException if an error with the supplied encoding of the {@code connectionSettings} happens
+   */
+  Map<String, CodeChurn> calculateCodeChurnForLastCommits(ScmConnectionSettings connectionSettings, Collection<String> files, int numberOfCommits)
+      throws CodeChurnCalculationException, ScmConnectionEncodingException;
 }
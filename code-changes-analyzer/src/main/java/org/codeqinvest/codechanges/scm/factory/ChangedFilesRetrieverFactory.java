@@ -0,0 +1,51 @@
+/*
+ * Copyright 2013 Felix Müller
+ *
+ * This file is part of CodeQ Invest.
+ *
+ * CodeQ Invest is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CodeQ Invest is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CodeQ Invest.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.codeqinvest.codechanges.scm.factory;
+
+import org.codeqinvest.codechanges.scm.ChangedFilesRetriever;
+import org.codeqinvest.codechanges.scm.ScmConnectionSettings;
+import org.codeqinvest.codechanges.scm.svn.SvnChangedFilesRetrieverService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * This helper component can be used to get a fitting {@code ChangedFilesRetriever} instance.
+ *
+ * @author fmueller
+ */
+@Component
+public class ChangedFilesRetrieverFactory {
+
+  private final SvnChangedFilesRetrieverService svnChangedFilesRetriever;
+
+  @Autowired
+  public ChangedFilesRetrieverFactory(SvnChangedFilesRetrieverService svnChangedFilesRetriever) {
+    this.svnChangedFilesRetriever = svnChangedFilesRetriever;
+  }
+
+  /**
+   * Creates a new {@code ChangedFilesRetriever} instance for the saved SCM type in the {@code connectionSettings}.
+   */
+  public ChangedFilesRetriever create(ScmConnectionSettings connectionSettings) {
+    if (connectionSettings.getType() == SupportedScmSystem.SVN.getType()) {
+      return svnChangedFilesRetriever;
+    }
+    throw new UnsupportedScmSystem();
+  }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2013 Felix Müller
+ *
+ * This file is part of CodeQ Invest.
+ *
+ * CodeQ Invest is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CodeQ Invest is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CodeQ Invest.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.codeqinvest.codechanges.scm.svn;
+
+import com.google.common.base.Optional;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Value object with the number of added and removed lines of a file in one revision.
+ * Changes of svn properties count as changed lines too, but do not change the number
+ * of lines of the file.
+ *
+ * @author fmueller
+ */
+@Getter
+@EqualsAndHashCode
+@ToString
+final class ChangedLines {
+
+  private final long addedLines;
+  private final long removedLines;
+
+  /**
+   * The change of the number of lines like {@link SvnFile#countLines()} counts them,
+   * absent if it can not be derived from the diff.
+   */
+  private final Optional<Long> lineCountChange;
+
+  ChangedLines(long addedLines, long removedLines) {
+    this(addedLines, removedLines, Optional.of(addedLines - removedLines));
+  }
+
+  ChangedLines(long addedLines, long removedLines, Optional<Long> lineCountChange) {
+    this.addedLines = addedLines;
+    this.removedLines = removedLines;
+    this.lineCountChange = lineCountChange;
+  }
+
+  long getChangedLines() {
+    return addedLines + removedLines;
+  }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2013 Felix Müller
+ *
+ * This file is part of CodeQ Invest.
+ *
+ * CodeQ Invest is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CodeQ Invest is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CodeQ Invest.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.codeqinvest.codechanges.scm.svn;
+
+import lombok.extern.slf4j.Slf4j;
+import org.codeqinvest.codechanges.scm.ScmConnectionSettings;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.stereotype.Component;
+import org.tmatesoft.svn.core.SVNDepth;
+import org.tmatesoft.svn.core.SVNException;
+import org.tmatesoft.svn.core.SVNURL;
+import org.tmatesoft.svn.core.internal.wc2.ng.SvnDiffGenerator;
+import org.tmatesoft.svn.core.wc.SVNRevision;
+import org.tmatesoft.svn.core.wc2.SvnDiff;
+import org.tmatesoft.svn.core.wc2.SvnOperationFactory;
+import org.tmatesoft.svn.core.wc2.SvnTarget;
+
+import java.nio.charset.Charset;
+
+/**
+ * Streams the diffs into a {@link DiffLineCounter}, so diffs are never held in memory.
+ * The operation factories that run the diffs are reused through the {@link SvnSessionPool}.
+ *
+ * @author fmueller
+ */
+@Slf4j
+@Component
+class DefaultSvnDiffRetriever implements SvnDiffRetriever {
+
+  private static final String LINE_SEPARATOR = System.getProperty("line.separator", "\n");
+
+  private final SvnSessionPool sessionPool;
+
+  @Autowired
+  DefaultSvnDiffRetriever(SvnSessionPool sessionPool) {
+    this.sessionPool = sessionPool;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public ChangedLines retrieveDiff(ScmConnectionSettings connectionSettings, SvnFileRevision fileRevision) throws SVNException {
+    log.debug("Retrieve diff for revision {}", fileRevision);
+    SvnOperationFactory operationFactory = sessionPool.borrowOperationFactory(connectionSettings);
+    boolean failed = true;
+    try {
+      SvnDiff diff = operationFactory.createDiff();
+      diff.setSources(fileRevision.getOldSvnTarget(connectionSettings), fileRevision.getNewSvnTarget(connectionSettings));
+      ChangedLines changedLines = run(diff, connectionSettings).getChangedLinesOfDiff();
+      failed = false;
+      return changedLines;
+    } finally {
+      sessionPool.returnOperationFactory(connectionSettings, operationFactory, failed);
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  @Cacheable("svnRevisionDiffs")
+  public RevisionDiff retrieveRevisionDiff(ScmConnectionSettings connectionSettings, long revision) throws SVNException {
+    log.debug("Retrieve diff of revision {} for {}", revision, connectionSettings);
+    SvnOperationFactory operationFactory = sessionPool.borrowOperationFactory(connectionSettings);
+    boolean failed = true;
+    try {
+      SvnDiff diff = operationFactory.createDiff();
+      diff.setSource(SvnTarget.fromURL(SVNURL.parseURIEncoded(connectionSettings.getUrl()), SVNRevision.create(revision)),
+          SVNRevision.create(revision - 1), SVNRevision.create(revision));
+      diff.setDepth(SVNDepth.INFINITY);
+      RevisionDiff revisionDiff = new RevisionDiff(revision, run(diff, connectionSettings).getChangedLinesByFile());
+      log.debug("Retrieved diff of {} files in revision {}", revisionDiff.getNumberOfFiles(), revision);
+      failed = false;
+      return revisionDiff;
+    } finally {
+      sessionPool.returnOperationFactory(connectionSettings, operationFactory, failed);
+    }
+  }
+
+  private DiffLineCounter run(SvnDiff diff, ScmConnectionSettings connectionSettings) throws SVNException {
+    SvnDiffGenerator diffGenerator = new SvnDiffGenerator();
+    diffGenerator.setEncoding(connectionSettings.getEncoding());
+    diffGenerator.setEOL(LINE_SEPARATOR.getBytes(Charset.forName(connectionSettings.getEncoding())));
+
+    DiffLineCounter diffLineCounter = new DiffLineCounter(connectionSettings.getEncoding(), LINE_SEPARATOR);
+    diff.setDiffGenerator(diffGenerator);
+    diff.setOutput(diffLineCounter);
+    diff.run();
+    diffLineCounter.close();
+    return diffLineCounter;
+  }
+}
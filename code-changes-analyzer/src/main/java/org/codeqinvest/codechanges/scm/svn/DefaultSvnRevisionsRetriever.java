@@ -18,81 +18,167 @@
  */
 package org.codeqinvest.codechanges.scm.svn;
 
-import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.Multimap;
 import lombok.extern.slf4j.Slf4j;
 import org.codeqinvest.codechanges.scm.ScmConnectionSettings;
+import org.joda.time.DateTime;
 import org.joda.time.LocalDate;
-import org.joda.time.LocalDateTime;
-import org.springframework.cache.annotation.Cacheable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.stereotype.Component;
-import org.tmatesoft.svn.core.ISVNLogEntryHandler;
 import org.tmatesoft.svn.core.SVNException;
-import org.tmatesoft.svn.core.SVNLogEntry;
-import org.tmatesoft.svn.core.SVNLogEntryPath;
 import org.tmatesoft.svn.core.io.SVNRepository;
 
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Retrieves the revisions from the local {@link SvnRevisionStore} which
+ * is synchronized with the subversion server before every retrieval.
+ * Retrieved revisions are cached by {@link SvnRevisionsCacheKey}.
+ *
+ * @author fmueller
+ */
 @Slf4j
 @Component
 class DefaultSvnRevisionsRetriever implements SvnRevisionsRetriever {
 
+  private static final String CACHE_NAME = "svnRevisions";
+
+  private final CacheManager cacheManager;
+  private final SvnRevisionStore revisionStore;
+  private final SvnSessionPool sessionPool;
+
+  @Autowired
+  DefaultSvnRevisionsRetriever(CacheManager cacheManager, SvnRevisionStore revisionStore, SvnSessionPool sessionPool) {
+    this.cacheManager = cacheManager;
+    this.revisionStore = revisionStore;
+    this.sessionPool = sessionPool;
+  }
+
   /**
    * {@inheritDoc}
    */
   @Override
-  @Cacheable("svnRevisions")
   public DailyRevisions retrieveRevisions(ScmConnectionSettings connectionSettings, LocalDate day) throws SVNException {
+    SvnRevisionsCacheKey cacheKey = SvnRevisionsCacheKey.forDay(connectionSettings, day);
+    DailyRevisions cachedRevisions = getCachedRevisions(cacheKey, DailyRevisions.class);
+    if (cachedRevisions != null) {
+      return cachedRevisions;
+    }
+
     log.info("Retrieve revisions on day {} for {}", day, connectionSettings);
-    final SVNRepository repository = SvnRepositoryFactory.create(connectionSettings);
-    final LocalDateTime startTime = day.toDateTimeAtStartOfDay().toLocalDateTime();
-    final long startRevision = repository.getDatedRevision(startTime.toDate());
-    final long endRevision = repository.getDatedRevision(startTime.withTime(23, 59, 59, 999).toDate());
-
-    final Multimap<String, SvnFileRevision> revisions = ArrayListMultimap.create();
-    repository.log(null, startRevision, endRevision, true, true, new ISVNLogEntryHandler() {
-
-      @Override
-      public void handleLogEntry(SVNLogEntry logEntry) throws SVNException {
-        for (SVNLogEntryPath logEntryPath : logEntry.getChangedPaths().values()) {
-          if (logEntryPath.getCopyPath() != null) {
-            revisions.put(logEntryPath.getPath(), new SvnFileRevision(logEntry.getRevision(), logEntryPath.getCopyPath(), logEntryPath.getPath()));
-          } else {
-            revisions.put(logEntryPath.getPath(), new SvnFileRevision(logEntry.getRevision(), logEntryPath.getPath(), logEntryPath.getPath()));
-          }
-        }
-      }
-    });
+    SvnRevisionLog revisionLog = synchronizeFrom(connectionSettings, day);
+    DailyRevisions revisions = createDailyRevisions(revisionLog, day);
+    cacheRevisions(cacheKey, revisions);
+    log.info("Found {} changes for day {} with connection {}", revisions.getRevisions().size(), day, connectionSettings);
+    return revisions;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public List<DailyRevisions> retrieveRevisions(ScmConnectionSettings connectionSettings, LocalDate startDay, int numberOfDays) throws SVNException {
+    List<DailyRevisions> cachedRevisions = retrieveCachedRevisions(connectionSettings, startDay, numberOfDays);
+    if (cachedRevisions != null) {
+      log.info("Found cached revisions for {} days from {} for {}", numberOfDays + 1, startDay, connectionSettings);
+      return cachedRevisions;
+    }
 
-    log.info("Found {} changes for day {} with connection {}", revisions.values().size(), day, connectionSettings);
-    return new DailyRevisions(day, revisions);
+    log.info("Retrieve revisions for {} days from {} for {}", numberOfDays + 1, startDay, connectionSettings);
+    SvnRevisionLog revisionLog = synchronizeFrom(connectionSettings, startDay.minusDays(numberOfDays));
+    List<DailyRevisions> dailyRevisions = new ArrayList<DailyRevisions>(numberOfDays + 1);
+    int numberOfChanges = 0;
+    for (int i = 0; i <= numberOfDays; i++) {
+      DailyRevisions revisions = createDailyRevisions(revisionLog, startDay.minusDays(i));
+      cacheRevisions(SvnRevisionsCacheKey.forDay(connectionSettings, revisions.getDay()), revisions);
+      dailyRevisions.add(revisions);
+      numberOfChanges += revisions.getRevisions().size();
+    }
+    log.info("Found {} changes for {} days from {} with connection {}", numberOfChanges, numberOfDays + 1, startDay, connectionSettings);
+    return dailyRevisions;
   }
 
   /**
    * {@inheritDoc}
    */
   @Override
-  @Cacheable("svnRevisions")
   public Revisions retrieveRevisions(ScmConnectionSettings connectionSettings, int numberOfCommits) throws SVNException {
+    SvnRevisionsCacheKey cacheKey = SvnRevisionsCacheKey.forLastCommits(connectionSettings, numberOfCommits);
+    Revisions cachedRevisions = getCachedRevisions(cacheKey, Revisions.class);
+    if (cachedRevisions != null) {
+      return cachedRevisions;
+    }
+
     log.info("Retrieve revisions on last {} commits for {}", numberOfCommits, connectionSettings);
-    final SVNRepository repository = SvnRepositoryFactory.create(connectionSettings);
-
-    final Multimap<String, SvnFileRevision> revisions = ArrayListMultimap.create();
-    repository.log(null, repository.getLatestRevision(), 0L, true, true, numberOfCommits, new ISVNLogEntryHandler() {
-
-      @Override
-      public void handleLogEntry(SVNLogEntry logEntry) throws SVNException {
-        log.debug("Process revision {}", logEntry.getRevision());
-        for (SVNLogEntryPath logEntryPath : logEntry.getChangedPaths().values()) {
-          if (logEntryPath.getCopyPath() != null) {
-            revisions.put(logEntryPath.getPath(), new SvnFileRevision(logEntry.getRevision(), logEntryPath.getCopyPath(), logEntryPath.getPath()));
-          } else {
-            revisions.put(logEntryPath.getPath(), new SvnFileRevision(logEntry.getRevision(), logEntryPath.getPath(), logEntryPath.getPath()));
-          }
-        }
+    SVNRepository repository = sessionPool.borrowRepository(connectionSettings);
+    Multimap<String, SvnFileRevision> revisions;
+    boolean failed = true;
+    try {
+      revisions = revisionStore.synchronizeLastCommits(repository, numberOfCommits).getLastChanges(numberOfCommits);
+      failed = false;
+    } finally {
+      sessionPool.returnRepository(connectionSettings, repository, failed);
+    }
+    log.info("Found {} changes for last {} commits with connection {}", revisions.size(), numberOfCommits, connectionSettings);
+    Revisions lastRevisions = new Revisions(revisions);
+    cacheRevisions(cacheKey, lastRevisions);
+    return lastRevisions;
+  }
+
+  /**
+   * Synchronizes the stored log with all revisions from the start of the given day up to the latest one.
+   */
+  private SvnRevisionLog synchronizeFrom(ScmConnectionSettings connectionSettings, LocalDate day) throws SVNException {
+    SVNRepository repository = sessionPool.borrowRepository(connectionSettings);
+    boolean failed = true;
+    try {
+      // the dated revision is the last one before the day which is stored too, but belongs to no day of the window
+      long startRevision = repository.getDatedRevision(day.toDateTimeAtStartOfDay().toDate());
+      SvnRevisionLog revisionLog = revisionStore.synchronize(repository, startRevision);
+      failed = false;
+      return revisionLog;
+    } finally {
+      sessionPool.returnRepository(connectionSettings, repository, failed);
+    }
+  }
+
+  private DailyRevisions createDailyRevisions(SvnRevisionLog revisionLog, LocalDate day) {
+    DateTime startOfDay = day.toDateTimeAtStartOfDay();
+    return new DailyRevisions(day, revisionLog.getChanges(startOfDay, day.plusDays(1).toDateTimeAtStartOfDay()));
+  }
+
+  /**
+   * Returns the revisions of all days of the window from the cache or {@code null} if one of these days is not cached.
+   */
+  private List<DailyRevisions> retrieveCachedRevisions(ScmConnectionSettings connectionSettings, LocalDate startDay, int numberOfDays) {
+    List<DailyRevisions> dailyRevisions = new ArrayList<DailyRevisions>(numberOfDays + 1);
+    for (int i = 0; i <= numberOfDays; i++) {
+      SvnRevisionsCacheKey cacheKey = SvnRevisionsCacheKey.forDay(connectionSettings, startDay.minusDays(i));
+      DailyRevisions cachedRevisions = getCachedRevisions(cacheKey, DailyRevisions.class);
+      if (cachedRevisions == null) {
+        return null;
       }
-    });
+      dailyRevisions.add(cachedRevisions);
+    }
+    return dailyRevisions;
+  }
+
+  private <T extends Revisions> T getCachedRevisions(SvnRevisionsCacheKey cacheKey, Class<T> revisionsType) {
+    Cache cache = cacheManager.getCache(CACHE_NAME);
+    if (cache == null) {
+      return null;
+    }
+    Cache.ValueWrapper cachedRevisions = cache.get(cacheKey);
+    return cachedRevisions != null ? revisionsType.cast(cachedRevisions.get()) : null;
+  }
 
-    log.info("Found {} changes for last {} commits with connection {}", revisions.values().size(), numberOfCommits, connectionSettings);
-    return new Revisions(revisions);
+  private void cacheRevisions(SvnRevisionsCacheKey cacheKey, Revisions revisions) {
+    Cache cache = cacheManager.getCache(CACHE_NAME);
+    if (cache != null) {
+      cache.put(cacheKey, revisions);
+    }
   }
 }
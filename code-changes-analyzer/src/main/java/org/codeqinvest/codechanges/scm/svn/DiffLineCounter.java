@@ -0,0 +1,294 @@
+/*
+ * Copyright 2013 Felix Müller
+ *
+ * This file is part of CodeQ Invest.
+ *
+ * CodeQ Invest is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CodeQ Invest is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CodeQ Invest.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.codeqinvest.codechanges.scm.svn;
+
+import com.google.common.base.Optional;
+
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Counts the added and removed lines of a unified diff while it is
+ * written, so the diff never has to be held in memory as a whole.
+ * Only the first bytes of the current line are buffered, which are
+ * enough to classify the line and to parse hunk and file headers.
+ * <p/>
+ * Within a hunk, the number of old and new lines announced by its
+ * header decides which lines belong to it. That way removed lines
+ * whose content starts with {@code --} are still counted. Outside
+ * of hunks, lines starting with {@code +++} or {@code ---} are file
+ * headers and all other lines starting with {@code +} or {@code -}
+ * are counted, e.g. changes of svn properties.
+ * <p/>
+ * Besides the changed lines, the change of the number of lines of the file
+ * content is derived from the hunks only. {@link SvnFile#countLines()} does not
+ * count blank lines at the end of a file, so the change is unknown when a hunk
+ * could change them or when a hunk ended before all its announced lines were sent.
+ * <p/>
+ * When the diff contains several files, the changed lines are also
+ * counted per file. Every file starts with an {@code Index:} line.
+ *
+ * @author fmueller
+ */
+class DiffLineCounter extends OutputStream {
+
+  private static final int MAX_BUFFERED_BYTES = 4096;
+  private static final Pattern HUNK_HEADER = Pattern.compile("^@@ -\\d+(?:,(\\d+))? \\+\\d+(?:,(\\d+))? @@");
+
+  private final Charset charset;
+  private final byte[] lineSeparator;
+  private final byte[] plus;
+  private final byte[] minus;
+  private final byte[] fileHeaderOfNewFile;
+  private final byte[] fileHeaderOfOldFile;
+  private final byte[] hunkHeader;
+  private final byte[] context;
+  private final byte[] noNewlineMarker;
+  private final byte[] fileHeader;
+
+  private final byte[] line = new byte[MAX_BUFFERED_BYTES];
+  private int lineLength;
+  private int matchedSeparatorBytes;
+
+  private long remainingOldLines;
+  private long remainingNewLines;
+  private long oldLinesOfHunk;
+  private long newLinesOfHunk;
+  private long trailingBlankOldLinesOfHunk;
+  private long trailingBlankNewLinesOfHunk;
+  private long addedLines;
+  private long removedLines;
+  private long lineCountChange;
+  private boolean lineCountChangeKnown = true;
+
+  private final Map<String, ChangedLines> changedLinesByFile = new LinkedHashMap<String, ChangedLines>();
+  private String currentFile;
+  private long addedLinesOfCurrentFile;
+  private long removedLinesOfCurrentFile;
+  private long lineCountChangeOfCurrentFile;
+  private boolean lineCountChangeOfCurrentFileKnown = true;
+
+  DiffLineCounter(String encoding, String lineSeparator) {
+    charset = Charset.forName(encoding);
+    this.lineSeparator = lineSeparator.getBytes(charset);
+    plus = "+".getBytes(charset);
+    minus = "-".getBytes(charset);
+    fileHeaderOfNewFile = "+++".getBytes(charset);
+    fileHeaderOfOldFile = "---".getBytes(charset);
+    hunkHeader = "@@".getBytes(charset);
+    context = " ".getBytes(charset);
+    noNewlineMarker = "\\".getBytes(charset);
+    fileHeader = "Index: ".getBytes(charset);
+  }
+
+  @Override
+  public void write(int b) {
+    if (lineLength < MAX_BUFFERED_BYTES) {
+      line[lineLength] = (byte) b;
+    }
+    lineLength++;
+
+    if (b == lineSeparator[matchedSeparatorBytes]) {
+      matchedSeparatorBytes++;
+    } else {
+      matchedSeparatorBytes = b == lineSeparator[0] ? 1 : 0;
+    }
+    if (matchedSeparatorBytes == lineSeparator.length) {
+      countLine(lineLength - lineSeparator.length);
+      lineLength = 0;
+      matchedSeparatorBytes = 0;
+    }
+  }
+
+  /**
+   * Counts the last line if it was not terminated by a line separator.
+   */
+  @Override
+  public void close() {
+    if (lineLength > 0) {
+      countLine(lineLength);
+      lineLength = 0;
+      matchedSeparatorBytes = 0;
+    }
+    if (isInHunk()) {
+      unknownLineCountChange();
+    }
+    finishFile();
+  }
+
+  long getAddedLines() {
+    return addedLines;
+  }
+
+  long getRemovedLines() {
+    return removedLines;
+  }
+
+  long getChangedLines() {
+    return addedLines + removedLines;
+  }
+
+  /**
+   * Returns the changed lines of the whole diff. Only complete after {@link #close()}.
+   */
+  ChangedLines getChangedLinesOfDiff() {
+    return new ChangedLines(addedLines, removedLines, lineCountChangeKnown ? Optional.of(lineCountChange) : Optional.<Long>absent());
+  }
+
+  /**
+   * Returns the changed lines of every file of the diff by the path
+   * of its {@code Index:} line. Only complete after {@link #close()}.
+   */
+  Map<String, ChangedLines> getChangedLinesByFile() {
+    return changedLinesByFile;
+  }
+
+  private void countLine(int length) {
+    int bufferedLength = Math.min(length, MAX_BUFFERED_BYTES);
+    if (isInHunk()) {
+      boolean blank = length <= 1;
+      if (startsWith(plus, bufferedLength)) {
+        countAddedLine();
+        countNewLineOfHunk(blank);
+        return;
+      } else if (startsWith(minus, bufferedLength)) {
+        countRemovedLine();
+        countOldLineOfHunk(blank);
+        return;
+      } else if (length == 0 || startsWith(context, bufferedLength)) {
+        countOldLineOfHunk(blank);
+        countNewLineOfHunk(blank);
+        return;
+      } else if (startsWith(noNewlineMarker, bufferedLength)) {
+        // "\ No newline at end of file" belongs to the preceding line
+        return;
+      }
+      // the announced lines were not sent completely, so every other line ends the hunk
+      remainingOldLines = 0;
+      remainingNewLines = 0;
+      unknownLineCountChange();
+    }
+
+    if (startsWith(hunkHeader, bufferedLength)) {
+      startHunk(bufferedLength);
+    } else if (startsWith(fileHeader, bufferedLength)) {
+      startFile(bufferedLength);
+    } else if (startsWith(plus, bufferedLength) && !startsWith(fileHeaderOfNewFile, bufferedLength)) {
+      countAddedLine();
+    } else if (startsWith(minus, bufferedLength) && !startsWith(fileHeaderOfOldFile, bufferedLength)) {
+      countRemovedLine();
+    }
+  }
+
+  private void countAddedLine() {
+    addedLines++;
+    addedLinesOfCurrentFile++;
+  }
+
+  private void countRemovedLine() {
+    removedLines++;
+    removedLinesOfCurrentFile++;
+  }
+
+  private void countOldLineOfHunk(boolean blank) {
+    remainingOldLines--;
+    oldLinesOfHunk++;
+    trailingBlankOldLinesOfHunk = blank ? trailingBlankOldLinesOfHunk + 1 : 0;
+    finishHunkIfComplete();
+  }
+
+  private void countNewLineOfHunk(boolean blank) {
+    remainingNewLines--;
+    newLinesOfHunk++;
+    trailingBlankNewLinesOfHunk = blank ? trailingBlankNewLinesOfHunk + 1 : 0;
+    finishHunkIfComplete();
+  }
+
+  /**
+   * A hunk can only change the blank lines at the end of the file if it reaches the end of the file.
+   * Then its trailing blank lines are the ones of the file, unless one side consists of blank lines only.
+   */
+  private void finishHunkIfComplete() {
+    if (isInHunk()) {
+      return;
+    }
+    lineCountChange += newLinesOfHunk - oldLinesOfHunk;
+    lineCountChangeOfCurrentFile += newLinesOfHunk - oldLinesOfHunk;
+    if (trailingBlankOldLinesOfHunk != trailingBlankNewLinesOfHunk
+        || (trailingBlankOldLinesOfHunk > 0 && (trailingBlankOldLinesOfHunk == oldLinesOfHunk || trailingBlankNewLinesOfHunk == newLinesOfHunk))) {
+      unknownLineCountChange();
+    }
+  }
+
+  private void unknownLineCountChange() {
+    lineCountChangeKnown = false;
+    lineCountChangeOfCurrentFileKnown = false;
+  }
+
+  private void startFile(int length) {
+    finishFile();
+    currentFile = new String(line, fileHeader.length, length - fileHeader.length, charset).trim();
+  }
+
+  private void finishFile() {
+    if (currentFile != null) {
+      changedLinesByFile.put(currentFile, new ChangedLines(addedLinesOfCurrentFile, removedLinesOfCurrentFile,
+          lineCountChangeOfCurrentFileKnown ? Optional.of(lineCountChangeOfCurrentFile) : Optional.<Long>absent()));
+    }
+    currentFile = null;
+    addedLinesOfCurrentFile = 0;
+    removedLinesOfCurrentFile = 0;
+    lineCountChangeOfCurrentFile = 0;
+    lineCountChangeOfCurrentFileKnown = true;
+  }
+
+  private void startHunk(int length) {
+    Matcher matcher = HUNK_HEADER.matcher(new String(line, 0, length, charset));
+    if (matcher.find()) {
+      remainingOldLines = matcher.group(1) != null ? Long.parseLong(matcher.group(1)) : 1L;
+      remainingNewLines = matcher.group(2) != null ? Long.parseLong(matcher.group(2)) : 1L;
+      oldLinesOfHunk = 0;
+      newLinesOfHunk = 0;
+      trailingBlankOldLinesOfHunk = 0;
+      trailingBlankNewLinesOfHunk = 0;
+    } else {
+      unknownLineCountChange();
+    }
+  }
+
+  private boolean isInHunk() {
+    return remainingOldLines > 0 || remainingNewLines > 0;
+  }
+
+  private boolean startsWith(byte[] prefix, int length) {
+    if (length < prefix.length) {
+      return false;
+    }
+    for (int i = 0; i < prefix.length; i++) {
+      if (line[i] != prefix[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
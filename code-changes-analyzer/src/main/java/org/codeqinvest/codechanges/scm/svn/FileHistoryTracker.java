@@ -0,0 +1,129 @@
+/*
+ * Copyright 2013 Felix Müller
+ *
+ * This file is part of CodeQ Invest.
+ *
+ * CodeQ Invest is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CodeQ Invest is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CodeQ Invest.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.codeqinvest.codechanges.scm.svn;
+
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multimap;
+import com.google.common.collect.SetMultimap;
+import org.codeqinvest.codechanges.scm.ScmConnectionSettings;
+import org.tmatesoft.svn.core.SVNException;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Attributes the revisions of a part of the svn history to a set of tracked
+ * files in one pass. The revisions are processed from the newest to the
+ * oldest one and every tracked file follows its renames and moves, so older
+ * revisions are attributed to the file by its former path.
+ *
+ * @author fmueller
+ */
+class FileHistoryTracker {
+
+  private static final Comparator<SvnFileRevision> NEWEST_REVISION_FIRST = new Comparator<SvnFileRevision>() {
+
+    @Override
+    public int compare(SvnFileRevision fileRevision, SvnFileRevision otherFileRevision) {
+      return fileRevision.getRevision() > otherFileRevision.getRevision() ? -1
+          : (fileRevision.getRevision() == otherFileRevision.getRevision() ? 0 : 1);
+    }
+  };
+
+  private final ScmConnectionSettings connectionSettings;
+  private final SetMultimap<String, String> trackedFilesByCurrentPath = HashMultimap.create();
+
+  FileHistoryTracker(ScmConnectionSettings connectionSettings, Collection<String> files) {
+    this.connectionSettings = connectionSettings;
+    for (String file : files) {
+      trackedFilesByCurrentPath.put(normalize(file), file);
+    }
+  }
+
+  /**
+   * Attributes the given revisions to the tracked files. A revision belongs
+   * to a tracked file if the changed path ends with the current path of the
+   * file at complete path segments.
+   *
+   * @return all revisions of each tracked file ordered from the newest to the oldest one
+   * @throws SVNException if the file part of a renamed path could not be determined
+   */
+  ListMultimap<String, SvnFileRevision> attribute(Collection<SvnFileRevision> fileRevisions) throws SVNException {
+    List<SvnFileRevision> sortedFileRevisions = new ArrayList<SvnFileRevision>(fileRevisions);
+    Collections.sort(sortedFileRevisions, NEWEST_REVISION_FIRST);
+
+    ListMultimap<String, SvnFileRevision> revisionsByTrackedFile = ArrayListMultimap.create();
+    int i = 0;
+    while (i < sortedFileRevisions.size()) {
+      // all changed paths of one commit are matched against the paths before this commit
+      // so that the deleted old path of a rename is not counted twice
+      long revision = sortedFileRevisions.get(i).getRevision();
+      Map<String, String> renames = Maps.newHashMap();
+      for (; i < sortedFileRevisions.size() && sortedFileRevisions.get(i).getRevision() == revision; i++) {
+        SvnFileRevision fileRevision = sortedFileRevisions.get(i);
+        for (String matchingPath : findTrackedPaths(fileRevision.getNewPath())) {
+          for (String trackedFile : trackedFilesByCurrentPath.get(matchingPath)) {
+            revisionsByTrackedFile.put(trackedFile, fileRevision);
+          }
+          if (!fileRevision.getOldPath().equalsIgnoreCase(fileRevision.getNewPath())) {
+            renames.put(matchingPath, normalize(fileRevision.getFilePartOfOldPath(connectionSettings)));
+          }
+        }
+      }
+      applyRenames(renames);
+    }
+    return revisionsByTrackedFile;
+  }
+
+  private List<String> findTrackedPaths(String changedPath) {
+    List<String> trackedPaths = Lists.newArrayList();
+    String path = normalize(changedPath);
+    while (true) {
+      if (trackedFilesByCurrentPath.containsKey(path)) {
+        trackedPaths.add(path);
+      }
+      int nextSegment = path.indexOf('/');
+      if (nextSegment < 0) {
+        return trackedPaths;
+      }
+      path = path.substring(nextSegment + 1);
+    }
+  }
+
+  private void applyRenames(Map<String, String> renames) {
+    // remove all renamed paths first to support files that swapped their paths in one commit
+    Multimap<String, String> renamedFiles = ArrayListMultimap.create();
+    for (Map.Entry<String, String> rename : renames.entrySet()) {
+      renamedFiles.putAll(rename.getValue(), trackedFilesByCurrentPath.removeAll(rename.getKey()));
+    }
+    trackedFilesByCurrentPath.putAll(renamedFiles);
+  }
+
+  private static String normalize(String path) {
+    return path.startsWith("/") ? path.substring(1) : path;
+  }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2013 Felix Müller
+ *
+ * This file is part of CodeQ Invest.
+ *
+ * CodeQ Invest is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CodeQ Invest is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CodeQ Invest.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.codeqinvest.codechanges.scm.svn;
+
+import com.google.common.base.Optional;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Holds the changed lines of all files of one revision. The files are
+ * identified by the paths of the diff which are relative to the diffed
+ * repository location.
+ *
+ * @author fmueller
+ */
+@EqualsAndHashCode
+@ToString
+class RevisionDiff {
+
+  @Getter
+  private final long revision;
+  private final Map<String, ChangedLines> changedLinesByFile;
+
+  RevisionDiff(long revision, Map<String, ChangedLines> changedLinesByFile) {
+    this.revision = revision;
+    this.changedLinesByFile = Collections.unmodifiableMap(changedLinesByFile);
+  }
+
+  /**
+   * Returns the changed lines of the file whose path of the diff is the longest
+   * trailing part of the given path, matched at complete path segments. The
+   * trailing parts are looked up from the longest to the shortest one.
+   */
+  Optional<ChangedLines> getChangedLines(String path) {
+    int start = 0;
+    while (true) {
+      ChangedLines changedLines = changedLinesByFile.get(path.substring(start));
+      if (changedLines != null) {
+        return Optional.of(changedLines);
+      }
+      int nextSeparator = path.indexOf('/', start);
+      if (nextSeparator < 0) {
+        return Optional.absent();
+      }
+      start = nextSeparator + 1;
+    }
+  }
+
+  int getNumberOfFiles() {
+    return changedLinesByFile.size();
+  }
+}
@@ -18,28 +18,81 @@
  */
 package org.codeqinvest.codechanges.scm.svn;
 
+import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Multimap;
-import lombok.Data;
+import com.google.common.collect.SetMultimap;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+import lombok.extern.slf4j.Slf4j;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
 
 /**
+ * Holds the changed paths of a number of revisions. For fast lookups
+ * of the revisions of a file, all trailing parts of every changed path
+ * are indexed on creation, so a lookup does not depend on the number
+ * of changed paths.
+ *
  * @author fmueller
  */
-@Data
+@Slf4j
+@EqualsAndHashCode(of = "revisions")
+@ToString(of = "revisions")
 class Revisions {
 
   private static final Collection<SvnFileRevision> NO_REVISIONS = new ArrayList<SvnFileRevision>();
 
+  @Getter
   private final Multimap<String, SvnFileRevision> revisions;
+  private final SetMultimap<String, String> pathsByTrailingPart = HashMultimap.create();
 
-  Collection<SvnFileRevision> getRevisions(String file) {
-    for (String currentFile : revisions.keySet()) {
-      if (currentFile.endsWith(file)) {
-        return revisions.get(currentFile);
+  Revisions(Multimap<String, SvnFileRevision> revisions) {
+    this.revisions = revisions;
+    for (String path : revisions.keySet()) {
+      String trailingPart = normalize(path);
+      while (true) {
+        pathsByTrailingPart.put(trailingPart, path);
+        int nextSegment = trailingPart.indexOf('/');
+        if (nextSegment < 0) {
+          break;
+        }
+        trailingPart = trailingPart.substring(nextSegment + 1);
       }
     }
-    return NO_REVISIONS;
+  }
+
+  /**
+   * Returns the revisions of the changed path that ends with the given file at complete path
+   * segments. If more than one changed path ends with the file, the lexicographically first
+   * path is used and the ambiguity is logged.
+   */
+  Collection<SvnFileRevision> getRevisions(String file) {
+    Set<String> matchingPaths = pathsByTrailingPart.get(normalize(file));
+    if (matchingPaths.isEmpty()) {
+      return NO_REVISIONS;
+    }
+    if (matchingPaths.size() == 1) {
+      return revisions.get(matchingPaths.iterator().next());
+    }
+    List<String> sortedPaths = new ArrayList<String>(matchingPaths);
+    Collections.sort(sortedPaths);
+    log.warn("File {} is ambiguous and matches the changed paths {}, using {}", file, sortedPaths, sortedPaths.get(0));
+    return revisions.get(sortedPaths.get(0));
+  }
+
+  /**
+   * Checks if more than one changed path ends with the given file.
+   */
+  boolean isAmbiguous(String file) {
+    return pathsByTrailingPart.get(normalize(file)).size() > 1;
+  }
+
+  private static String normalize(String path) {
+    return path.startsWith("/") ? path.substring(1) : path;
   }
 }
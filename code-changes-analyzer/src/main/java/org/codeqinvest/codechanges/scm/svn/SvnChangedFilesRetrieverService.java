@@ -0,0 +1,93 @@
+/*
+ * Copyright 2013 Felix Müller
+ *
+ * This file is part of CodeQ Invest.
+ *
+ * CodeQ Invest is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CodeQ Invest is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CodeQ Invest.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.codeqinvest.codechanges.scm.svn;
+
+import com.google.common.collect.Sets;
+import lombok.extern.slf4j.Slf4j;
+import org.codeqinvest.codechanges.scm.ChangedFilesRetriever;
+import org.codeqinvest.codechanges.scm.CodeChurnCalculationException;
+import org.codeqinvest.codechanges.scm.ScmConnectionSettings;
+import org.joda.time.DateTime;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.tmatesoft.svn.core.ISVNLogEntryHandler;
+import org.tmatesoft.svn.core.SVNException;
+import org.tmatesoft.svn.core.SVNLogEntry;
+import org.tmatesoft.svn.core.SVNLogEntryPath;
+import org.tmatesoft.svn.core.io.SVNRepository;
+
+import java.util.Set;
+
+/**
+ * Retrieves the changed files of a SVN repository
+ * with one log request since the given point in time.
+ *
+ * @author fmueller
+ */
+@Slf4j
+@Service
+public class SvnChangedFilesRetrieverService implements ChangedFilesRetriever {
+
+  private final SvnSessionPool sessionPool;
+
+  @Autowired
+  SvnChangedFilesRetrieverService(SvnSessionPool sessionPool) {
+    this.sessionPool = sessionPool;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Set<String> retrieveChangedFiles(ScmConnectionSettings connectionSettings, DateTime since) throws CodeChurnCalculationException {
+    final Set<String> changedFiles = Sets.newHashSet();
+    SVNRepository repository = null;
+    boolean failed = true;
+    try {
+      repository = sessionPool.borrowRepository(connectionSettings);
+      // the dated revision is the last revision that was committed before or at the given time
+      final long lastKnownRevision = repository.getDatedRevision(since.toDate());
+      final long latestRevision = repository.getLatestRevision();
+      if (lastKnownRevision < latestRevision) {
+        repository.log(null, lastKnownRevision + 1, latestRevision, true, false, new ISVNLogEntryHandler() {
+
+          @Override
+          public void handleLogEntry(SVNLogEntry logEntry) throws SVNException {
+            for (SVNLogEntryPath logEntryPath : logEntry.getChangedPaths().values()) {
+              changedFiles.add(logEntryPath.getPath());
+              if (logEntryPath.getCopyPath() != null) {
+                changedFiles.add(logEntryPath.getCopyPath());
+              }
+            }
+          }
+        });
+      }
+      failed = false;
+    } catch (SVNException e) {
+      log.error("Error with svn server communication occurred!", e);
+      throw new CodeChurnCalculationException(e);
+    } finally {
+      if (repository != null) {
+        sessionPool.returnRepository(connectionSettings, repository, failed);
+      }
+    }
+    log.info("Found {} changed files since {} with connection {}", changedFiles.size(), since, connectionSettings);
+    return changedFiles;
+  }
+}
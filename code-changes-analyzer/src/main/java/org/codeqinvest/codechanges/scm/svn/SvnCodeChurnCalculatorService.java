@@ -18,7 +18,11 @@
  */
 package org.codeqinvest.codechanges.scm.svn;
 
+import com.google.common.collect.HashMultiset;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Multimap;
+import com.google.common.collect.Multiset;
 import lombok.extern.slf4j.Slf4j;
 import org.codeqinvest.codechanges.scm.CodeChurn;
 import org.codeqinvest.codechanges.scm.CodeChurnCalculationException;
@@ -30,18 +34,21 @@ import org.joda.time.LocalDate;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.tmatesoft.svn.core.SVNException;
-import org.tmatesoft.svn.core.auth.BasicAuthenticationManager;
-import org.tmatesoft.svn.core.internal.wc2.ng.SvnDiffGenerator;
-import org.tmatesoft.svn.core.wc2.SvnDiff;
-import org.tmatesoft.svn.core.wc2.SvnOperationFactory;
+import org.tmatesoft.svn.core.io.SVNRepository;
 
-import java.io.ByteArrayOutputStream;
 import java.io.UnsupportedEncodingException;
-import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
 
 /**
  * Calculates the code churn for files in a SVN repository.
@@ -52,15 +59,25 @@ import java.util.Map;
 @Service
 public class SvnCodeChurnCalculatorService implements CodeChurnCalculator {
 
-  private static final String LINE_SEPARATOR = System.getProperty("line.separator", "\n");
+  static final int FILES_PER_CHUNK = 25;
 
   private final SvnRevisionsRetriever revisionsRetrieverService;
   private final SvnFileRetrieverService fileRetrieverService;
+  private final SvnRevisionStore revisionStore;
+  private final SvnDiffRetriever diffRetriever;
+  private final SvnSessionPool sessionPool;
+  private final SvnServerExecutors serverExecutors;
 
   @Autowired
-  public SvnCodeChurnCalculatorService(SvnRevisionsRetriever revisionsRetrieverService, SvnFileRetrieverService fileRetrieverService) {
+  public SvnCodeChurnCalculatorService(SvnRevisionsRetriever revisionsRetrieverService, SvnFileRetrieverService fileRetrieverService,
+                                       SvnRevisionStore revisionStore, SvnDiffRetriever diffRetriever, SvnSessionPool sessionPool,
+                                       SvnServerExecutors serverExecutors) {
     this.revisionsRetrieverService = revisionsRetrieverService;
     this.fileRetrieverService = fileRetrieverService;
+    this.revisionStore = revisionStore;
+    this.diffRetriever = diffRetriever;
+    this.sessionPool = sessionPool;
+    this.serverExecutors = serverExecutors;
   }
 
   /**
@@ -74,46 +91,52 @@ public class SvnCodeChurnCalculatorService implements CodeChurnCalculator {
     int currentNumberOfDay;
     long lastRevision = -1;
     Map<LocalDate, DailyCodeChurn> codeChurns = Maps.newHashMap();
-    for (int i = 0; i <= numberOfDays; i++) {
-      currentNumberOfDay = i;
-      final LocalDate day = startDay.minusDays(i);
-      try {
-        final Collection<SvnFileRevision> revisions = revisionsRetrieverService.retrieveRevisions(connectionSettings, day).getRevisions(currentFilePath);
-        List<Double> codeChurnProportions = new ArrayList<Double>(revisions.size());
-        for (SvnFileRevision revision : revisions) {
-
-          if (lastRevision != -1 && revision.getRevision() == lastRevision) {
-            lastRevision = -1;
-            continue;
-          }
+    final Map<LocalDate, DailyRevisions> revisionsByDay = retrieveRevisionsByDay(connectionSettings, startDay, numberOfDays);
+    final SvnLineCountLedger lineCountLedger = createLineCountLedger(connectionSettings);
+    try {
+      for (int i = 0; i <= numberOfDays; i++) {
+        currentNumberOfDay = i;
+        final LocalDate day = startDay.minusDays(i);
+        try {
+          final Collection<SvnFileRevision> revisions = revisionsByDay.get(day).getRevisions(currentFilePath);
+          List<Double> codeChurnProportions = new ArrayList<Double>(revisions.size());
+          for (SvnFileRevision revision : revisions) {
+
+            if (lastRevision != -1 && revision.getRevision() == lastRevision) {
+              lastRevision = -1;
+              continue;
+            }
 
-          codeChurnProportions.add(calculateCodeChurnProportion(connectionSettings, revision));
+            codeChurnProportions.add(calculateCodeChurnProportion(connectionSettings, lineCountLedger, revision));
 
-          if (!revision.getOldPath().equalsIgnoreCase(revision.getNewPath())) {
-            // file was moved or renamed => change the currentFilePath for next revision retrieving requests
-            currentFilePath = revision.getFilePartOfOldPath(connectionSettings);
+            if (!revision.getOldPath().equalsIgnoreCase(revision.getNewPath())) {
+              // file was moved or renamed => change the currentFilePath for next revision retrieving requests
+              currentFilePath = revision.getFilePartOfOldPath(connectionSettings);
 
-            // spawn get revisions request afterwards for new file name due it's possible that there are revision for it on the current day
-            if (existRevisionsForFileOnDay(connectionSettings, currentFilePath, day) && i - 1 == currentNumberOfDay - 1) {
-              // to prevent that the day index is incremented more than once when there are more renamed revision on the current day
-              i = currentNumberOfDay - 1;
-              lastRevision = revision.getRevision();
+              // spawn get revisions request afterwards for new file name due it's possible that there are revision for it on the current day
+              if (!revisionsByDay.get(day).getRevisions(currentFilePath).isEmpty() && i - 1 == currentNumberOfDay - 1) {
+                // to prevent that the day index is incremented more than once when there are more renamed revision on the current day
+                i = currentNumberOfDay - 1;
+                lastRevision = revision.getRevision();
+              }
             }
           }
-        }
 
-        if (codeChurns.containsKey(day)) {
-          codeChurns.get(day).addCodeChurnProportions(codeChurnProportions);
-        } else {
-          codeChurns.put(day, new DailyCodeChurn(day, codeChurnProportions));
+          if (codeChurns.containsKey(day)) {
+            codeChurns.get(day).addCodeChurnProportions(codeChurnProportions);
+          } else {
+            codeChurns.put(day, new DailyCodeChurn(day, codeChurnProportions));
+          }
+        } catch (SVNException e) {
+          log.error("Error with svn server communication occurred!", e);
+          throw new CodeChurnCalculationException(e);
+        } catch (UnsupportedEncodingException e) {
+          log.error("An error with encoding settings of scm connection occurred! (settings: " + connectionSettings.toString() + ")", e);
+          throw new ScmConnectionEncodingException(e);
         }
-      } catch (SVNException e) {
-        log.error("Error with svn server communication occurred!", e);
-        throw new CodeChurnCalculationException(e);
-      } catch (UnsupportedEncodingException e) {
-        log.error("An error with encoding settings of scm connection occurred! (settings: " + connectionSettings.toString() + ")", e);
-        throw new ScmConnectionEncodingException(e);
       }
+    } finally {
+      lineCountLedger.flush();
     }
     return codeChurns.values();
   }
@@ -126,12 +149,13 @@ public class SvnCodeChurnCalculatorService implements CodeChurnCalculator {
       throws CodeChurnCalculationException, ScmConnectionEncodingException {
 
     String currentFilePath = file;
+    final SvnLineCountLedger lineCountLedger = createLineCountLedger(connectionSettings);
     try {
       final Collection<SvnFileRevision> revisions = revisionsRetrieverService.retrieveRevisions(connectionSettings, numberOfCommits).getRevisions(currentFilePath);
       List<Double> codeChurnProportions = new ArrayList<Double>(revisions.size());
       for (SvnFileRevision revision : revisions) {
 
-        codeChurnProportions.add(calculateCodeChurnProportion(connectionSettings, revision));
+        codeChurnProportions.add(calculateCodeChurnProportion(connectionSettings, lineCountLedger, revision));
 
         if (!revision.getOldPath().equalsIgnoreCase(revision.getNewPath())) {
           // file was moved or renamed => change the currentFilePath for next revision retrieving requests
@@ -148,64 +172,243 @@ public class SvnCodeChurnCalculatorService implements CodeChurnCalculator {
     } catch (UnsupportedEncodingException e) {
       log.error("An error with encoding settings of scm connection occurred! (settings: " + connectionSettings.toString() + ")", e);
       throw new ScmConnectionEncodingException(e);
+    } finally {
+      lineCountLedger.flush();
     }
   }
 
-  private double calculateCodeChurnProportion(ScmConnectionSettings connectionSettings, SvnFileRevision revision) throws SVNException, UnsupportedEncodingException {
-    long codeChurn = retrieveCodeChurn(connectionSettings, revision);
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Map<String, Collection<DailyCodeChurn>> calculateCodeChurn(ScmConnectionSettings connectionSettings, Collection<String> files,
+                                                                    LocalDate startDay, int numberOfDays)
+      throws CodeChurnCalculationException, ScmConnectionEncodingException {
+
     try {
-      long linesPreviousCommit = fileRetrieverService.getFile(connectionSettings, revision.getOldPath(), revision.getRevision() - 1).countLines();
-      return codeChurn / (double) linesPreviousCommit;
+      Map<Long, LocalDate> dayOfRevision = Maps.newHashMap();
+      List<SvnFileRevision> fileRevisions = new ArrayList<SvnFileRevision>();
+      for (DailyRevisions revisions : revisionsRetrieverService.retrieveRevisions(connectionSettings, startDay, numberOfDays)) {
+        for (SvnFileRevision fileRevision : revisions.getRevisions().values()) {
+          fileRevisions.add(fileRevision);
+          dayOfRevision.put(fileRevision.getRevision(), revisions.getDay());
+        }
+      }
+
+      Multimap<String, SvnFileRevision> revisionsByFile = new FileHistoryTracker(connectionSettings, files).attribute(fileRevisions);
+      Map<SvnFileRevision, Double> codeChurnProportions = calculateCodeChurnProportions(connectionSettings, revisionsByFile, fileRevisions);
+      Map<String, Collection<DailyCodeChurn>> codeChurnsByFile = new LinkedHashMap<String, Collection<DailyCodeChurn>>();
+      for (String file : files) {
+        Map<LocalDate, DailyCodeChurn> codeChurns = new LinkedHashMap<LocalDate, DailyCodeChurn>();
+        for (int i = 0; i <= numberOfDays; i++) {
+          LocalDate day = startDay.minusDays(i);
+          codeChurns.put(day, new DailyCodeChurn(day, new ArrayList<Double>()));
+        }
+        for (SvnFileRevision fileRevision : revisionsByFile.get(file)) {
+          codeChurns.get(dayOfRevision.get(fileRevision.getRevision()))
+              .addCodeChurnProportions(Arrays.asList(codeChurnProportions.get(fileRevision)));
+        }
+        codeChurnsByFile.put(file, codeChurns.values());
+      }
+      log.info("Calculated code churn of {} files with {} changed paths in {} days", files.size(), fileRevisions.size(), numberOfDays + 1);
+      return codeChurnsByFile;
     } catch (SVNException e) {
-      // file could not be found for revision - 1 which means it was created and that means a code churn proportion of 1.0
-      return 1.0;
+      log.error("Error with svn server communication occurred!", e);
+      throw new CodeChurnCalculationException(e);
+    } catch (UnsupportedEncodingException e) {
+      log.error("An error with encoding settings of scm connection occurred! (settings: " + connectionSettings.toString() + ")", e);
+      throw new ScmConnectionEncodingException(e);
     }
   }
 
-  private boolean existRevisionsForFileOnDay(ScmConnectionSettings connectionSettings, String file, LocalDate day) {
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Map<String, CodeChurn> calculateCodeChurnForLastCommits(ScmConnectionSettings connectionSettings, Collection<String> files, int numberOfCommits)
+      throws CodeChurnCalculationException, ScmConnectionEncodingException {
+
     try {
-      return !revisionsRetrieverService.retrieveRevisions(connectionSettings, day).getRevisions(file).isEmpty();
+      Collection<SvnFileRevision> fileRevisions = revisionsRetrieverService.retrieveRevisions(connectionSettings, numberOfCommits).getRevisions().values();
+      Multimap<String, SvnFileRevision> revisionsByFile = new FileHistoryTracker(connectionSettings, files).attribute(fileRevisions);
+      Map<SvnFileRevision, Double> codeChurnProportions = calculateCodeChurnProportions(connectionSettings, revisionsByFile, fileRevisions);
+      Map<String, CodeChurn> codeChurnByFile = new LinkedHashMap<String, CodeChurn>();
+      for (String file : files) {
+        List<Double> codeChurnProportionsOfFile = new ArrayList<Double>();
+        for (SvnFileRevision fileRevision : revisionsByFile.get(file)) {
+          codeChurnProportionsOfFile.add(codeChurnProportions.get(fileRevision));
+        }
+        codeChurnByFile.put(file, new CodeChurn(codeChurnProportionsOfFile));
+      }
+      return codeChurnByFile;
     } catch (SVNException e) {
-      return false;
+      log.error("Error with svn server communication occurred!", e);
+      throw new CodeChurnCalculationException(e);
+    } catch (UnsupportedEncodingException e) {
+      log.error("An error with encoding settings of scm connection occurred! (settings: " + connectionSettings.toString() + ")", e);
+      throw new ScmConnectionEncodingException(e);
     }
   }
 
-  private long retrieveCodeChurn(ScmConnectionSettings connectionSettings, SvnFileRevision fileRevision) throws SVNException, UnsupportedEncodingException {
-    long codeChurn = 0L;
-    log.debug("Retrieve code churn for revision {}", fileRevision);
-    for (String line : retrieveDiffFromSvnServer(connectionSettings, fileRevision).split(LINE_SEPARATOR)) {
-      if ((line.startsWith("+") && !line.startsWith("+++")) || (line.startsWith("-") && !line.startsWith("---"))) {
-        codeChurn++;
+  /**
+   * The same revision can be attributed to several files, so its diff is only retrieved once. Which revisions
+   * are diffed at once is decided for all files, then the diffs of these revisions are retrieved and the
+   * files are calculated in chunks by the executor of the svn server. The revisions of each chunk are processed
+   * from the oldest to the newest one, so the number of lines of a file can be derived from its previous change.
+   */
+  private Map<SvnFileRevision, Double> calculateCodeChurnProportions(final ScmConnectionSettings connectionSettings,
+                                                                     final Multimap<String, SvnFileRevision> revisionsByFile,
+                                                                     Collection<SvnFileRevision> allFileRevisions)
+      throws SVNException, UnsupportedEncodingException, CodeChurnCalculationException {
+
+    Set<Long> revisionsToDiffAtOnce = selectRevisionsToDiffAtOnce(new HashSet<SvnFileRevision>(revisionsByFile.values()), allFileRevisions);
+    final Map<Long, RevisionDiff> revisionDiffs = retrieveRevisionDiffs(connectionSettings, revisionsToDiffAtOnce);
+    final SvnLineCountLedger lineCountLedger = createLineCountLedger(connectionSettings);
+
+    List<String> sortedFiles = new ArrayList<String>(revisionsByFile.keySet());
+    Collections.sort(sortedFiles);
+    List<Callable<Map<SvnFileRevision, Double>>> chunks = new ArrayList<Callable<Map<SvnFileRevision, Double>>>();
+    for (final List<String> files : Lists.partition(sortedFiles, FILES_PER_CHUNK)) {
+      chunks.add(new Callable<Map<SvnFileRevision, Double>>() {
+        @Override
+        public Map<SvnFileRevision, Double> call() throws SVNException, UnsupportedEncodingException {
+          List<SvnFileRevision> fileRevisions = new ArrayList<SvnFileRevision>();
+          for (String file : files) {
+            fileRevisions.addAll(revisionsByFile.get(file));
+          }
+          return calculateCodeChurnProportions(connectionSettings, lineCountLedger, revisionDiffs, fileRevisions);
+        }
+      });
+    }
+    log.debug("Calculating code churn proportions of {} files in {} chunks", sortedFiles.size(), chunks.size());
+
+    Map<SvnFileRevision, Double> codeChurnProportions = Maps.newHashMap();
+    try {
+      for (Map<SvnFileRevision, Double> codeChurnProportionsOfChunk : serverExecutors.invokeAll(connectionSettings, chunks)) {
+        codeChurnProportions.putAll(codeChurnProportionsOfChunk);
       }
+    } finally {
+      lineCountLedger.flush();
     }
-    return codeChurn;
+    return codeChurnProportions;
   }
 
-  private String retrieveDiffFromSvnServer(ScmConnectionSettings connectionSettings, SvnFileRevision fileRevision) throws SVNException, UnsupportedEncodingException {
-    SvnOperationFactory operationFactory = null;
-    try {
-      operationFactory = new SvnOperationFactory();
-      if (connectionSettings.hasUsername()) {
-        operationFactory.setAuthenticationManager(
-            new BasicAuthenticationManager(connectionSettings.getUsername(), connectionSettings.getPassword()));
+  private Map<SvnFileRevision, Double> calculateCodeChurnProportions(ScmConnectionSettings connectionSettings, SvnLineCountLedger lineCountLedger,
+                                                                     Map<Long, RevisionDiff> revisionDiffs, Collection<SvnFileRevision> fileRevisions)
+      throws SVNException, UnsupportedEncodingException {
+    List<SvnFileRevision> orderedRevisions = new ArrayList<SvnFileRevision>(new LinkedHashSet<SvnFileRevision>(fileRevisions));
+    Collections.sort(orderedRevisions, new Comparator<SvnFileRevision>() {
+      @Override
+      public int compare(SvnFileRevision revision, SvnFileRevision otherRevision) {
+        return Long.valueOf(revision.getRevision()).compareTo(otherRevision.getRevision());
+      }
+    });
+
+    Map<SvnFileRevision, Double> codeChurnProportions = Maps.newHashMap();
+    for (SvnFileRevision fileRevision : orderedRevisions) {
+      ChangedLines changedLines = null;
+      if (revisionDiffs.containsKey(fileRevision.getRevision())) {
+        changedLines = revisionDiffs.get(fileRevision.getRevision()).getChangedLines(fileRevision.getNewPath()).orNull();
+      }
+      if (changedLines == null) {
+        changedLines = diffRetriever.retrieveDiff(connectionSettings, fileRevision);
+      }
+      codeChurnProportions.put(fileRevision, calculateCodeChurnProportion(lineCountLedger, fileRevision, changedLines));
+    }
+    return codeChurnProportions;
+  }
+
+  private Map<Long, RevisionDiff> retrieveRevisionDiffs(final ScmConnectionSettings connectionSettings, Set<Long> revisions)
+      throws SVNException, UnsupportedEncodingException, CodeChurnCalculationException {
+    List<Callable<RevisionDiff>> retrievals = new ArrayList<Callable<RevisionDiff>>(revisions.size());
+    for (final Long revision : revisions) {
+      retrievals.add(new Callable<RevisionDiff>() {
+        @Override
+        public RevisionDiff call() throws SVNException {
+          return diffRetriever.retrieveRevisionDiff(connectionSettings, revision);
+        }
+      });
+    }
+    Map<Long, RevisionDiff> revisionDiffs = Maps.newHashMap();
+    for (RevisionDiff revisionDiff : serverExecutors.invokeAll(connectionSettings, retrievals)) {
+      revisionDiffs.put(revisionDiff.getRevision(), revisionDiff);
+    }
+    return revisionDiffs;
+  }
+
+  /**
+   * The diff of a whole revision is retrieved with one request if at least half of the files changed in it
+   * are needed, but more than one. A moved or renamed file has to be diffed with its old path, which the
+   * diff of the revision does not do, so these files are not taken into account.
+   */
+  private Set<Long> selectRevisionsToDiffAtOnce(Collection<SvnFileRevision> fileRevisions, Collection<SvnFileRevision> allFileRevisions) {
+    Multiset<Long> neededFiles = HashMultiset.create();
+    for (SvnFileRevision fileRevision : fileRevisions) {
+      if (fileRevision.getOldPath().equals(fileRevision.getNewPath())) {
+        neededFiles.add(fileRevision.getRevision());
+      }
+    }
+    Multiset<Long> changedFiles = HashMultiset.create();
+    for (SvnFileRevision fileRevision : allFileRevisions) {
+      changedFiles.add(fileRevision.getRevision());
+    }
+    Set<Long> revisionsToDiffAtOnce = new HashSet<Long>();
+    for (Multiset.Entry<Long> revision : neededFiles.entrySet()) {
+      if (revision.getCount() > 1 && revision.getCount() * 2 >= changedFiles.count(revision.getElement())) {
+        revisionsToDiffAtOnce.add(revision.getElement());
       }
+    }
+    return revisionsToDiffAtOnce;
+  }
 
-      SvnDiffGenerator diffGenerator = new SvnDiffGenerator();
-      diffGenerator.setEncoding(connectionSettings.getEncoding());
-      diffGenerator.setEOL(LINE_SEPARATOR.getBytes(Charset.forName(connectionSettings.getEncoding())));
+  private double calculateCodeChurnProportion(ScmConnectionSettings connectionSettings, SvnLineCountLedger lineCountLedger,
+                                              SvnFileRevision revision) throws SVNException, UnsupportedEncodingException {
+    return calculateCodeChurnProportion(lineCountLedger, revision, diffRetriever.retrieveDiff(connectionSettings, revision));
+  }
 
-      ByteArrayOutputStream diffOutput = new ByteArrayOutputStream();
-      SvnDiff diff = operationFactory.createDiff();
-      diff.setSources(fileRevision.getOldSvnTarget(connectionSettings), fileRevision.getNewSvnTarget(connectionSettings));
-      diff.setDiffGenerator(diffGenerator);
-      diff.setOutput(diffOutput);
-      diff.run();
+  private double calculateCodeChurnProportion(SvnLineCountLedger lineCountLedger, SvnFileRevision revision, ChangedLines codeChurn)
+      throws UnsupportedEncodingException {
+    long linesPreviousCommit;
+    try {
+      linesPreviousCommit = lineCountLedger.countLines(revision.getOldPath(), revision.getRevision() - 1);
+    } catch (SVNException e) {
+      // file could not be found for revision - 1 which means it was created and that means a code churn proportion of 1.0
+      lineCountLedger.recordChange(revision.getNewPath(), revision.getRevision(), 0L, codeChurn);
+      return 1.0;
+    }
+    lineCountLedger.recordChange(revision.getNewPath(), revision.getRevision(), linesPreviousCommit, codeChurn);
+    return codeChurn.getChangedLines() / (double) linesPreviousCommit;
+  }
 
-      return new String(diffOutput.toByteArray(), connectionSettings.getEncoding());
+  private SvnLineCountLedger createLineCountLedger(ScmConnectionSettings connectionSettings) throws CodeChurnCalculationException {
+    SVNRepository repository = null;
+    boolean failed = true;
+    try {
+      repository = sessionPool.borrowRepository(connectionSettings);
+      SvnRevisionLog revisionLog = revisionStore.getRevisionLog(repository);
+      failed = false;
+      return new SvnLineCountLedger(connectionSettings, revisionLog, fileRetrieverService);
+    } catch (SVNException e) {
+      log.error("Error with svn server communication occurred!", e);
+      throw new CodeChurnCalculationException(e);
     } finally {
-      if (operationFactory != null) {
-        operationFactory.dispose();
+      if (repository != null) {
+        sessionPool.returnRepository(connectionSettings, repository, failed);
       }
     }
   }
+
+  private Map<LocalDate, DailyRevisions> retrieveRevisionsByDay(ScmConnectionSettings connectionSettings, LocalDate startDay, int numberOfDays)
+      throws CodeChurnCalculationException {
+    try {
+      Map<LocalDate, DailyRevisions> revisionsByDay = Maps.newHashMap();
+      for (DailyRevisions revisions : revisionsRetrieverService.retrieveRevisions(connectionSettings, startDay, numberOfDays)) {
+        revisionsByDay.put(revisions.getDay(), revisions);
+      }
+      return revisionsByDay;
+    } catch (SVNException e) {
+      log.error("Error with svn server communication occurred!", e);
+      throw new CodeChurnCalculationException(e);
+    }
+  }
 }
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2013 Felix Müller
+ *
+ * This file is part of CodeQ Invest.
+ *
+ * CodeQ Invest is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CodeQ Invest is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CodeQ Invest.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.codeqinvest.codechanges.scm.svn;
+
+import org.codeqinvest.codechanges.scm.ScmConnectionSettings;
+import org.tmatesoft.svn.core.SVNException;
+
+/**
+ * This component retrieves diffs from a subversion repository
+ * and counts their changed lines.
+ *
+ * @author fmueller
+ */
+interface SvnDiffRetriever {
+
+  /**
+   * Retrieves the diff of a file between its old path in the previous revision and its new path in the revision.
+   *
+   * @throws org.tmatesoft.svn.core.SVNException
+   *          if an error occurred during communication with the subversion server
+   */
+  ChangedLines retrieveDiff(ScmConnectionSettings connectionSettings, SvnFileRevision fileRevision) throws SVNException;
+
+  /**
+   * Retrieves the diff of all files of the repository location that were changed in the
+   * revision with one request, like {@code svn diff -c revision} does.
+   *
+   * @throws org.tmatesoft.svn.core.SVNException
+   *          if an error occurred during communication with the subversion server
+   */
+  RevisionDiff retrieveRevisionDiff(ScmConnectionSettings connectionSettings, long revision) throws SVNException;
+}
@@ -20,10 +20,13 @@ package org.codeqinvest.codechanges.scm.svn;
 
 import lombok.extern.slf4j.Slf4j;
 import org.codeqinvest.codechanges.scm.ScmConnectionSettings;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.tmatesoft.svn.core.SVNErrorCode;
 import org.tmatesoft.svn.core.SVNException;
 import org.tmatesoft.svn.core.SVNProperties;
 import org.tmatesoft.svn.core.SVNProperty;
+import org.tmatesoft.svn.core.io.SVNRepository;
 
 import java.io.ByteArrayOutputStream;
 import java.io.UnsupportedEncodingException;
@@ -40,6 +43,13 @@ class SvnFileRetrieverService {
 
   private static final String DEFAULT_LINE_SEPARATOR = "\n";
 
+  private final SvnSessionPool sessionPool;
+
+  @Autowired
+  SvnFileRetrieverService(SvnSessionPool sessionPool) {
+    this.sessionPool = sessionPool;
+  }
+
   /**
    * Loads a given version (revision) of a file from a svn server.
    *
@@ -50,7 +60,18 @@ class SvnFileRetrieverService {
   SvnFile getFile(ScmConnectionSettings connectionSettings, String file, long revision) throws SVNException, UnsupportedEncodingException {
     ByteArrayOutputStream content = new ByteArrayOutputStream();
     SVNProperties properties = new SVNProperties();
-    SvnRepositoryFactory.create(connectionSettings).getFile(file, revision, properties, content);
+    SVNRepository repository = sessionPool.borrowRepository(connectionSettings);
+    boolean failed = true;
+    try {
+      repository.getFile(file, revision, properties, content);
+      failed = false;
+    } catch (SVNException e) {
+      // a file that does not exist at the revision is expected for added files and leaves the session usable
+      failed = e.getErrorMessage().getErrorCode() != SVNErrorCode.FS_NOT_FOUND;
+      throw e;
+    } finally {
+      sessionPool.returnRepository(connectionSettings, repository, failed);
+    }
 
     final String eolStyle = properties.getStringValue(SVNProperty.EOL_STYLE);
     final String fileContent = new String(content.toByteArray(), connectionSettings.getEncoding());
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2013 Felix Müller
+ *
+ * This file is part of CodeQ Invest.
+ *
+ * CodeQ Invest is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CodeQ Invest is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CodeQ Invest.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.codeqinvest.codechanges.scm.svn;
+
+import com.google.common.base.Optional;
+import lombok.extern.slf4j.Slf4j;
+import org.codeqinvest.codechanges.scm.ScmConnectionSettings;
+import org.tmatesoft.svn.core.SVNException;
+
+import java.io.UnsupportedEncodingException;
+
+/**
+ * Keeps track of the number of lines of files in the {@link SvnRevisionLog}
+ * of a repository location. A file is only retrieved from the svn server
+ * when its number of lines at a revision is not known yet. After a change
+ * was diffed, the number of lines at the changed revision is derived from
+ * the previous number of lines and the change of the number of lines in
+ * the diff, which does not include changed svn properties.
+ * So when the changes of a file are processed from the oldest to the
+ * newest revision, the file is retrieved only once.
+ *
+ * @author fmueller
+ */
+@Slf4j
+class SvnLineCountLedger {
+
+  private final ScmConnectionSettings connectionSettings;
+  private final SvnRevisionLog revisionLog;
+  private final SvnFileRetrieverService fileRetrieverService;
+
+  SvnLineCountLedger(ScmConnectionSettings connectionSettings, SvnRevisionLog revisionLog, SvnFileRetrieverService fileRetrieverService) {
+    this.connectionSettings = connectionSettings;
+    this.revisionLog = revisionLog;
+    this.fileRetrieverService = fileRetrieverService;
+  }
+
+  /**
+   * Returns the number of lines of the file at the given revision.
+   *
+   * @throws SVNException if the file does not exist at this revision or errors occur during communication with the svn server
+   */
+  long countLines(String path, long revision) throws SVNException, UnsupportedEncodingException {
+    Optional<Long> knownLineCount = revisionLog.getLineCount(path, revision);
+    if (knownLineCount.isPresent()) {
+      return knownLineCount.get();
+    }
+    long lines = fileRetrieverService.getFile(connectionSettings, path, revision).countLines();
+    log.debug("Retrieved {} lines of {} at revision {}", lines, path, revision);
+    revisionLog.recordLineCount(path, revision, lines);
+    return lines;
+  }
+
+  /**
+   * Records the number of lines after the file was changed in the given revision. If the change of
+   * the number of lines is unknown, nothing is recorded, so the file is retrieved when it is needed.
+   */
+  void recordChange(String path, long revision, long linesBefore, ChangedLines changedLines) {
+    if (changedLines.getLineCountChange().isPresent()) {
+      revisionLog.recordLineCount(path, revision, Math.max(0L, linesBefore + changedLines.getLineCountChange().get()));
+    } else {
+      log.debug("Could not derive lines of {} at revision {} from its diff", path, revision);
+    }
+  }
+
+  /**
+   * Writes the recorded numbers of lines to the file of the revision log.
+   * The records are buffered until then, so this should be called once
+   * after all changes of a calculation were processed.
+   */
+  void flush() {
+    revisionLog.flush();
+  }
+}
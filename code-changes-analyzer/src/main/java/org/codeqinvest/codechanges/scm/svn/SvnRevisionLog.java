@@ -0,0 +1,687 @@
+/*
+ * Copyright 2013 Felix Müller
+ *
+ * This file is part of CodeQ Invest.
+ *
+ * CodeQ Invest is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CodeQ Invest is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CodeQ Invest.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.codeqinvest.codechanges.scm.svn;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.Multimap;
+import com.google.common.collect.Range;
+import com.google.common.io.Closeables;
+import com.google.common.io.CountingInputStream;
+import com.google.common.io.CountingOutputStream;
+import lombok.extern.slf4j.Slf4j;
+import org.joda.time.DateTime;
+import org.tmatesoft.svn.core.ISVNLogEntryHandler;
+import org.tmatesoft.svn.core.SVNLogEntry;
+import org.tmatesoft.svn.core.SVNLogEntryPath;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * The locally stored svn log of one repository location. All changed paths
+ * are appended to a file while they are retrieved from the server. Only the
+ * newest revisions are indexed in memory by revision, commit date and changed
+ * path, older ones are read from the file when they are requested. The log
+ * knows the range of revisions that was completely retrieved from the server,
+ * so only revisions outside of this range have to be requested again.
+ * <p/>
+ * Besides the revisions, the log keeps the known number of lines of files
+ * at certain revisions. Such a line count stays valid for later revisions
+ * as long as the log shows no change of the file in between, which is looked
+ * up in the revisions indexed by their changed paths. Therefore line counts
+ * are only kept for the revisions that are indexed in memory.
+ * <p/>
+ * All records are written to the file through one buffered stream, which stays
+ * open until an append of retrieved revisions is finished or the log is flushed.
+ * The revisions that are only stored in the file are indexed by their commit date
+ * in a {@link SvnRevisionLogIndex} next to the file, so that reading older revisions
+ * seeks to their records instead of scanning the whole file.
+ * <p/>
+ * An incompletely written record at the end of the file, e.g. after a crash,
+ * is dropped when the file is opened. If the file can not be written, the log
+ * keeps working in memory only and does not drop any revisions from memory.
+ *
+ * @author fmueller
+ */
+@Slf4j
+class SvnRevisionLog {
+
+  static final int DEFAULT_MAX_REVISIONS_IN_MEMORY = 50000;
+
+  private static final byte REVISION_RECORD = 1;
+  private static final byte COVERAGE_RECORD = 2;
+  private static final byte LINE_COUNT_RECORD = 3;
+
+  private final File file;
+  private final int maxRevisionsInMemory;
+  private final NavigableMap<Long, LoggedRevision> revisions = new TreeMap<Long, LoggedRevision>();
+  private final NavigableMap<Long, List<LoggedRevision>> revisionsByDate = new TreeMap<Long, List<LoggedRevision>>();
+  private final Map<String, NavigableSet<Long>> revisionsByChangedPath = new HashMap<String, NavigableSet<Long>>();
+  private final Map<String, NavigableMap<Long, Long>> lineCounts = new HashMap<String, NavigableMap<Long, Long>>();
+  private Range<Long> coverage;
+  private boolean persistent = true;
+  private DataOutputStream output;
+  private CountingOutputStream countingOutput;
+  private long outputStartOffset;
+  private SvnRevisionLogIndex indexOfRevisionsOnlyInFile;
+
+  // revisions below this one are only stored in the file
+  private long firstRevisionInMemory = 0L;
+  private long latestDateOnlyInFile = Long.MIN_VALUE;
+  private int numberOfRevisionsOnlyInFile = 0;
+
+  private SvnRevisionLog(File file, int maxRevisionsInMemory) {
+    if (maxRevisionsInMemory <= 0) {
+      throw new IllegalArgumentException("At least one revision has to be kept in memory: " + maxRevisionsInMemory);
+    }
+    this.file = file;
+    this.maxRevisionsInMemory = maxRevisionsInMemory;
+  }
+
+  /**
+   * Opens the log stored in the given file or creates a new one if the file does not exist.
+   */
+  static SvnRevisionLog open(File file) {
+    return open(file, DEFAULT_MAX_REVISIONS_IN_MEMORY);
+  }
+
+  /**
+   * Opens the log stored in the given file or creates a new one if the file does not exist.
+   * Only the given number of newest revisions, plus a tenth at most, is indexed in memory.
+   */
+  static SvnRevisionLog open(File file, int maxRevisionsInMemory) {
+    SvnRevisionLog revisionLog = new SvnRevisionLog(file, maxRevisionsInMemory);
+    revisionLog.createIndex();
+    if (file.exists()) {
+      revisionLog.load();
+    }
+    return revisionLog;
+  }
+
+  synchronized Optional<Range<Long>> getCoverage() {
+    return Optional.fromNullable(coverage);
+  }
+
+  synchronized int getNumberOfRevisions() {
+    return revisions.size() + numberOfRevisionsOnlyInFile;
+  }
+
+  /**
+   * Starts to append the entries that are retrieved from the server. The caller
+   * has to hold the lock of this log until the returned appender is closed.
+   */
+  synchronized Appender startAppend() {
+    return new Appender();
+  }
+
+  /**
+   * Adds the entries that were retrieved from the server for the given range of
+   * revisions. The range has to be connected to the already covered revisions.
+   */
+  synchronized void append(Collection<SVNLogEntry> logEntries, Range<Long> retrievedRevisions) {
+    checkConnected(retrievedRevisions);
+    Appender appender = startAppend();
+    try {
+      for (SVNLogEntry logEntry : logEntries) {
+        appender.handleLogEntry(logEntry);
+      }
+      appender.finish(retrievedRevisions);
+    } finally {
+      appender.close();
+    }
+  }
+
+  /**
+   * Returns all changes that were committed in the given time span, the start inclusive and the end exclusive.
+   */
+  synchronized Multimap<String, SvnFileRevision> getChanges(DateTime from, DateTime to) {
+    NavigableMap<Long, List<LoggedRevision>> revisionsOfTimeSpan = revisionsByDate.subMap(from.getMillis(), true, to.getMillis(), false);
+    if (from.getMillis() <= latestDateOnlyInFile) {
+      revisionsOfTimeSpan = new TreeMap<Long, List<LoggedRevision>>(revisionsOfTimeSpan);
+      for (LoggedRevision loggedRevision : readRevisionsOnlyInFile(from.getMillis(), to.getMillis(), Integer.MAX_VALUE).values()) {
+        if (!revisionsOfTimeSpan.containsKey(loggedRevision.date)) {
+          revisionsOfTimeSpan.put(loggedRevision.date, new ArrayList<LoggedRevision>(1));
+        }
+        revisionsOfTimeSpan.get(loggedRevision.date).add(loggedRevision);
+      }
+    }
+
+    Multimap<String, SvnFileRevision> changes = ArrayListMultimap.create();
+    for (List<LoggedRevision> loggedRevisions : revisionsOfTimeSpan.values()) {
+      for (LoggedRevision loggedRevision : loggedRevisions) {
+        loggedRevision.addChangesTo(changes);
+      }
+    }
+    return changes;
+  }
+
+  /**
+   * Returns all changes of the given number of newest stored revisions.
+   */
+  synchronized Multimap<String, SvnFileRevision> getLastChanges(int numberOfCommits) {
+    Multimap<String, SvnFileRevision> changes = ArrayListMultimap.create();
+    int i = 0;
+    for (LoggedRevision loggedRevision : revisions.descendingMap().values()) {
+      if (i++ >= numberOfCommits) {
+        break;
+      }
+      loggedRevision.addChangesTo(changes);
+    }
+    int missingCommits = numberOfCommits - revisions.size();
+    if (missingCommits > 0 && numberOfRevisionsOnlyInFile > 0) {
+      for (LoggedRevision loggedRevision : readRevisionsOnlyInFile(Long.MIN_VALUE, Long.MAX_VALUE, missingCommits).descendingMap().values()) {
+        loggedRevision.addChangesTo(changes);
+      }
+    }
+    return changes;
+  }
+
+  /**
+   * Returns the number of lines of the file at the given revision if it was recorded
+   * for this or an earlier revision and the file was not changed since then.
+   */
+  synchronized Optional<Long> getLineCount(String path, long revision) {
+    NavigableMap<Long, Long> lineCountsOfPath = lineCounts.get(path);
+    if (lineCountsOfPath == null) {
+      return Optional.absent();
+    }
+    Map.Entry<Long, Long> knownLineCount = lineCountsOfPath.floorEntry(revision);
+    if (knownLineCount == null || !isUnchanged(path, knownLineCount.getKey() + 1, revision)) {
+      return Optional.absent();
+    }
+    return Optional.of(knownLineCount.getValue());
+  }
+
+  /**
+   * Records the number of lines of the file at the given revision. The record is
+   * buffered and written to the file not before the log is flushed.
+   */
+  synchronized void recordLineCount(String path, long revision, long lines) {
+    indexLineCount(path, revision, lines);
+    if (!persistent) {
+      return;
+    }
+    try {
+      getOutput().writeByte(LINE_COUNT_RECORD);
+      getOutput().writeUTF(path);
+      getOutput().writeLong(revision);
+      getOutput().writeLong(lines);
+    } catch (IOException e) {
+      failWriting(e);
+    }
+  }
+
+  /**
+   * Writes all buffered records to the file and closes it until the next record is written.
+   */
+  synchronized void flush() {
+    try {
+      closeOutput();
+      if (indexOfRevisionsOnlyInFile != null) {
+        indexOfRevisionsOnlyInFile.flush();
+      }
+    } catch (IOException e) {
+      failWriting(e);
+    }
+  }
+
+  /**
+   * Checks that neither the file nor one of its parent directories was changed in the given revisions.
+   */
+  private boolean isUnchanged(String path, long fromRevision, long toRevision) {
+    if (fromRevision > toRevision) {
+      return true;
+    }
+    if (coverage == null || !coverage.encloses(Range.closed(fromRevision, toRevision)) || fromRevision < firstRevisionInMemory) {
+      return false;
+    }
+    String changedPath = path;
+    while (!changedPath.isEmpty()) {
+      NavigableSet<Long> changingRevisions = revisionsByChangedPath.get(changedPath);
+      if (changingRevisions != null && !changingRevisions.subSet(fromRevision, true, toRevision, true).isEmpty()) {
+        return false;
+      }
+      changedPath = changedPath.substring(0, Math.max(0, changedPath.lastIndexOf('/')));
+    }
+    return true;
+  }
+
+  private void indexLineCount(String path, long revision, long lines) {
+    if (revision + 1 < firstRevisionInMemory) {
+      // the changes since this revision are not indexed anymore
+      return;
+    }
+    if (!lineCounts.containsKey(path)) {
+      lineCounts.put(path, new TreeMap<Long, Long>());
+    }
+    lineCounts.get(path).put(revision, lines);
+  }
+
+  private void index(LoggedRevision loggedRevision) {
+    if (loggedRevision.revision < firstRevisionInMemory) {
+      keepOnlyInFile(loggedRevision);
+      return;
+    }
+    LoggedRevision replacedRevision = revisions.put(loggedRevision.revision, loggedRevision);
+    if (replacedRevision != null) {
+      unindex(replacedRevision);
+    }
+    for (String path : loggedRevision.paths) {
+      if (!revisionsByChangedPath.containsKey(path)) {
+        revisionsByChangedPath.put(path, new TreeSet<Long>());
+      }
+      revisionsByChangedPath.get(path).add(loggedRevision.revision);
+    }
+    if (!revisionsByDate.containsKey(loggedRevision.date)) {
+      revisionsByDate.put(loggedRevision.date, new ArrayList<LoggedRevision>(1));
+    }
+    revisionsByDate.get(loggedRevision.date).add(loggedRevision);
+
+    // dropping a tenth more than necessary at once keeps the line counts from being scanned on every append
+    if (persistent && revisions.size() > maxRevisionsInMemory + maxRevisionsInMemory / 10) {
+      keepOnlyNewestRevisionsInMemory();
+    }
+  }
+
+  private void unindex(LoggedRevision loggedRevision) {
+    List<LoggedRevision> revisionsOfDate = revisionsByDate.get(loggedRevision.date);
+    revisionsOfDate.remove(loggedRevision);
+    if (revisionsOfDate.isEmpty()) {
+      revisionsByDate.remove(loggedRevision.date);
+    }
+    for (String path : loggedRevision.paths) {
+      NavigableSet<Long> changingRevisions = revisionsByChangedPath.get(path);
+      changingRevisions.remove(loggedRevision.revision);
+      if (changingRevisions.isEmpty()) {
+        revisionsByChangedPath.remove(path);
+      }
+    }
+  }
+
+  private void keepOnlyNewestRevisionsInMemory() {
+    while (revisions.size() > maxRevisionsInMemory) {
+      LoggedRevision oldestRevision = revisions.pollFirstEntry().getValue();
+      unindex(oldestRevision);
+      keepOnlyInFile(oldestRevision);
+      firstRevisionInMemory = oldestRevision.revision + 1;
+    }
+
+    Iterator<NavigableMap<Long, Long>> lineCountsOfPaths = lineCounts.values().iterator();
+    while (lineCountsOfPaths.hasNext()) {
+      NavigableMap<Long, Long> lineCountsOfPath = lineCountsOfPaths.next();
+      lineCountsOfPath.headMap(firstRevisionInMemory - 1, false).clear();
+      if (lineCountsOfPath.isEmpty()) {
+        lineCountsOfPaths.remove();
+      }
+    }
+  }
+
+  private void keepOnlyInFile(LoggedRevision loggedRevision) {
+    numberOfRevisionsOnlyInFile++;
+    latestDateOnlyInFile = Math.max(latestDateOnlyInFile, loggedRevision.date);
+    if (indexOfRevisionsOnlyInFile != null && loggedRevision.offset >= 0L) {
+      try {
+        indexOfRevisionsOnlyInFile.add(loggedRevision.date, loggedRevision.revision, loggedRevision.offset);
+      } catch (IOException e) {
+        failIndexing(e);
+      }
+    }
+  }
+
+  /**
+   * Reads the given number of newest revisions that are not kept in memory
+   * and were committed in the given time span from the file. Only the records
+   * that the index refers to are read.
+   */
+  private NavigableMap<Long, LoggedRevision> readRevisionsOnlyInFile(long fromDate, long toDate, int numberOfRevisions) {
+    flush();
+    if (indexOfRevisionsOnlyInFile == null) {
+      return scanRevisionsOnlyInFile(fromDate, toDate, numberOfRevisions);
+    }
+    NavigableMap<Long, LoggedRevision> revisionsOnlyInFile = new TreeMap<Long, LoggedRevision>();
+    FileInputStream input = null;
+    try {
+      NavigableMap<Long, Long> offsets = indexOfRevisionsOnlyInFile.findOffsets(fromDate, toDate, numberOfRevisions);
+      input = new FileInputStream(file);
+      for (Map.Entry<Long, Long> offset : offsets.entrySet()) {
+        input.getChannel().position(offset.getValue());
+        revisionsOnlyInFile.put(offset.getKey(), LoggedRevision.read(new DataInputStream(new BufferedInputStream(input))));
+      }
+    } catch (IOException e) {
+      failIndexing(e);
+      return scanRevisionsOnlyInFile(fromDate, toDate, numberOfRevisions);
+    } finally {
+      Closeables.closeQuietly(input);
+    }
+    return revisionsOnlyInFile;
+  }
+
+  /**
+   * Reads the revisions like {@link #readRevisionsOnlyInFile(long, long, int)} by scanning
+   * the whole file, which is only necessary if the index could not be written or read.
+   */
+  private NavigableMap<Long, LoggedRevision> scanRevisionsOnlyInFile(long fromDate, long toDate, int numberOfRevisions) {
+    NavigableMap<Long, LoggedRevision> revisionsOnlyInFile = new TreeMap<Long, LoggedRevision>();
+    DataInputStream input = null;
+    try {
+      input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+      while (true) {
+        int recordType = input.read();
+        if (recordType == -1) {
+          break;
+        } else if (recordType == REVISION_RECORD) {
+          LoggedRevision loggedRevision = LoggedRevision.read(input);
+          if (loggedRevision.revision < firstRevisionInMemory && loggedRevision.date >= fromDate && loggedRevision.date < toDate) {
+            // a revision that was retrieved again replaces the earlier record
+            revisionsOnlyInFile.put(loggedRevision.revision, loggedRevision);
+            if (revisionsOnlyInFile.size() > numberOfRevisions) {
+              revisionsOnlyInFile.pollFirstEntry();
+            }
+          }
+        } else if (recordType == COVERAGE_RECORD) {
+          input.readLong();
+          input.readLong();
+        } else if (recordType == LINE_COUNT_RECORD) {
+          input.readUTF();
+          input.readLong();
+          input.readLong();
+        } else {
+          throw new IOException("Unknown record type " + recordType);
+        }
+      }
+    } catch (IOException e) {
+      log.error("Could not read older revisions of svn log " + file, e);
+    } finally {
+      Closeables.closeQuietly(input);
+    }
+    return revisionsOnlyInFile;
+  }
+
+  private void checkConnected(Range<Long> retrievedRevisions) {
+    if (coverage != null && !isAdjacentOrOverlapping(retrievedRevisions)) {
+      throw new IllegalArgumentException("Revisions " + retrievedRevisions + " are not connected to the stored revisions " + coverage);
+    }
+  }
+
+  /**
+   * Revisions are discrete, so ranges like [1..4] and [5..6] are connected too.
+   */
+  private boolean isAdjacentOrOverlapping(Range<Long> retrievedRevisions) {
+    return retrievedRevisions.lowerEndpoint() <= coverage.upperEndpoint() + 1
+        && retrievedRevisions.upperEndpoint() >= coverage.lowerEndpoint() - 1;
+  }
+
+  private void cover(Range<Long> retrievedRevisions) {
+    coverage = coverage == null ? retrievedRevisions : coverage.span(retrievedRevisions);
+  }
+
+  private void load() {
+    CountingInputStream countingInput = null;
+    long validLength = 0L;
+    try {
+      countingInput = new CountingInputStream(new BufferedInputStream(new FileInputStream(file)));
+      DataInputStream input = new DataInputStream(countingInput);
+      while (true) {
+        int recordType = input.read();
+        if (recordType == -1) {
+          break;
+        } else if (recordType == REVISION_RECORD) {
+          long offset = countingInput.getCount();
+          index(LoggedRevision.read(input).storedAt(offset));
+        } else if (recordType == COVERAGE_RECORD) {
+          cover(Range.closed(input.readLong(), input.readLong()));
+        } else if (recordType == LINE_COUNT_RECORD) {
+          indexLineCount(input.readUTF(), input.readLong(), input.readLong());
+        } else {
+          throw new IOException("Unknown record type " + recordType);
+        }
+        validLength = countingInput.getCount();
+      }
+      log.info("Loaded {} revisions of svn log {}", getNumberOfRevisions(), file);
+    } catch (EOFException e) {
+      log.warn("Dropping incomplete record at the end of svn log {}", file);
+      truncate(validLength);
+    } catch (IOException e) {
+      log.error("Could not read svn log " + file + ", dropping unreadable records", e);
+      truncate(validLength);
+    } finally {
+      Closeables.closeQuietly(countingInput);
+    }
+  }
+
+  private void truncate(long length) {
+    RandomAccessFile randomAccessFile = null;
+    try {
+      randomAccessFile = new RandomAccessFile(file, "rw");
+      randomAccessFile.setLength(length);
+    } catch (IOException e) {
+      log.error("Could not truncate svn log " + file + ", keeping it in memory only", e);
+      persistent = false;
+    } finally {
+      Closeables.closeQuietly(randomAccessFile);
+    }
+  }
+
+  private void createIndex() {
+    try {
+      indexOfRevisionsOnlyInFile = SvnRevisionLogIndex.create(new File(file.getPath() + ".idx"));
+    } catch (IOException e) {
+      failIndexing(e);
+    }
+  }
+
+  private DataOutputStream getOutput() throws IOException {
+    if (output == null) {
+      outputStartOffset = file.length();
+      countingOutput = new CountingOutputStream(new BufferedOutputStream(new FileOutputStream(file, true)));
+      output = new DataOutputStream(countingOutput);
+    }
+    return output;
+  }
+
+  private long getOutputOffset() {
+    return outputStartOffset + countingOutput.getCount();
+  }
+
+  private void closeOutput() throws IOException {
+    if (output != null) {
+      DataOutputStream closedOutput = output;
+      output = null;
+      countingOutput = null;
+      closedOutput.close();
+    }
+  }
+
+  private void failWriting(IOException e) {
+    log.error("Could not write svn log " + file + ", keeping it in memory only", e);
+    persistent = false;
+    // the index may refer to records that were not written completely
+    indexOfRevisionsOnlyInFile = null;
+    Closeables.closeQuietly(output);
+    output = null;
+    countingOutput = null;
+  }
+
+  private void failIndexing(IOException e) {
+    log.error("Could not use index of svn log " + file + ", scanning the whole file for older revisions", e);
+    indexOfRevisionsOnlyInFile = null;
+  }
+
+  /**
+   * Writes every log entry to the file as soon as the server sent it, so the
+   * retrieved log is never held in memory as a whole. The retrieved range is
+   * covered not before the append is finished, so the entries of an unfinished
+   * append are fetched again.
+   */
+  final class Appender implements ISVNLogEntryHandler {
+
+    private int numberOfEntries = 0;
+    private long lastRevision = -1L;
+
+    private Appender() {
+    }
+
+    @Override
+    public void handleLogEntry(SVNLogEntry logEntry) {
+      synchronized (SvnRevisionLog.this) {
+        LoggedRevision loggedRevision = LoggedRevision.of(logEntry);
+        if (persistent) {
+          try {
+            getOutput().writeByte(REVISION_RECORD);
+            loggedRevision.storedAt(getOutputOffset()).write(getOutput());
+          } catch (IOException e) {
+            failWriting(e);
+          }
+        }
+        index(loggedRevision);
+        numberOfEntries++;
+        lastRevision = loggedRevision.revision;
+      }
+    }
+
+    int getNumberOfEntries() {
+      return numberOfEntries;
+    }
+
+    /**
+     * Returns the revision of the last appended entry or -1 if there was none.
+     */
+    long getLastRevision() {
+      return lastRevision;
+    }
+
+    /**
+     * Covers the given range of revisions, which has to be connected to the
+     * already covered revisions, and closes the appender.
+     */
+    void finish(Range<Long> retrievedRevisions) {
+      synchronized (SvnRevisionLog.this) {
+        checkConnected(retrievedRevisions);
+        cover(retrievedRevisions);
+        if (!persistent) {
+          return;
+        }
+        try {
+          // the coverage is written last, so an incompletely written append is fetched again
+          getOutput().writeByte(COVERAGE_RECORD);
+          getOutput().writeLong(retrievedRevisions.lowerEndpoint());
+          getOutput().writeLong(retrievedRevisions.upperEndpoint());
+        } catch (IOException e) {
+          failWriting(e);
+        }
+        flush();
+      }
+    }
+
+    /**
+     * Writes the appended revisions to the file without covering them if the append was not finished.
+     */
+    void close() {
+      flush();
+    }
+  }
+
+  /**
+   * One revision with all its changed paths.
+   */
+  private static final class LoggedRevision {
+
+    private final long revision;
+    private final long date;
+    private final List<String> paths;
+    private final List<String> copyPaths;
+    // offset of the record in the file or -1 if it was not written
+    private long offset = -1L;
+
+    private LoggedRevision(long revision, long date, List<String> paths, List<String> copyPaths) {
+      this.revision = revision;
+      this.date = date;
+      this.paths = paths;
+      this.copyPaths = copyPaths;
+    }
+
+    static LoggedRevision of(SVNLogEntry logEntry) {
+      List<String> paths = new ArrayList<String>(logEntry.getChangedPaths().size());
+      List<String> copyPaths = new ArrayList<String>(logEntry.getChangedPaths().size());
+      for (SVNLogEntryPath logEntryPath : logEntry.getChangedPaths().values()) {
+        paths.add(logEntryPath.getPath());
+        copyPaths.add(logEntryPath.getCopyPath());
+      }
+      long date = logEntry.getDate() != null ? logEntry.getDate().getTime() : 0L;
+      return new LoggedRevision(logEntry.getRevision(), date, paths, copyPaths);
+    }
+
+    static LoggedRevision read(DataInputStream input) throws IOException {
+      long revision = input.readLong();
+      long date = input.readLong();
+      int numberOfPaths = input.readInt();
+      List<String> paths = new ArrayList<String>(numberOfPaths);
+      List<String> copyPaths = new ArrayList<String>(numberOfPaths);
+      for (int i = 0; i < numberOfPaths; i++) {
+        paths.add(input.readUTF());
+        copyPaths.add(input.readBoolean() ? input.readUTF() : null);
+      }
+      return new LoggedRevision(revision, date, paths, copyPaths);
+    }
+
+    LoggedRevision storedAt(long offset) {
+      this.offset = offset;
+      return this;
+    }
+
+    void write(DataOutputStream output) throws IOException {
+      output.writeLong(revision);
+      output.writeLong(date);
+      output.writeInt(paths.size());
+      for (int i = 0; i < paths.size(); i++) {
+        output.writeUTF(paths.get(i));
+        output.writeBoolean(copyPaths.get(i) != null);
+        if (copyPaths.get(i) != null) {
+          output.writeUTF(copyPaths.get(i));
+        }
+      }
+    }
+
+    void addChangesTo(Multimap<String, SvnFileRevision> changes) {
+      for (int i = 0; i < paths.size(); i++) {
+        String oldPath = copyPaths.get(i) != null ? copyPaths.get(i) : paths.get(i);
+        changes.put(paths.get(i), new SvnFileRevision(revision, oldPath, paths.get(i)));
+      }
+    }
+  }
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright 2013 Felix Müller
+ *
+ * This file is part of CodeQ Invest.
+ *
+ * CodeQ Invest is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CodeQ Invest is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CodeQ Invest.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.codeqinvest.codechanges.scm.svn;
+
+import com.google.common.io.Closeables;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Indexes the revisions of a {@link SvnRevisionLog} that are only stored in its
+ * file by their commit date. Every entry consists of the commit date, the revision
+ * and the offset of the revision record in the log file and has a fixed size. New
+ * entries are appended to the index file. Before the index is searched, they are
+ * merged into the entries sorted by commit date, so that the first entry of a time
+ * span is found with a binary search. The index is derived from the log file and
+ * is created again whenever the log is opened.
+ *
+ * @author fmueller
+ */
+class SvnRevisionLogIndex {
+
+  private static final int ENTRY_SIZE = 3 * 8;
+
+  private final File file;
+  private DataOutputStream output;
+  private long sortedEntries = 0L;
+  private long unsortedEntries = 0L;
+
+  private SvnRevisionLogIndex(File file) {
+    this.file = file;
+  }
+
+  /**
+   * Creates an empty index in the given file and replaces an existing one.
+   */
+  static SvnRevisionLogIndex create(File file) throws IOException {
+    if (file.exists() && !file.delete()) {
+      throw new IOException("Could not delete outdated index " + file);
+    }
+    return new SvnRevisionLogIndex(file);
+  }
+
+  void add(long date, long revision, long offset) throws IOException {
+    if (output == null) {
+      output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true)));
+    }
+    output.writeLong(date);
+    output.writeLong(revision);
+    output.writeLong(offset);
+    unsortedEntries++;
+  }
+
+  void flush() throws IOException {
+    if (output != null) {
+      DataOutputStream closedOutput = output;
+      output = null;
+      closedOutput.close();
+    }
+  }
+
+  /**
+   * Returns the offsets of the given number of newest revisions that were committed
+   * in the given time span, the start inclusive and the end exclusive, by revision.
+   * A revision that was added several times has the offset it was added with last.
+   */
+  NavigableMap<Long, Long> findOffsets(long fromDate, long toDate, int numberOfRevisions) throws IOException {
+    flush();
+    sort();
+    NavigableMap<Long, Long> offsetsByRevision = new TreeMap<Long, Long>();
+    if (sortedEntries == 0L) {
+      return offsetsByRevision;
+    }
+    RandomAccessFile input = null;
+    try {
+      input = new RandomAccessFile(file, "r");
+      long entry = findFirstEntry(input, fromDate);
+      input.seek(entry * ENTRY_SIZE);
+      DataInputStream entries = new DataInputStream(new BufferedInputStream(Channels.newInputStream(input.getChannel())));
+      for (; entry < sortedEntries; entry++) {
+        long date = entries.readLong();
+        if (date >= toDate) {
+          break;
+        }
+        offsetsByRevision.put(entries.readLong(), entries.readLong());
+        if (offsetsByRevision.size() > numberOfRevisions) {
+          offsetsByRevision.pollFirstEntry();
+        }
+      }
+    } finally {
+      Closeables.closeQuietly(input);
+    }
+    return offsetsByRevision;
+  }
+
+  private long findFirstEntry(RandomAccessFile input, long fromDate) throws IOException {
+    long low = 0L;
+    long high = sortedEntries;
+    while (low < high) {
+      long middle = (low + high) >>> 1;
+      input.seek(middle * ENTRY_SIZE);
+      if (input.readLong() < fromDate) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  private void sort() throws IOException {
+    if (unsortedEntries == 0L) {
+      return;
+    }
+    Map<Long, Entry> entriesByRevision = new HashMap<Long, Entry>();
+    DataInputStream input = null;
+    try {
+      input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+      for (long i = 0L; i < sortedEntries + unsortedEntries; i++) {
+        Entry entry = new Entry(input.readLong(), input.readLong(), input.readLong());
+        Entry existingEntry = entriesByRevision.get(entry.revision);
+        if (existingEntry == null || existingEntry.offset < entry.offset) {
+          entriesByRevision.put(entry.revision, entry);
+        }
+      }
+    } finally {
+      Closeables.closeQuietly(input);
+    }
+    List<Entry> entries = new ArrayList<Entry>(entriesByRevision.values());
+    Collections.sort(entries);
+
+    File sortedFile = new File(file.getPath() + ".sorted");
+    DataOutputStream sortedOutput = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(sortedFile)));
+    try {
+      for (Entry entry : entries) {
+        sortedOutput.writeLong(entry.date);
+        sortedOutput.writeLong(entry.revision);
+        sortedOutput.writeLong(entry.offset);
+      }
+    } finally {
+      sortedOutput.close();
+    }
+    if (!file.delete() || !sortedFile.renameTo(file)) {
+      throw new IOException("Could not replace index " + file + " with its sorted entries");
+    }
+    sortedEntries = entries.size();
+    unsortedEntries = 0L;
+  }
+
+  private static final class Entry implements Comparable<Entry> {
+
+    private final long date;
+    private final long revision;
+    private final long offset;
+
+    private Entry(long date, long revision, long offset) {
+      this.date = date;
+      this.revision = revision;
+      this.offset = offset;
+    }
+
+    @Override
+    public int compareTo(Entry other) {
+      if (date != other.date) {
+        return date < other.date ? -1 : 1;
+      }
+      return revision < other.revision ? -1 : (revision == other.revision ? 0 : 1);
+    }
+  }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2013 Felix Müller
+ *
+ * This file is part of CodeQ Invest.
+ *
+ * CodeQ Invest is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CodeQ Invest is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CodeQ Invest.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.codeqinvest.codechanges.scm.svn;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Range;
+import com.google.common.hash.Hashing;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.tmatesoft.svn.core.SVNException;
+import org.tmatesoft.svn.core.io.SVNRepository;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Keeps a persistent {@link SvnRevisionLog} for every svn repository location
+ * in a local directory. Before a log is used, it is synchronized with the
+ * server by retrieving only the revisions that are not stored yet.
+ * <p/>
+ * The directory and the number of revisions that every log keeps in memory
+ * can be configured in the external config file.
+ *
+ * @author fmueller
+ */
+@Slf4j
+@Component
+class SvnRevisionStore {
+
+  private final File directory;
+  private final int maxRevisionsInMemory;
+  private final Map<String, SvnRevisionLog> revisionLogs = new HashMap<String, SvnRevisionLog>();
+
+  @Autowired
+  SvnRevisionStore(@Value("${analyzer.svnRevisionsDirectory:}") String directory,
+                   @Value("${analyzer.maxSvnRevisionsInMemory:" + SvnRevisionLog.DEFAULT_MAX_REVISIONS_IN_MEMORY + "}") int maxRevisionsInMemory) {
+    this(directory.isEmpty()
+        ? new File(System.getProperty("user.home") + File.separator + ".codeq-invest" + File.separator + "svn-revisions")
+        : new File(directory), maxRevisionsInMemory);
+  }
+
+  SvnRevisionStore(File directory) {
+    this(directory, SvnRevisionLog.DEFAULT_MAX_REVISIONS_IN_MEMORY);
+  }
+
+  SvnRevisionStore(File directory, int maxRevisionsInMemory) {
+    this.directory = directory;
+    this.maxRevisionsInMemory = maxRevisionsInMemory;
+    if (!directory.isDirectory() && !directory.mkdirs()) {
+      log.error("Could not create directory {} for svn revisions, they are kept in memory only", directory);
+    }
+  }
+
+  /**
+   * Returns the log of the repository location after all revisions
+   * from {@code startRevision} up to the latest one were stored.
+   */
+  SvnRevisionLog synchronize(SVNRepository repository, long startRevision) throws SVNException {
+    SvnRevisionLog revisionLog = getRevisionLog(repository);
+    synchronized (revisionLog) {
+      long latestRevision = repository.getLatestRevision();
+      if (!revisionLog.getCoverage().isPresent()) {
+        retrieve(repository, revisionLog, startRevision, latestRevision);
+        return revisionLog;
+      }
+
+      Range<Long> coverage = revisionLog.getCoverage().get();
+      if (startRevision < coverage.lowerEndpoint()) {
+        retrieve(repository, revisionLog, startRevision, coverage.lowerEndpoint() - 1);
+      }
+      if (latestRevision > coverage.upperEndpoint()) {
+        retrieve(repository, revisionLog, coverage.upperEndpoint() + 1, latestRevision);
+      }
+      return revisionLog;
+    }
+  }
+
+  /**
+   * Returns the log of the repository location after at least the given number
+   * of newest commits were stored or the whole history if it has less commits.
+   */
+  SvnRevisionLog synchronizeLastCommits(SVNRepository repository, int numberOfCommits) throws SVNException {
+    SvnRevisionLog revisionLog = getRevisionLog(repository);
+    synchronized (revisionLog) {
+      long latestRevision = repository.getLatestRevision();
+      if (!revisionLog.getCoverage().isPresent()) {
+        retrieveBackwards(repository, revisionLog, latestRevision, numberOfCommits);
+        return revisionLog;
+      }
+
+      Range<Long> coverage = revisionLog.getCoverage().get();
+      if (latestRevision > coverage.upperEndpoint()) {
+        retrieve(repository, revisionLog, coverage.upperEndpoint() + 1, latestRevision);
+      }
+      int missingCommits = numberOfCommits - revisionLog.getNumberOfRevisions();
+      if (missingCommits > 0 && coverage.lowerEndpoint() > 0) {
+        retrieveBackwards(repository, revisionLog, coverage.lowerEndpoint() - 1, missingCommits);
+      }
+      return revisionLog;
+    }
+  }
+
+  private void retrieve(SVNRepository repository, SvnRevisionLog revisionLog, long startRevision, long endRevision) throws SVNException {
+    log.info("Retrieve svn log from revision {} to {} of {}", startRevision, endRevision, repository.getLocation());
+    SvnRevisionLog.Appender appender = revisionLog.startAppend();
+    try {
+      repository.log(null, startRevision, endRevision, true, true, appender);
+      appender.finish(Range.closed(startRevision, endRevision));
+    } finally {
+      appender.close();
+    }
+  }
+
+  private void retrieveBackwards(SVNRepository repository, SvnRevisionLog revisionLog, long endRevision, int numberOfCommits) throws SVNException {
+    if (numberOfCommits <= 0) {
+      // a limit of zero would retrieve the whole history
+      return;
+    }
+    log.info("Retrieve svn log of {} commits up to revision {} of {}", numberOfCommits, endRevision, repository.getLocation());
+    SvnRevisionLog.Appender appender = revisionLog.startAppend();
+    try {
+      repository.log(null, endRevision, 0L, true, true, numberOfCommits, appender);
+      // with less entries than requested the whole history up to the first revision was retrieved
+      long startRevision = appender.getNumberOfEntries() < numberOfCommits ? 0L : appender.getLastRevision();
+      appender.finish(Range.closed(startRevision, endRevision));
+    } finally {
+      appender.close();
+    }
+  }
+
+  /**
+   * Returns the stored log of the repository location without synchronizing it.
+   * <p/>
+   * The log of a repository location is identified by the uuid of
+   * the repository and the path of the location in the repository.
+   */
+  synchronized SvnRevisionLog getRevisionLog(SVNRepository repository) throws SVNException {
+    String locationPath = repository.getRepositoryPath("");
+    String key = repository.getRepositoryUUID(true) + "-" + Hashing.md5().hashString(locationPath, Charsets.UTF_8);
+    SvnRevisionLog revisionLog = revisionLogs.get(key);
+    if (revisionLog == null) {
+      revisionLog = SvnRevisionLog.open(new File(directory, key + ".log"), maxRevisionsInMemory);
+      revisionLogs.put(key, revisionLog);
+    }
+    return revisionLog;
+  }
+}
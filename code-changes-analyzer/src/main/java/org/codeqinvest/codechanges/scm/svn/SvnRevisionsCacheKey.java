@@ -0,0 +1,61 @@
+/*
+ * Copyright 2013 Felix Müller
+ *
+ * This file is part of CodeQ Invest.
+ *
+ * CodeQ Invest is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CodeQ Invest is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CodeQ Invest.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.codeqinvest.codechanges.scm.svn;
+
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+import org.codeqinvest.codechanges.scm.ScmConnectionSettings;
+import org.joda.time.LocalDate;
+
+import java.io.Serializable;
+
+/**
+ * Key of cached revisions, either of one day or of a number of last commits. It copies
+ * the connection settings, so later changes of the settings do not affect cached entries.
+ *
+ * @author fmueller
+ */
+@EqualsAndHashCode
+@ToString(exclude = "password")
+final class SvnRevisionsCacheKey implements Serializable {
+
+  private final int type;
+  private final String url;
+  private final String username;
+  private final String password;
+  private final LocalDate day;
+  private final int numberOfCommits;
+
+  private SvnRevisionsCacheKey(ScmConnectionSettings connectionSettings, LocalDate day, int numberOfCommits) {
+    this.type = connectionSettings.getType();
+    this.url = connectionSettings.getUrl();
+    this.username = connectionSettings.getUsername();
+    this.password = connectionSettings.getPassword();
+    this.day = day;
+    this.numberOfCommits = numberOfCommits;
+  }
+
+  static SvnRevisionsCacheKey forDay(ScmConnectionSettings connectionSettings, LocalDate day) {
+    return new SvnRevisionsCacheKey(connectionSettings, day, 0);
+  }
+
+  static SvnRevisionsCacheKey forLastCommits(ScmConnectionSettings connectionSettings, int numberOfCommits) {
+    return new SvnRevisionsCacheKey(connectionSettings, null, numberOfCommits);
+  }
+}
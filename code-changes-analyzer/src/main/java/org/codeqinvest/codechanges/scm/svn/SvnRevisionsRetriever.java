@@ -22,6 +22,8 @@ import org.codeqinvest.codechanges.scm.ScmConnectionSettings;
 import org.joda.time.LocalDate;
 import org.tmatesoft.svn.core.SVNException;
 
+import java.util.List;
+
 /**
  * This component retrieves revisions from a subversion repository.
  *
@@ -37,6 +39,18 @@ interface SvnRevisionsRetriever {
    */
   DailyRevisions retrieveRevisions(ScmConnectionSettings connectionSettings, LocalDate day) throws SVNException;
 
+  /**
+   * Retrieves all revisions of a subversion repository for a number of days in the past starting
+   * from the specified start day. The revisions of the whole window are retrieved with one log request
+   * and the revisions of every day can be retrieved afterwards via
+   * {@link #retrieveRevisions(ScmConnectionSettings, LocalDate)} without further requests.
+   *
+   * @return the revisions of every day of the window, the revisions of the start day first
+   * @throws org.tmatesoft.svn.core.SVNException
+   *          if an error occurred during communication with the subversion server
+   */
+  List<DailyRevisions> retrieveRevisions(ScmConnectionSettings connectionSettings, LocalDate startDay, int numberOfDays) throws SVNException;
+
   /**
    * Retrieves the last revisions of a subversion repository. The number of commits to retrieve is
    * specified.
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2013 Felix Müller
+ *
+ * This file is part of CodeQ Invest.
+ *
+ * CodeQ Invest is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CodeQ Invest is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CodeQ Invest.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.codeqinvest.codechanges.scm.svn;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.extern.slf4j.Slf4j;
+import org.codeqinvest.codechanges.scm.CodeChurnCalculationException;
+import org.codeqinvest.codechanges.scm.ScmConnectionSettings;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.tmatesoft.svn.core.SVNException;
+
+import javax.annotation.PreDestroy;
+import java.io.UnsupportedEncodingException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the requests of code churn calculations with one bounded executor per svn
+ * server, which is identified by scheme, host and port of the url. The number of
+ * threads of an executor limits how many requests all analyses send to the same
+ * server at the same time, and a slow server never blocks the requests to other
+ * servers. The limit can be configured with {@code analyzer.maxConcurrencyPerScmServer}.
+ * Threads of an executor are stopped after they were idle for a while.
+ *
+ * @author fmueller
+ */
+@Slf4j
+@Component
+class SvnServerExecutors {
+
+  private static final long KEEP_ALIVE_SECONDS = 60L;
+
+  private final int maxConcurrencyPerScmServer;
+  private final ConcurrentMap<String, ThreadPoolExecutor> executorsByScmServer = new ConcurrentHashMap<String, ThreadPoolExecutor>();
+
+  @Autowired
+  SvnServerExecutors(@Value("${analyzer.maxConcurrencyPerScmServer:4}") int maxConcurrencyPerScmServer) {
+    this.maxConcurrencyPerScmServer = maxConcurrencyPerScmServer;
+  }
+
+  /**
+   * Runs the tasks with the executor of the svn server and returns their results in the order
+   * of the tasks. A single task is run in the calling thread. The first failing task fails the
+   * whole run and all tasks that are not finished yet are cancelled.
+   */
+  <T> List<T> invokeAll(ScmConnectionSettings connectionSettings, List<? extends Callable<T>> tasks)
+      throws SVNException, UnsupportedEncodingException, CodeChurnCalculationException {
+
+    if (tasks.size() == 1) {
+      try {
+        return Collections.singletonList(tasks.get(0).call());
+      } catch (Exception e) {
+        throw rethrow(e);
+      }
+    }
+
+    CompletionService<T> completionService = new ExecutorCompletionService<T>(getExecutor(connectionSettings));
+    Map<Future<T>, Integer> taskIndexes = new LinkedHashMap<Future<T>, Integer>();
+    try {
+      for (Callable<T> task : tasks) {
+        taskIndexes.put(completionService.submit(task), taskIndexes.size());
+      }
+      List<T> results = new ArrayList<T>(Collections.<T>nCopies(tasks.size(), null));
+      for (int i = 0; i < tasks.size(); i++) {
+        Future<T> finishedTask = completionService.take();
+        results.set(taskIndexes.get(finishedTask), finishedTask.get());
+      }
+      return results;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new CodeChurnCalculationException(e);
+    } catch (ExecutionException e) {
+      throw rethrow(e.getCause());
+    } finally {
+      for (Future<T> future : taskIndexes.keySet()) {
+        future.cancel(true);
+      }
+    }
+  }
+
+  @PreDestroy
+  void shutdown() {
+    for (ThreadPoolExecutor executor : executorsByScmServer.values()) {
+      executor.shutdownNow();
+    }
+  }
+
+  private ThreadPoolExecutor getExecutor(ScmConnectionSettings connectionSettings) {
+    String scmServer = getScmServer(connectionSettings);
+    ThreadPoolExecutor executor = executorsByScmServer.get(scmServer);
+    if (executor == null) {
+      ThreadPoolExecutor newExecutor = new ThreadPoolExecutor(maxConcurrencyPerScmServer, maxConcurrencyPerScmServer,
+          KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+          new ThreadFactoryBuilder().setNameFormat("svn-" + scmServer.replace("%", "%%") + "-%d").setDaemon(true).build());
+      newExecutor.allowCoreThreadTimeOut(true);
+      executor = executorsByScmServer.putIfAbsent(scmServer, newExecutor);
+      if (executor == null) {
+        executor = newExecutor;
+      } else {
+        newExecutor.shutdown();
+      }
+    }
+    return executor;
+  }
+
+  /**
+   * Identifies the svn server by scheme, host and port of the url.
+   */
+  static String getScmServer(ScmConnectionSettings connectionSettings) {
+    try {
+      URI uri = new URI(connectionSettings.getUrl());
+      if (uri.getHost() != null) {
+        return uri.getScheme() + "://" + uri.getHost() + ":" + uri.getPort();
+      }
+    } catch (URISyntaxException e) {
+      log.debug("Could not parse scm url {}", connectionSettings.getUrl());
+    }
+    return connectionSettings.getUrl();
+  }
+
+  private static CodeChurnCalculationException rethrow(Throwable cause) throws SVNException, UnsupportedEncodingException {
+    if (cause instanceof CodeChurnCalculationException) {
+      return (CodeChurnCalculationException) cause;
+    } else if (cause instanceof SVNException) {
+      throw (SVNException) cause;
+    } else if (cause instanceof UnsupportedEncodingException) {
+      throw (UnsupportedEncodingException) cause;
+    } else if (cause instanceof RuntimeException) {
+      throw (RuntimeException) cause;
+    } else if (cause instanceof Error) {
+      throw (Error) cause;
+    }
+    return new CodeChurnCalculationException((Exception) cause);
+  }
+}
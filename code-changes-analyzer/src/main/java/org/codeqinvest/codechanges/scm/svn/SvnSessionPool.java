@@ -0,0 +1,411 @@
+/*
+ * Copyright 2013 Felix Müller
+ *
+ * This file is part of CodeQ Invest.
+ *
+ * CodeQ Invest is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CodeQ Invest is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CodeQ Invest.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.codeqinvest.codechanges.scm.svn;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.EqualsAndHashCode;
+import lombok.extern.slf4j.Slf4j;
+import org.codeqinvest.codechanges.scm.ScmConnectionSettings;
+import org.joda.time.DateTimeUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.tmatesoft.svn.core.SVNErrorCode;
+import org.tmatesoft.svn.core.SVNErrorMessage;
+import org.tmatesoft.svn.core.SVNException;
+import org.tmatesoft.svn.core.auth.BasicAuthenticationManager;
+import org.tmatesoft.svn.core.io.SVNRepository;
+import org.tmatesoft.svn.core.wc2.SvnOperationFactory;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps idle {@link SVNRepository} sessions and {@link SvnOperationFactory}
+ * objects per connection settings, so connections to the svn server and
+ * their authentication can be reused by later requests. A borrowed session
+ * is used by one thread only and has to be returned afterwards. A session
+ * that failed is closed when it is returned instead of being reused.
+ * <p/>
+ * All sessions to the same svn server, borrowed or idle, are limited by
+ * {@code analyzer.maxSvnSessionsPerScmServer}. When the limit is reached, an idle
+ * session of other connection settings to the server is closed or the borrowing
+ * thread waits until another one returns its session.
+ * <p/>
+ * At most {@value #DEFAULT_MAX_IDLE_SESSIONS} idle sessions are kept per connection settings
+ * and sessions that were idle for too long are closed, also in the background. A repository
+ * session that was idle for a while is tested before it is handed out again.
+ *
+ * @author fmueller
+ */
+@Slf4j
+@Component
+public class SvnSessionPool {
+
+  static final int DEFAULT_MAX_IDLE_SESSIONS = 4;
+  static final int DEFAULT_MAX_SESSIONS_PER_SERVER = 16;
+  static final long DEFAULT_IDLE_TIMEOUT_MILLIS = 5 * 60 * 1000L;
+  static final long DEFAULT_HEALTH_CHECK_INTERVAL_MILLIS = 30 * 1000L;
+  static final long DEFAULT_BORROW_TIMEOUT_MILLIS = 10 * 60 * 1000L;
+
+  private static final long EVICTION_INTERVAL_MILLIS = 30 * 1000L;
+
+  private final int maxIdleSessions;
+  private final int maxSessionsPerServer;
+  private final long idleTimeoutMillis;
+  private final long healthCheckIntervalMillis;
+  private final long borrowTimeoutMillis;
+
+  private final Map<SessionKey, Deque<IdleSession<SVNRepository>>> idleRepositories =
+      new HashMap<SessionKey, Deque<IdleSession<SVNRepository>>>();
+  private final Map<SessionKey, Deque<IdleSession<SvnOperationFactory>>> idleOperationFactories =
+      new HashMap<SessionKey, Deque<IdleSession<SvnOperationFactory>>>();
+  private final Map<String, Integer> openSessionsByServer = new HashMap<String, Integer>();
+  private ScheduledExecutorService evictor;
+  private boolean closed;
+
+  private final AtomicLong createdSessions = new AtomicLong();
+  private final AtomicLong reusedSessions = new AtomicLong();
+
+  SvnSessionPool() {
+    this(DEFAULT_MAX_SESSIONS_PER_SERVER);
+  }
+
+  @Autowired
+  SvnSessionPool(@Value("${analyzer.maxSvnSessionsPerScmServer:" + DEFAULT_MAX_SESSIONS_PER_SERVER + "}") int maxSessionsPerServer) {
+    this(DEFAULT_MAX_IDLE_SESSIONS, maxSessionsPerServer, DEFAULT_IDLE_TIMEOUT_MILLIS, DEFAULT_HEALTH_CHECK_INTERVAL_MILLIS,
+        DEFAULT_BORROW_TIMEOUT_MILLIS);
+  }
+
+  SvnSessionPool(int maxIdleSessions, int maxSessionsPerServer, long idleTimeoutMillis, long healthCheckIntervalMillis,
+                 long borrowTimeoutMillis) {
+    this.maxIdleSessions = maxIdleSessions;
+    this.maxSessionsPerServer = maxSessionsPerServer;
+    this.idleTimeoutMillis = idleTimeoutMillis;
+    this.healthCheckIntervalMillis = healthCheckIntervalMillis;
+    this.borrowTimeoutMillis = borrowTimeoutMillis;
+  }
+
+  @PostConstruct
+  synchronized void startEvictor() {
+    evictor = Executors.newSingleThreadScheduledExecutor(
+        new ThreadFactoryBuilder().setNameFormat("svn-session-evictor").setDaemon(true).build());
+    evictor.scheduleWithFixedDelay(new Runnable() {
+
+      @Override
+      public void run() {
+        closeExpiredSessions();
+      }
+    }, EVICTION_INTERVAL_MILLIS, EVICTION_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Returns an idle repository session that passed the health check or a new one.
+   *
+   * @throws SVNException if the supplied url of the {@code connectionSettings} cannot be parsed
+   *                      or no session to the svn server became available in time
+   */
+  SVNRepository borrowRepository(ScmConnectionSettings connectionSettings) throws SVNException {
+    SessionKey key = new SessionKey(connectionSettings);
+    IdleSession<SVNRepository> idleSession;
+    while ((idleSession = acquireSession(idleRepositories, key)) != null) {
+      if (isHealthy(idleSession)) {
+        reusedSessions.incrementAndGet();
+        return idleSession.session;
+      }
+      closeRepository(key, idleSession.session);
+    }
+    try {
+      SVNRepository repository = SvnRepositoryFactory.create(connectionSettings);
+      createdSessions.incrementAndGet();
+      return repository;
+    } catch (SVNException e) {
+      releaseSession(key);
+      throw e;
+    }
+  }
+
+  /**
+   * Keeps the repository session for later requests or closes it if it failed.
+   */
+  void returnRepository(ScmConnectionSettings connectionSettings, SVNRepository repository, boolean failed) {
+    SessionKey key = new SessionKey(connectionSettings);
+    if (failed || !putIdleSession(idleRepositories, key, repository)) {
+      closeRepository(key, repository);
+    }
+  }
+
+  /**
+   * Returns an idle operation factory or a new one.
+   *
+   * @throws SVNException if no session to the svn server became available in time
+   */
+  SvnOperationFactory borrowOperationFactory(ScmConnectionSettings connectionSettings) throws SVNException {
+    SessionKey key = new SessionKey(connectionSettings);
+    IdleSession<SvnOperationFactory> idleSession = acquireSession(idleOperationFactories, key);
+    if (idleSession != null) {
+      reusedSessions.incrementAndGet();
+      return idleSession.session;
+    }
+    createdSessions.incrementAndGet();
+    SvnOperationFactory operationFactory = new SvnOperationFactory();
+    if (connectionSettings.hasUsername()) {
+      operationFactory.setAuthenticationManager(
+          new BasicAuthenticationManager(connectionSettings.getUsername(), connectionSettings.getPassword()));
+    }
+    return operationFactory;
+  }
+
+  /**
+   * Keeps the operation factory for later requests or disposes it if it failed.
+   */
+  void returnOperationFactory(ScmConnectionSettings connectionSettings, SvnOperationFactory operationFactory, boolean failed) {
+    SessionKey key = new SessionKey(connectionSettings);
+    if (failed || !putIdleSession(idleOperationFactories, key, operationFactory)) {
+      disposeOperationFactory(key, operationFactory);
+    }
+  }
+
+  public long getCreatedSessions() {
+    return createdSessions.get();
+  }
+
+  public long getReusedSessions() {
+    return reusedSessions.get();
+  }
+
+  public synchronized int getNumberOfIdleSessions() {
+    return countIdleSessions(idleRepositories) + countIdleSessions(idleOperationFactories);
+  }
+
+  /**
+   * Returns the number of borrowed and idle sessions to the svn server of the connection settings.
+   */
+  synchronized int getNumberOfOpenSessions(ScmConnectionSettings connectionSettings) {
+    Integer openSessions = openSessionsByServer.get(new SessionKey(connectionSettings).server);
+    return openSessions != null ? openSessions : 0;
+  }
+
+  @PreDestroy
+  synchronized void close() {
+    closed = true;
+    if (evictor != null) {
+      evictor.shutdownNow();
+    }
+    for (Map.Entry<SessionKey, Deque<IdleSession<SVNRepository>>> idleSessions : idleRepositories.entrySet()) {
+      for (IdleSession<SVNRepository> idleSession : idleSessions.getValue()) {
+        closeRepository(idleSessions.getKey(), idleSession.session);
+      }
+    }
+    for (Map.Entry<SessionKey, Deque<IdleSession<SvnOperationFactory>>> idleSessions : idleOperationFactories.entrySet()) {
+      for (IdleSession<SvnOperationFactory> idleSession : idleSessions.getValue()) {
+        disposeOperationFactory(idleSessions.getKey(), idleSession.session);
+      }
+    }
+    idleRepositories.clear();
+    idleOperationFactories.clear();
+  }
+
+  /**
+   * Closes the sessions that were idle for longer than the idle timeout.
+   */
+  synchronized void closeExpiredSessions() {
+    long expiredBefore = DateTimeUtils.currentTimeMillis() - idleTimeoutMillis;
+    for (Map.Entry<SessionKey, Deque<IdleSession<SVNRepository>>> idleSessions : idleRepositories.entrySet()) {
+      Iterator<IdleSession<SVNRepository>> oldestSessions = idleSessions.getValue().descendingIterator();
+      while (oldestSessions.hasNext()) {
+        IdleSession<SVNRepository> idleSession = oldestSessions.next();
+        if (idleSession.idleSince >= expiredBefore) {
+          break;
+        }
+        oldestSessions.remove();
+        closeRepository(idleSessions.getKey(), idleSession.session);
+      }
+    }
+    for (Map.Entry<SessionKey, Deque<IdleSession<SvnOperationFactory>>> idleSessions : idleOperationFactories.entrySet()) {
+      Iterator<IdleSession<SvnOperationFactory>> oldestSessions = idleSessions.getValue().descendingIterator();
+      while (oldestSessions.hasNext()) {
+        IdleSession<SvnOperationFactory> idleSession = oldestSessions.next();
+        if (idleSession.idleSince >= expiredBefore) {
+          break;
+        }
+        oldestSessions.remove();
+        disposeOperationFactory(idleSessions.getKey(), idleSession.session);
+      }
+    }
+  }
+
+  private boolean isHealthy(IdleSession<SVNRepository> idleSession) {
+    if (DateTimeUtils.currentTimeMillis() - idleSession.idleSince < healthCheckIntervalMillis) {
+      return true;
+    }
+    try {
+      idleSession.session.testConnection();
+      return true;
+    } catch (SVNException e) {
+      log.info("Discarding idle svn session to {} that failed the health check", idleSession.session.getLocation());
+      return false;
+    }
+  }
+
+  /**
+   * Takes the most recently returned session, so rarely needed sessions become idle long enough
+   * to be closed. Without an idle session, a new one may be opened if the limit of the server
+   * was not reached yet, which is signalled by returning {@code null}.
+   */
+  private synchronized <T> IdleSession<T> acquireSession(Map<SessionKey, Deque<IdleSession<T>>> idleSessionsByKey,
+                                                         SessionKey key) throws SVNException {
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(borrowTimeoutMillis);
+    while (true) {
+      closeExpiredSessions();
+      Deque<IdleSession<T>> idleSessions = idleSessionsByKey.get(key);
+      if (idleSessions != null && !idleSessions.isEmpty()) {
+        return idleSessions.pollFirst();
+      }
+      if (countOpenSessions(key.server) < maxSessionsPerServer || closeIdleSessionOf(key.server)) {
+        openSessionsByServer.put(key.server, countOpenSessions(key.server) + 1);
+        return null;
+      }
+      long remainingNanos = deadline - System.nanoTime();
+      if (remainingNanos <= 0L) {
+        throw new SVNException(SVNErrorMessage.create(SVNErrorCode.RA_DAV_REQUEST_FAILED,
+            "No session to {0} became available within {1} ms", new Object[]{key.server, borrowTimeoutMillis}));
+      }
+      try {
+        TimeUnit.NANOSECONDS.timedWait(this, remainingNanos);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new SVNException(SVNErrorMessage.create(SVNErrorCode.CANCELLED, "Interrupted while waiting for a session"), e);
+      }
+    }
+  }
+
+  private synchronized <T> boolean putIdleSession(Map<SessionKey, Deque<IdleSession<T>>> idleSessionsByKey,
+                                                  SessionKey key, T session) {
+    if (closed) {
+      return false;
+    }
+    closeExpiredSessions();
+    Deque<IdleSession<T>> idleSessions = idleSessionsByKey.get(key);
+    if (idleSessions == null) {
+      idleSessions = new ArrayDeque<IdleSession<T>>(maxIdleSessions);
+      idleSessionsByKey.put(key, idleSessions);
+    }
+    if (idleSessions.size() >= maxIdleSessions) {
+      return false;
+    }
+    idleSessions.addFirst(new IdleSession<T>(session, DateTimeUtils.currentTimeMillis()));
+    notifyAll();
+    return true;
+  }
+
+  /**
+   * Closes the longest idle session of any connection settings to the server to make room for a new one.
+   */
+  private boolean closeIdleSessionOf(String server) {
+    for (Map.Entry<SessionKey, Deque<IdleSession<SVNRepository>>> idleSessions : idleRepositories.entrySet()) {
+      if (idleSessions.getKey().server.equals(server) && !idleSessions.getValue().isEmpty()) {
+        closeRepository(idleSessions.getKey(), idleSessions.getValue().pollLast().session);
+        return true;
+      }
+    }
+    for (Map.Entry<SessionKey, Deque<IdleSession<SvnOperationFactory>>> idleSessions : idleOperationFactories.entrySet()) {
+      if (idleSessions.getKey().server.equals(server) && !idleSessions.getValue().isEmpty()) {
+        disposeOperationFactory(idleSessions.getKey(), idleSessions.getValue().pollLast().session);
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private void closeRepository(SessionKey key, SVNRepository repository) {
+    repository.closeSession();
+    releaseSession(key);
+  }
+
+  private void disposeOperationFactory(SessionKey key, SvnOperationFactory operationFactory) {
+    operationFactory.dispose();
+    releaseSession(key);
+  }
+
+  private synchronized void releaseSession(SessionKey key) {
+    int openSessions = countOpenSessions(key.server) - 1;
+    if (openSessions > 0) {
+      openSessionsByServer.put(key.server, openSessions);
+    } else {
+      openSessionsByServer.remove(key.server);
+    }
+    notifyAll();
+  }
+
+  private int countOpenSessions(String server) {
+    Integer openSessions = openSessionsByServer.get(server);
+    return openSessions != null ? openSessions : 0;
+  }
+
+  private static <T> int countIdleSessions(Map<SessionKey, Deque<IdleSession<T>>> idleSessionsByKey) {
+    int numberOfIdleSessions = 0;
+    for (Deque<IdleSession<T>> idleSessions : idleSessionsByKey.values()) {
+      numberOfIdleSessions += idleSessions.size();
+    }
+    return numberOfIdleSessions;
+  }
+
+  /**
+   * Immutable copy of the connection settings a session was opened with, so changing
+   * the settings of a project afterwards can not corrupt the pool.
+   */
+  @EqualsAndHashCode
+  private static final class SessionKey {
+
+    private final String server;
+    private final int type;
+    private final String url;
+    private final String username;
+    private final String password;
+
+    private SessionKey(ScmConnectionSettings connectionSettings) {
+      this.server = SvnServerExecutors.getScmServer(connectionSettings);
+      this.type = connectionSettings.getType();
+      this.url = connectionSettings.getUrl();
+      this.username = connectionSettings.getUsername();
+      this.password = connectionSettings.getPassword();
+    }
+  }
+
+  private static final class IdleSession<T> {
+
+    private final T session;
+    private final long idleSince;
+
+    private IdleSession(T session, long idleSince) {
+      this.session = session;
+      this.idleSince = idleSince;
+    }
+  }
+}
@@ -24,6 +24,7 @@ import org.codeqinvest.codechanges.scm.ScmConnectionEncodingException;
 import org.junit.Test;
 
 import java.util.Arrays;
+import java.util.Map;
 
 import static org.fest.assertions.Assertions.assertThat;
 
@@ -51,4 +52,14 @@ public class CommitBasedCodeChangeProbabilityCalculatorTest extends AbstractCode
     CodeChangeProbabilityCalculator codeChangeProbabilityCalculator = new CommitBasedCodeChangeProbabilityCalculator(codeChurnCalculatorFactory, 1);
     assertThat(codeChangeProbabilityCalculator.calculateCodeChangeProbability(dummyConnectionSettings, "A")).isEqualTo(1.0);
   }
+
+  @Test
+  public void calculateProbabilitiesOfManyFilesAtOnce() throws CodeChurnCalculationException, ScmConnectionEncodingException {
+    fakeCodeChurnCalculator.addCodeChurnWithoutDay("A", new CodeChurn(Arrays.asList(0.8)));
+    fakeCodeChurnCalculator.addCodeChurnWithoutDay("B", new CodeChurn(Arrays.asList(10.0)));
+    CodeChangeProbabilityCalculator codeChangeProbabilityCalculator = new CommitBasedCodeChangeProbabilityCalculator(codeChurnCalculatorFactory, 1);
+    Map<String, Double> changeProbabilities = codeChangeProbabilityCalculator.calculateCodeChangeProbabilities(dummyConnectionSettings, Arrays.asList("A", "B"));
+    assertThat(changeProbabilities.get("A")).isEqualTo(0.8);
+    assertThat(changeProbabilities.get("B")).isEqualTo(1.0);
+  }
 }
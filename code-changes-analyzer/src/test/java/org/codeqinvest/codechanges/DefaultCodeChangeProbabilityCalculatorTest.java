@@ -27,6 +27,7 @@ import org.junit.Before;
 import org.junit.Test;
 
 import java.util.Arrays;
+import java.util.Map;
 
 import static org.fest.assertions.Assertions.assertThat;
 
@@ -74,4 +75,14 @@ public class DefaultCodeChangeProbabilityCalculatorTest extends AbstractCodeChan
     CodeChangeProbabilityCalculator codeChangeProbabilityCalculator = new DefaultCodeChangeProbabilityCalculator(codeChurnCalculatorFactory, startDay, 1);
     assertThat(codeChangeProbabilityCalculator.calculateCodeChangeProbability(dummyConnectionSettings, "A")).isEqualTo(1.0);
   }
+
+  @Test
+  public void calculateProbabilitiesOfManyFilesAtOnce() throws CodeChurnCalculationException, ScmConnectionEncodingException {
+    fakeCodeChurnCalculator.addCodeChurn("A", new DailyCodeChurn(startDay, Arrays.asList(0.8)));
+    fakeCodeChurnCalculator.addCodeChurn("B", new DailyCodeChurn(startDay, Arrays.asList(0.2)));
+    CodeChangeProbabilityCalculator codeChangeProbabilityCalculator = new DefaultCodeChangeProbabilityCalculator(codeChurnCalculatorFactory, startDay, 1);
+    Map<String, Double> changeProbabilities = codeChangeProbabilityCalculator.calculateCodeChangeProbabilities(dummyConnectionSettings, Arrays.asList("A", "B"));
+    assertThat(changeProbabilities.get("A")).isEqualTo(0.4);
+    assertThat(changeProbabilities.get("B")).isEqualTo(0.1);
+  }
 }
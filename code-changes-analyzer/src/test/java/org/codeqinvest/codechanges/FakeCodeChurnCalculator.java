@@ -71,6 +71,17 @@ class FakeCodeChurnCalculator implements CodeChurnCalculator {
     return codeChurns;
   }
 
+  @Override
+  public Map<String, Collection<DailyCodeChurn>> calculateCodeChurn(ScmConnectionSettings connectionSettings, Collection<String> files,
+                                                                    LocalDate day, int numberOfDays)
+      throws CodeChurnCalculationException, ScmConnectionEncodingException {
+    Map<String, Collection<DailyCodeChurn>> codeChurns = Maps.newHashMap();
+    for (String file : files) {
+      codeChurns.put(file, calculateCodeChurn(connectionSettings, file, day, numberOfDays));
+    }
+    return codeChurns;
+  }
+
   @Override
   public CodeChurn calculateCodeChurnForLastCommits(ScmConnectionSettings connectionSettings, String file, int numberOfCommits)
       throws CodeChurnCalculationException, ScmConnectionEncodingException {
@@ -94,4 +105,14 @@ class FakeCodeChurnCalculator implements CodeChurnCalculator {
     }
     return codeChurns;
   }
+
+  @Override
+  public Map<String, CodeChurn> calculateCodeChurnForLastCommits(ScmConnectionSettings connectionSettings, Collection<String> files, int numberOfCommits)
+      throws CodeChurnCalculationException, ScmConnectionEncodingException {
+    Map<String, CodeChurn> codeChurns = Maps.newHashMap();
+    for (String file : files) {
+      codeChurns.put(file, calculateCodeChurnForLastCommits(connectionSettings, file, numberOfCommits));
+    }
+    return codeChurns;
+  }
 }
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2013 Felix Müller
+ *
+ * This file is part of CodeQ Invest.
+ *
+ * CodeQ Invest is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CodeQ Invest is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CodeQ Invest.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.codeqinvest.codechanges.scm.svn;
+
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.Multimap;
+import org.codeqinvest.codechanges.scm.ScmConnectionSettings;
+import org.joda.time.LocalDate;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.tmatesoft.svn.core.SVNException;
+
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class DefaultSvnRevisionsRetrieverTest {
+
+  private final ScmConnectionSettings connectionSettings = new ScmConnectionSettings("http://not.reachable.localhost/svn");
+  private final LocalDate startDay = new LocalDate(2013, 6, 10);
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private Cache cache;
+  private SvnRevisionsRetriever revisionsRetriever;
+
+  @Before
+  public void setUp() {
+    ConcurrentMapCacheManager cacheManager = new ConcurrentMapCacheManager("svnRevisions");
+    cache = cacheManager.getCache("svnRevisions");
+    revisionsRetriever = new DefaultSvnRevisionsRetriever(cacheManager, new SvnRevisionStore(temporaryFolder.getRoot()), new SvnSessionPool());
+  }
+
+  @Test
+  public void windowShouldBeServedFromCacheWhenAllDaysAreCached() throws SVNException {
+    DailyRevisions firstDay = cacheRevisions(startDay);
+    DailyRevisions secondDay = cacheRevisions(startDay.minusDays(1));
+
+    List<DailyRevisions> revisions = revisionsRetriever.retrieveRevisions(connectionSettings, startDay, 1);
+    assertThat(revisions).containsExactly(firstDay, secondDay);
+  }
+
+  @Test(expected = SVNException.class)
+  public void windowShouldBeRetrievedFromServerWhenOneDayIsNotCached() throws SVNException {
+    cacheRevisions(startDay);
+    revisionsRetriever.retrieveRevisions(connectionSettings, startDay, 1);
+  }
+
+  @Test
+  public void lastCommitsShouldBeServedFromCache() throws SVNException {
+    Revisions lastRevisions = new Revisions(ArrayListMultimap.<String, SvnFileRevision>create());
+    cache.put(SvnRevisionsCacheKey.forLastCommits(connectionSettings, 10), lastRevisions);
+
+    assertThat(revisionsRetriever.retrieveRevisions(connectionSettings, 10)).isSameAs(lastRevisions);
+  }
+
+  @Test
+  public void cachedRevisionsShouldNotBeAffectedByLaterChangesOfConnectionSettings() throws SVNException {
+    ScmConnectionSettings changingConnectionSettings = new ScmConnectionSettings("http://not.reachable.localhost/svn");
+    DailyRevisions revisions = new DailyRevisions(startDay, ArrayListMultimap.<String, SvnFileRevision>create());
+    cache.put(SvnRevisionsCacheKey.forDay(changingConnectionSettings, startDay), revisions);
+    changingConnectionSettings.setUrl("http://not.reachable.localhost/other");
+
+    assertThat(revisionsRetriever.retrieveRevisions(connectionSettings, startDay)).isSameAs(revisions);
+  }
+
+  private DailyRevisions cacheRevisions(LocalDate day) {
+    Multimap<String, SvnFileRevision> changes = ArrayListMultimap.create();
+    changes.put("/svn/A.java", new SvnFileRevision(day.getDayOfMonth(), "/svn/A.java", "/svn/A.java"));
+    DailyRevisions revisions = new DailyRevisions(day, changes);
+    cache.put(SvnRevisionsCacheKey.forDay(connectionSettings, day), revisions);
+    return revisions;
+  }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright 2013 Felix Müller
+ *
+ * This file is part of CodeQ Invest.
+ *
+ * CodeQ Invest is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CodeQ Invest is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CodeQ Invest.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.codeqinvest.codechanges.scm.svn;
+
+import com.google.common.collect.ImmutableMap;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Map;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class DiffLineCounterTest {
+
+  private static final String DIFF = "Index: A.java\n"
+      + "===================================================================\n"
+      + "--- A.java\t(revision 1)\n"
+      + "+++ A.java\t(revision 2)\n"
+      + "@@ -1,3 +1,3 @@\n"
+      + " class A {\n"
+      + "-  int a;\n"
+      + "+  int b;\n"
+      + " }\n";
+
+  @Test
+  public void shouldCountAddedAndRemovedLinesWithoutFileHeaders() throws IOException {
+    DiffLineCounter diffLineCounter = count(DIFF, "UTF-8", "\n");
+    assertThat(diffLineCounter.getAddedLines()).isEqualTo(1L);
+    assertThat(diffLineCounter.getRemovedLines()).isEqualTo(1L);
+    assertThat(diffLineCounter.getChangedLines()).isEqualTo(2L);
+  }
+
+  @Test
+  public void shouldCountRemovedLinesThatLookLikeFileHeadersWithinHunk() throws IOException {
+    String diff = "--- script.sql\t(revision 1)\n"
+        + "+++ script.sql\t(revision 2)\n"
+        + "@@ -1,2 +1,2 @@\n"
+        + "--- comment\n"
+        + "+++ comment\n"
+        + " select 1;\n";
+    assertThat(count(diff, "UTF-8", "\n").getChangedLines()).isEqualTo(2L);
+  }
+
+  @Test
+  public void shouldCountLinesOfAllHunksAndFiles() throws IOException {
+    String diff = DIFF
+        + "@@ -10 +10,2 @@\n"
+        + "-  void a() {}\n"
+        + "+  void b() {}\n"
+        + "+  void c() {}\n"
+        + DIFF.replace("A.java", "B.java");
+    assertThat(count(diff, "UTF-8", "\n").getChangedLines()).isEqualTo(7L);
+  }
+
+  @Test
+  public void shouldIgnoreMissingNewlineMarker() throws IOException {
+    String diff = "@@ -1 +1,2 @@\n"
+        + "-a\n"
+        + "\\ No newline at end of file\n"
+        + "+a\n"
+        + "+b";
+    assertThat(count(diff, "UTF-8", "\n").getChangedLines()).isEqualTo(3L);
+  }
+
+  @Test
+  public void shouldSplitLinesByMultiByteSeparator() throws IOException {
+    assertThat(count(DIFF.replace("\n", "\r\n"), "UTF-8", "\r\n").getChangedLines()).isEqualTo(2L);
+  }
+
+  @Test
+  public void shouldUseEncodingOfDiff() throws IOException {
+    String diff = "@@ -1 +1 @@\n-ä\n+ö\n";
+    assertThat(count(diff, "UTF-16BE", "\n").getChangedLines()).isEqualTo(2L);
+  }
+
+  @Test
+  public void shouldClassifyVeryLongLines() throws IOException {
+    StringBuilder longLine = new StringBuilder("+");
+    for (int i = 0; i < 1000; i++) {
+      longLine.append("0123456789");
+    }
+    String diff = "@@ -1 +1 @@\n-short\n" + longLine + "\n";
+    assertThat(count(diff, "UTF-8", "\n").getChangedLines()).isEqualTo(2L);
+  }
+
+  @Test
+  public void shouldCountPropertyChangesOutsideOfHunks() throws IOException {
+    String diff = "Property changes on: A.java\n"
+        + "___________________________________________________________________\n"
+        + "Added: svn:eol-style\n"
+        + "+native\n";
+    assertThat(count(diff, "UTF-8", "\n").getChangedLines()).isEqualTo(1L);
+  }
+
+  @Test
+  public void shouldCountChangedLinesPerFile() throws IOException {
+    DiffLineCounter diffLineCounter = count(DIFF + DIFF.replace("A.java", "org/B.java").replace("+1,3", "+1,2").replace("+  int b;\n", ""), "UTF-8", "\n");
+    assertThat(diffLineCounter.getChangedLinesByFile()).isEqualTo(ImmutableMap.of(
+        "A.java", new ChangedLines(1L, 1L),
+        "org/B.java", new ChangedLines(0L, 1L)));
+  }
+
+  @Test
+  public void lineCountChangeShouldOnlyDependOnHunks() throws IOException {
+    String diff = DIFF
+        + "@@ -10 +10,2 @@\n"
+        + "-  void a() {}\n"
+        + "+  void b() {}\n"
+        + "+  void c() {}\n"
+        + "\n"
+        + "Property changes on: A.java\n"
+        + "___________________________________________________________________\n"
+        + "Added: svn:eol-style\n"
+        + "## -0,0 +1 ##\n"
+        + "+native\n";
+    ChangedLines changedLines = count(diff, "UTF-8", "\n").getChangedLinesOfDiff();
+    assertThat(changedLines.getAddedLines()).isEqualTo(4L);
+    assertThat(changedLines.getLineCountChange().get()).isEqualTo(1L);
+  }
+
+  @Test
+  public void lineCountChangeShouldBeKnownForBlankLinesWithinFile() throws IOException {
+    String diff = "@@ -1,2 +1,3 @@\n"
+        + " a\n"
+        + "+\n"
+        + " b\n";
+    assertThat(count(diff, "UTF-8", "\n").getChangedLinesOfDiff().getLineCountChange().get()).isEqualTo(1L);
+  }
+
+  @Test
+  public void lineCountChangeShouldBeUnknownWhenBlankLinesAtTheEndMayChange() throws IOException {
+    String diff = "@@ -1,2 +1,3 @@\n"
+        + " a\n"
+        + " \n"
+        + "+b\n";
+    assertThat(count(diff, "UTF-8", "\n").getChangedLinesOfDiff().getLineCountChange().isPresent()).isFalse();
+  }
+
+  @Test
+  public void lineCountChangeShouldBeUnknownWhenHunkIsIncomplete() throws IOException {
+    String diff = "@@ -1,3 +1,4 @@\n"
+        + " a\n"
+        + "+b\n";
+    assertThat(count(diff, "UTF-8", "\n").getChangedLinesOfDiff().getLineCountChange().isPresent()).isFalse();
+  }
+
+  @Test
+  public void lineCountChangeShouldBeUnknownOnlyForAffectedFile() throws IOException {
+    String diff = DIFF + "Index: B.java\n"
+        + "@@ -1 +1,2 @@\n"
+        + " b\n"
+        + "+\n";
+    Map<String, ChangedLines> changedLinesByFile = count(diff, "UTF-8", "\n").getChangedLinesByFile();
+    assertThat(changedLinesByFile.get("A.java").getLineCountChange().get()).isEqualTo(0L);
+    assertThat(changedLinesByFile.get("B.java").getLineCountChange().isPresent()).isFalse();
+  }
+
+  @Test
+  public void emptyDiffShouldHaveNoChangedLines() throws IOException {
+    assertThat(count("", "UTF-8", "\n").getChangedLines()).isEqualTo(0L);
+  }
+
+  private static DiffLineCounter count(String diff, String encoding, String lineSeparator) throws IOException {
+    DiffLineCounter diffLineCounter = new DiffLineCounter(encoding, lineSeparator);
+    diffLineCounter.write(diff.getBytes(encoding));
+    diffLineCounter.close();
+    return diffLineCounter;
+  }
+}
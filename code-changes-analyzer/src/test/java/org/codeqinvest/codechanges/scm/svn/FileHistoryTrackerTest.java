@@ -0,0 +1,76 @@
+/*
+ * Copyright 2013 Felix Müller
+ *
+ * This file is part of CodeQ Invest.
+ *
+ * CodeQ Invest is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CodeQ Invest is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CodeQ Invest.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.codeqinvest.codechanges.scm.svn;
+
+import com.google.common.collect.ListMultimap;
+import org.codeqinvest.codechanges.scm.ScmConnectionSettings;
+import org.junit.Before;
+import org.junit.Test;
+import org.tmatesoft.svn.core.SVNException;
+
+import java.util.Arrays;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class FileHistoryTrackerTest {
+
+  private ScmConnectionSettings connectionSettings;
+
+  @Before
+  public void setUp() {
+    connectionSettings = new ScmConnectionSettings("http://svn.localhost/project/trunk/src");
+  }
+
+  @Test
+  public void attributeRevisionsToFilesByTheirPath() throws SVNException {
+    SvnFileRevision revisionOfA = changeOf(3L, "/project/trunk/src/org/A.java");
+    SvnFileRevision revisionOfB = changeOf(2L, "/project/trunk/src/org/B.java");
+    SvnFileRevision revisionOfC = changeOf(1L, "/project/trunk/src/org/C.java");
+
+    ListMultimap<String, SvnFileRevision> revisions = new FileHistoryTracker(connectionSettings, Arrays.asList("org/A.java", "org/B.java"))
+        .attribute(Arrays.asList(revisionOfC, revisionOfA, revisionOfB));
+    assertThat(revisions.get("org/A.java")).containsExactly(revisionOfA);
+    assertThat(revisions.get("org/B.java")).containsExactly(revisionOfB);
+    assertThat(revisions.containsKey("org/C.java")).isFalse();
+  }
+
+  @Test
+  public void pathsShouldOnlyMatchAtCompleteSegments() throws SVNException {
+    ListMultimap<String, SvnFileRevision> revisions = new FileHistoryTracker(connectionSettings, Arrays.asList("org/A.java"))
+        .attribute(Arrays.asList(changeOf(1L, "/project/trunk/src/xorg/A.java")));
+    assertThat(revisions.isEmpty()).isTrue();
+  }
+
+  @Test
+  public void followRenamedFilesToOlderRevisions() throws SVNException {
+    SvnFileRevision changeAfterRename = changeOf(5L, "/project/trunk/src/org/New.java");
+    SvnFileRevision rename = new SvnFileRevision(4L, "/project/trunk/src/org/Old.java", "/project/trunk/src/org/New.java");
+    SvnFileRevision deleteOfOldPath = changeOf(4L, "/project/trunk/src/org/Old.java");
+    SvnFileRevision changeBeforeRename = changeOf(3L, "/project/trunk/src/org/Old.java");
+    SvnFileRevision changeOfOtherFileWithNewName = changeOf(2L, "/project/trunk/src/org/New.java");
+
+    ListMultimap<String, SvnFileRevision> revisions = new FileHistoryTracker(connectionSettings, Arrays.asList("org/New.java"))
+        .attribute(Arrays.asList(changeOfOtherFileWithNewName, changeBeforeRename, deleteOfOldPath, rename, changeAfterRename));
+    assertThat(revisions.get("org/New.java")).containsExactly(changeAfterRename, rename, changeBeforeRename);
+  }
+
+  private static SvnFileRevision changeOf(long revision, String path) {
+    return new SvnFileRevision(revision, path, path);
+  }
+}
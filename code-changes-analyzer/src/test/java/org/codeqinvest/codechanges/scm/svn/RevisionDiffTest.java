@@ -0,0 +1,49 @@
+/*
+ * Copyright 2013 Felix Müller
+ *
+ * This file is part of CodeQ Invest.
+ *
+ * CodeQ Invest is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CodeQ Invest is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CodeQ Invest.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.codeqinvest.codechanges.scm.svn;
+
+import com.google.common.collect.ImmutableMap;
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class RevisionDiffTest {
+
+  private final RevisionDiff revisionDiff = new RevisionDiff(5L, ImmutableMap.of(
+      "A.java", new ChangedLines(1L, 0L),
+      "org/A.java", new ChangedLines(2L, 0L)));
+
+  @Test
+  public void shouldFindFileByLongestTrailingPartOfPath() {
+    assertThat(revisionDiff.getChangedLines("/trunk/src/org/A.java").get()).isEqualTo(new ChangedLines(2L, 0L));
+    assertThat(revisionDiff.getChangedLines("/trunk/src/A.java").get()).isEqualTo(new ChangedLines(1L, 0L));
+  }
+
+  @Test
+  public void shouldFindFileByCompletePath() {
+    assertThat(revisionDiff.getChangedLines("org/A.java").get()).isEqualTo(new ChangedLines(2L, 0L));
+    assertThat(revisionDiff.getChangedLines("A.java").get()).isEqualTo(new ChangedLines(1L, 0L));
+  }
+
+  @Test
+  public void pathsShouldOnlyMatchAtCompleteSegments() {
+    assertThat(revisionDiff.getChangedLines("/trunk/src/xorg/B.java").isPresent()).isFalse();
+    assertThat(revisionDiff.getChangedLines("/trunk/src/XA.java").isPresent()).isFalse();
+  }
+}
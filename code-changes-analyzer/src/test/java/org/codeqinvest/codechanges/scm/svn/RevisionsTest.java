@@ -0,0 +1,79 @@
+/*
+ * Copyright 2013 Felix Müller
+ *
+ * This file is part of CodeQ Invest.
+ *
+ * CodeQ Invest is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CodeQ Invest is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CodeQ Invest.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.codeqinvest.codechanges.scm.svn;
+
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.Multimap;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class RevisionsTest {
+
+  private Multimap<String, SvnFileRevision> changes;
+
+  @Before
+  public void setUp() {
+    changes = ArrayListMultimap.create();
+  }
+
+  @Test
+  public void findRevisionsOfFileByTrailingPath() {
+    SvnFileRevision revision = addChange(1L, "/trunk/src/org/A.java");
+    addChange(2L, "/trunk/src/org/B.java");
+    assertThat(new Revisions(changes).getRevisions("org/A.java")).containsOnly(revision);
+  }
+
+  @Test
+  public void noRevisionsForUnchangedFile() {
+    addChange(1L, "/trunk/src/org/A.java");
+    assertThat(new Revisions(changes).getRevisions("org/C.java")).isEmpty();
+  }
+
+  @Test
+  public void trailingPathShouldOnlyMatchAtCompleteSegments() {
+    addChange(1L, "/trunk/src/xorg/A.java");
+    assertThat(new Revisions(changes).getRevisions("org/A.java")).isEmpty();
+  }
+
+  @Test
+  public void useLexicographicallyFirstPathForAmbiguousFiles() {
+    addChange(1L, "/trunk/src/org/A.java");
+    SvnFileRevision revisionOfBranch = addChange(2L, "/branches/feature/src/org/A.java");
+    Revisions revisions = new Revisions(changes);
+    assertThat(revisions.isAmbiguous("org/A.java")).isTrue();
+    assertThat(revisions.getRevisions("org/A.java")).containsOnly(revisionOfBranch);
+  }
+
+  @Test
+  public void fileWithMoreSegmentsShouldNotBeAmbiguous() {
+    SvnFileRevision revision = addChange(1L, "/trunk/src/org/A.java");
+    addChange(2L, "/branches/feature/src/org/A.java");
+    Revisions revisions = new Revisions(changes);
+    assertThat(revisions.isAmbiguous("trunk/src/org/A.java")).isFalse();
+    assertThat(revisions.getRevisions("trunk/src/org/A.java")).containsOnly(revision);
+  }
+
+  private SvnFileRevision addChange(long revision, String path) {
+    SvnFileRevision fileRevision = new SvnFileRevision(revision, path, path);
+    changes.put(path, fileRevision);
+    return fileRevision;
+  }
+}
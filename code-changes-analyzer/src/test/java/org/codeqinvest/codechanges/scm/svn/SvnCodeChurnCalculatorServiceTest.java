@@ -0,0 +1,152 @@
+/*
+ * Copyright 2013 Felix Müller
+ *
+ * This file is part of CodeQ Invest.
+ *
+ * CodeQ Invest is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CodeQ Invest is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CodeQ Invest.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.codeqinvest.codechanges.scm.svn;
+
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Multimap;
+import org.codeqinvest.codechanges.scm.CodeChurn;
+import org.codeqinvest.codechanges.scm.CodeChurnCalculationException;
+import org.codeqinvest.codechanges.scm.ScmConnectionEncodingException;
+import org.codeqinvest.codechanges.scm.ScmConnectionSettings;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.tmatesoft.svn.core.SVNException;
+import org.tmatesoft.svn.core.io.SVNRepository;
+
+import java.io.File;
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class SvnCodeChurnCalculatorServiceTest {
+
+  private static final String A = "/project/trunk/src/org/A.java";
+  private static final String B = "/project/trunk/src/org/B.java";
+  private static final String C = "/project/trunk/src/org/C.java";
+  private static final String D = "/project/trunk/src/org/D.java";
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private final ScmConnectionSettings connectionSettings = new ScmConnectionSettings("http://svn.localhost/project/trunk/src");
+
+  private SvnRevisionsRetriever revisionsRetriever;
+  private SvnFileRetrieverService fileRetrieverService;
+  private SvnDiffRetriever diffRetriever;
+  private SvnServerExecutors serverExecutors;
+  private SvnCodeChurnCalculatorService codeChurnCalculator;
+
+  @Before
+  public void setUp() throws SVNException, UnsupportedEncodingException {
+    Multimap<String, SvnFileRevision> changes = ArrayListMultimap.create();
+    addChange(changes, 5L, A);
+    addChange(changes, 5L, B);
+    addChange(changes, 6L, A);
+    addChange(changes, 6L, C);
+    addChange(changes, 6L, D);
+    revisionsRetriever = mock(SvnRevisionsRetriever.class);
+    when(revisionsRetriever.retrieveRevisions(connectionSettings, 2)).thenReturn(new Revisions(changes));
+
+    fileRetrieverService = mock(SvnFileRetrieverService.class);
+    when(fileRetrieverService.getFile(connectionSettings, A, 4L)).thenReturn(new SvnFile("1\n2\n3\n4\n5\n6\n7\n8\n9\n10", "\n"));
+    when(fileRetrieverService.getFile(connectionSettings, B, 4L)).thenReturn(new SvnFile("1\n2\n3\n4", "\n"));
+
+    SvnRevisionStore revisionStore = mock(SvnRevisionStore.class);
+    when(revisionStore.getRevisionLog(any(SVNRepository.class))).thenReturn(SvnRevisionLog.open(new File(temporaryFolder.getRoot(), "repository.log")));
+
+    diffRetriever = mock(SvnDiffRetriever.class);
+    when(diffRetriever.retrieveRevisionDiff(connectionSettings, 5L)).thenReturn(new RevisionDiff(5L, ImmutableMap.of(
+        "org/A.java", new ChangedLines(2L, 0L),
+        "org/B.java", new ChangedLines(1L, 1L))));
+    when(diffRetriever.retrieveDiff(connectionSettings, new SvnFileRevision(6L, A, A))).thenReturn(new ChangedLines(3L, 3L));
+
+    serverExecutors = new SvnServerExecutors(2);
+    codeChurnCalculator = new SvnCodeChurnCalculatorService(revisionsRetriever, fileRetrieverService, revisionStore, diffRetriever,
+        new SvnSessionPool(), serverExecutors);
+  }
+
+  @After
+  public void shutdown() {
+    serverExecutors.shutdown();
+  }
+
+  @Test
+  public void shouldDiffRevisionOnceWhenMostOfItsFilesAreNeeded() throws CodeChurnCalculationException, ScmConnectionEncodingException, SVNException {
+    Map<String, CodeChurn> codeChurns = codeChurnCalculator.calculateCodeChurnForLastCommits(connectionSettings, Arrays.asList("org/A.java", "org/B.java"), 2);
+
+    assertThat(codeChurns.get("org/A.java").getCodeChurnProportions()).containsOnly(0.5, 0.2);
+    assertThat(codeChurns.get("org/B.java").getCodeChurnProportions()).containsOnly(0.5);
+    verify(diffRetriever).retrieveRevisionDiff(connectionSettings, 5L);
+    verify(diffRetriever, never()).retrieveDiff(eq(connectionSettings), eq(new SvnFileRevision(5L, A, A)));
+  }
+
+  @Test
+  public void shouldDiffSingleFilesWhenFewFilesOfRevisionAreNeeded() throws CodeChurnCalculationException, ScmConnectionEncodingException, SVNException {
+    codeChurnCalculator.calculateCodeChurnForLastCommits(connectionSettings, Arrays.asList("org/A.java", "org/B.java"), 2);
+
+    verify(diffRetriever).retrieveDiff(connectionSettings, new SvnFileRevision(6L, A, A));
+    verify(diffRetriever, never()).retrieveRevisionDiff(connectionSettings, 6L);
+  }
+
+  @Test
+  public void shouldSelectRevisionsToDiffAtOnceOverAllChunksOfFiles()
+      throws CodeChurnCalculationException, ScmConnectionEncodingException, SVNException, UnsupportedEncodingException {
+    int numberOfFiles = 2 * SvnCodeChurnCalculatorService.FILES_PER_CHUNK + 1;
+    Multimap<String, SvnFileRevision> changes = ArrayListMultimap.create();
+    Map<String, ChangedLines> changedLinesByFile = new HashMap<String, ChangedLines>();
+    List<String> files = new ArrayList<String>(numberOfFiles);
+    for (int i = 0; i < numberOfFiles; i++) {
+      String file = String.format("org/File%02d.java", i);
+      files.add(file);
+      addChange(changes, 7L, "/project/trunk/src/" + file);
+      changedLinesByFile.put(file, new ChangedLines(i, 0L));
+    }
+    when(revisionsRetriever.retrieveRevisions(connectionSettings, 1)).thenReturn(new Revisions(changes));
+    when(fileRetrieverService.getFile(eq(connectionSettings), anyString(), eq(6L))).thenReturn(new SvnFile("1\n2\n3\n4\n5\n6\n7\n8\n9\n10", "\n"));
+    when(diffRetriever.retrieveRevisionDiff(connectionSettings, 7L)).thenReturn(new RevisionDiff(7L, changedLinesByFile));
+
+    Map<String, CodeChurn> codeChurns = codeChurnCalculator.calculateCodeChurnForLastCommits(connectionSettings, files, 1);
+
+    assertThat(codeChurns).hasSize(numberOfFiles);
+    assertThat(codeChurns.get("org/File00.java").getCodeChurnProportions()).containsOnly(0.0);
+    assertThat(codeChurns.get("org/File50.java").getCodeChurnProportions()).containsOnly(5.0);
+    verify(diffRetriever).retrieveRevisionDiff(connectionSettings, 7L);
+    verify(diffRetriever, never()).retrieveDiff(eq(connectionSettings), any(SvnFileRevision.class));
+  }
+
+  private static void addChange(Multimap<String, SvnFileRevision> changes, long revision, String path) {
+    changes.put(path, new SvnFileRevision(revision, path, path));
+  }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2013 Felix Müller
+ *
+ * This file is part of CodeQ Invest.
+ *
+ * CodeQ Invest is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CodeQ Invest is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CodeQ Invest.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.codeqinvest.codechanges.scm.svn;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Range;
+import org.codeqinvest.codechanges.scm.ScmConnectionSettings;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.tmatesoft.svn.core.SVNException;
+import org.tmatesoft.svn.core.SVNLogEntry;
+import org.tmatesoft.svn.core.SVNLogEntryPath;
+
+import java.io.File;
+import java.io.UnsupportedEncodingException;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class SvnLineCountLedgerTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private final ScmConnectionSettings connectionSettings = new ScmConnectionSettings("http://svn.localhost");
+
+  private SvnFileRetrieverService fileRetrieverService;
+  private SvnLineCountLedger lineCountLedger;
+
+  @Before
+  public void createLedgerWithFileChangedInRevisionsFiveAndSeven() throws SVNException, UnsupportedEncodingException {
+    SvnRevisionLog revisionLog = SvnRevisionLog.open(new File(temporaryFolder.getRoot(), "repository.log"));
+    revisionLog.append(Lists.newArrayList(logEntry(5), logEntry(7)), Range.closed(1L, 10L));
+
+    fileRetrieverService = mock(SvnFileRetrieverService.class);
+    when(fileRetrieverService.getFile(connectionSettings, "/A.java", 4L)).thenReturn(new SvnFile("1\n2\n3", "\n"));
+    lineCountLedger = new SvnLineCountLedger(connectionSettings, revisionLog, fileRetrieverService);
+  }
+
+  @Test
+  public void shouldRetrieveFileWhenLinesAreUnknown() throws SVNException, UnsupportedEncodingException {
+    assertThat(lineCountLedger.countLines("/A.java", 4L)).isEqualTo(3L);
+  }
+
+  @Test
+  public void shouldRetrieveFileOnlyOnceWhenItIsUnchanged() throws SVNException, UnsupportedEncodingException {
+    when(fileRetrieverService.getFile(connectionSettings, "/A.java", 1L)).thenReturn(new SvnFile("1", "\n"));
+    lineCountLedger.countLines("/A.java", 1L);
+    assertThat(lineCountLedger.countLines("/A.java", 4L)).isEqualTo(1L);
+    verify(fileRetrieverService, never()).getFile(connectionSettings, "/A.java", 4L);
+  }
+
+  @Test
+  public void shouldDeriveLinesOfLaterRevisionsFromChanges() throws SVNException, UnsupportedEncodingException {
+    long linesBefore = lineCountLedger.countLines("/A.java", 4L);
+    lineCountLedger.recordChange("/A.java", 5L, linesBefore, new ChangedLines(5L, 2L));
+    assertThat(lineCountLedger.countLines("/A.java", 6L)).isEqualTo(6L);
+
+    lineCountLedger.recordChange("/A.java", 7L, 6L, new ChangedLines(0L, 4L));
+    assertThat(lineCountLedger.countLines("/A.java", 7L)).isEqualTo(2L);
+    verify(fileRetrieverService).getFile(connectionSettings, "/A.java", 4L);
+  }
+
+  @Test
+  public void shouldRetrieveFileWhenChangeOfLinesIsUnknown() throws SVNException, UnsupportedEncodingException {
+    when(fileRetrieverService.getFile(connectionSettings, "/A.java", 6L)).thenReturn(new SvnFile("1\n2\n3\n4", "\n"));
+    lineCountLedger.recordChange("/A.java", 5L, lineCountLedger.countLines("/A.java", 4L), new ChangedLines(1L, 0L, Optional.<Long>absent()));
+
+    assertThat(lineCountLedger.countLines("/A.java", 6L)).isEqualTo(4L);
+    verify(fileRetrieverService).getFile(connectionSettings, "/A.java", 6L);
+  }
+
+  private static SVNLogEntry logEntry(long revision) {
+    Map<String, SVNLogEntryPath> changedPaths = new HashMap<String, SVNLogEntryPath>();
+    changedPaths.put("/A.java", new SVNLogEntryPath("/A.java", 'M', null, -1));
+    return new SVNLogEntry(changedPaths, revision, "author", new Date(), "message");
+  }
+}
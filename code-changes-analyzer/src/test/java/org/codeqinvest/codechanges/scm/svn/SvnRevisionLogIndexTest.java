@@ -0,0 +1,94 @@
+/*
+ * Copyright 2013 Felix Müller
+ *
+ * This file is part of CodeQ Invest.
+ *
+ * CodeQ Invest is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CodeQ Invest is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CodeQ Invest.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.codeqinvest.codechanges.scm.svn;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class SvnRevisionLogIndexTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private File file;
+  private SvnRevisionLogIndex index;
+
+  @Before
+  public void createIndex() throws IOException {
+    file = new File(temporaryFolder.getRoot(), "repository.log.idx");
+    index = SvnRevisionLogIndex.create(file);
+  }
+
+  @Test
+  public void shouldFindOffsetsOfRevisionsInTimeSpan() throws IOException {
+    index.add(300L, 3L, 30L);
+    index.add(100L, 1L, 10L);
+    index.add(200L, 2L, 20L);
+    index.add(400L, 4L, 40L);
+
+    assertThat(index.findOffsets(200L, 400L, Integer.MAX_VALUE).keySet()).containsOnly(2L, 3L);
+    assertThat(index.findOffsets(200L, 400L, Integer.MAX_VALUE).get(3L)).isEqualTo(30L);
+    assertThat(index.findOffsets(Long.MIN_VALUE, Long.MAX_VALUE, Integer.MAX_VALUE).keySet()).containsOnly(1L, 2L, 3L, 4L);
+    assertThat(index.findOffsets(500L, 600L, Integer.MAX_VALUE)).isEmpty();
+  }
+
+  @Test
+  public void shouldFindOnlyGivenNumberOfNewestRevisions() throws IOException {
+    index.add(100L, 1L, 10L);
+    index.add(200L, 2L, 20L);
+    index.add(300L, 3L, 30L);
+
+    assertThat(index.findOffsets(Long.MIN_VALUE, Long.MAX_VALUE, 2).keySet()).containsOnly(2L, 3L);
+  }
+
+  @Test
+  public void shouldMergeNewEntriesIntoSortedOnes() throws IOException {
+    index.add(100L, 1L, 10L);
+    index.add(300L, 3L, 30L);
+    assertThat(index.findOffsets(Long.MIN_VALUE, Long.MAX_VALUE, Integer.MAX_VALUE)).hasSize(2);
+
+    index.add(200L, 2L, 20L);
+    assertThat(index.findOffsets(150L, 250L, Integer.MAX_VALUE).keySet()).containsOnly(2L);
+    assertThat(file.length()).isEqualTo(3 * 24L);
+  }
+
+  @Test
+  public void shouldUseLastAddedOffsetOfRevision() throws IOException {
+    index.add(100L, 1L, 10L);
+    index.add(150L, 1L, 50L);
+
+    assertThat(index.findOffsets(100L, 200L, Integer.MAX_VALUE).get(1L)).isEqualTo(50L);
+    assertThat(index.findOffsets(100L, 120L, Integer.MAX_VALUE)).isEmpty();
+  }
+
+  @Test
+  public void shouldReplaceExistingIndex() throws IOException {
+    index.add(100L, 1L, 10L);
+    index.flush();
+
+    assertThat(SvnRevisionLogIndex.create(file).findOffsets(Long.MIN_VALUE, Long.MAX_VALUE, Integer.MAX_VALUE)).isEmpty();
+  }
+}
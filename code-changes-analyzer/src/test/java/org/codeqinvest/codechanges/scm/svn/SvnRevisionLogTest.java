@@ -0,0 +1,262 @@
+/*
+ * Copyright 2013 Felix Müller
+ *
+ * This file is part of CodeQ Invest.
+ *
+ * CodeQ Invest is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CodeQ Invest is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CodeQ Invest.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.codeqinvest.codechanges.scm.svn;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Multimap;
+import com.google.common.collect.Range;
+import org.joda.time.DateTime;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.tmatesoft.svn.core.SVNLogEntry;
+import org.tmatesoft.svn.core.SVNLogEntryPath;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class SvnRevisionLogTest {
+
+  private static final int COVERAGE_RECORD_LENGTH = 17;
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private final DateTime day = new DateTime(2013, 6, 10, 0, 0);
+
+  private File file;
+
+  @Before
+  public void createFile() {
+    file = new File(temporaryFolder.getRoot(), "repository.log");
+  }
+
+  @Test
+  public void newLogShouldHaveNoCoverage() {
+    assertThat(SvnRevisionLog.open(file).getCoverage().isPresent()).isFalse();
+  }
+
+  @Test
+  public void shouldSpanCoverageOfAllAppendedRanges() {
+    SvnRevisionLog revisionLog = SvnRevisionLog.open(file);
+    revisionLog.append(Lists.newArrayList(logEntry(5, day, "/A.java")), Range.closed(4L, 6L));
+    revisionLog.append(Lists.newArrayList(logEntry(7, day, "/B.java")), Range.closed(7L, 10L));
+    assertThat(revisionLog.getCoverage().get()).isEqualTo(Range.closed(4L, 10L));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldNotAcceptRangesWithGapToCoverage() {
+    SvnRevisionLog revisionLog = SvnRevisionLog.open(file);
+    revisionLog.append(Lists.newArrayList(logEntry(5, day, "/A.java")), Range.closed(4L, 6L));
+    revisionLog.append(Lists.newArrayList(logEntry(9, day, "/B.java")), Range.closed(8L, 10L));
+  }
+
+  @Test
+  public void shouldReloadAppendedRevisionsFromFile() {
+    SvnRevisionLog revisionLog = SvnRevisionLog.open(file);
+    revisionLog.append(Lists.newArrayList(logEntry(5, day, "/A.java"), logEntry(6, day.plusHours(1), "/B.java")), Range.closed(4L, 6L));
+
+    SvnRevisionLog reloadedLog = SvnRevisionLog.open(file);
+    assertThat(reloadedLog.getCoverage().get()).isEqualTo(Range.closed(4L, 6L));
+    assertThat(reloadedLog.getChanges(day, day.plusDays(1))).isEqualTo(revisionLog.getChanges(day, day.plusDays(1)));
+  }
+
+  @Test
+  public void shouldKeepCopyPathsWhenReloaded() {
+    SvnRevisionLog revisionLog = SvnRevisionLog.open(file);
+    SVNLogEntry renaming = logEntry(5, day, "/B.java");
+    renaming.getChangedPaths().put("/B.java", new SVNLogEntryPath("/B.java", 'A', "/A.java", 4));
+    revisionLog.append(Lists.newArrayList(renaming), Range.closed(5L, 5L));
+
+    Multimap<String, SvnFileRevision> changes = SvnRevisionLog.open(file).getChanges(day, day.plusDays(1));
+    assertThat(changes.get("/B.java")).containsOnly(new SvnFileRevision(5, "/A.java", "/B.java"));
+  }
+
+  @Test
+  public void shouldDropIncompleteRecordAtTheEndOfFile() throws IOException {
+    SvnRevisionLog revisionLog = SvnRevisionLog.open(file);
+    revisionLog.append(Lists.newArrayList(logEntry(5, day, "/A.java")), Range.closed(5L, 5L));
+    revisionLog.append(Lists.newArrayList(logEntry(6, day, "/B.java")), Range.closed(6L, 6L));
+    long lengthWithoutLastCoverageRecord = file.length() - COVERAGE_RECORD_LENGTH;
+    cutFile(file.length() - 3);
+
+    SvnRevisionLog reloadedLog = SvnRevisionLog.open(file);
+    assertThat(reloadedLog.getCoverage().get()).isEqualTo(Range.closed(5L, 5L));
+    assertThat(file.length()).isEqualTo(lengthWithoutLastCoverageRecord);
+
+    reloadedLog.append(Lists.newArrayList(logEntry(6, day, "/B.java")), Range.closed(6L, 6L));
+    assertThat(SvnRevisionLog.open(file).getChanges(day, day.plusDays(1)).keySet()).containsOnly("/A.java", "/B.java");
+  }
+
+  @Test
+  public void shouldOnlyReturnChangesOfGivenTimeSpan() {
+    SvnRevisionLog revisionLog = SvnRevisionLog.open(file);
+    revisionLog.append(Lists.newArrayList(
+        logEntry(5, day.minusMillis(1), "/A.java"),
+        logEntry(6, day, "/B.java"),
+        logEntry(7, day.plusDays(1).minusMillis(1), "/C.java"),
+        logEntry(8, day.plusDays(1), "/D.java")), Range.closed(5L, 8L));
+
+    assertThat(revisionLog.getChanges(day, day.plusDays(1)).keySet()).containsOnly("/B.java", "/C.java");
+  }
+
+  @Test
+  public void shouldReturnChangesOfNewestRevisions() {
+    SvnRevisionLog revisionLog = SvnRevisionLog.open(file);
+    revisionLog.append(Lists.newArrayList(
+        logEntry(5, day, "/A.java"),
+        logEntry(6, day, "/B.java"),
+        logEntry(7, day, "/C.java")), Range.closed(5L, 7L));
+
+    assertThat(revisionLog.getLastChanges(2).keySet()).containsOnly("/B.java", "/C.java");
+  }
+
+  @Test
+  public void lineCountShouldBeValidUntilFileIsChanged() {
+    SvnRevisionLog revisionLog = SvnRevisionLog.open(file);
+    revisionLog.append(Lists.newArrayList(logEntry(5, day, "/A.java"), logEntry(6, day, "/B.java"), logEntry(7, day, "/A.java")), Range.closed(5L, 7L));
+    revisionLog.recordLineCount("/A.java", 5L, 42L);
+
+    assertThat(revisionLog.getLineCount("/A.java", 5L).get()).isEqualTo(42L);
+    assertThat(revisionLog.getLineCount("/A.java", 6L).get()).isEqualTo(42L);
+    assertThat(revisionLog.getLineCount("/A.java", 7L).isPresent()).isFalse();
+    assertThat(revisionLog.getLineCount("/A.java", 4L).isPresent()).isFalse();
+  }
+
+  @Test
+  public void lineCountShouldBeInvalidWhenParentDirectoryIsChanged() {
+    SvnRevisionLog revisionLog = SvnRevisionLog.open(file);
+    revisionLog.append(Lists.newArrayList(logEntry(5, day, "/src/A.java"), logEntry(6, day, "/src")), Range.closed(5L, 6L));
+    revisionLog.recordLineCount("/src/A.java", 5L, 42L);
+
+    assertThat(revisionLog.getLineCount("/src/A.java", 6L).isPresent()).isFalse();
+  }
+
+  @Test
+  public void lineCountShouldStayValidWhenOtherPathsWithSamePrefixAreChanged() {
+    SvnRevisionLog revisionLog = SvnRevisionLog.open(file);
+    revisionLog.append(Lists.newArrayList(logEntry(5, day, "/src/A.java"), logEntry(6, day, "/src/A.java.orig"), logEntry(7, day, "/sr")),
+        Range.closed(5L, 7L));
+    revisionLog.recordLineCount("/src/A.java", 5L, 42L);
+
+    assertThat(revisionLog.getLineCount("/src/A.java", 7L).get()).isEqualTo(42L);
+  }
+
+  @Test
+  public void lineCountShouldBeInvalidForRevisionsThatAreNotCovered() {
+    SvnRevisionLog revisionLog = SvnRevisionLog.open(file);
+    revisionLog.append(Lists.newArrayList(logEntry(5, day, "/A.java")), Range.closed(5L, 5L));
+    revisionLog.recordLineCount("/A.java", 5L, 42L);
+
+    assertThat(revisionLog.getLineCount("/A.java", 6L).isPresent()).isFalse();
+  }
+
+  @Test
+  public void shouldReloadLineCountsFromFile() {
+    SvnRevisionLog revisionLog = SvnRevisionLog.open(file);
+    revisionLog.append(Lists.newArrayList(logEntry(5, day, "/A.java")), Range.closed(5L, 5L));
+    revisionLog.recordLineCount("/A.java", 5L, 42L);
+    revisionLog.flush();
+
+    assertThat(SvnRevisionLog.open(file).getLineCount("/A.java", 5L).get()).isEqualTo(42L);
+  }
+
+  @Test
+  public void shouldWriteLineCountsNotBeforeFlushed() {
+    SvnRevisionLog revisionLog = SvnRevisionLog.open(file);
+    revisionLog.append(Lists.newArrayList(logEntry(5, day, "/A.java")), Range.closed(5L, 5L));
+    long lengthAfterAppend = file.length();
+    revisionLog.recordLineCount("/A.java", 5L, 42L);
+    revisionLog.recordLineCount("/B.java", 5L, 7L);
+
+    assertThat(file.length()).isEqualTo(lengthAfterAppend);
+    revisionLog.flush();
+    assertThat(file.length()).isGreaterThan(lengthAfterAppend);
+  }
+
+  @Test
+  public void shouldReadRevisionsOnlyKeptInFileThatWereRetrievedAgain() {
+    SvnRevisionLog revisionLog = SvnRevisionLog.open(file, 1);
+    revisionLog.append(Lists.newArrayList(logEntry(5, day, "/A.java"), logEntry(6, day.plusHours(1), "/B.java")), Range.closed(5L, 6L));
+    revisionLog.append(Lists.newArrayList(logEntry(5, day, "/C.java")), Range.closed(5L, 5L));
+
+    assertThat(revisionLog.getChanges(day, day.plusHours(1)).keySet()).containsOnly("/C.java");
+  }
+
+  @Test
+  public void shouldReadChangesOfRevisionsThatAreOnlyKeptInFile() {
+    SvnRevisionLog revisionLog = SvnRevisionLog.open(file, 2);
+    revisionLog.append(Lists.newArrayList(
+        logEntry(5, day, "/A.java"),
+        logEntry(6, day.plusHours(1), "/B.java"),
+        logEntry(7, day.plusHours(2), "/C.java"),
+        logEntry(8, day.plusHours(3), "/D.java")), Range.closed(5L, 8L));
+
+    assertThat(revisionLog.getNumberOfRevisions()).isEqualTo(4);
+    assertThat(revisionLog.getChanges(day, day.plusDays(1)).keySet()).containsOnly("/A.java", "/B.java", "/C.java", "/D.java");
+    assertThat(revisionLog.getChanges(day.plusHours(1), day.plusHours(2)).keySet()).containsOnly("/B.java");
+    assertThat(revisionLog.getLastChanges(3).keySet()).containsOnly("/B.java", "/C.java", "/D.java");
+  }
+
+  @Test
+  public void shouldKeepOnlyNewestRevisionsInMemoryWhenReloaded() {
+    SvnRevisionLog revisionLog = SvnRevisionLog.open(file);
+    revisionLog.append(Lists.newArrayList(logEntry(7, day.plusHours(1), "/B.java")), Range.closed(7L, 7L));
+    revisionLog.append(Lists.newArrayList(logEntry(5, day, "/A.java")), Range.closed(5L, 6L));
+    revisionLog.append(Lists.newArrayList(logEntry(8, day.plusHours(2), "/C.java")), Range.closed(8L, 8L));
+
+    SvnRevisionLog reloadedLog = SvnRevisionLog.open(file, 1);
+    assertThat(reloadedLog.getNumberOfRevisions()).isEqualTo(3);
+    assertThat(reloadedLog.getLastChanges(1).keySet()).containsOnly("/C.java");
+    assertThat(reloadedLog.getChanges(day, day.plusDays(1)).keySet()).containsOnly("/A.java", "/B.java", "/C.java");
+  }
+
+  @Test
+  public void lineCountShouldBeInvalidWhenChangesSinceAreOnlyKeptInFile() {
+    SvnRevisionLog revisionLog = SvnRevisionLog.open(file, 2);
+    revisionLog.append(Lists.newArrayList(logEntry(5, day, "/A.java")), Range.closed(5L, 5L));
+    revisionLog.recordLineCount("/A.java", 5L, 42L);
+    assertThat(revisionLog.getLineCount("/A.java", 5L).get()).isEqualTo(42L);
+
+    revisionLog.append(Lists.newArrayList(logEntry(6, day, "/B.java"), logEntry(7, day, "/C.java"), logEntry(8, day, "/D.java")),
+        Range.closed(6L, 8L));
+    assertThat(revisionLog.getLineCount("/A.java", 8L).isPresent()).isFalse();
+  }
+
+  private void cutFile(long length) throws IOException {
+    RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+    try {
+      randomAccessFile.setLength(length);
+    } finally {
+      randomAccessFile.close();
+    }
+  }
+
+  private static SVNLogEntry logEntry(long revision, DateTime date, String path) {
+    Map<String, SVNLogEntryPath> changedPaths = new HashMap<String, SVNLogEntryPath>();
+    changedPaths.put(path, new SVNLogEntryPath(path, 'M', null, -1));
+    return new SVNLogEntry(changedPaths, revision, "author", date.toDate(), "message");
+  }
+}
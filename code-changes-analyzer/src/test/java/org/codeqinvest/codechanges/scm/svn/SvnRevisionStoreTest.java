@@ -0,0 +1,161 @@
+/*
+ * Copyright 2013 Felix Müller
+ *
+ * This file is part of CodeQ Invest.
+ *
+ * CodeQ Invest is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CodeQ Invest is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CodeQ Invest.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.codeqinvest.codechanges.scm.svn;
+
+import org.joda.time.DateTime;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.tmatesoft.svn.core.ISVNLogEntryHandler;
+import org.tmatesoft.svn.core.SVNException;
+import org.tmatesoft.svn.core.SVNLogEntry;
+import org.tmatesoft.svn.core.SVNLogEntryPath;
+import org.tmatesoft.svn.core.io.SVNRepository;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class SvnRevisionStoreTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private final DateTime day = new DateTime(2013, 6, 10, 0, 0);
+
+  private SVNRepository repository;
+  private long latestRevision;
+
+  @Before
+  public void createRepositoryWithOneCommitPerHour() throws SVNException {
+    latestRevision = 10L;
+    repository = mock(SVNRepository.class);
+    when(repository.getRepositoryUUID(true)).thenReturn("uuid");
+    when(repository.getRepositoryPath(anyString())).thenReturn("/trunk");
+    when(repository.getLatestRevision()).thenAnswer(new Answer<Long>() {
+      @Override
+      public Long answer(InvocationOnMock invocation) throws Throwable {
+        return latestRevision;
+      }
+    });
+    doAnswer(new Answer<Long>() {
+      @Override
+      public Long answer(InvocationOnMock invocation) throws Throwable {
+        Object[] arguments = invocation.getArguments();
+        return log((Long) arguments[1], (Long) arguments[2], 0, (ISVNLogEntryHandler) arguments[5]);
+      }
+    }).when(repository).log(any(String[].class), anyLong(), anyLong(), anyBoolean(), anyBoolean(), any(ISVNLogEntryHandler.class));
+    doAnswer(new Answer<Long>() {
+      @Override
+      public Long answer(InvocationOnMock invocation) throws Throwable {
+        Object[] arguments = invocation.getArguments();
+        return log((Long) arguments[1], (Long) arguments[2], (Long) arguments[5], (ISVNLogEntryHandler) arguments[6]);
+      }
+    }).when(repository).log(any(String[].class), anyLong(), anyLong(), anyBoolean(), anyBoolean(), anyLong(), any(ISVNLogEntryHandler.class));
+  }
+
+  @Test
+  public void shouldRetrieveAllRevisionsFromStartRevisionOnFirstSynchronization() throws SVNException {
+    SvnRevisionLog revisionLog = new SvnRevisionStore(temporaryFolder.getRoot()).synchronize(repository, 5L);
+    assertThat(revisionLog.getChanges(day, day.plusDays(1)).keySet()).containsOnly(
+        "/5.java", "/6.java", "/7.java", "/8.java", "/9.java", "/10.java");
+  }
+
+  @Test
+  public void shouldOnlyRetrieveNewRevisionsOnNextSynchronization() throws SVNException {
+    SvnRevisionStore revisionStore = new SvnRevisionStore(temporaryFolder.getRoot());
+    revisionStore.synchronize(repository, 5L);
+    latestRevision = 12L;
+    revisionStore.synchronize(repository, 5L);
+
+    verify(repository).log(any(String[].class), eq(5L), eq(10L), anyBoolean(), anyBoolean(), any(ISVNLogEntryHandler.class));
+    verify(repository).log(any(String[].class), eq(11L), eq(12L), anyBoolean(), anyBoolean(), any(ISVNLogEntryHandler.class));
+  }
+
+  @Test
+  public void shouldOnlyRetrieveOlderRevisionsWhenStartRevisionIsNotCovered() throws SVNException {
+    SvnRevisionStore revisionStore = new SvnRevisionStore(temporaryFolder.getRoot());
+    revisionStore.synchronize(repository, 5L);
+    SvnRevisionLog revisionLog = revisionStore.synchronize(repository, 3L);
+
+    verify(repository).log(any(String[].class), eq(3L), eq(4L), anyBoolean(), anyBoolean(), any(ISVNLogEntryHandler.class));
+    assertThat(revisionLog.getCoverage().get().lowerEndpoint()).isEqualTo(3L);
+  }
+
+  @Test
+  public void shouldUseStoredRevisionsOfPreviousRun() throws SVNException {
+    new SvnRevisionStore(temporaryFolder.getRoot()).synchronize(repository, 5L);
+    SvnRevisionLog revisionLog = new SvnRevisionStore(temporaryFolder.getRoot()).synchronize(repository, 5L);
+
+    verify(repository).log(any(String[].class), anyLong(), anyLong(), anyBoolean(), anyBoolean(), any(ISVNLogEntryHandler.class));
+    assertThat(revisionLog.getNumberOfRevisions()).isEqualTo(6);
+  }
+
+  @Test
+  public void shouldRetrieveOnlyMissingLastCommits() throws SVNException {
+    SvnRevisionStore revisionStore = new SvnRevisionStore(temporaryFolder.getRoot());
+    revisionStore.synchronize(repository, 8L);
+    SvnRevisionLog revisionLog = revisionStore.synchronizeLastCommits(repository, 5);
+
+    verify(repository).log(any(String[].class), eq(7L), eq(0L), anyBoolean(), anyBoolean(), eq(2L), any(ISVNLogEntryHandler.class));
+    assertThat(revisionLog.getLastChanges(5).keySet()).containsOnly("/6.java", "/7.java", "/8.java", "/9.java", "/10.java");
+  }
+
+  @Test
+  public void shouldNotRetrieveLastCommitsWhenEnoughAreStored() throws SVNException {
+    SvnRevisionStore revisionStore = new SvnRevisionStore(temporaryFolder.getRoot());
+    revisionStore.synchronize(repository, 3L);
+    revisionStore.synchronizeLastCommits(repository, 5);
+
+    verify(repository, never()).log(any(String[].class), anyLong(), anyLong(), anyBoolean(), anyBoolean(), anyLong(), any(ISVNLogEntryHandler.class));
+  }
+
+  /**
+   * Simulates the log of a repository with one commit per hour starting at revision 1.
+   */
+  private long log(long startRevision, long endRevision, long limit, ISVNLogEntryHandler handler) throws SVNException {
+    long step = startRevision <= endRevision ? 1 : -1;
+    long handledEntries = 0;
+    for (long revision = startRevision; revision != endRevision + step; revision += step) {
+      if (revision < 1 || (limit > 0 && handledEntries >= limit)) {
+        continue;
+      }
+      Map<String, SVNLogEntryPath> changedPaths = new HashMap<String, SVNLogEntryPath>();
+      String path = "/" + revision + ".java";
+      changedPaths.put(path, new SVNLogEntryPath(path, 'M', null, -1));
+      handler.handleLogEntry(new SVNLogEntry(changedPaths, revision, "author", day.plusHours((int) revision).toDate(), "message"));
+      handledEntries++;
+    }
+    return handledEntries;
+  }
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright 2013 Felix Müller
+ *
+ * This file is part of CodeQ Invest.
+ *
+ * CodeQ Invest is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CodeQ Invest is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CodeQ Invest.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.codeqinvest.codechanges.scm.svn;
+
+import org.codeqinvest.codechanges.scm.CodeChurnCalculationException;
+import org.codeqinvest.codechanges.scm.ScmConnectionSettings;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.tmatesoft.svn.core.SVNErrorCode;
+import org.tmatesoft.svn.core.SVNErrorMessage;
+import org.tmatesoft.svn.core.SVNException;
+
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+public class SvnServerExecutorsTest {
+
+  private final ScmConnectionSettings connectionSettings = new ScmConnectionSettings("http://svn.localhost/project/trunk");
+  private final ScmConnectionSettings otherProjectOnSameServer = new ScmConnectionSettings("http://svn.localhost/other/trunk");
+  private final ScmConnectionSettings otherServer = new ScmConnectionSettings("http://svn.otherhost/project/trunk");
+
+  private SvnServerExecutors serverExecutors;
+
+  @Before
+  public void createExecutors() {
+    serverExecutors = new SvnServerExecutors(2);
+  }
+
+  @After
+  public void shutdown() {
+    serverExecutors.shutdown();
+  }
+
+  @Test
+  public void resultsShouldBeInOrderOfTasks() throws SVNException, UnsupportedEncodingException, CodeChurnCalculationException {
+    List<Callable<Integer>> tasks = new ArrayList<Callable<Integer>>();
+    for (int i = 0; i < 10; i++) {
+      // the first tasks finish last
+      tasks.add(numberAfterSleep(i, 10L * (10 - i)));
+    }
+
+    assertThat(serverExecutors.invokeAll(connectionSettings, tasks)).containsExactly(0, 1, 2, 3, 4, 5, 6, 7, 8, 9);
+  }
+
+  @Test
+  public void shouldLimitConcurrentTasksPerScmServer() throws SVNException, UnsupportedEncodingException, CodeChurnCalculationException, InterruptedException {
+    final AtomicInteger runningTasks = new AtomicInteger();
+    final AtomicInteger maxRunningTasks = new AtomicInteger();
+    final List<Callable<Integer>> tasks = new ArrayList<Callable<Integer>>();
+    for (int i = 0; i < 20; i++) {
+      tasks.add(new Callable<Integer>() {
+        @Override
+        public Integer call() throws InterruptedException {
+          int running = runningTasks.incrementAndGet();
+          synchronized (maxRunningTasks) {
+            maxRunningTasks.set(Math.max(maxRunningTasks.get(), running));
+          }
+          Thread.sleep(10L);
+          runningTasks.decrementAndGet();
+          return running;
+        }
+      });
+    }
+
+    // two analyses of projects on the same server share its limit
+    Thread otherAnalysis = new Thread() {
+      @Override
+      public void run() {
+        try {
+          serverExecutors.invokeAll(otherProjectOnSameServer, tasks);
+        } catch (Exception e) {
+          throw new IllegalStateException(e);
+        }
+      }
+    };
+    otherAnalysis.start();
+    serverExecutors.invokeAll(connectionSettings, tasks);
+    otherAnalysis.join();
+
+    assertThat(maxRunningTasks.get()).isLessThanOrEqualTo(2);
+  }
+
+  @Test
+  public void busyScmServerShouldNotBlockOtherScmServers() throws SVNException, UnsupportedEncodingException, CodeChurnCalculationException {
+    final CountDownLatch otherServerFinished = new CountDownLatch(1);
+    List<Callable<Integer>> blockingTasks = new ArrayList<Callable<Integer>>();
+    for (int i = 0; i < 2; i++) {
+      blockingTasks.add(new Callable<Integer>() {
+        @Override
+        public Integer call() throws InterruptedException {
+          return otherServerFinished.await(5L, TimeUnit.SECONDS) ? 1 : 0;
+        }
+      });
+    }
+    final List<Callable<Integer>> tasksOfOtherServer = Collections.nCopies(4, numberAfterSleep(1, 0L));
+    new Thread() {
+      @Override
+      public void run() {
+        try {
+          serverExecutors.invokeAll(otherServer, tasksOfOtherServer);
+          otherServerFinished.countDown();
+        } catch (Exception e) {
+          throw new IllegalStateException(e);
+        }
+      }
+    }.start();
+
+    assertThat(serverExecutors.invokeAll(connectionSettings, blockingTasks)).containsExactly(1, 1);
+  }
+
+  @Test
+  public void firstFailureShouldFailAllTasksAndCancelOutstandingOnes() throws UnsupportedEncodingException, CodeChurnCalculationException, InterruptedException {
+    final CountDownLatch cancelledTask = new CountDownLatch(1);
+    List<Callable<Integer>> tasks = new ArrayList<Callable<Integer>>();
+    tasks.add(new Callable<Integer>() {
+      @Override
+      public Integer call() {
+        try {
+          Thread.sleep(10000L);
+        } catch (InterruptedException e) {
+          cancelledTask.countDown();
+        }
+        return 0;
+      }
+    });
+    tasks.add(new Callable<Integer>() {
+      @Override
+      public Integer call() throws SVNException {
+        throw new SVNException(SVNErrorMessage.create(SVNErrorCode.RA_DAV_REQUEST_FAILED));
+      }
+    });
+
+    try {
+      serverExecutors.invokeAll(connectionSettings, tasks);
+      fail("svn exception of the failed task should be thrown");
+    } catch (SVNException e) {
+      assertThat(cancelledTask.await(5L, TimeUnit.SECONDS)).isTrue();
+    }
+  }
+
+  @Test
+  public void shouldRunSingleTaskInCallingThread() throws SVNException, UnsupportedEncodingException, CodeChurnCalculationException {
+    final Thread callingThread = Thread.currentThread();
+    List<Callable<Boolean>> tasks = Collections.<Callable<Boolean>>singletonList(new Callable<Boolean>() {
+      @Override
+      public Boolean call() {
+        return Thread.currentThread() == callingThread;
+      }
+    });
+
+    assertThat(serverExecutors.invokeAll(connectionSettings, tasks)).containsExactly(true);
+  }
+
+  private static Callable<Integer> numberAfterSleep(final int number, final long sleepMillis) {
+    return new Callable<Integer>() {
+      @Override
+      public Integer call() throws InterruptedException {
+        Thread.sleep(sleepMillis);
+        return number;
+      }
+    };
+  }
+}
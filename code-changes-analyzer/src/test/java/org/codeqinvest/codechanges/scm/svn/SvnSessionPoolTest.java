@@ -0,0 +1,177 @@
+/*
+ * Copyright 2013 Felix Müller
+ *
+ * This file is part of CodeQ Invest.
+ *
+ * CodeQ Invest is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CodeQ Invest is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CodeQ Invest.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.codeqinvest.codechanges.scm.svn;
+
+import org.codeqinvest.codechanges.scm.ScmConnectionSettings;
+import org.joda.time.DateTimeUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.tmatesoft.svn.core.SVNException;
+import org.tmatesoft.svn.core.io.SVNRepository;
+import org.tmatesoft.svn.core.wc2.SvnOperationFactory;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+public class SvnSessionPoolTest {
+
+  private static final long IDLE_TIMEOUT = 60000L;
+  private static final long HEALTH_CHECK_INTERVAL = 1000L;
+  private static final long BORROW_TIMEOUT = 50L;
+
+  private final ScmConnectionSettings connectionSettings = new ScmConnectionSettings("http://not.reachable.localhost/svn");
+
+  private SvnSessionPool sessionPool;
+
+  @Before
+  public void setUp() {
+    DateTimeUtils.setCurrentMillisFixed(0L);
+    sessionPool = new SvnSessionPool(2, 3, IDLE_TIMEOUT, HEALTH_CHECK_INTERVAL, BORROW_TIMEOUT);
+  }
+
+  @After
+  public void resetTime() {
+    DateTimeUtils.setCurrentMillisSystem();
+    sessionPool.close();
+  }
+
+  @Test
+  public void shouldReuseReturnedRepository() throws SVNException {
+    SVNRepository repository = sessionPool.borrowRepository(connectionSettings);
+    sessionPool.returnRepository(connectionSettings, repository, false);
+
+    assertThat(sessionPool.borrowRepository(connectionSettings)).isSameAs(repository);
+    assertThat(sessionPool.getCreatedSessions()).isEqualTo(1L);
+    assertThat(sessionPool.getReusedSessions()).isEqualTo(1L);
+  }
+
+  @Test
+  public void shouldNotShareRepositoriesBetweenDifferentConnectionSettings() throws SVNException {
+    SVNRepository repository = sessionPool.borrowRepository(connectionSettings);
+    sessionPool.returnRepository(connectionSettings, repository, false);
+
+    ScmConnectionSettings otherConnectionSettings = new ScmConnectionSettings("http://not.reachable.localhost/svn", "user", "secret");
+    assertThat(sessionPool.borrowRepository(otherConnectionSettings)).isNotSameAs(repository);
+    assertThat(sessionPool.getCreatedSessions()).isEqualTo(2L);
+  }
+
+  @Test
+  public void shouldKeepLimitedNumberOfIdleSessions() throws SVNException {
+    SVNRepository firstRepository = sessionPool.borrowRepository(connectionSettings);
+    SVNRepository secondRepository = sessionPool.borrowRepository(connectionSettings);
+    SVNRepository thirdRepository = sessionPool.borrowRepository(connectionSettings);
+    sessionPool.returnRepository(connectionSettings, firstRepository, false);
+    sessionPool.returnRepository(connectionSettings, secondRepository, false);
+    sessionPool.returnRepository(connectionSettings, thirdRepository, false);
+
+    assertThat(sessionPool.getNumberOfIdleSessions()).isEqualTo(2);
+  }
+
+  @Test
+  public void shouldCloseSessionsAfterIdleTimeout() throws SVNException {
+    SVNRepository repository = sessionPool.borrowRepository(connectionSettings);
+    sessionPool.returnRepository(connectionSettings, repository, false);
+    sessionPool.returnOperationFactory(connectionSettings, sessionPool.borrowOperationFactory(connectionSettings), false);
+
+    DateTimeUtils.setCurrentMillisFixed(IDLE_TIMEOUT + 1);
+    assertThat(sessionPool.borrowRepository(connectionSettings)).isNotSameAs(repository);
+    assertThat(sessionPool.getNumberOfIdleSessions()).isEqualTo(0);
+  }
+
+  @Test
+  public void shouldDiscardRepositoryThatFailsHealthCheck() throws SVNException {
+    SVNRepository repository = sessionPool.borrowRepository(connectionSettings);
+    sessionPool.returnRepository(connectionSettings, repository, false);
+
+    DateTimeUtils.setCurrentMillisFixed(HEALTH_CHECK_INTERVAL);
+    assertThat(sessionPool.borrowRepository(connectionSettings)).isNotSameAs(repository);
+    assertThat(sessionPool.getReusedSessions()).isEqualTo(0L);
+  }
+
+  @Test
+  public void shouldReuseReturnedOperationFactory() throws SVNException {
+    SvnOperationFactory operationFactory = sessionPool.borrowOperationFactory(connectionSettings);
+    sessionPool.returnOperationFactory(connectionSettings, operationFactory, false);
+
+    assertThat(sessionPool.borrowOperationFactory(connectionSettings)).isSameAs(operationFactory);
+    assertThat(sessionPool.getReusedSessions()).isEqualTo(1L);
+  }
+
+  @Test
+  public void shouldCloseFailedSessionInsteadOfKeepingIt() throws SVNException {
+    SVNRepository repository = sessionPool.borrowRepository(connectionSettings);
+    sessionPool.returnRepository(connectionSettings, repository, true);
+
+    assertThat(sessionPool.getNumberOfIdleSessions()).isEqualTo(0);
+    assertThat(sessionPool.getNumberOfOpenSessions(connectionSettings)).isEqualTo(0);
+    assertThat(sessionPool.borrowRepository(connectionSettings)).isNotSameAs(repository);
+  }
+
+  @Test
+  public void shouldLimitOpenSessionsPerServer() throws SVNException {
+    ScmConnectionSettings otherConnectionSettings = new ScmConnectionSettings("http://not.reachable.localhost/svn/other");
+    sessionPool.borrowRepository(connectionSettings);
+    SvnOperationFactory operationFactory = sessionPool.borrowOperationFactory(connectionSettings);
+    sessionPool.borrowRepository(otherConnectionSettings);
+    try {
+      sessionPool.borrowRepository(otherConnectionSettings);
+      fail("Borrowing more sessions than the limit of the server should time out");
+    } catch (SVNException e) {
+      assertThat(sessionPool.getNumberOfOpenSessions(connectionSettings)).isEqualTo(3);
+    }
+
+    sessionPool.returnOperationFactory(connectionSettings, operationFactory, true);
+    assertThat(sessionPool.borrowRepository(otherConnectionSettings)).isNotNull();
+  }
+
+  @Test
+  public void shouldCloseIdleSessionOfOtherSettingsWhenLimitOfServerIsReached() throws SVNException {
+    SVNRepository firstRepository = sessionPool.borrowRepository(connectionSettings);
+    SVNRepository secondRepository = sessionPool.borrowRepository(connectionSettings);
+    sessionPool.borrowRepository(connectionSettings);
+    sessionPool.returnRepository(connectionSettings, firstRepository, false);
+    sessionPool.returnRepository(connectionSettings, secondRepository, false);
+
+    ScmConnectionSettings otherConnectionSettings = new ScmConnectionSettings("http://not.reachable.localhost/svn", "user", "secret");
+    sessionPool.borrowRepository(otherConnectionSettings);
+    assertThat(sessionPool.getNumberOfIdleSessions()).isEqualTo(1);
+    assertThat(sessionPool.getNumberOfOpenSessions(connectionSettings)).isEqualTo(3);
+  }
+
+  @Test
+  public void shouldCloseExpiredSessionsWithoutFurtherRequests() throws SVNException {
+    sessionPool.returnRepository(connectionSettings, sessionPool.borrowRepository(connectionSettings), false);
+
+    DateTimeUtils.setCurrentMillisFixed(IDLE_TIMEOUT + 1);
+    sessionPool.closeExpiredSessions();
+    assertThat(sessionPool.getNumberOfIdleSessions()).isEqualTo(0);
+    assertThat(sessionPool.getNumberOfOpenSessions(connectionSettings)).isEqualTo(0);
+  }
+
+  @Test
+  public void shouldNotBeAffectedByChangesOfConnectionSettingsAfterReturning() throws SVNException {
+    ScmConnectionSettings changingConnectionSettings = new ScmConnectionSettings("http://not.reachable.localhost/svn");
+    SVNRepository repository = sessionPool.borrowRepository(changingConnectionSettings);
+    sessionPool.returnRepository(changingConnectionSettings, repository, false);
+    changingConnectionSettings.setUrl("http://not.reachable.localhost/other");
+
+    assertThat(sessionPool.borrowRepository(connectionSettings)).isSameAs(repository);
+  }
+}
@@ -0,0 +1,11 @@
+CREATE TABLE ANALYSIS_JOB (
+  ID          BIGSERIAL PRIMARY KEY,
+  PROJECT_ID  BIGINT      NOT NULL REFERENCES PROJECT (ID),
+  INCREMENTAL BOOLEAN     NOT NULL,
+  STATE       VARCHAR(20) NOT NULL,
+  CREATED     TIMESTAMP   NOT NULL,
+  STARTED     TIMESTAMP,
+  FINISHED    TIMESTAMP
+);
+
+CREATE INDEX ANALYSIS_JOB_STATE_IDX ON ANALYSIS_JOB (STATE, CREATED);
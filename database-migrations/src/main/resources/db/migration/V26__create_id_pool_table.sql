@@ -0,0 +1,7 @@
+CREATE TABLE ID_POOL (
+  NAME    VARCHAR(50) PRIMARY KEY,
+  NEXT_ID BIGINT      NOT NULL
+);
+
+INSERT INTO ID_POOL (NAME, NEXT_ID) SELECT 'ARTEFACT', COALESCE(MAX(ID), 0) + 1 FROM ARTEFACT;
+INSERT INTO ID_POOL (NAME, NEXT_ID) SELECT 'QUALITY_VIOLATION', COALESCE(MAX(ID), 0) + 1 FROM QUALITY_VIOLATION;
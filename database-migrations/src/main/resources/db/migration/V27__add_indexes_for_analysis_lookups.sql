@@ -0,0 +1,3 @@
+CREATE INDEX QUALITY_ANALYSIS_PROJECT_IDX ON QUALITY_ANALYSIS (PROJECT_ID, SUCCESSFUL, CREATED);
+CREATE INDEX QUALITY_VIOLATION_ANALYSIS_IDX ON QUALITY_VIOLATION (ANALYSIS_ID);
+CREATE INDEX QUALITY_VIOLATION_ARTEFACT_IDX ON QUALITY_VIOLATION (ARTEFACT_ID);
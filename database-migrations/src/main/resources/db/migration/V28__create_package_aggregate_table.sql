@@ -0,0 +1,15 @@
+CREATE TABLE PACKAGE_AGGREGATE (
+  ID                    BIGSERIAL PRIMARY KEY,
+  ANALYSIS_ID           BIGINT           NOT NULL REFERENCES QUALITY_ANALYSIS (ID),
+  PROJECT_ID            BIGINT           NOT NULL REFERENCES PROJECT (ID),
+  CREATED               TIMESTAMP        NOT NULL,
+  PACKAGENAME           TEXT             NOT NULL,
+  REMEDIATIONCOSTS      BIGINT           NOT NULL,
+  NONREMEDIATIONCOSTS   BIGINT           NOT NULL,
+  WEIGHTEDPROFIT        DOUBLE PRECISION NOT NULL,
+  MEANCHANGEPROBABILITY DOUBLE PRECISION NOT NULL,
+  VIOLATIONCOUNT        INT              NOT NULL
+);
+
+CREATE INDEX PACKAGE_AGGREGATE_ANALYSIS_IDX ON PACKAGE_AGGREGATE (ANALYSIS_ID, PACKAGENAME);
+CREATE INDEX PACKAGE_AGGREGATE_PROJECT_IDX ON PACKAGE_AGGREGATE (PROJECT_ID, PACKAGENAME, CREATED);
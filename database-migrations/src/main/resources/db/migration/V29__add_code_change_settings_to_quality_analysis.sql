@@ -0,0 +1,3 @@
+ALTER TABLE QUALITY_ANALYSIS ADD COLUMN CODE_CHANGE_METHOD INT;
+ALTER TABLE QUALITY_ANALYSIS ADD COLUMN CODE_CHANGE_DAYS INT;
+ALTER TABLE QUALITY_ANALYSIS ADD COLUMN CODE_CHANGE_COMMITS INT;
@@ -0,0 +1 @@
+CREATE INDEX ANALYSIS_JOB_FINISHED_IDX ON ANALYSIS_JOB (FINISHED);
@@ -0,0 +1,6 @@
+-- the ids of these tables are only allocated from ID_POOL, an insert that uses
+-- the serial default would collide with them (HSQL ignores dropping the default)
+ALTER TABLE ARTEFACT ALTER COLUMN ID DROP DEFAULT;
+ALTER TABLE QUALITY_VIOLATION ALTER COLUMN ID DROP DEFAULT;
+DROP SEQUENCE IF EXISTS ARTEFACT_ID_SEQ;
+DROP SEQUENCE IF EXISTS QUALITY_VIOLATION_ID_SEQ;
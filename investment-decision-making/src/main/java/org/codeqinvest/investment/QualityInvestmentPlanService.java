@@ -23,9 +23,9 @@ import com.google.common.collect.Multimap;
 import com.google.common.collect.Sets;
 import lombok.extern.slf4j.Slf4j;
 import org.codeqinvest.investment.profit.ProfitCalculator;
-import org.codeqinvest.quality.QualityRequirement;
-import org.codeqinvest.quality.QualityViolation;
-import org.codeqinvest.quality.analysis.QualityAnalysis;
+import org.codeqinvest.quality.QualityRequirementView;
+import org.codeqinvest.quality.QualityViolationView;
+import org.codeqinvest.quality.analysis.QualityAnalysisView;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -51,9 +51,9 @@ public class QualityInvestmentPlanService {
   }
 
   // TODO clean up this mess
-  public QualityInvestmentPlan computeInvestmentPlan(QualityAnalysis analysis, String basePackage, int investmentInMinutes) {
-    Multimap<Double, QualityViolation> violationsByProfit = ArrayListMultimap.create();
-    for (QualityViolation violation : filterViolationsByArtefactNameStartingWith(basePackage, analysis.getViolations())) {
+  public QualityInvestmentPlan computeInvestmentPlan(QualityAnalysisView analysis, String basePackage, int investmentInMinutes) {
+    Multimap<Double, QualityViolationView> violationsByProfit = ArrayListMultimap.create();
+    for (QualityViolationView violation : filterViolationsByArtefactNameStartingWith(basePackage, analysis.getViolations())) {
       double profit = profitCalculator.calculateProfit(violation);
       if (Math.round(profit) > 0) {
         violationsByProfit.put(profit, violation);
@@ -74,17 +74,17 @@ public class QualityInvestmentPlanService {
     int invested = 0;
 
     for (double profit : allProfits) {
-      List<QualityViolation> violations = new ArrayList<QualityViolation>(violationsByProfit.get(profit));
+      List<QualityViolationView> violations = new ArrayList<QualityViolationView>(violationsByProfit.get(profit));
       Collections.sort(violations, new ViolationByRemediationCostsComparator());
 
-      for (QualityViolation violation : violations) {
+      for (QualityViolationView violation : violations) {
         int remediationCost = violation.getRemediationCosts();
         if (remediationCost <= toInvest) {
 
           invested += remediationCost;
           toInvest -= remediationCost;
 
-          QualityRequirement requirement = violation.getRequirement();
+          QualityRequirementView requirement = violation.getRequirement();
           investmentPlanEntries.add(new QualityInvestmentPlanEntry(
               requirement.getMetricIdentifier(),
               requirement.getOperator() + " " + requirement.getThreshold(),
@@ -112,9 +112,9 @@ public class QualityInvestmentPlanService {
     return overallProfit;
   }
 
-  private Collection<QualityViolation> filterViolationsByArtefactNameStartingWith(String basePackage, List<QualityViolation> violations) {
-    Collection<QualityViolation> filteredViolations = new ArrayList<QualityViolation>();
-    for (QualityViolation violation : violations) {
+  private Collection<QualityViolationView> filterViolationsByArtefactNameStartingWith(String basePackage, List<QualityViolationView> violations) {
+    Collection<QualityViolationView> filteredViolations = new ArrayList<QualityViolationView>();
+    for (QualityViolationView violation : violations) {
 
       String artefactName = violation.getArtefact().getName();
       if (artefactName.startsWith(basePackage)) {
@@ -148,10 +148,10 @@ public class QualityInvestmentPlanService {
     }
   }
 
-  private static final class ViolationByRemediationCostsComparator implements Comparator<QualityViolation> {
+  private static final class ViolationByRemediationCostsComparator implements Comparator<QualityViolationView> {
 
     @Override
-    public int compare(QualityViolation violation, QualityViolation otherViolation) {
+    public int compare(QualityViolationView violation, QualityViolationView otherViolation) {
       if (violation.getRemediationCosts() < otherViolation.getRemediationCosts()) {
         return -1;
       } else if (violation.getRemediationCosts() > otherViolation.getRemediationCosts()) {
@@ -18,18 +18,18 @@
  */
 package org.codeqinvest.investment.profit;
 
-import org.codeqinvest.quality.QualityViolation;
+import org.codeqinvest.quality.QualityViolationView;
 import org.springframework.stereotype.Component;
 
 /**
- * This is the main component for calculating profits of {@link QualityViolation}.
+ * This is the main component for calculating profits of {@link QualityViolationView}.
  *
  * @author fmueller
  */
 @Component
 public class ProfitCalculator {
 
-  public double calculateProfit(QualityViolation violation) {
+  public double calculateProfit(QualityViolationView violation) {
     double nonRemediationCosts = violation.getNonRemediationCosts() * (violation.getArtefact().hasManualEstimate()
         ? violation.getArtefact().getManualEstimate() / 100.0
         : violation.getArtefact().getChangeProbability());
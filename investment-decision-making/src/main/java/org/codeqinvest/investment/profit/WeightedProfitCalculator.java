@@ -18,7 +18,8 @@
  */
 package org.codeqinvest.investment.profit;
 
-import org.codeqinvest.quality.QualityViolation;
+import org.codeqinvest.quality.QualityViolationView;
+import org.codeqinvest.quality.analysis.ViolationProfitCalculator;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
@@ -26,7 +27,7 @@ import org.springframework.stereotype.Component;
  * @author fmueller
  */
 @Component
-public class WeightedProfitCalculator {
+public class WeightedProfitCalculator implements ViolationProfitCalculator {
 
   private final ProfitCalculator profitCalculator;
 
@@ -35,7 +36,11 @@ public class WeightedProfitCalculator {
     this.profitCalculator = profitCalculator;
   }
 
-  public double calculateWeightedProfit(QualityViolation violation) {
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public double calculateWeightedProfit(QualityViolationView violation) {
     return profitCalculator.calculateProfit(violation) / violation.getWeightingMetricValue();
   }
 }
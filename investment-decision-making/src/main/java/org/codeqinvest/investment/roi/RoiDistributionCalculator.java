@@ -23,8 +23,8 @@ import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import org.codeqinvest.investment.QualityInvestmentPlan;
 import org.codeqinvest.investment.QualityInvestmentPlanService;
-import org.codeqinvest.quality.Artefact;
-import org.codeqinvest.quality.analysis.QualityAnalysis;
+import org.codeqinvest.quality.ArtefactView;
+import org.codeqinvest.quality.analysis.QualityAnalysisView;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -44,7 +44,7 @@ public class RoiDistributionCalculator {
     this.qualityInvestmentPlanService = qualityInvestmentPlanService;
   }
 
-  public RoiDistribution calculateRoiDistribution(QualityAnalysis analysis, String basePackage, int investment) {
+  public RoiDistribution calculateRoiDistribution(QualityAnalysisView analysis, String basePackage, int investment) {
     Set<String> artefactsToAnalyze = mergeToPackageLevel(basePackage, analysis.getAllArtefacts());
     Map<String, Integer> roiByArtefact = Maps.newHashMap();
     for (String artefact : artefactsToAnalyze) {
@@ -54,9 +54,9 @@ public class RoiDistributionCalculator {
     return new RoiDistribution(investment, roiByArtefact);
   }
 
-  private Set<String> mergeToPackageLevel(String basePackage, Set<Artefact> allArtefacts) {
+  private Set<String> mergeToPackageLevel(String basePackage, Set<ArtefactView> allArtefacts) {
     Set<String> mergedPackageLevels = Sets.newHashSet();
-    for (Artefact artefact : allArtefacts) {
+    for (ArtefactView artefact : allArtefacts) {
       if (Strings.isNullOrEmpty(basePackage) || artefact.getName().startsWith(basePackage)) {
         mergedPackageLevels.add(getPackageLevel(basePackage, artefact.getName()));
       }
@@ -23,7 +23,9 @@ import org.codeqinvest.quality.Artefact;
 import org.codeqinvest.quality.QualityCriteria;
 import org.codeqinvest.quality.QualityRequirement;
 import org.codeqinvest.quality.QualityViolation;
+import org.codeqinvest.quality.QualityViolationView;
 import org.codeqinvest.quality.analysis.QualityAnalysis;
+import org.codeqinvest.quality.analysis.QualityAnalysisView;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -40,7 +42,7 @@ public class QualityInvestmentPlanServiceTest {
   private QualityInvestmentPlanService investmentPlanService;
 
   private ProfitCalculator profitCalculator;
-  private QualityAnalysis analysis;
+  private QualityAnalysisView analysis;
 
   @Before
   public void setUp() {
@@ -50,13 +52,13 @@ public class QualityInvestmentPlanServiceTest {
     QualityViolation violation1 = new QualityViolation(new Artefact("org.A", ""), createRequirementOnlyWithCriteria(new QualityCriteria("cc", "<", 5.0)), 10, 0, 0.0, "ncloc");
     QualityViolation violation2 = new QualityViolation(new Artefact("org.project.B", ""), createRequirementOnlyWithCriteria(new QualityCriteria("rfc", "<=", 50.0)), 60, 0, 0.0, "ncloc");
     QualityViolation violation3 = new QualityViolation(new Artefact("C", ""), createRequirementOnlyWithCriteria(new QualityCriteria("cov", ">", 80.0)), 10, 0, 0.0, "ncloc");
-    analysis = QualityAnalysis.success(null, Arrays.asList(violation1, violation2, violation3));
+    analysis = QualityAnalysisView.of(QualityAnalysis.success(null, Arrays.asList(violation1, violation2, violation3)));
     // overall rc = 10 + 40 + 30 = 80
 
     // possible overall profit = 300
-    when(profitCalculator.calculateProfit(violation1)).thenReturn(100.0);
-    when(profitCalculator.calculateProfit(violation2)).thenReturn(80.2);
-    when(profitCalculator.calculateProfit(violation3)).thenReturn(120.1);
+    when(profitCalculator.calculateProfit(QualityViolationView.of(violation1))).thenReturn(100.0);
+    when(profitCalculator.calculateProfit(QualityViolationView.of(violation2))).thenReturn(80.2);
+    when(profitCalculator.calculateProfit(QualityViolationView.of(violation3))).thenReturn(120.1);
   }
 
   private QualityRequirement createRequirementOnlyWithCriteria(QualityCriteria criteria) {
@@ -65,7 +67,7 @@ public class QualityInvestmentPlanServiceTest {
 
   @Test
   public void zeroProfitWhenThereAreNoQualityViolations() {
-    QualityAnalysis analysisWithoutViolations = QualityAnalysis.success(null, Collections.<QualityViolation>emptyList());
+    QualityAnalysisView analysisWithoutViolations = QualityAnalysisView.of(QualityAnalysis.success(null, Collections.<QualityViolation>emptyList()));
     QualityInvestmentPlan qualityInvestmentPlan = investmentPlanService.computeInvestmentPlan(analysisWithoutViolations, "", 100);
     assertThat(qualityInvestmentPlan.getProfitInMinutes())
         .as("When there are no quality violations the overall profit should be zero.")
@@ -123,7 +125,7 @@ public class QualityInvestmentPlanServiceTest {
     QualityViolation violation1 = new QualityViolation(new Artefact("org.A", ""), createRequirementOnlyWithCriteria(new QualityCriteria("cc", "<", 5.0)), 50, 0, 0.0, "ncloc");
     QualityViolation violation2 = new QualityViolation(new Artefact("org.project.B", ""), createRequirementOnlyWithCriteria(new QualityCriteria("rfc", "<=", 50.0)), 50, 0, 0.0, "ncloc");
     QualityViolation violation3 = new QualityViolation(new Artefact("C", ""), createRequirementOnlyWithCriteria(new QualityCriteria("cov", ">", 80.0)), 10, 0, 0.0, "ncloc");
-    analysis = QualityAnalysis.success(null, Arrays.asList(violation1, violation2, violation3));
+    analysis = QualityAnalysisView.of(QualityAnalysis.success(null, Arrays.asList(violation1, violation2, violation3)));
 
     QualityInvestmentPlan qualityInvestmentPlan = investmentPlanService.computeInvestmentPlan(analysis, "", 50);
     assertThat(qualityInvestmentPlan.getEntries()).hasSize(1);
@@ -134,10 +136,10 @@ public class QualityInvestmentPlanServiceTest {
   public void shouldChooseViolationWithBiggerRoiWhenProfitIsTheSame() {
     QualityViolation violationWithSmallerRoi = new QualityViolation(new Artefact("org.A", ""), createRequirementOnlyWithCriteria(new QualityCriteria("cc", "<", 5.0)), 50, 0, 0.0, "ncloc");
     QualityViolation violationWithBiggerRoi = new QualityViolation(new Artefact("B", ""), createRequirementOnlyWithCriteria(new QualityCriteria("rfc", "<=", 50.0)), 40, 0, 0.0, "ncloc");
-    analysis = QualityAnalysis.success(null, Arrays.asList(violationWithSmallerRoi, violationWithBiggerRoi));
+    analysis = QualityAnalysisView.of(QualityAnalysis.success(null, Arrays.asList(violationWithSmallerRoi, violationWithBiggerRoi)));
 
-    when(profitCalculator.calculateProfit(violationWithSmallerRoi)).thenReturn(100.0);
-    when(profitCalculator.calculateProfit(violationWithBiggerRoi)).thenReturn(100.0);
+    when(profitCalculator.calculateProfit(QualityViolationView.of(violationWithSmallerRoi))).thenReturn(100.0);
+    when(profitCalculator.calculateProfit(QualityViolationView.of(violationWithBiggerRoi))).thenReturn(100.0);
 
     QualityInvestmentPlan qualityInvestmentPlan = investmentPlanService.computeInvestmentPlan(analysis, "", 50);
     assertThat(qualityInvestmentPlan.getEntries()).hasSize(1);
@@ -146,7 +148,7 @@ public class QualityInvestmentPlanServiceTest {
 
   @Test
   public void shouldNotConsiderViolationsWithNegativeProfit() {
-    when(profitCalculator.calculateProfit(any(QualityViolation.class))).thenReturn(-0.1);
+    when(profitCalculator.calculateProfit(any(QualityViolationView.class))).thenReturn(-0.1);
 
     QualityInvestmentPlan qualityInvestmentPlan = investmentPlanService.computeInvestmentPlan(analysis, "", 50);
     assertThat(qualityInvestmentPlan.getProfitInMinutes()).isZero();
@@ -159,9 +161,9 @@ public class QualityInvestmentPlanServiceTest {
     QualityViolation violation1 = new QualityViolation(new Artefact("org.project.A", ""), createRequirementOnlyWithCriteria(new QualityCriteria("cc", "<", 5.0)), 50, 0, 0.0, "ncloc");
     QualityViolation violation2 = new QualityViolation(new Artefact("org.project.AB", ""), createRequirementOnlyWithCriteria(new QualityCriteria("rfc", "<=", 50.0)), 50, 0, 0.0, "ncloc");
     QualityViolation violation3 = new QualityViolation(new Artefact("org.project.ABC", ""), createRequirementOnlyWithCriteria(new QualityCriteria("cov", ">", 80.0)), 10, 0, 0.0, "ncloc");
-    analysis = QualityAnalysis.success(null, Arrays.asList(violation1, violation2, violation3));
+    analysis = QualityAnalysisView.of(QualityAnalysis.success(null, Arrays.asList(violation1, violation2, violation3)));
 
-    when(profitCalculator.calculateProfit(violation1)).thenReturn(100.0);
+    when(profitCalculator.calculateProfit(QualityViolationView.of(violation1))).thenReturn(100.0);
 
     QualityInvestmentPlan qualityInvestmentPlan = investmentPlanService.computeInvestmentPlan(analysis, "org.project.A", 50);
     assertThat(qualityInvestmentPlan.getEntries()).hasSize(1);
@@ -173,9 +175,9 @@ public class QualityInvestmentPlanServiceTest {
     QualityViolation violation1 = new QualityViolation(new Artefact("org.project.a.test.A", ""), createRequirementOnlyWithCriteria(new QualityCriteria("cc", "<", 5.0)), 50, 0, 0.0, "ncloc");
     QualityViolation violation2 = new QualityViolation(new Artefact("org.project.b.B", ""), createRequirementOnlyWithCriteria(new QualityCriteria("rfc", "<=", 50.0)), 50, 0, 0.0, "ncloc");
     QualityViolation violation3 = new QualityViolation(new Artefact("org.project.C", ""), createRequirementOnlyWithCriteria(new QualityCriteria("cov", ">", 80.0)), 10, 0, 0.0, "ncloc");
-    analysis = QualityAnalysis.success(null, Arrays.asList(violation1, violation2, violation3));
+    analysis = QualityAnalysisView.of(QualityAnalysis.success(null, Arrays.asList(violation1, violation2, violation3)));
 
-    when(profitCalculator.calculateProfit(violation1)).thenReturn(100.0);
+    when(profitCalculator.calculateProfit(QualityViolationView.of(violation1))).thenReturn(100.0);
 
     QualityInvestmentPlan qualityInvestmentPlan = investmentPlanService.computeInvestmentPlan(analysis, "org.project.a.test.A", 50);
     assertThat(qualityInvestmentPlan.getEntries()).hasSize(1);
@@ -18,9 +18,9 @@
  */
 package org.codeqinvest.investment.profit;
 
-import org.codeqinvest.quality.Artefact;
-import org.codeqinvest.quality.QualityRequirement;
-import org.codeqinvest.quality.QualityViolation;
+import org.codeqinvest.quality.ArtefactView;
+import org.codeqinvest.quality.QualityRequirementView;
+import org.codeqinvest.quality.QualityViolationView;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -32,17 +32,17 @@ public class ProfitCalculatorTest {
 
   private ProfitCalculator calculator;
 
-  private Artefact artefact;
-  private QualityRequirement requirement;
-  private QualityViolation violation;
+  private ArtefactView artefact;
+  private QualityRequirementView requirement;
+  private QualityViolationView violation;
 
   @Before
   public void setUp() {
     calculator = new ProfitCalculator();
-    artefact = mock(Artefact.class);
+    artefact = mock(ArtefactView.class);
     when(artefact.getChangeProbability()).thenReturn(0.6);
-    requirement = mock(QualityRequirement.class);
-    violation = new QualityViolation(artefact, requirement, 10, 20, 0, null);
+    requirement = mock(QualityRequirementView.class);
+    violation = new QualityViolationView(requirement, artefact, 10, 20, 0);
   }
 
   @Test
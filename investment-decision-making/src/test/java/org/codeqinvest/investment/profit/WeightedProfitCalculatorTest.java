@@ -18,7 +18,7 @@
  */
 package org.codeqinvest.investment.profit;
 
-import org.codeqinvest.quality.QualityViolation;
+import org.codeqinvest.quality.QualityViolationView;
 import org.fest.assertions.Delta;
 import org.junit.Test;
 
@@ -32,9 +32,9 @@ public class WeightedProfitCalculatorTest {
   @Test
   public void shouldDivideProfitOfViolationByWeightingMetricValue() {
     ProfitCalculator profitCalculator = mock(ProfitCalculator.class);
-    when(profitCalculator.calculateProfit(any(QualityViolation.class))).thenReturn(20.0);
+    when(profitCalculator.calculateProfit(any(QualityViolationView.class))).thenReturn(20.0);
 
-    QualityViolation violation = mock(QualityViolation.class);
+    QualityViolationView violation = mock(QualityViolationView.class);
     when(violation.getWeightingMetricValue()).thenReturn(13.0);
 
     WeightedProfitCalculator weightedProfitCalculator = new WeightedProfitCalculator(profitCalculator);
@@ -18,16 +18,30 @@
  */
 package org.codeqinvest.sonar;
 
+import com.google.common.base.Function;
+import com.google.common.collect.Iterators;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import lombok.extern.slf4j.Slf4j;
 import org.sonar.wsclient.Sonar;
-import org.sonar.wsclient.connectors.HttpClient4Connector;
 import org.sonar.wsclient.services.Resource;
 import org.sonar.wsclient.services.ResourceQuery;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PreDestroy;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
 /**
  * This service collects the value of a metric for a resource
- * that is managed by a given sonar server instance.
+ * that is managed by a given sonar server instance. It can also
+ * collect the values of many metrics for all classes of a project
+ * page by page. The next page is always downloaded in the background
+ * by a small thread pool that is shared by all collections.
  *
  * @author fmueller
  */
@@ -36,12 +50,26 @@ import org.springframework.stereotype.Service;
 public class MetricCollectorService {
 
   static final double DEFAULT_VALUE = 0.0;
+  static final int PAGE_PREFETCH_THREADS = 2;
+  static final long PAGE_PREFETCH_THREAD_KEEP_ALIVE_SECONDS = 30L;
+
+  private final SonarClientRegistry sonarClientRegistry;
+  private final ThreadPoolExecutor pagePrefetcher;
+
+  @Autowired
+  public MetricCollectorService(SonarClientRegistry sonarClientRegistry) {
+    this.sonarClientRegistry = sonarClientRegistry;
+    this.pagePrefetcher = new ThreadPoolExecutor(PAGE_PREFETCH_THREADS, PAGE_PREFETCH_THREADS,
+        PAGE_PREFETCH_THREAD_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+        new ThreadFactoryBuilder().setNameFormat("sonar-page-prefetcher-%d").setDaemon(true).build());
+    this.pagePrefetcher.allowCoreThreadTimeOut(true);
+  }
 
   public double collectMetricForResource(SonarConnectionSettings connectionSettings, String resourceKey, String metricIdentifier) throws ResourceNotFoundException {
     if (!connectionSettings.hasProject()) {
       throw new IllegalArgumentException("you can only collect metric value for a resource with connection settings that has a project");
     }
-    Sonar sonar = new Sonar(new HttpClient4Connector(connectionSettings.asHostObject()));
+    Sonar sonar = sonarClientRegistry.getSonar(connectionSettings);
     Resource resource = sonar.find(ResourceQuery.create(resourceKey).setMetrics(metricIdentifier));
     if (resource == null) {
       log.debug("Could not find measurement for metric {} at resource {}", metricIdentifier, resourceKey);
@@ -55,4 +83,35 @@ public class MetricCollectorService {
     log.debug("{} = {} for {}", metricIdentifier, metricValue, resourceKey);
     return metricValue;
   }
+
+  /**
+   * Collects the values of all given metrics for every class of the project
+   * from the connection settings. The classes are returned page by page, one
+   * package per page, so that callers can process the first classes while
+   * the remaining ones are still downloaded. Nothing is requested from Sonar
+   * before the first page is accessed.
+   */
+  public Iterator<ProjectMetrics> collectMetricsForProjectPageByPage(SonarConnectionSettings connectionSettings,
+                                                                     final Set<String> metricIdentifiers) {
+    if (!connectionSettings.hasProject()) {
+      throw new IllegalArgumentException("you can only collect metric values for a project with connection settings that has a project");
+    }
+    log.info("Start collecting {} metrics for all classes of project {} at Sonar server", metricIdentifiers.size(), connectionSettings.getProject());
+    Sonar sonar = sonarClientRegistry.getSonar(connectionSettings);
+    ResourcePageIterator pages = new ResourcePageIterator(sonar, pagePrefetcher, connectionSettings.getProject(),
+        metricIdentifiers.toArray(new String[metricIdentifiers.size()]));
+    return Iterators.transform(pages, new Function<List<Resource>, ProjectMetrics>() {
+      @Override
+      public ProjectMetrics apply(List<Resource> page) {
+        ProjectMetrics projectMetrics = new ProjectMetrics(metricIdentifiers);
+        projectMetrics.addResources(page);
+        return projectMetrics;
+      }
+    });
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    pagePrefetcher.shutdownNow();
+  }
 }
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2013 Felix Müller
+ *
+ * This file is part of CodeQ Invest.
+ *
+ * CodeQ Invest is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CodeQ Invest is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CodeQ Invest.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.codeqinvest.sonar;
+
+import org.apache.http.Consts;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.AuthCache;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.HttpDelete;
+import org.apache.http.client.methods.HttpEntityEnclosingRequestBase;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpPut;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.client.protocol.ClientContext;
+import org.apache.http.client.utils.URIUtils;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.auth.BasicScheme;
+import org.apache.http.impl.client.BasicAuthCache;
+import org.apache.http.params.HttpConnectionParams;
+import org.apache.http.protocol.BasicHttpContext;
+import org.apache.http.util.EntityUtils;
+import org.sonar.wsclient.Host;
+import org.sonar.wsclient.connectors.ConnectionException;
+import org.sonar.wsclient.connectors.Connector;
+import org.sonar.wsclient.services.AbstractQuery;
+import org.sonar.wsclient.services.CreateQuery;
+import org.sonar.wsclient.services.DeleteQuery;
+import org.sonar.wsclient.services.Query;
+import org.sonar.wsclient.services.UpdateQuery;
+
+import java.io.IOException;
+import java.net.URI;
+
+/**
+ * A connector for the Sonar web service client that executes all
+ * queries with a shared http client instead of creating a new one
+ * for every connector. Thereby, the connections of the underlying
+ * pool can be reused between requests. It behaves like the
+ * {@link org.sonar.wsclient.connectors.HttpClient4Connector}
+ * of the web service client.
+ *
+ * @author fmueller
+ */
+class PooledHttpClient4Connector extends Connector {
+
+  private static final int OK = 200;
+  private static final int NOT_FOUND = 404;
+
+  private final Host server;
+  private final HttpClient httpClient;
+
+  PooledHttpClient4Connector(Host server, HttpClient httpClient) {
+    this.server = server;
+    this.httpClient = httpClient;
+  }
+
+  @Override
+  public String execute(Query<?> query) {
+    return executeRequest(initRequest(new HttpGet(server.getHost() + query.getUrl()), query));
+  }
+
+  @Override
+  public String execute(CreateQuery<?> query) {
+    return executeRequest(initRequest(setRequestEntity(new HttpPost(server.getHost() + query.getUrl()), query), query));
+  }
+
+  @Override
+  public String execute(UpdateQuery<?> query) {
+    return executeRequest(initRequest(setRequestEntity(new HttpPut(server.getHost() + query.getUrl()), query), query));
+  }
+
+  @Override
+  public String execute(DeleteQuery query) {
+    return executeRequest(initRequest(new HttpDelete(server.getHost() + query.getUrl()), query));
+  }
+
+  private String executeRequest(HttpRequestBase request) {
+    try {
+      HttpResponse response = httpClient.execute(request, createLocalContext());
+      HttpEntity entity = response.getEntity();
+      int statusCode = response.getStatusLine().getStatusCode();
+      if (statusCode == OK) {
+        return entity != null ? EntityUtils.toString(entity) : null;
+      }
+      // the entity has to be consumed completely so that the connection is given back to the pool
+      EntityUtils.consume(entity);
+      if (statusCode == NOT_FOUND) {
+        return null;
+      }
+      throw new ConnectionException("HTTP error: " + statusCode + ", msg: " + response.getStatusLine().getReasonPhrase() + ", query: " + request);
+    } catch (IOException e) {
+      request.abort();
+      throw new ConnectionException("Query: " + request.getURI(), e);
+    }
+  }
+
+  private BasicHttpContext createLocalContext() {
+    BasicHttpContext localContext = new BasicHttpContext();
+    if (server.getUsername() != null) {
+      // preemptive authentication like the original connector of the web service client
+      HttpHost targetHost = URIUtils.extractHost(URI.create(server.getHost()));
+      AuthCache authCache = new BasicAuthCache();
+      authCache.put(targetHost, new BasicScheme());
+      localContext.setAttribute(ClientContext.AUTH_CACHE, authCache);
+    }
+    return localContext;
+  }
+
+  private static <T extends HttpRequestBase> T initRequest(T request, AbstractQuery<?> query) {
+    request.setHeader("Accept", "application/json");
+    if (query.getLocale() != null) {
+      request.setHeader("Accept-Language", query.getLocale());
+    }
+    HttpConnectionParams.setConnectionTimeout(request.getParams(), query.getTimeoutMilliseconds());
+    HttpConnectionParams.setSoTimeout(request.getParams(), query.getTimeoutMilliseconds());
+    return request;
+  }
+
+  private static <T extends HttpEntityEnclosingRequestBase> T setRequestEntity(T request, AbstractQuery<?> query) {
+    if (query.getBody() != null) {
+      request.setEntity(new StringEntity(query.getBody(), ContentType.create("text/plain", Consts.UTF_8)));
+    }
+    return request;
+  }
+}
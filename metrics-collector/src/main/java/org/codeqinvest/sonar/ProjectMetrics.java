@@ -0,0 +1,143 @@
+/*
+ * Copyright 2013 Felix Müller
+ *
+ * This file is part of CodeQ Invest.
+ *
+ * CodeQ Invest is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CodeQ Invest is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CodeQ Invest.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.codeqinvest.sonar;
+
+import com.google.common.collect.HashBasedTable;
+import com.google.common.collect.Table;
+import lombok.extern.slf4j.Slf4j;
+import org.sonar.wsclient.services.Resource;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * This class holds the values of several metrics for classes of
+ * a project in memory. It is filled by {@link MetricCollectorService}
+ * with one page of classes, so that the values can be read afterwards
+ * without further communication with the Sonar server.
+ *
+ * @author fmueller
+ */
+@Slf4j
+public class ProjectMetrics {
+
+  private final Set<String> metricIdentifiers;
+  private final List<Resource> resources = new ArrayList<Resource>();
+  private final Map<String, Resource> resourcesByKey = new HashMap<String, Resource>();
+  private final Table<String, String, Double> metricValues = HashBasedTable.create();
+
+  public ProjectMetrics(Set<String> metricIdentifiers) {
+    this.metricIdentifiers = metricIdentifiers;
+  }
+
+  /**
+   * Adds the resource and the measured values of all metrics
+   * of this matrix to it. Only the identifying attributes of the
+   * resource are kept, its measures are stored in the matrix.
+   */
+  public void addResource(Resource resource) {
+    Resource identifyingResource = withoutMeasures(resource);
+    resources.add(identifyingResource);
+    resourcesByKey.put(resource.getKey(), identifyingResource);
+    for (String metricIdentifier : metricIdentifiers) {
+      Double metricValue = resource.getMeasureValue(metricIdentifier);
+      if (metricValue != null) {
+        metricValues.put(resource.getKey(), metricIdentifier, metricValue);
+      }
+    }
+  }
+
+  public void addResources(Collection<Resource> resources) {
+    for (Resource resource : resources) {
+      addResource(resource);
+    }
+  }
+
+  /**
+   * Adds the resource with the given key and its metric values from the other
+   * matrix to this one. Nothing is added if the other matrix does not contain
+   * the resource or this matrix contains it already.
+   */
+  public void addResourceOf(ProjectMetrics projectMetrics, String resourceKey) {
+    Resource resource = projectMetrics.resourcesByKey.get(resourceKey);
+    if (resource == null || containsResource(resourceKey)) {
+      return;
+    }
+    resources.add(resource);
+    resourcesByKey.put(resourceKey, resource);
+    for (String metricIdentifier : metricIdentifiers) {
+      Double metricValue = projectMetrics.metricValues.get(resourceKey, metricIdentifier);
+      if (metricValue != null) {
+        metricValues.put(resourceKey, metricIdentifier, metricValue);
+      }
+    }
+  }
+
+  public List<Resource> getResources() {
+    return Collections.unmodifiableList(resources);
+  }
+
+  public Set<String> getMetricIdentifiers() {
+    return Collections.unmodifiableSet(metricIdentifiers);
+  }
+
+  public boolean containsResource(String resourceKey) {
+    return resourcesByKey.containsKey(resourceKey);
+  }
+
+  /**
+   * Returns the value of the metric for the given resource. It behaves like
+   * {@link MetricCollectorService#collectMetricForResource(SonarConnectionSettings, String, String)}:
+   * unknown resources have the default value and missing measurements of a known
+   * resource lead to a {@link ResourceNotFoundException}.
+   *
+   * @throws ResourceNotFoundException if the resource has no value for the given metric
+   * @throws IllegalArgumentException  if the metric was not collected for this matrix
+   */
+  public double getMetricValue(String resourceKey, String metricIdentifier) throws ResourceNotFoundException {
+    if (!metricIdentifiers.contains(metricIdentifier)) {
+      throw new IllegalArgumentException("metric " + metricIdentifier + " was not collected for this project");
+    }
+    Double metricValue = metricValues.get(resourceKey, metricIdentifier);
+    if (metricValue != null) {
+      return metricValue;
+    }
+    if (containsResource(resourceKey)) {
+      throw new ResourceNotFoundException("Could not find metric with identifier: " + metricIdentifier);
+    }
+    log.debug("Could not find measurement for metric {} at resource {}", metricIdentifier, resourceKey);
+    return MetricCollectorService.DEFAULT_VALUE;
+  }
+
+  private static Resource withoutMeasures(Resource resource) {
+    Resource identifyingResource = new Resource();
+    identifyingResource.setId(resource.getId());
+    identifyingResource.setKey(resource.getKey());
+    identifyingResource.setName(resource.getName());
+    identifyingResource.setLongName(resource.getLongName());
+    identifyingResource.setScope(resource.getScope());
+    identifyingResource.setQualifier(resource.getQualifier());
+    return identifyingResource;
+  }
+}
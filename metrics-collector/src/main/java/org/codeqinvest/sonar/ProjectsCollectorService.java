@@ -19,9 +19,9 @@
 package org.codeqinvest.sonar;
 
 import org.sonar.wsclient.Sonar;
-import org.sonar.wsclient.connectors.HttpClient4Connector;
 import org.sonar.wsclient.services.Resource;
 import org.sonar.wsclient.services.ResourceQuery;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
@@ -37,11 +37,18 @@ import java.util.TreeSet;
 @Service
 public class ProjectsCollectorService {
 
+  private final SonarClientRegistry sonarClientRegistry;
+
+  @Autowired
+  public ProjectsCollectorService(SonarClientRegistry sonarClientRegistry) {
+    this.sonarClientRegistry = sonarClientRegistry;
+  }
+
   /**
    * Collects all Java projects of the specified Sonar server.
    */
   public Set<ProjectInformation> collectAllProjects(SonarConnectionSettings connectionSettings) {
-    Sonar sonar = new Sonar(new HttpClient4Connector(connectionSettings.asHostObject()));
+    Sonar sonar = sonarClientRegistry.getSonar(connectionSettings);
     List<Resource> projectResources = sonar.findAll(new ResourceQuery().setLanguages("java"));
     Set<ProjectInformation> projects = new TreeSet<ProjectInformation>();
     for (Resource resource : projectResources) {
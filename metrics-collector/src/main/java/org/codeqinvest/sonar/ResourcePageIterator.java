@@ -0,0 +1,121 @@
+/*
+ * Copyright 2013 Felix Müller
+ *
+ * This file is part of CodeQ Invest.
+ *
+ * CodeQ Invest is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CodeQ Invest is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CodeQ Invest.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.codeqinvest.sonar;
+
+import com.google.common.collect.AbstractIterator;
+import lombok.extern.slf4j.Slf4j;
+import org.sonar.wsclient.Sonar;
+import org.sonar.wsclient.services.Resource;
+import org.sonar.wsclient.services.ResourceQuery;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Iterates over the classes of a project page by page. The resources
+ * web service of Sonar does not support an offset, therefore every
+ * package of the project is one page. While the current page is
+ * consumed, the next page is already downloaded by the given executor.
+ * Thus, at most two pages are held in memory at any time.
+ *
+ * @author fmueller
+ */
+@Slf4j
+class ResourcePageIterator extends AbstractIterator<List<Resource>> {
+
+  private final Sonar sonar;
+  private final ExecutorService pagePrefetcher;
+  private final String project;
+  private final String[] metricIdentifiers;
+
+  private Iterator<Resource> packages;
+  private Future<List<Resource>> nextPage;
+  private int loadedPages;
+
+  ResourcePageIterator(Sonar sonar, ExecutorService pagePrefetcher, String project, String... metricIdentifiers) {
+    this.sonar = sonar;
+    this.pagePrefetcher = pagePrefetcher;
+    this.project = project;
+    this.metricIdentifiers = metricIdentifiers;
+  }
+
+  @Override
+  protected List<Resource> computeNext() {
+    if (packages == null) {
+      packages = sonar.findAll(ResourceQuery.create(project)
+          .setAllDepths()
+          .setScopes("DIR")
+          .setQualifiers("PAC")).iterator();
+      nextPage = prefetchNextPage();
+    }
+    while (nextPage != null) {
+      List<Resource> page = waitFor(nextPage);
+      loadedPages++;
+      nextPage = prefetchNextPage();
+      if (!page.isEmpty()) {
+        return page;
+      }
+    }
+    log.info("Loaded all {} pages of classes for project {}", loadedPages, project);
+    return endOfData();
+  }
+
+  int getLoadedPages() {
+    return loadedPages;
+  }
+
+  private Future<List<Resource>> prefetchNextPage() {
+    if (!packages.hasNext()) {
+      return null;
+    }
+    final String packageKey = packages.next().getKey();
+    return pagePrefetcher.submit(new Callable<List<Resource>>() {
+      @Override
+      public List<Resource> call() {
+        log.debug("Loading classes of package {}", packageKey);
+        ResourceQuery query = ResourceQuery.create(packageKey)
+            .setDepth(1)
+            .setScopes("FIL")
+            .setQualifiers("CLA");
+        if (metricIdentifiers.length > 0) {
+          query.setMetrics(metricIdentifiers);
+        }
+        return sonar.findAll(query);
+      }
+    });
+  }
+
+  private static List<Resource> waitFor(Future<List<Resource>> page) {
+    try {
+      return page.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting for the next page of classes", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+}
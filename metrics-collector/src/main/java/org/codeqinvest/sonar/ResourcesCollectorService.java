@@ -20,9 +20,9 @@ package org.codeqinvest.sonar;
 
 import lombok.extern.slf4j.Slf4j;
 import org.sonar.wsclient.Sonar;
-import org.sonar.wsclient.connectors.HttpClient4Connector;
 import org.sonar.wsclient.services.Resource;
 import org.sonar.wsclient.services.ResourceQuery;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.util.Collection;
@@ -38,12 +38,19 @@ import java.util.List;
 @Service
 public class ResourcesCollectorService {
 
+  private final SonarClientRegistry sonarClientRegistry;
+
+  @Autowired
+  public ResourcesCollectorService(SonarClientRegistry sonarClientRegistry) {
+    this.sonarClientRegistry = sonarClientRegistry;
+  }
+
   public Collection<Resource> collectAllResourcesForProject(SonarConnectionSettings connectionSettings) {
     if (!connectionSettings.hasProject()) {
       throw new IllegalArgumentException("you can only collect resources with connection settings that has a project");
     }
     log.info("Start collecting all classes for project {} at Sonar server", connectionSettings.getProject());
-    Sonar sonar = new Sonar(new HttpClient4Connector(connectionSettings.asHostObject()));
+    Sonar sonar = sonarClientRegistry.getSonar(connectionSettings);
     List<Resource> resources = sonar.findAll(ResourceQuery.create(connectionSettings.getProject())
         .setAllDepths()
         .setScopes("FIL")
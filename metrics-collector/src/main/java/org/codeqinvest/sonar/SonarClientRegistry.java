@@ -0,0 +1,189 @@
+/*
+ * Copyright 2013 Felix Müller
+ *
+ * This file is part of CodeQ Invest.
+ *
+ * CodeQ Invest is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CodeQ Invest is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CodeQ Invest.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.codeqinvest.sonar;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.HttpResponse;
+import org.apache.http.auth.AuthScope;
+import org.apache.http.auth.UsernamePasswordCredentials;
+import org.apache.http.client.HttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.impl.conn.PoolingClientConnectionManager;
+import org.apache.http.params.HttpConnectionParams;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.protocol.HttpContext;
+import org.sonar.wsclient.Sonar;
+import org.sonar.wsclient.services.AbstractQuery;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This registry holds one pooled http client for every Sonar server.
+ * All collector services get their Sonar client from here, so that the
+ * connections to a server are kept alive and reused between the
+ * requests of an analysis instead of opening a new one for each request.
+ * Connections that are idle for too long are evicted periodically.
+ *
+ * @author fmueller
+ */
+@Slf4j
+@Service
+public class SonarClientRegistry {
+
+  static final int MAX_CONNECTIONS_PER_SERVER = 10;
+  static final long DEFAULT_KEEP_ALIVE_MILLISECONDS = 30000L;
+  static final long IDLE_CONNECTION_TIMEOUT_SECONDS = 30L;
+
+  private final ConcurrentMap<SonarConnectionSettings, DefaultHttpClient> httpClients =
+      new ConcurrentHashMap<SonarConnectionSettings, DefaultHttpClient>();
+
+  private ScheduledExecutorService idleConnectionEvictor;
+
+  /**
+   * Returns a Sonar client that uses the pooled connections of the server
+   * from the given connection settings.
+   */
+  public Sonar getSonar(SonarConnectionSettings connectionSettings) {
+    return new Sonar(new PooledHttpClient4Connector(connectionSettings.asHostObject(), getHttpClient(connectionSettings)));
+  }
+
+  /**
+   * Returns the pooled http client of the server from the given connection settings.
+   * Callers have to consume the response entities completely to release the
+   * connections back to the pool.
+   */
+  public HttpClient getHttpClient(SonarConnectionSettings connectionSettings) {
+    SonarConnectionSettings serverKey = asServerKey(connectionSettings);
+    DefaultHttpClient httpClient = httpClients.get(serverKey);
+    if (httpClient == null) {
+      DefaultHttpClient newHttpClient = createHttpClient(serverKey);
+      httpClient = httpClients.putIfAbsent(serverKey, newHttpClient);
+      if (httpClient == null) {
+        log.info("Created connection pool for Sonar server {}", serverKey.getUrl());
+        startIdleConnectionEvictor();
+        httpClient = newHttpClient;
+      } else {
+        newHttpClient.getConnectionManager().shutdown();
+      }
+    }
+    return httpClient;
+  }
+
+  /**
+   * Returns the statistics (leased, available and pending connections) of the
+   * connection pool for the server from the given connection settings.
+   */
+  public PoolStats getPoolStats(SonarConnectionSettings connectionSettings) {
+    DefaultHttpClient httpClient = httpClients.get(asServerKey(connectionSettings));
+    if (httpClient == null) {
+      return new PoolStats(0, 0, 0, MAX_CONNECTIONS_PER_SERVER);
+    }
+    return getConnectionManager(httpClient).getTotalStats();
+  }
+
+  /**
+   * Returns the statistics of the connection pools of all servers grouped by their urls.
+   */
+  public Map<String, PoolStats> getPoolStatsOfAllServers() {
+    Map<String, PoolStats> poolStats = new HashMap<String, PoolStats>();
+    for (Map.Entry<SonarConnectionSettings, DefaultHttpClient> httpClient : httpClients.entrySet()) {
+      poolStats.put(httpClient.getKey().getUrl(), getConnectionManager(httpClient.getValue()).getTotalStats());
+    }
+    return poolStats;
+  }
+
+  void closeExpiredAndIdleConnections() {
+    for (DefaultHttpClient httpClient : httpClients.values()) {
+      PoolingClientConnectionManager connectionManager = getConnectionManager(httpClient);
+      connectionManager.closeExpiredConnections();
+      connectionManager.closeIdleConnections(IDLE_CONNECTION_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+  }
+
+  @PreDestroy
+  public synchronized void shutdown() {
+    if (idleConnectionEvictor != null) {
+      idleConnectionEvictor.shutdownNow();
+      idleConnectionEvictor = null;
+    }
+    for (DefaultHttpClient httpClient : httpClients.values()) {
+      httpClient.getConnectionManager().shutdown();
+    }
+    httpClients.clear();
+  }
+
+  private synchronized void startIdleConnectionEvictor() {
+    if (idleConnectionEvictor == null) {
+      idleConnectionEvictor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+          .setNameFormat("sonar-idle-connection-evictor")
+          .setDaemon(true)
+          .build());
+      idleConnectionEvictor.scheduleWithFixedDelay(new Runnable() {
+        @Override
+        public void run() {
+          closeExpiredAndIdleConnections();
+        }
+      }, IDLE_CONNECTION_TIMEOUT_SECONDS, IDLE_CONNECTION_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+  }
+
+  private static DefaultHttpClient createHttpClient(SonarConnectionSettings serverKey) {
+    PoolingClientConnectionManager connectionManager = new PoolingClientConnectionManager();
+    connectionManager.setMaxTotal(MAX_CONNECTIONS_PER_SERVER);
+    connectionManager.setDefaultMaxPerRoute(MAX_CONNECTIONS_PER_SERVER);
+
+    DefaultHttpClient httpClient = new DefaultHttpClient(connectionManager);
+    HttpConnectionParams.setConnectionTimeout(httpClient.getParams(), AbstractQuery.DEFAULT_TIMEOUT_MILLISECONDS);
+    HttpConnectionParams.setSoTimeout(httpClient.getParams(), AbstractQuery.DEFAULT_TIMEOUT_MILLISECONDS);
+    httpClient.setKeepAliveStrategy(new DefaultConnectionKeepAliveStrategy() {
+      @Override
+      public long getKeepAliveDuration(HttpResponse response, HttpContext context) {
+        long keepAliveDuration = super.getKeepAliveDuration(response, context);
+        return keepAliveDuration > 0 ? keepAliveDuration : DEFAULT_KEEP_ALIVE_MILLISECONDS;
+      }
+    });
+    if (serverKey.getUsername() != null) {
+      httpClient.getCredentialsProvider().setCredentials(AuthScope.ANY,
+          new UsernamePasswordCredentials(serverKey.getUsername(), serverKey.getPassword()));
+    }
+    return httpClient;
+  }
+
+  private static PoolingClientConnectionManager getConnectionManager(DefaultHttpClient httpClient) {
+    return (PoolingClientConnectionManager) httpClient.getConnectionManager();
+  }
+
+  /**
+   * The pools are shared between all projects of a server, therefore the project
+   * is not part of the key. A copy is used because the settings are mutable.
+   */
+  private static SonarConnectionSettings asServerKey(SonarConnectionSettings connectionSettings) {
+    return new SonarConnectionSettings(connectionSettings.getUrl(), null, connectionSettings.getUsername(), connectionSettings.getPassword());
+  }
+}
@@ -20,8 +20,10 @@ package org.codeqinvest.sonar;
 
 import com.google.common.base.Strings;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.http.HttpResponse;
 import org.apache.http.client.methods.HttpGet;
-import org.sonar.wsclient.connectors.HttpClient4Connector;
+import org.apache.http.util.EntityUtils;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
@@ -37,16 +39,25 @@ public class SonarConnectionCheckerService {
 
   private static final int OK = 200;
 
+  private final SonarClientRegistry sonarClientRegistry;
+
+  @Autowired
+  public SonarConnectionCheckerService(SonarClientRegistry sonarClientRegistry) {
+    this.sonarClientRegistry = sonarClientRegistry;
+  }
+
   public boolean isReachable(SonarConnectionSettings connectionSettings) {
     if (connectionSettings == null || Strings.isNullOrEmpty(connectionSettings.getUrl())) {
       return false;
     }
 
-    HttpClient4Connector connector = new HttpClient4Connector(connectionSettings.asHostObject());
+    HttpGet request = new HttpGet(connectionSettings.getUrl() + "/api/metrics");
     try {
-      return connector.getHttpClient()
-          .execute(new HttpGet(connectionSettings.getUrl() + "/api/metrics")).getStatusLine().getStatusCode() == OK;
+      HttpResponse response = sonarClientRegistry.getHttpClient(connectionSettings).execute(request);
+      EntityUtils.consume(response.getEntity());
+      return response.getStatusLine().getStatusCode() == OK;
     } catch (IOException e) {
+      request.abort();
       log.info("Sonar is not reachable during connection check.", e);
       return false;
     }
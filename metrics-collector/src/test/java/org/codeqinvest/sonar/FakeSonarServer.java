@@ -0,0 +1,98 @@
+/*
+ * Copyright 2013 Felix Müller
+ *
+ * This file is part of CodeQ Invest.
+ *
+ * CodeQ Invest is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CodeQ Invest is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CodeQ Invest.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.codeqinvest.sonar;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Minimal local Sonar server that answers resource queries with predefined
+ * json responses depending on the requested resource key and qualifiers.
+ */
+class FakeSonarServer {
+
+  private final HttpServer server;
+  private final Map<String, String> responses = new HashMap<String, String>();
+  private final List<String> requestedQueries = Collections.synchronizedList(new ArrayList<String>());
+
+  FakeSonarServer() throws IOException {
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext("/api/resources", new HttpHandler() {
+      @Override
+      public void handle(HttpExchange exchange) throws IOException {
+        String query = URLDecoder.decode(exchange.getRequestURI().getRawQuery(), "UTF-8");
+        requestedQueries.add(query);
+        String response = findResponse(query);
+        byte[] responseBytes = response.getBytes("UTF-8");
+        exchange.sendResponseHeaders(200, responseBytes.length);
+        OutputStream responseBody = exchange.getResponseBody();
+        responseBody.write(responseBytes);
+        responseBody.close();
+      }
+    });
+    server.start();
+  }
+
+  /**
+   * Registers the json response for queries of the given resource key with the given
+   * qualifier. An empty qualifier matches queries without a qualifier.
+   */
+  void addResponse(String resourceKey, String qualifier, String json) {
+    responses.put(resourceKey + "|" + qualifier, json);
+  }
+
+  String getUrl() {
+    return "http://localhost:" + server.getAddress().getPort();
+  }
+
+  List<String> getRequestedQueries() {
+    return requestedQueries;
+  }
+
+  void stop() {
+    server.stop(0);
+  }
+
+  private String findResponse(String query) {
+    Map<String, String> parameters = new HashMap<String, String>();
+    for (String parameter : query.split("&")) {
+      String[] nameAndValue = parameter.split("=", 2);
+      parameters.put(nameAndValue[0], nameAndValue.length > 1 ? nameAndValue[1] : "");
+    }
+    String qualifier = parameters.containsKey("qualifiers") ? parameters.get("qualifiers") : "";
+    String response = responses.get(parameters.get("resource") + "|" + qualifier);
+    return response != null ? response : "[]";
+  }
+
+  static String resourceJson(String key, String qualifier, String metric, double value) {
+    return "{\"id\":1,\"key\":\"" + key + "\",\"name\":\"" + key + "\",\"lname\":\"" + key + "\",\"scope\":\"FIL\",\"qualifier\":\""
+        + qualifier + "\",\"msr\":[{\"key\":\"" + metric + "\",\"val\":" + value + "}]}";
+  }
+}
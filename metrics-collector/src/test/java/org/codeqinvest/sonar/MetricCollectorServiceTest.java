@@ -18,12 +18,53 @@
  */
 package org.codeqinvest.sonar;
 
+import com.google.common.collect.Sets;
 import org.junit.Test;
 
+import java.io.IOException;
+import java.util.Iterator;
+
+import static org.codeqinvest.sonar.FakeSonarServer.resourceJson;
+import static org.fest.assertions.Assertions.assertThat;
+
 public class MetricCollectorServiceTest {
 
   @Test(expected = IllegalArgumentException.class)
   public void shouldFailWhenConnectionSettingsMissProjectAttribute() throws ResourceNotFoundException {
-    new MetricCollectorService().collectMetricForResource(new SonarConnectionSettings("dummy"), "", "");
+    new MetricCollectorService(new SonarClientRegistry()).collectMetricForResource(new SonarConnectionSettings("dummy"), "", "");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldFailBulkCollectionWhenConnectionSettingsMissProjectAttribute() {
+    new MetricCollectorService(new SonarClientRegistry()).collectMetricsForProjectPageByPage(new SonarConnectionSettings("dummy"), Sets.newHashSet("ncloc"));
+  }
+
+  @Test
+  public void shouldCollectMetricsOfAllClassesPageByPage() throws IOException, ResourceNotFoundException {
+    FakeSonarServer server = new FakeSonarServer();
+    SonarClientRegistry sonarClientRegistry = new SonarClientRegistry();
+    MetricCollectorService metricCollectorService = new MetricCollectorService(sonarClientRegistry);
+    try {
+      server.addResponse("project", "PAC", "[" + resourceJson("org.a", "PAC", "ncloc", 0) + "," + resourceJson("org.b", "PAC", "ncloc", 0) + "]");
+      server.addResponse("org.a", "CLA", "[" + resourceJson("org.a.A", "CLA", "ncloc", 42.0) + "," + resourceJson("org.a.B", "CLA", "ncloc", 7.0) + "]");
+      server.addResponse("org.b", "CLA", "[" + resourceJson("org.b.C", "CLA", "ncloc", 30.0) + "]");
+
+      Iterator<ProjectMetrics> pages = metricCollectorService
+          .collectMetricsForProjectPageByPage(new SonarConnectionSettings(server.getUrl(), "project"), Sets.newHashSet("ncloc"));
+
+      ProjectMetrics firstPage = pages.next();
+      assertThat(firstPage.getResources()).hasSize(2);
+      assertThat(firstPage.getMetricValue("org.a.A", "ncloc")).isEqualTo(42.0);
+      assertThat(firstPage.getMetricValue("org.a.B", "ncloc")).isEqualTo(7.0);
+      ProjectMetrics secondPage = pages.next();
+      assertThat(secondPage.getResources()).hasSize(1);
+      assertThat(secondPage.getMetricValue("org.b.C", "ncloc")).isEqualTo(30.0);
+      assertThat(pages.hasNext()).isFalse();
+      assertThat(server.getRequestedQueries()).hasSize(3);
+    } finally {
+      metricCollectorService.shutdown();
+      sonarClientRegistry.shutdown();
+      server.stop();
+    }
   }
 }
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2013 Felix Müller
+ *
+ * This file is part of CodeQ Invest.
+ *
+ * CodeQ Invest is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CodeQ Invest is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CodeQ Invest.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.codeqinvest.sonar;
+
+import com.google.common.collect.Sets;
+import org.junit.Before;
+import org.junit.Test;
+import org.sonar.wsclient.services.Measure;
+import org.sonar.wsclient.services.Resource;
+
+import java.util.Arrays;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class ProjectMetricsTest {
+
+  private ProjectMetrics projectMetrics;
+
+  @Before
+  public void fillProjectMetrics() {
+    projectMetrics = new ProjectMetrics(Sets.newHashSet("ncloc", "complexity"));
+    projectMetrics.addResource(createResource("A", new Measure().setMetricKey("ncloc").setValue(120.0),
+        new Measure().setMetricKey("complexity").setValue(12.0)));
+    projectMetrics.addResource(createResource("B", new Measure().setMetricKey("ncloc").setValue(30.0)));
+  }
+
+  @Test
+  public void shouldReturnCollectedMetricValues() throws ResourceNotFoundException {
+    assertThat(projectMetrics.getMetricValue("A", "ncloc")).isEqualTo(120.0);
+    assertThat(projectMetrics.getMetricValue("A", "complexity")).isEqualTo(12.0);
+    assertThat(projectMetrics.getMetricValue("B", "ncloc")).isEqualTo(30.0);
+  }
+
+  @Test
+  public void shouldContainAllAddedResources() {
+    assertThat(projectMetrics.getResources()).hasSize(2);
+    assertThat(projectMetrics.containsResource("A")).isTrue();
+    assertThat(projectMetrics.containsResource("C")).isFalse();
+  }
+
+  @Test
+  public void shouldReturnDefaultValueForUnknownResource() throws ResourceNotFoundException {
+    assertThat(projectMetrics.getMetricValue("C", "ncloc")).isEqualTo(MetricCollectorService.DEFAULT_VALUE);
+  }
+
+  @Test(expected = ResourceNotFoundException.class)
+  public void shouldFailWhenKnownResourceHasNoValueForMetric() throws ResourceNotFoundException {
+    projectMetrics.getMetricValue("B", "complexity");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldFailWhenMetricWasNotCollected() throws ResourceNotFoundException {
+    projectMetrics.getMetricValue("A", "coverage");
+  }
+
+  @Test
+  public void shouldAddResourceWithItsValuesFromOtherMatrix() throws ResourceNotFoundException {
+    ProjectMetrics keptMetrics = new ProjectMetrics(Sets.newHashSet("ncloc", "complexity"));
+    keptMetrics.addResourceOf(projectMetrics, "A");
+    keptMetrics.addResourceOf(projectMetrics, "C");
+
+    assertThat(keptMetrics.getResources()).hasSize(1);
+    assertThat(keptMetrics.containsResource("B")).isFalse();
+    assertThat(keptMetrics.getMetricValue("A", "ncloc")).isEqualTo(120.0);
+    assertThat(keptMetrics.getMetricValue("A", "complexity")).isEqualTo(12.0);
+  }
+
+  private Resource createResource(String key, Measure... measures) {
+    Resource resource = new Resource();
+    resource.setKey(key);
+    resource.setMeasures(Arrays.asList(measures));
+    return resource;
+  }
+}
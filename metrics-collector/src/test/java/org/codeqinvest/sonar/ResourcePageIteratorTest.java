@@ -0,0 +1,104 @@
+/*
+ * Copyright 2013 Felix Müller
+ *
+ * This file is part of CodeQ Invest.
+ *
+ * CodeQ Invest is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CodeQ Invest is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CodeQ Invest.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.codeqinvest.sonar;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.sonar.wsclient.services.Resource;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.codeqinvest.sonar.FakeSonarServer.resourceJson;
+import static org.fest.assertions.Assertions.assertThat;
+
+public class ResourcePageIteratorTest {
+
+  private FakeSonarServer server;
+  private SonarClientRegistry sonarClientRegistry;
+  private SonarConnectionSettings connectionSettings;
+  private ExecutorService pagePrefetcher;
+
+  @Before
+  public void startSonarServer() throws IOException {
+    server = new FakeSonarServer();
+    sonarClientRegistry = new SonarClientRegistry();
+    connectionSettings = new SonarConnectionSettings(server.getUrl(), "project");
+    pagePrefetcher = Executors.newSingleThreadExecutor();
+  }
+
+  @After
+  public void stopSonarServer() {
+    pagePrefetcher.shutdownNow();
+    sonarClientRegistry.shutdown();
+    server.stop();
+  }
+
+  @Test
+  public void shouldIterateOverClassesOfAllPackagesPageByPage() {
+    server.addResponse("project", "PAC", "[" + resourceJson("org.a", "PAC", "ncloc", 0) + "," + resourceJson("org.b", "PAC", "ncloc", 0) + "]");
+    server.addResponse("org.a", "CLA", "[" + resourceJson("org.a.A", "CLA", "ncloc", 10) + "," + resourceJson("org.a.B", "CLA", "ncloc", 20) + "]");
+    server.addResponse("org.b", "CLA", "[" + resourceJson("org.b.C", "CLA", "ncloc", 30) + "]");
+
+    ResourcePageIterator pages = createIterator("ncloc");
+    List<Integer> pageSizes = new ArrayList<Integer>();
+    List<String> resourceKeys = new ArrayList<String>();
+    while (pages.hasNext()) {
+      List<Resource> page = pages.next();
+      pageSizes.add(page.size());
+      for (Resource resource : page) {
+        resourceKeys.add(resource.getKey());
+        assertThat(resource.getMeasureValue("ncloc")).isNotNull();
+      }
+    }
+
+    assertThat(pageSizes).containsExactly(2, 1);
+    assertThat(resourceKeys).containsExactly("org.a.A", "org.a.B", "org.b.C");
+    assertThat(pages.getLoadedPages()).isEqualTo(2);
+  }
+
+  @Test
+  public void shouldSkipEmptyPackages() {
+    server.addResponse("project", "PAC", "[" + resourceJson("org.a", "PAC", "ncloc", 0) + "," + resourceJson("org.b", "PAC", "ncloc", 0) + "]");
+    server.addResponse("org.b", "CLA", "[" + resourceJson("org.b.C", "CLA", "ncloc", 30) + "]");
+
+    ResourcePageIterator pages = createIterator();
+    assertThat(pages.next().get(0).getKey()).isEqualTo("org.b.C");
+    assertThat(pages.hasNext()).isFalse();
+  }
+
+  @Test
+  public void shouldBeEmptyForProjectWithoutPackages() {
+    assertThat(createIterator().hasNext()).isFalse();
+  }
+
+  @Test
+  public void shouldNotLoadAnythingBeforeFirstAccess() {
+    createIterator();
+    assertThat(server.getRequestedQueries()).isEmpty();
+  }
+
+  private ResourcePageIterator createIterator(String... metricIdentifiers) {
+    return new ResourcePageIterator(sonarClientRegistry.getSonar(connectionSettings), pagePrefetcher, "project", metricIdentifiers);
+  }
+}
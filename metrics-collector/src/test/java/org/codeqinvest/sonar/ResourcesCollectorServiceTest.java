@@ -24,6 +24,6 @@ public class ResourcesCollectorServiceTest {
 
   @Test(expected = IllegalArgumentException.class)
   public void shouldFailWhenConnectionSettingsMissProjectAttribute() {
-    new ResourcesCollectorService().collectAllResourcesForProject(new SonarConnectionSettings("dummy"));
+    new ResourcesCollectorService(new SonarClientRegistry()).collectAllResourcesForProject(new SonarConnectionSettings("dummy"));
   }
 }
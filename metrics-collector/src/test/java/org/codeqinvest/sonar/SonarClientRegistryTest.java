@@ -0,0 +1,85 @@
+/*
+ * Copyright 2013 Felix Müller
+ *
+ * This file is part of CodeQ Invest.
+ *
+ * CodeQ Invest is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CodeQ Invest is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CodeQ Invest.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.codeqinvest.sonar;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.sonar.wsclient.services.Resource;
+import org.sonar.wsclient.services.ResourceQuery;
+
+import java.io.IOException;
+
+import static org.codeqinvest.sonar.FakeSonarServer.resourceJson;
+import static org.fest.assertions.Assertions.assertThat;
+
+public class SonarClientRegistryTest {
+
+  private FakeSonarServer server;
+  private SonarConnectionSettings connectionSettings;
+  private SonarClientRegistry sonarClientRegistry;
+
+  @Before
+  public void startSonarServer() throws IOException {
+    server = new FakeSonarServer();
+    server.addResponse("A", "", "[" + resourceJson("A", "CLA", "ncloc", 42.0) + "]");
+    connectionSettings = new SonarConnectionSettings(server.getUrl(), "project");
+    sonarClientRegistry = new SonarClientRegistry();
+  }
+
+  @After
+  public void stopSonarServer() {
+    sonarClientRegistry.shutdown();
+    server.stop();
+  }
+
+  @Test
+  public void shouldShareHttpClientBetweenProjectsOfSameServer() {
+    SonarConnectionSettings otherProject = new SonarConnectionSettings(connectionSettings.getUrl(), "otherProject");
+    assertThat(sonarClientRegistry.getHttpClient(connectionSettings)).isSameAs(sonarClientRegistry.getHttpClient(otherProject));
+  }
+
+  @Test
+  public void shouldUseDifferentHttpClientsForDifferentServers() {
+    SonarConnectionSettings otherServer = new SonarConnectionSettings("http://localhost:1", "project");
+    assertThat(sonarClientRegistry.getHttpClient(connectionSettings)).isNotSameAs(sonarClientRegistry.getHttpClient(otherServer));
+  }
+
+  @Test
+  public void shouldUseDifferentHttpClientsForDifferentCredentials() {
+    SonarConnectionSettings otherUser = new SonarConnectionSettings(connectionSettings.getUrl(), "project", "user", "secret");
+    assertThat(sonarClientRegistry.getHttpClient(connectionSettings)).isNotSameAs(sonarClientRegistry.getHttpClient(otherUser));
+  }
+
+  @Test
+  public void shouldReuseConnectionForSubsequentRequests() {
+    for (int i = 0; i < 3; i++) {
+      Resource resource = sonarClientRegistry.getSonar(connectionSettings).find(ResourceQuery.create("A").setMetrics("ncloc"));
+      assertThat(resource.getMeasureValue("ncloc")).isEqualTo(42.0);
+    }
+    assertThat(sonarClientRegistry.getPoolStats(connectionSettings).getLeased()).isEqualTo(0);
+    assertThat(sonarClientRegistry.getPoolStats(connectionSettings).getAvailable()).isEqualTo(1);
+  }
+
+  @Test
+  public void shouldReturnEmptyPoolStatsForUnknownServer() {
+    assertThat(sonarClientRegistry.getPoolStats(connectionSettings).getAvailable()).isEqualTo(0);
+    assertThat(sonarClientRegistry.getPoolStatsOfAllServers()).isEmpty();
+  }
+}
@@ -29,7 +29,7 @@ public class SonarConnectionCheckerServiceTest {
 
   @Before
   public void setUp() {
-    sonarConnectionCheckerService = new SonarConnectionCheckerService();
+    sonarConnectionCheckerService = new SonarConnectionCheckerService(new SonarClientRegistry());
   }
 
   @Test
@@ -23,6 +23,8 @@ import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.ToString;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 
 import javax.persistence.Column;
 import javax.persistence.Entity;
@@ -42,7 +44,15 @@ import java.io.Serializable;
 public class Artefact implements Serializable {
 
   @Id
-  @GeneratedValue
+  @GeneratedValue(generator = "artefactIds")
+  @GenericGenerator(name = "artefactIds", strategy = "org.hibernate.id.enhanced.TableGenerator", parameters = {
+      @Parameter(name = "table_name", value = "ID_POOL"),
+      @Parameter(name = "segment_column_name", value = "NAME"),
+      @Parameter(name = "segment_value", value = "ARTEFACT"),
+      @Parameter(name = "value_column_name", value = "NEXT_ID"),
+      @Parameter(name = "increment_size", value = "50"),
+      @Parameter(name = "optimizer", value = "pooled-lo")
+  })
   private Long id;
 
   @Column(nullable = false)
@@ -82,6 +92,10 @@ public class Artefact implements Serializable {
    * Parses the class name out of the fully qualified class name and returns it.
    */
   public String getShortClassName() {
+    return shortClassNameOf(name);
+  }
+
+  static String shortClassNameOf(String name) {
     String className = null;
     for (String packageName : Splitter.on('.').split(name)) {
       className = packageName;
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2013 Felix Müller
+ *
+ * This file is part of CodeQ Invest.
+ *
+ * CodeQ Invest is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CodeQ Invest is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CodeQ Invest.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.codeqinvest.quality;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Read-only copy of an {@link Artefact} for views and calculations
+ * that don't need the entity.
+ *
+ * @author fmueller
+ */
+@Getter
+@EqualsAndHashCode
+@ToString
+public class ArtefactView {
+
+  private final Long id;
+  private final String name;
+  private final double changeProbability;
+  private final double secureChangeProbability;
+  private final Integer manualEstimate;
+
+  public ArtefactView(Long id, String name, double changeProbability, double secureChangeProbability, Integer manualEstimate) {
+    this.id = id;
+    this.name = name;
+    this.changeProbability = changeProbability;
+    this.secureChangeProbability = secureChangeProbability;
+    this.manualEstimate = manualEstimate;
+  }
+
+  public static ArtefactView of(Artefact artefact) {
+    return new ArtefactView(artefact.getId(), artefact.getName(), artefact.getChangeProbability(),
+        artefact.getSecureChangeProbability(), artefact.getManualEstimate());
+  }
+
+  /**
+   * @see Artefact#getShortClassName()
+   */
+  public String getShortClassName() {
+    return Artefact.shortClassNameOf(name);
+  }
+
+  public boolean hasManualEstimate() {
+    return manualEstimate != null;
+  }
+}
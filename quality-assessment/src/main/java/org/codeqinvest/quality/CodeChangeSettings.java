@@ -74,6 +74,17 @@ public class CodeChangeSettings implements Serializable {
     return new CodeChangeSettings(SupportedCodeChangeProbabilityMethod.COMMIT_BASED, null, numberOfCommits);
   }
 
+  /**
+   * Creates a copy that does not change when the given settings are modified.
+   */
+  public static CodeChangeSettings copyOf(CodeChangeSettings settings) {
+    CodeChangeSettings copy = new CodeChangeSettings();
+    copy.setMethod(settings.getMethod());
+    copy.setDays(settings.getDays());
+    copy.setNumberOfCommits(settings.getNumberOfCommits());
+    return copy;
+  }
+
   /**
    * Returns the IDs of all supported methods for calculating the code
    * change probability.
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2013 Felix Müller
+ *
+ * This file is part of CodeQ Invest.
+ *
+ * CodeQ Invest is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CodeQ Invest is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CodeQ Invest.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.codeqinvest.quality;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Read-only copy of the parts of a {@link QualityRequirement} that
+ * are needed to calculate and display the profit of violations.
+ *
+ * @author fmueller
+ */
+@Getter
+@EqualsAndHashCode
+@ToString
+public class QualityRequirementView {
+
+  private final Long id;
+  private final String metricIdentifier;
+  private final String operator;
+  private final double threshold;
+  private final boolean automaticallyFixable;
+
+  public QualityRequirementView(Long id, String metricIdentifier, String operator, double threshold, boolean automaticallyFixable) {
+    this.id = id;
+    this.metricIdentifier = metricIdentifier;
+    this.operator = operator;
+    this.threshold = threshold;
+    this.automaticallyFixable = automaticallyFixable;
+  }
+
+  public static QualityRequirementView of(QualityRequirement requirement) {
+    return new QualityRequirementView(requirement.getId(), requirement.getMetricIdentifier(), requirement.getOperator(),
+        requirement.getThreshold(), requirement.isAutomaticallyFixable());
+  }
+}
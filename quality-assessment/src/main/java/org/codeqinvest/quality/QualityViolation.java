@@ -21,6 +21,8 @@ package org.codeqinvest.quality;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.ToString;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 
 import javax.persistence.CascadeType;
 import javax.persistence.Column;
@@ -45,7 +47,15 @@ import java.io.Serializable;
 public class QualityViolation implements Serializable {
 
   @Id
-  @GeneratedValue
+  @GeneratedValue(generator = "qualityViolationIds")
+  @GenericGenerator(name = "qualityViolationIds", strategy = "org.hibernate.id.enhanced.TableGenerator", parameters = {
+      @Parameter(name = "table_name", value = "ID_POOL"),
+      @Parameter(name = "segment_column_name", value = "NAME"),
+      @Parameter(name = "segment_value", value = "QUALITY_VIOLATION"),
+      @Parameter(name = "value_column_name", value = "NEXT_ID"),
+      @Parameter(name = "increment_size", value = "50"),
+      @Parameter(name = "optimizer", value = "pooled-lo")
+  })
   private Long id;
 
   @ManyToOne(optional = false)
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2013 Felix Müller
+ *
+ * This file is part of CodeQ Invest.
+ *
+ * CodeQ Invest is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CodeQ Invest is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CodeQ Invest.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.codeqinvest.quality;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Read-only copy of a {@link QualityViolation} together with
+ * its requirement and artefact.
+ *
+ * @author fmueller
+ */
+@Getter
+@EqualsAndHashCode
+@ToString
+public class QualityViolationView {
+
+  private final QualityRequirementView requirement;
+  private final ArtefactView artefact;
+  private final int remediationCosts;
+  private final int nonRemediationCosts;
+  private final double weightingMetricValue;
+
+  public QualityViolationView(QualityRequirementView requirement, ArtefactView artefact,
+                              int remediationCosts, int nonRemediationCosts, double weightingMetricValue) {
+    this.requirement = requirement;
+    this.artefact = artefact;
+    this.remediationCosts = remediationCosts;
+    this.nonRemediationCosts = nonRemediationCosts;
+    this.weightingMetricValue = weightingMetricValue;
+  }
+
+  public static QualityViolationView of(QualityViolation violation) {
+    return new QualityViolationView(violation.getRequirement() != null ? QualityRequirementView.of(violation.getRequirement()) : null,
+        ArtefactView.of(violation.getArtefact()),
+        violation.getRemediationCosts(),
+        violation.getNonRemediationCosts(),
+        violation.getWeightingMetricValue());
+  }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2013 Felix Müller
+ *
+ * This file is part of CodeQ Invest.
+ *
+ * CodeQ Invest is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CodeQ Invest is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CodeQ Invest.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.codeqinvest.quality.analysis;
+
+import lombok.Getter;
+import lombok.ToString;
+import org.codeqinvest.quality.Project;
+import org.joda.time.DateTime;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.GeneratedValue;
+import javax.persistence.Id;
+import javax.persistence.JoinColumn;
+import javax.persistence.ManyToOne;
+import javax.persistence.Table;
+import java.io.Serializable;
+
+/**
+ * A requested analysis of a project that is persisted until it is finished,
+ * so that queued and interrupted analyses survive restarts of the application.
+ *
+ * @author fmueller
+ */
+@Getter
+@ToString(exclude = "project")
+@Entity
+@Table(name = "ANALYSIS_JOB")
+public class AnalysisJob implements Serializable {
+
+  public enum State {
+    QUEUED, RUNNING, SUCCEEDED, FAILED,
+
+    /**
+     * The job was not executed, because it was merged into another job
+     * of the project or rejected by the exhausted analyzer pool.
+     */
+    DISCARDED
+  }
+
+  @Id
+  @GeneratedValue
+  private Long id;
+
+  @ManyToOne(optional = false)
+  @JoinColumn(name = "PROJECT_ID", nullable = false, updatable = false)
+  private Project project;
+
+  private boolean incremental;
+
+  @Enumerated(EnumType.STRING)
+  @Column(nullable = false, length = 20)
+  private State state;
+
+  @Column(nullable = false)
+  private DateTime created;
+
+  private DateTime started;
+
+  private DateTime finished;
+
+  protected AnalysisJob() {
+  }
+
+  AnalysisJob(Project project, boolean incremental) {
+    this.project = project;
+    this.incremental = incremental;
+    this.state = State.QUEUED;
+    this.created = DateTime.now();
+  }
+
+  /**
+   * A full analysis covers everything an incremental analysis would do.
+   */
+  void changeToFullAnalysis() {
+    incremental = false;
+  }
+}
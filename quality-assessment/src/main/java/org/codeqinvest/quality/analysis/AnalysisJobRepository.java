@@ -0,0 +1,68 @@
+/*
+ * Copyright 2013 Felix Müller
+ *
+ * This file is part of CodeQ Invest.
+ *
+ * CodeQ Invest is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CodeQ Invest is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CodeQ Invest.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.codeqinvest.quality.analysis;
+
+import org.codeqinvest.quality.Project;
+import org.joda.time.DateTime;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import javax.persistence.LockModeType;
+import java.util.List;
+
+/**
+ * The state of a job is only changed with conditional updates, so that
+ * exactly one worker can claim a queued job. Jobs are queued while the
+ * row of their project is locked, so that there is at most one queued
+ * job per project.
+ *
+ * @author fmueller
+ */
+public interface AnalysisJobRepository extends JpaRepository<AnalysisJob, Long> {
+
+  List<AnalysisJob> findByProjectAndStateOrderByCreatedAsc(Project project, AnalysisJob.State state);
+
+  List<AnalysisJob> findByStateOrderByCreatedAsc(AnalysisJob.State state);
+
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  @Query("select p from Project p where p.id = ?1")
+  Project findOneProjectForUpdate(Long projectId);
+
+  @Modifying
+  @Query("update AnalysisJob j set j.state = ?3, j.started = ?4 where j.id = ?1 and j.state = ?2")
+  int updateStateAndStarted(Long id, AnalysisJob.State expectedState, AnalysisJob.State newState, DateTime started);
+
+  @Modifying
+  @Query("update AnalysisJob j set j.state = ?2, j.finished = ?3 where j.id = ?1")
+  int updateStateAndFinished(Long id, AnalysisJob.State newState, DateTime finished);
+
+  @Modifying
+  @Query("update AnalysisJob j set j.state = ?3, j.finished = ?4 where j.id = ?1 and j.state = ?2")
+  int updateStateAndFinished(Long id, AnalysisJob.State expectedState, AnalysisJob.State newState, DateTime finished);
+
+  @Modifying
+  @Query("update AnalysisJob j set j.state = ?2, j.started = null where j.state = ?1")
+  int updateAllStates(AnalysisJob.State expectedState, AnalysisJob.State newState);
+
+  @Modifying
+  @Query("delete from AnalysisJob j where j.finished < ?1")
+  int deleteByFinishedBefore(DateTime finished);
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2013 Felix Müller
+ *
+ * This file is part of CodeQ Invest.
+ *
+ * CodeQ Invest is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CodeQ Invest is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CodeQ Invest.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.codeqinvest.quality.analysis;
+
+import lombok.extern.slf4j.Slf4j;
+import org.codeqinvest.quality.Project;
+import org.joda.time.DateTime;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * Manages the lifecycle of persisted analysis jobs. A job is queued when an
+ * analysis is requested, claimed by the worker that executes it and finished
+ * afterwards. Jobs that were queued or running when the application stopped
+ * are resumed after the next startup. Finished jobs are deleted after the
+ * number of days configured with {@code analyzer.analysisJobRetentionDays}.
+ *
+ * @author fmueller
+ */
+@Slf4j
+@Service
+@Transactional
+public class AnalysisJobService {
+
+  private final AnalysisJobRepository analysisJobRepository;
+  private final int retentionDays;
+
+  @Autowired
+  AnalysisJobService(AnalysisJobRepository analysisJobRepository,
+                     @Value("${analyzer.analysisJobRetentionDays:7}") int retentionDays) {
+    this.analysisJobRepository = analysisJobRepository;
+    this.retentionDays = retentionDays;
+  }
+
+  /**
+   * Queues a job for the analysis of the project. If there is already a queued
+   * job for the project, this one is returned instead of queueing another one.
+   * The row of the project stays locked until the transaction is committed, so
+   * that concurrent requests for the same project do not queue two jobs.
+   */
+  public AnalysisJob enqueue(Project project, boolean incremental) {
+    analysisJobRepository.findOneProjectForUpdate(project.getId());
+    List<AnalysisJob> queuedJobs = analysisJobRepository.findByProjectAndStateOrderByCreatedAsc(project, AnalysisJob.State.QUEUED);
+    if (!queuedJobs.isEmpty()) {
+      AnalysisJob queuedJob = queuedJobs.get(0);
+      if (queuedJob.isIncremental() && !incremental) {
+        queuedJob.changeToFullAnalysis();
+        return analysisJobRepository.save(queuedJob);
+      }
+      return queuedJob;
+    }
+    return analysisJobRepository.save(new AnalysisJob(project, incremental));
+  }
+
+  /**
+   * Marks the job as running if it is still queued.
+   *
+   * @return {@code true} if the caller claimed the job and should execute it,
+   *         {@code false} if the job was already claimed by another worker
+   */
+  public boolean claim(AnalysisJob job) {
+    return analysisJobRepository.updateStateAndStarted(job.getId(), AnalysisJob.State.QUEUED, AnalysisJob.State.RUNNING, DateTime.now()) == 1;
+  }
+
+  public void finish(AnalysisJob job, boolean successful) {
+    analysisJobRepository.updateStateAndFinished(job.getId(), successful ? AnalysisJob.State.SUCCEEDED : AnalysisJob.State.FAILED, DateTime.now());
+    deleteExpiredJobs();
+  }
+
+  /**
+   * Marks the job as discarded if it is still queued, because it will not be
+   * executed. Otherwise it would be resumed after the next startup.
+   */
+  public void discard(AnalysisJob job) {
+    analysisJobRepository.updateStateAndFinished(job.getId(), AnalysisJob.State.QUEUED, AnalysisJob.State.DISCARDED, DateTime.now());
+  }
+
+  /**
+   * Queues all jobs again that were running when the application stopped and returns
+   * all queued jobs in the order of their creation. This must only be called on startup
+   * before any job is claimed.
+   */
+  public List<AnalysisJob> resumeJobs() {
+    int interruptedJobs = analysisJobRepository.updateAllStates(AnalysisJob.State.RUNNING, AnalysisJob.State.QUEUED);
+    List<AnalysisJob> queuedJobs = analysisJobRepository.findByStateOrderByCreatedAsc(AnalysisJob.State.QUEUED);
+    log.info("Resuming {} analysis jobs, {} of them were interrupted", queuedJobs.size(), interruptedJobs);
+    deleteExpiredJobs();
+    return queuedJobs;
+  }
+
+  private void deleteExpiredJobs() {
+    int deletedJobs = analysisJobRepository.deleteByFinishedBefore(DateTime.now().minusDays(retentionDays));
+    if (deletedJobs > 0) {
+      log.info("Deleted {} analysis jobs that were finished more than {} days ago", deletedJobs, retentionDays);
+    }
+  }
+}
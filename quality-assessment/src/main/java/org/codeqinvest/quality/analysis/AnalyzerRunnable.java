@@ -32,13 +32,43 @@ import org.codeqinvest.quality.repository.ProjectRepository;
 class AnalyzerRunnable implements Runnable {
 
   private final long projectId;
+  private final String projectName;
   private final ProjectRepository projectRepository;
   private final QualityAnalyzerService qualityAnalyzerService;
+  private final boolean incremental;
+  private final AnalysisJob job;
+  private final AnalysisJobService analysisJobService;
 
   public AnalyzerRunnable(Project project, ProjectRepository projectRepository, QualityAnalyzerService qualityAnalyzerService) {
+    this(project, projectRepository, qualityAnalyzerService, false);
+  }
+
+  /**
+   * @param incremental if {@code true} the change probability of artefacts that were
+   *                    not changed since the last successful analysis is reused
+   */
+  public AnalyzerRunnable(Project project, ProjectRepository projectRepository, QualityAnalyzerService qualityAnalyzerService, boolean incremental) {
+    this(project, projectRepository, qualityAnalyzerService, incremental, null, null);
+  }
+
+  /**
+   * Executes the given persisted job. The job is claimed before the analysis
+   * starts and it is not executed if another worker claimed it already.
+   */
+  public AnalyzerRunnable(AnalysisJob job, ProjectRepository projectRepository, QualityAnalyzerService qualityAnalyzerService,
+                          AnalysisJobService analysisJobService) {
+    this(job.getProject(), projectRepository, qualityAnalyzerService, job.isIncremental(), job, analysisJobService);
+  }
+
+  private AnalyzerRunnable(Project project, ProjectRepository projectRepository, QualityAnalyzerService qualityAnalyzerService,
+                           boolean incremental, AnalysisJob job, AnalysisJobService analysisJobService) {
     this.projectId = project.getId();
+    this.projectName = project.getName();
     this.projectRepository = projectRepository;
     this.qualityAnalyzerService = qualityAnalyzerService;
+    this.incremental = incremental;
+    this.job = job;
+    this.analysisJobService = analysisJobService;
   }
 
   /**
@@ -46,16 +76,77 @@ class AnalyzerRunnable implements Runnable {
    */
   @Override
   public void run() {
+    analyze();
+  }
+
+  /**
+   * Executes an analysis run and returns its result.
+   *
+   * @return the analysis or {@code null} if the project does not exist anymore
+   *         or the job of this run was already claimed by another worker
+   */
+  QualityAnalysis analyze() {
+    if (job == null) {
+      return analyzeProject();
+    }
+    if (!analysisJobService.claim(job)) {
+      log.info("Analysis job {} for project {} was already claimed", job.getId(), projectName);
+      return null;
+    }
+    QualityAnalysis analysis = null;
+    try {
+      analysis = analyzeProject();
+    } finally {
+      analysisJobService.finish(job, analysis != null && analysis.isSuccessful());
+    }
+    return analysis;
+  }
+
+  private QualityAnalysis analyzeProject() {
     Project project = projectRepository.findOne(projectId);
     if (project != null) {
       project.setHadAnalysis(true);
       projectRepository.save(project);
 
       log.info("Start analyzer run for project {}", project.getName());
-      qualityAnalyzerService.analyzeProject(project);
+      QualityAnalysis analysis;
+      if (incremental) {
+        analysis = qualityAnalyzerService.analyzeProjectIncrementally(project);
+      } else {
+        analysis = qualityAnalyzerService.analyzeProject(project);
+      }
       log.info("Finished analyzer run for project {}", project.getName());
+      return analysis;
     } else {
       log.error("Could not find project with id " + projectId + " for starting an analyzer run!");
+      return null;
+    }
+  }
+
+  /**
+   * Marks the job of this run as discarded if it is still queued,
+   * because this run will not be executed.
+   */
+  void discard() {
+    if (job != null) {
+      log.info("Analysis job {} for project {} is discarded", job.getId(), projectName);
+      analysisJobService.discard(job);
     }
   }
+
+  boolean executesSameJobAs(AnalyzerRunnable other) {
+    return job != null && other.job != null && (job == other.job || job.getId() != null && job.getId().equals(other.job.getId()));
+  }
+
+  long getProjectId() {
+    return projectId;
+  }
+
+  String getProjectName() {
+    return projectName;
+  }
+
+  boolean isIncremental() {
+    return incremental;
+  }
 }
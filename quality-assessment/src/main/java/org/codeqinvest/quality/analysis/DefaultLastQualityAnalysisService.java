@@ -19,24 +19,36 @@
 package org.codeqinvest.quality.analysis;
 
 import org.codeqinvest.quality.Project;
+import org.joda.time.DateTime;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 
 /**
+ * Looks up the id of the last analysis with a query that is limited to one row
+ * and caches it per project, so that the analysis history of a project is not
+ * scanned again for every request. The read-only views of an analysis are
+ * loaded with one query instead of the entity graph.
+ *
  * @author fmueller
  */
 @Service
 @Transactional(readOnly = true)
 class DefaultLastQualityAnalysisService implements LastQualityAnalysisService {
 
+  private static final Pageable LAST_ONE = new PageRequest(0, 1);
+
   private final QualityAnalysisRepository qualityAnalysisRepository;
+  private final LastQualityAnalysisIdCache lastAnalysisIdCache;
 
   @Autowired
-  DefaultLastQualityAnalysisService(QualityAnalysisRepository qualityAnalysisRepository) {
+  DefaultLastQualityAnalysisService(QualityAnalysisRepository qualityAnalysisRepository, LastQualityAnalysisIdCache lastAnalysisIdCache) {
     this.qualityAnalysisRepository = qualityAnalysisRepository;
+    this.lastAnalysisIdCache = lastAnalysisIdCache;
   }
 
   /**
@@ -44,8 +56,8 @@ class DefaultLastQualityAnalysisService implements LastQualityAnalysisService {
    */
   @Override
   public QualityAnalysis retrieveLastSuccessfulAnalysis(Project project) {
-    List<QualityAnalysis> allAnalysis = qualityAnalysisRepository.findByProjectAndSuccessfulOrderByCreatedDesc(project, true);
-    return getLastAnalysis(allAnalysis);
+    Long analysisId = retrieveLastSuccessfulAnalysisId(project);
+    return analysisId != null ? loadAnalysis(project, analysisId) : null;
   }
 
   /**
@@ -53,13 +65,76 @@ class DefaultLastQualityAnalysisService implements LastQualityAnalysisService {
    */
   @Override
   public QualityAnalysis retrieveLastAnalysis(Project project) {
-    List<QualityAnalysis> allAnalysis = qualityAnalysisRepository.findByProjectOrderByCreatedDesc(project);
-    return getLastAnalysis(allAnalysis);
+    Long analysisId = retrieveLastAnalysisId(project);
+    return analysisId != null ? loadAnalysis(project, analysisId) : null;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public DateTime retrieveLastAnalysisCreated(Project project) {
+    return first(qualityAnalysisRepository.findCreatedByProjectOrderByCreatedDesc(project, LAST_ONE));
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public QualityAnalysisView retrieveLastSuccessfulAnalysisView(Project project) {
+    Long analysisId = retrieveLastSuccessfulAnalysisId(project);
+    return analysisId != null ? loadAnalysisView(project, analysisId) : null;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public QualityAnalysisView retrieveLastAnalysisView(Project project) {
+    Long analysisId = retrieveLastAnalysisId(project);
+    return analysisId != null ? loadAnalysisView(project, analysisId) : null;
+  }
+
+  private Long retrieveLastSuccessfulAnalysisId(Project project) {
+    Long analysisId = lastAnalysisIdCache.getLastSuccessfulAnalysisId(project.getId());
+    if (analysisId == null) {
+      analysisId = first(qualityAnalysisRepository.findIdsByProjectAndSuccessfulOrderByCreatedDesc(project, true, LAST_ONE));
+      if (analysisId != null) {
+        lastAnalysisIdCache.addLastSuccessfulAnalysisId(project.getId(), analysisId);
+      }
+    }
+    return analysisId;
+  }
+
+  private Long retrieveLastAnalysisId(Project project) {
+    Long analysisId = lastAnalysisIdCache.getLastAnalysisId(project.getId());
+    if (analysisId == null) {
+      analysisId = first(qualityAnalysisRepository.findIdsByProjectOrderByCreatedDesc(project, LAST_ONE));
+      if (analysisId != null) {
+        lastAnalysisIdCache.addLastAnalysisId(project.getId(), analysisId);
+      }
+    }
+    return analysisId;
+  }
+
+  private QualityAnalysis loadAnalysis(Project project, long analysisId) {
+    QualityAnalysis analysis = qualityAnalysisRepository.findOneByIdWithViolations(analysisId);
+    if (analysis == null) {
+      // the analysis was deleted in the meantime
+      lastAnalysisIdCache.evict(project.getId());
+    }
+    return analysis;
+  }
+
+  private QualityAnalysisView loadAnalysisView(Project project, long analysisId) {
+    QualityAnalysisView analysis = QualityAnalysisViewRows.toView(qualityAnalysisRepository.findViewRowsById(analysisId));
+    if (analysis == null) {
+      lastAnalysisIdCache.evict(project.getId());
+    }
+    return analysis;
   }
 
-  private QualityAnalysis getLastAnalysis(List<QualityAnalysis> allAnalysis) {
-    return (allAnalysis != null && !allAnalysis.isEmpty())
-        ? qualityAnalysisRepository.findOneByIdWithViolations(allAnalysis.get(0).getId())
-        : null;
+  private static <T> T first(List<T> values) {
+    return values.isEmpty() ? null : values.get(0);
   }
 }
@@ -18,23 +18,35 @@
  */
 package org.codeqinvest.quality.analysis;
 
-import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.RateLimiter;
 import lombok.extern.slf4j.Slf4j;
 import org.codeqinvest.codechanges.scm.factory.ScmAvailabilityCheckerServiceFactory;
 import org.codeqinvest.quality.Project;
 import org.codeqinvest.quality.repository.ProjectRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
-import org.springframework.scheduling.support.CronTrigger;
 import org.springframework.stereotype.Service;
 
-import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledFuture;
 
 /**
  * This component handles all quality analyzer runs. Quality analyzer can
  * be scheduled for later execution triggered by cron expression or
  * they can be executed immediately. For scheduling analyzers this
- * implementation uses a {@link ThreadPoolTaskScheduler}.
+ * implementation uses a {@link ThreadPoolTaskScheduler} whose triggers
+ * hand the runs over to the {@link QualityAnalyzerPool}. Scheduled
+ * runs analyze the project incrementally, immediate runs fully.
+ * <p/>
+ * To spread the load of projects with the same cron expression, the
+ * scheduled runs of each project can be delayed by a fixed offset
+ * up to {@code analyzer.maxStartJitterSeconds} and the starts of
+ * scheduled runs can be limited to {@code analyzer.maxStartsPerMinute}.
+ * <p/>
+ * Every run is persisted as {@link AnalysisJob} before it is handed over,
+ * so that runs that are queued or running survive a restart.
  *
  * @author fmueller
  */
@@ -42,8 +54,7 @@ import java.util.Set;
 @Service
 public class DefaultQualityAnalyzerScheduler implements QualityAnalyzerScheduler {
 
-  // TODO make this configurable
-  private static final int DEFAULT_POOL_SIZE = 10;
+  private static final int TRIGGER_POOL_SIZE = 1;
 
   private final ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
 
@@ -53,9 +64,14 @@ public class DefaultQualityAnalyzerScheduler implements QualityAnalyzerScheduler
   private final CodeChangeProbabilityCalculatorFactory codeChangeProbabilityCalculatorFactory;
   private final SecureChangeProbabilityCalculator secureChangeProbabilityCalculator;
   private final QualityViolationCostsCalculator costsCalculator;
-  private final QualityAnalysisRepository qualityAnalysisRepository;
+  private final QualityAnalysisBulkWriter analysisWriter;
+  private final IncrementalAnalysisBaselineService incrementalAnalysisBaselineService;
+  private final QualityAnalyzerPool analyzerPool;
+  private final AnalysisJobService analysisJobService;
+  private final int maxStartJitterSeconds;
+  private final RateLimiter startRateLimiter;
 
-  private final Set<Project> alreadyScheduledProjects = Sets.newCopyOnWriteArraySet();
+  private final ConcurrentMap<Long, ScheduledFuture<?>> scheduledAnalyzers = new ConcurrentHashMap<Long, ScheduledFuture<?>>();
 
   @Autowired
   public DefaultQualityAnalyzerScheduler(ProjectRepository projectRepository,
@@ -63,16 +79,27 @@ public class DefaultQualityAnalyzerScheduler implements QualityAnalyzerScheduler
                                          ScmAvailabilityCheckerServiceFactory scmAvailabilityCheckerServiceFactory,
                                          CodeChangeProbabilityCalculatorFactory codeChangeProbabilityCalculatorFactory,
                                          SecureChangeProbabilityCalculator secureChangeProbabilityCalculator, QualityViolationCostsCalculator costsCalculator,
-                                         QualityAnalysisRepository qualityAnalysisRepository) {
+                                         QualityAnalysisBulkWriter analysisWriter,
+                                         IncrementalAnalysisBaselineService incrementalAnalysisBaselineService,
+                                         QualityAnalyzerPool analyzerPool,
+                                         AnalysisJobService analysisJobService,
+                                         @Value("${analyzer.maxStartJitterSeconds:0}") int maxStartJitterSeconds,
+                                         @Value("${analyzer.maxStartsPerMinute:0}") int maxStartsPerMinute) {
     this.projectRepository = projectRepository;
     this.violationsCalculatorService = violationsCalculatorService;
     this.scmAvailabilityCheckerServiceFactory = scmAvailabilityCheckerServiceFactory;
     this.codeChangeProbabilityCalculatorFactory = codeChangeProbabilityCalculatorFactory;
     this.secureChangeProbabilityCalculator = secureChangeProbabilityCalculator;
     this.costsCalculator = costsCalculator;
-    this.qualityAnalysisRepository = qualityAnalysisRepository;
+    this.analysisWriter = analysisWriter;
+    this.incrementalAnalysisBaselineService = incrementalAnalysisBaselineService;
+    this.analyzerPool = analyzerPool;
+    this.analysisJobService = analysisJobService;
+    this.maxStartJitterSeconds = maxStartJitterSeconds;
+    this.startRateLimiter = maxStartsPerMinute > 0 ? RateLimiter.create(maxStartsPerMinute / 60.0) : null;
 
-    scheduler.setPoolSize(DEFAULT_POOL_SIZE);
+    scheduler.setPoolSize(TRIGGER_POOL_SIZE);
+    scheduler.setThreadNamePrefix("quality-analyzer-trigger-");
     scheduler.initialize();
   }
 
@@ -83,8 +110,7 @@ public class DefaultQualityAnalyzerScheduler implements QualityAnalyzerScheduler
     project.setHadAnalysis(true);
     projectRepository.save(project);
 
-    QualityAnalyzerService qualityAnalyzerService = createDefaultQualityAnalyzer();
-    scheduler.execute(new AnalyzerRunnable(project, projectRepository, qualityAnalyzerService));
+    start(project, false);
     log.info("Executing analyzer job for project {}", project.getName());
   }
 
@@ -92,24 +118,97 @@ public class DefaultQualityAnalyzerScheduler implements QualityAnalyzerScheduler
    * {@inheritDoc}
    */
   public boolean scheduleAnalyzer(Project project) {
-    if (alreadyScheduledProjects.contains(project)) {
+    if (scheduledAnalyzers.containsKey(project.getId())) {
+      log.info("Project {} is already scheduled!", project.getName());
+      return false;
+    }
+    ScheduledFuture<?> scheduledAnalyzer = scheduleCronTrigger(project);
+    if (scheduledAnalyzers.putIfAbsent(project.getId(), scheduledAnalyzer) != null) {
+      scheduledAnalyzer.cancel(false);
       log.info("Project {} is already scheduled!", project.getName());
       return false;
     }
-    alreadyScheduledProjects.add(project);
-
-    QualityAnalyzerService qualityAnalyzerService = createDefaultQualityAnalyzer();
-    scheduler.schedule(new AnalyzerRunnable(project, projectRepository, qualityAnalyzerService), new CronTrigger(project.getCronExpression()));
     log.info("Scheduled analyzer job for project {} with cron expression {}", project.getName(), project.getCronExpression());
     return true;
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  public void rescheduleAnalyzer(Project project) {
+    ScheduledFuture<?> previousAnalyzer = scheduledAnalyzers.put(project.getId(), scheduleCronTrigger(project));
+    if (previousAnalyzer != null) {
+      previousAnalyzer.cancel(false);
+    }
+    log.info("Rescheduled analyzer job for project {} with cron expression {}", project.getName(), project.getCronExpression());
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  public boolean cancelAnalyzer(long projectId) {
+    ScheduledFuture<?> scheduledAnalyzer = scheduledAnalyzers.remove(projectId);
+    if (scheduledAnalyzer == null) {
+      return false;
+    }
+    scheduledAnalyzer.cancel(false);
+    log.info("Cancelled analyzer job for project with id {}", projectId);
+    return true;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  public void catchUpAnalyzer(Project project) {
+    scheduler.execute(rateLimitedStart(project));
+    log.info("Catching up missed analyzer job for project {}", project.getName());
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  public void resumeAnalyzers() {
+    for (AnalysisJob job : analysisJobService.resumeJobs()) {
+      analyzerPool.execute(new AnalyzerRunnable(job, projectRepository, createDefaultQualityAnalyzer(), analysisJobService));
+    }
+  }
+
+  private ScheduledFuture<?> scheduleCronTrigger(Project project) {
+    return scheduler.schedule(rateLimitedStart(project),
+        new JitteredCronTrigger(project.getCronExpression(), project.getId(), maxStartJitterSeconds));
+  }
+
+  /**
+   * Starts an incremental run. If the start rate is limited, the trigger thread
+   * waits for its turn, so that the following triggers are delayed as well.
+   */
+  private Runnable rateLimitedStart(final Project project) {
+    return new Runnable() {
+      @Override
+      public void run() {
+        if (startRateLimiter != null) {
+          startRateLimiter.acquire();
+        }
+        start(project, true);
+      }
+    };
+  }
+
+  /**
+   * Persists the run as job and hands it over to the analyzer pool.
+   */
+  private void start(Project project, boolean incremental) {
+    AnalysisJob job = analysisJobService.enqueue(project, incremental);
+    analyzerPool.execute(new AnalyzerRunnable(job, projectRepository, createDefaultQualityAnalyzer(), analysisJobService));
+  }
+
   private DefaultQualityAnalyzerService createDefaultQualityAnalyzer() {
     return new DefaultQualityAnalyzerService(violationsCalculatorService,
         scmAvailabilityCheckerServiceFactory,
         codeChangeProbabilityCalculatorFactory,
         secureChangeProbabilityCalculator,
         costsCalculator,
-        qualityAnalysisRepository);
+        analysisWriter,
+        incrementalAnalysisBaselineService);
   }
 }
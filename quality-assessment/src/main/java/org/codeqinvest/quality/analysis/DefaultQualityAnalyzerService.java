@@ -18,6 +18,9 @@
  */
 package org.codeqinvest.quality.analysis;
 
+import com.google.common.base.Optional;
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.Multimap;
 import com.google.common.collect.Sets;
 import lombok.extern.slf4j.Slf4j;
 import org.codeqinvest.codechanges.CodeChangeProbabilityCalculator;
@@ -28,12 +31,12 @@ import org.codeqinvest.quality.Artefact;
 import org.codeqinvest.quality.Project;
 import org.codeqinvest.quality.QualityViolation;
 import org.codeqinvest.sonar.ResourceNotFoundException;
-import org.codeqinvest.sonar.SonarConnectionSettings;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -56,7 +59,8 @@ class DefaultQualityAnalyzerService implements QualityAnalyzerService {
   private final CodeChangeProbabilityCalculatorFactory codeChangeProbabilityCalculatorFactory;
   private final SecureChangeProbabilityCalculator secureChangeProbabilityCalculator;
   private final QualityViolationCostsCalculator costsCalculator;
-  private final QualityAnalysisRepository qualityAnalysisRepository;
+  private final QualityAnalysisBulkWriter analysisWriter;
+  private final IncrementalAnalysisBaselineService incrementalAnalysisBaselineService;
 
   @Autowired
   public DefaultQualityAnalyzerService(ViolationsCalculatorService violationsCalculatorService,
@@ -64,41 +68,58 @@ class DefaultQualityAnalyzerService implements QualityAnalyzerService {
                                        CodeChangeProbabilityCalculatorFactory codeChangeProbabilityCalculatorFactory,
                                        SecureChangeProbabilityCalculator secureChangeProbabilityCalculator,
                                        QualityViolationCostsCalculator costsCalculator,
-                                       QualityAnalysisRepository qualityAnalysisRepository) {
+                                       QualityAnalysisBulkWriter analysisWriter,
+                                       IncrementalAnalysisBaselineService incrementalAnalysisBaselineService) {
     this.violationsCalculatorService = violationsCalculatorService;
     this.scmAvailabilityCheckerServiceFactory = scmAvailabilityCheckerServiceFactory;
     this.codeChangeProbabilityCalculatorFactory = codeChangeProbabilityCalculatorFactory;
     this.secureChangeProbabilityCalculator = secureChangeProbabilityCalculator;
     this.costsCalculator = costsCalculator;
-    this.qualityAnalysisRepository = qualityAnalysisRepository;
+    this.analysisWriter = analysisWriter;
+    this.incrementalAnalysisBaselineService = incrementalAnalysisBaselineService;
   }
 
-  // TODO IMPORTANT: refactor this into commmand pattern to get better structure
   @Override
   public QualityAnalysis analyzeProject(Project project) {
+    return analyzeProject(project, IncrementalAnalysisBaseline.none());
+  }
+
+  @Override
+  public QualityAnalysis analyzeProjectIncrementally(Project project) {
+    return analyzeProject(project, incrementalAnalysisBaselineService.createBaseline(project));
+  }
+
+  // TODO IMPORTANT: refactor this into commmand pattern to get better structure
+  private QualityAnalysis analyzeProject(Project project, IncrementalAnalysisBaseline baseline) {
     try {
       ViolationsAnalysisResult violationsAnalysisResult = violationsCalculatorService.calculateAllViolation(project);
-      if (!violationsAnalysisResult.isSuccessful()) {
-        log.error("Quality analysis for project {} failed due '{}'", project.getName(), violationsAnalysisResult.getFailureReason().get());
-        return qualityAnalysisRepository.save(QualityAnalysis.failed(project,
-            zeroCostsForEachViolation(violationsAnalysisResult),
-            violationsAnalysisResult.getFailureReason().get()));
-      }
+      try {
+        if (!violationsAnalysisResult.isSuccessful()) {
+          log.error("Quality analysis for project {} failed due '{}'", project.getName(), violationsAnalysisResult.getFailureReason().get());
+          return analysisWriter.write(QualityAnalysis.failed(project,
+              zeroCostsForEachViolation(violationsAnalysisResult),
+              violationsAnalysisResult.getFailureReason().get()));
+        }
 
-      log.info("Checking the availability of the SCM system {} for project {}", project.getScmSettings(), project.getName());
-      if (!scmAvailabilityCheckerServiceFactory.create(project.getScmSettings()).isAvailable(project.getScmSettings())) {
-        return qualityAnalysisRepository.save(QualityAnalysis.failed(project,
-            zeroCostsForEachViolation(violationsAnalysisResult), "The scm system is not available."));
-      }
+        log.info("Checking the availability of the SCM system {} for project {}", project.getScmSettings(), project.getName());
+        if (!scmAvailabilityCheckerServiceFactory.create(project.getScmSettings()).isAvailable(project.getScmSettings())) {
+          return analysisWriter.write(QualityAnalysis.failed(project,
+              zeroCostsForEachViolation(violationsAnalysisResult), "The scm system is not available."));
+        }
 
-      QualityAnalysis qualityAnalysis = addChangeProbabilityToEachArtifact(project, violationsAnalysisResult);
-      if (!qualityAnalysis.isSuccessful()) {
-        return qualityAnalysisRepository.save(qualityAnalysis);
-      }
+        QualityAnalysis qualityAnalysis = addChangeProbabilityToEachArtifact(project, violationsAnalysisResult, baseline);
+        if (!qualityAnalysis.isSuccessful()) {
+          return analysisWriter.write(qualityAnalysis);
+        }
 
-      qualityAnalysis = addSecureChangeProbabilityToEachArtifact(project, qualityAnalysis);
-      log.info("Quality analysis succeeded for project {} with {} violations.", project.getName(), violationsAnalysisResult.getViolations().size());
-      return qualityAnalysisRepository.save(qualityAnalysis);
+        qualityAnalysis = addSecureChangeProbabilityToEachArtifact(project, violationsAnalysisResult.getMetricSnapshot(), qualityAnalysis);
+        log.info("Quality analysis succeeded for project {} with {} violations.", project.getName(), violationsAnalysisResult.getViolations().size());
+        return analysisWriter.write(qualityAnalysis);
+      } finally {
+        MetricSnapshot metricSnapshot = violationsAnalysisResult.getMetricSnapshot();
+        log.info("Metric snapshot of project {} had {} bulk reads, {} hits and {} misses", project.getName(),
+            metricSnapshot.getBulkReads(), metricSnapshot.getHits(), metricSnapshot.getMisses());
+      }
     } catch (Exception e) {
       String errorMessage = "Unexpected error occured during quality analysis!";
       log.error(errorMessage, e);
@@ -106,43 +127,60 @@ class DefaultQualityAnalyzerService implements QualityAnalyzerService {
     }
   }
 
-  private QualityAnalysis addChangeProbabilityToEachArtifact(Project project, ViolationsAnalysisResult violationsAnalysisResult) {
+  private QualityAnalysis addChangeProbabilityToEachArtifact(Project project, ViolationsAnalysisResult violationsAnalysisResult,
+                                                             IncrementalAnalysisBaseline baseline) {
     log.info("Starting calculation of change probability for each artefact of project {}", project.getName());
     CodeChangeProbabilityCalculator codeChangeProbabilityCalculator = codeChangeProbabilityCalculatorFactory.create(project.getCodeChangeSettings());
     Set<String> computedArtefacts = Sets.newHashSet();
+    Multimap<String, Artefact> artefactsByFilename = ArrayListMultimap.create();
+    int carriedForwardArtefacts = 0;
     for (ViolationOccurence violation : violationsAnalysisResult.getViolations()) {
 
       Artefact artefact = violation.getArtefact();
       if (!computedArtefacts.contains(artefact.getSonarIdentifier())) {
+        computedArtefacts.add(artefact.getSonarIdentifier());
+
+        Optional<Double> previousChangeProbability = baseline.getChangeProbabilityOfUnchangedArtefact(artefact);
+        if (previousChangeProbability.isPresent()) {
+          artefact.setChangeProbability(previousChangeProbability.get());
+          carriedForwardArtefacts++;
+        } else {
+          artefactsByFilename.put(artefact.getFilename(), artefact);
+        }
+      }
+    }
 
-        final double changeProbability;
-        try {
-          changeProbability = codeChangeProbabilityCalculator.calculateCodeChangeProbability(project.getScmSettings(), artefact.getFilename());
-          artefact.setChangeProbability(changeProbability);
-          computedArtefacts.add(artefact.getSonarIdentifier());
-        } catch (CodeChurnCalculationException e) {
-          logFailedAnalysis(project, e);
-          return QualityAnalysis.failed(project,
-              zeroCostsForEachViolation(violationsAnalysisResult),
-              "Error during calculating the code churn for " + violation.getArtefact().getName());
-        } catch (ScmConnectionEncodingException e) {
-          logFailedAnalysis(project, e);
-          return QualityAnalysis.failed(project,
-              zeroCostsForEachViolation(violationsAnalysisResult),
-              "Error with supplied scm connection encoding.");
+    if (!artefactsByFilename.isEmpty()) {
+      try {
+        Map<String, Double> changeProbabilities = codeChangeProbabilityCalculator.calculateCodeChangeProbabilities(project.getScmSettings(),
+            artefactsByFilename.keySet());
+        for (Map.Entry<String, Artefact> artefactWithFilename : artefactsByFilename.entries()) {
+          Double changeProbability = changeProbabilities.get(artefactWithFilename.getKey());
+          artefactWithFilename.getValue().setChangeProbability(changeProbability != null ? changeProbability : 0.0);
         }
+      } catch (CodeChurnCalculationException e) {
+        logFailedAnalysis(project, e);
+        return QualityAnalysis.failed(project,
+            zeroCostsForEachViolation(violationsAnalysisResult),
+            "Error during calculating the code churn for " + artefactsByFilename.size() + " artefacts");
+      } catch (ScmConnectionEncodingException e) {
+        logFailedAnalysis(project, e);
+        return QualityAnalysis.failed(project,
+            zeroCostsForEachViolation(violationsAnalysisResult),
+            "Error with supplied scm connection encoding.");
       }
     }
 
+    log.info("Carried forward change probability of {} unchanged artefacts of project {}", carriedForwardArtefacts, project.getName());
     try {
-      return QualityAnalysis.success(project, calculateCostsForEachViolation(project.getSonarConnectionSettings(), violationsAnalysisResult));
+      return QualityAnalysis.success(project, calculateCostsForEachViolation(violationsAnalysisResult));
     } catch (ResourceNotFoundException e) {
       logFailedAnalysis(project, e);
       return QualityAnalysis.failed(project, zeroCostsForEachViolation(violationsAnalysisResult), "Resource not found during costs calculation.");
     }
   }
 
-  private QualityAnalysis addSecureChangeProbabilityToEachArtifact(Project project, QualityAnalysis qualityAnalysis) {
+  private QualityAnalysis addSecureChangeProbabilityToEachArtifact(Project project, MetricSnapshot metricSnapshot, QualityAnalysis qualityAnalysis) {
     log.info("Starting calculation of secure change probability for each artefact of project {}", project.getName());
     Set<String> computedArtefacts = Sets.newHashSet();
     for (QualityViolation violation : qualityAnalysis.getViolations()) {
@@ -152,7 +190,7 @@ class DefaultQualityAnalyzerService implements QualityAnalyzerService {
 
         try {
           double secureChangeProbability = secureChangeProbabilityCalculator.calculateSecureChangeProbability(project.getProfile(),
-              project.getSonarConnectionSettings(), artefact);
+              metricSnapshot, artefact);
           artefact.setSecureChangeProbability(secureChangeProbability);
           computedArtefacts.add(artefact.getSonarIdentifier());
         } catch (ResourceNotFoundException e) {
@@ -169,11 +207,12 @@ class DefaultQualityAnalyzerService implements QualityAnalyzerService {
     log.error("Quality analysis for project " + project.getName() + " failed!", e);
   }
 
-  private List<QualityViolation> calculateCostsForEachViolation(SonarConnectionSettings sonarConnectionSettings, ViolationsAnalysisResult violationsAnalysisResult) throws ResourceNotFoundException {
+  private List<QualityViolation> calculateCostsForEachViolation(ViolationsAnalysisResult violationsAnalysisResult) throws ResourceNotFoundException {
+    MetricSnapshot metricSnapshot = violationsAnalysisResult.getMetricSnapshot();
     List<QualityViolation> qualityViolations = new ArrayList<QualityViolation>(violationsAnalysisResult.getViolations().size());
     for (ViolationOccurence violation : violationsAnalysisResult.getViolations()) {
-      int remediationCosts = costsCalculator.calculateRemediationCosts(sonarConnectionSettings, violation);
-      int nonRemediationCosts = costsCalculator.calculateNonRemediationCosts(sonarConnectionSettings, violation);
+      int remediationCosts = costsCalculator.calculateRemediationCosts(metricSnapshot, violation);
+      int nonRemediationCosts = costsCalculator.calculateNonRemediationCosts(metricSnapshot, violation);
       qualityViolations.add(new QualityViolation(violation.getArtefact(), violation.getRequirement(),
           remediationCosts, nonRemediationCosts, violation.getWeightingMetricValue(), violation.getRequirement().getWeightingMetricIdentifier()));
     }
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2013 Felix Müller
+ *
+ * This file is part of CodeQ Invest.
+ *
+ * CodeQ Invest is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CodeQ Invest is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CodeQ Invest.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.codeqinvest.quality.analysis;
+
+import com.google.common.base.Optional;
+import org.codeqinvest.quality.Artefact;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * This class holds the results of the previous successful analysis of
+ * a project together with all files that were changed since then. It is
+ * used to carry the change probability of unchanged artefacts forward
+ * into the next analysis instead of calculating it again from the scm system.
+ * <p/>
+ * Change probabilities that are calculated over a window of days change
+ * while the window moves, even if the file was not changed. Therefore
+ * these baselines carry forward only change probabilities of zero.
+ *
+ * @author fmueller
+ */
+class IncrementalAnalysisBaseline {
+
+  private static final IncrementalAnalysisBaseline NONE = new IncrementalAnalysisBaseline(
+      Collections.<Artefact>emptySet(), Collections.<String>emptySet(), false);
+
+  private final Map<String, Double> changeProbabilities = new HashMap<String, Double>();
+  private final Set<String> changedFiles;
+  private final boolean onlyZeroChangeProbabilities;
+
+  private IncrementalAnalysisBaseline(Set<Artefact> previousArtefacts, Set<String> changedFiles, boolean onlyZeroChangeProbabilities) {
+    for (Artefact artefact : previousArtefacts) {
+      changeProbabilities.put(artefact.getSonarIdentifier(), artefact.getChangeProbability());
+    }
+    this.changedFiles = changedFiles;
+    this.onlyZeroChangeProbabilities = onlyZeroChangeProbabilities;
+  }
+
+  /**
+   * Baseline for change probabilities that are calculated over a fixed number
+   * of commits. The changed files have to contain all files that were
+   * changed since the previous analysis.
+   */
+  static IncrementalAnalysisBaseline forCommitWindow(Set<Artefact> previousArtefacts, Set<String> changedFiles) {
+    return new IncrementalAnalysisBaseline(previousArtefacts, changedFiles, false);
+  }
+
+  /**
+   * Baseline for change probabilities that are calculated over a window of
+   * days. The changed files have to contain all files that were changed
+   * since the start of the window of the previous analysis.
+   */
+  static IncrementalAnalysisBaseline forDayWindow(Set<Artefact> previousArtefacts, Set<String> changedFiles) {
+    return new IncrementalAnalysisBaseline(previousArtefacts, changedFiles, true);
+  }
+
+  /**
+   * Baseline for a full analysis, no change probability is carried forward.
+   */
+  static IncrementalAnalysisBaseline none() {
+    return NONE;
+  }
+
+  /**
+   * Returns the change probability of the previous analysis if the artefact
+   * was part of it and its file was not changed since then.
+   */
+  Optional<Double> getChangeProbabilityOfUnchangedArtefact(Artefact artefact) {
+    Double changeProbability = changeProbabilities.get(artefact.getSonarIdentifier());
+    if (changeProbability == null || (onlyZeroChangeProbabilities && changeProbability != 0.0) || isChanged(artefact)) {
+      return Optional.absent();
+    }
+    return Optional.of(changeProbability);
+  }
+
+  private boolean isChanged(Artefact artefact) {
+    String filename = artefact.getFilename();
+    for (String changedFile : changedFiles) {
+      if (changedFile.equals(filename) || changedFile.endsWith("/" + filename)) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
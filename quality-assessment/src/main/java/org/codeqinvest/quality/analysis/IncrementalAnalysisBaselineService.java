@@ -0,0 +1,89 @@
+/*
+ * Copyright 2013 Felix Müller
+ *
+ * This file is part of CodeQ Invest.
+ *
+ * CodeQ Invest is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CodeQ Invest is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CodeQ Invest.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.codeqinvest.quality.analysis;
+
+import lombok.extern.slf4j.Slf4j;
+import org.codeqinvest.codechanges.scm.CodeChurnCalculationException;
+import org.codeqinvest.codechanges.scm.factory.ChangedFilesRetrieverFactory;
+import org.codeqinvest.quality.CodeChangeSettings;
+import org.codeqinvest.quality.Project;
+import org.codeqinvest.quality.SupportedCodeChangeProbabilityMethod;
+import org.joda.time.DateTime;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.Set;
+
+/**
+ * Creates the {@link IncrementalAnalysisBaseline} of a project by retrieving
+ * its last successful analysis and the files that were changed in the scm
+ * system since this analysis was created. If one of both is not available
+ * or the code change settings of the project were changed since then,
+ * the next analysis has to be a full one.
+ * <p/>
+ * For change probabilities that are calculated over a window of days, the
+ * changed files are retrieved since the start of the previous window, so
+ * that files whose commits left the window are calculated again.
+ *
+ * @author fmueller
+ */
+@Slf4j
+@Service
+class IncrementalAnalysisBaselineService {
+
+  private final LastQualityAnalysisService lastQualityAnalysisService;
+  private final ChangedFilesRetrieverFactory changedFilesRetrieverFactory;
+
+  @Autowired
+  IncrementalAnalysisBaselineService(LastQualityAnalysisService lastQualityAnalysisService,
+                                     ChangedFilesRetrieverFactory changedFilesRetrieverFactory) {
+    this.lastQualityAnalysisService = lastQualityAnalysisService;
+    this.changedFilesRetrieverFactory = changedFilesRetrieverFactory;
+  }
+
+  IncrementalAnalysisBaseline createBaseline(Project project) {
+    QualityAnalysis lastAnalysis = lastQualityAnalysisService.retrieveLastSuccessfulAnalysis(project);
+    if (lastAnalysis == null) {
+      log.info("No previous successful analysis found for project {}, starting full analysis", project.getName());
+      return IncrementalAnalysisBaseline.none();
+    }
+
+    CodeChangeSettings codeChangeSettings = project.getCodeChangeSettings();
+    if (lastAnalysis.getCodeChangeSettings() == null || !lastAnalysis.getCodeChangeSettings().equals(codeChangeSettings)) {
+      log.info("Code change settings of project {} differ from last analysis, starting full analysis", project.getName());
+      return IncrementalAnalysisBaseline.none();
+    }
+
+    boolean isCommitWindow = codeChangeSettings.getMethod() == SupportedCodeChangeProbabilityMethod.COMMIT_BASED.getId();
+    DateTime changedSince = isCommitWindow
+        ? lastAnalysis.getCreated()
+        : lastAnalysis.getCreated().toLocalDate().minusDays(codeChangeSettings.getDays()).toDateTimeAtStartOfDay();
+    try {
+      Set<String> changedFiles = changedFilesRetrieverFactory.create(project.getScmSettings())
+          .retrieveChangedFiles(project.getScmSettings(), changedSince);
+      log.info("Found {} changed files for project {} since {}", changedFiles.size(), project.getName(), changedSince);
+      return isCommitWindow
+          ? IncrementalAnalysisBaseline.forCommitWindow(lastAnalysis.getAllArtefacts(), changedFiles)
+          : IncrementalAnalysisBaseline.forDayWindow(lastAnalysis.getAllArtefacts(), changedFiles);
+    } catch (CodeChurnCalculationException e) {
+      log.warn("Could not retrieve changed files of project " + project.getName() + ", starting full analysis", e);
+      return IncrementalAnalysisBaseline.none();
+    }
+  }
+}
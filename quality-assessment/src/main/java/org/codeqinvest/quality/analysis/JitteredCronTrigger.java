@@ -0,0 +1,84 @@
+/*
+ * Copyright 2013 Felix Müller
+ *
+ * This file is part of CodeQ Invest.
+ *
+ * CodeQ Invest is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CodeQ Invest is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CodeQ Invest.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.codeqinvest.quality.analysis;
+
+import com.google.common.hash.Hashing;
+import org.springframework.scheduling.Trigger;
+import org.springframework.scheduling.TriggerContext;
+import org.springframework.scheduling.support.CronSequenceGenerator;
+
+import java.util.Date;
+import java.util.TimeZone;
+
+/**
+ * Cron trigger that delays every execution by a fixed offset. The offset is
+ * derived from the project id, so that projects with the same cron expression
+ * start at different times, but every project starts at the same time after
+ * each restart. The offset is smaller than the given maximum jitter which
+ * should be smaller than the interval of the cron expression.
+ *
+ * @author fmueller
+ */
+class JitteredCronTrigger implements Trigger {
+
+  private final CronSequenceGenerator sequenceGenerator;
+  private final long jitterMillis;
+
+  JitteredCronTrigger(String cronExpression, long projectId, int maxJitterSeconds) {
+    this.sequenceGenerator = new CronSequenceGenerator(cronExpression, TimeZone.getDefault());
+    this.jitterMillis = computeJitterSeconds(projectId, maxJitterSeconds) * 1000L;
+  }
+
+  static int computeJitterSeconds(long projectId, int maxJitterSeconds) {
+    if (maxJitterSeconds <= 0) {
+      return 0;
+    }
+    return (Hashing.murmur3_32().hashLong(projectId).asInt() & Integer.MAX_VALUE) % maxJitterSeconds;
+  }
+
+  /**
+   * Calculates the next execution time like {@link org.springframework.scheduling.support.CronTrigger}
+   * does, but relative to the last execution time without offset.
+   */
+  @Override
+  public Date nextExecutionTime(TriggerContext triggerContext) {
+    Date date = triggerContext.lastCompletionTime();
+    if (date != null) {
+      Date scheduled = triggerContext.lastScheduledExecutionTime();
+      if (scheduled != null && date.before(scheduled)) {
+        date = scheduled;
+      }
+    } else {
+      date = new Date();
+    }
+    return nextExecutionTimeAfter(date);
+  }
+
+  /**
+   * Returns the first execution time with offset after the given date.
+   */
+  Date nextExecutionTimeAfter(Date date) {
+    Date nextExecutionTimeWithoutJitter = sequenceGenerator.next(new Date(date.getTime() - jitterMillis));
+    return new Date(nextExecutionTimeWithoutJitter.getTime() + jitterMillis);
+  }
+
+  long getJitterMillis() {
+    return jitterMillis;
+  }
+}
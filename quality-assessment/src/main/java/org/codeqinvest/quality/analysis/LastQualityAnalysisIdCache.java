@@ -0,0 +1,74 @@
+/*
+ * Copyright 2013 Felix Müller
+ *
+ * This file is part of CodeQ Invest.
+ *
+ * CodeQ Invest is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CodeQ Invest is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CodeQ Invest.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.codeqinvest.quality.analysis;
+
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Keeps the ids of the last analysis and the last successful analysis of
+ * each project in memory, so that they don't have to be queried for every
+ * request of a project page.
+ * <p/>
+ * Ids that are queried from the database are only added if there is no entry
+ * for the project yet, whereas the id of a newly saved analysis always replaces
+ * the entry. Thereby, a query that was started before an analysis was saved
+ * can not overwrite the id of this analysis with the one of its predecessor.
+ *
+ * @author fmueller
+ */
+@Component
+class LastQualityAnalysisIdCache {
+
+  private final ConcurrentMap<Long, Long> lastAnalysisIds = new ConcurrentHashMap<Long, Long>();
+  private final ConcurrentMap<Long, Long> lastSuccessfulAnalysisIds = new ConcurrentHashMap<Long, Long>();
+
+  Long getLastAnalysisId(long projectId) {
+    return lastAnalysisIds.get(projectId);
+  }
+
+  Long getLastSuccessfulAnalysisId(long projectId) {
+    return lastSuccessfulAnalysisIds.get(projectId);
+  }
+
+  void addLastAnalysisId(long projectId, long analysisId) {
+    lastAnalysisIds.putIfAbsent(projectId, analysisId);
+  }
+
+  void addLastSuccessfulAnalysisId(long projectId, long analysisId) {
+    lastSuccessfulAnalysisIds.putIfAbsent(projectId, analysisId);
+  }
+
+  /**
+   * Replaces the cached ids of the project with the id of the saved analysis.
+   */
+  void analysisSaved(long projectId, long analysisId, boolean successful) {
+    lastAnalysisIds.put(projectId, analysisId);
+    if (successful) {
+      lastSuccessfulAnalysisIds.put(projectId, analysisId);
+    }
+  }
+
+  void evict(long projectId) {
+    lastAnalysisIds.remove(projectId);
+    lastSuccessfulAnalysisIds.remove(projectId);
+  }
+}
@@ -19,6 +19,7 @@
 package org.codeqinvest.quality.analysis;
 
 import org.codeqinvest.quality.Project;
+import org.joda.time.DateTime;
 
 /**
  * This interface describes a service that retrieves the
@@ -40,4 +41,22 @@ public interface LastQualityAnalysisService {
    * Returns {@code null} if it can not find one.
    */
   QualityAnalysis retrieveLastAnalysis(Project project);
+
+  /**
+   * Retrieves only the creation time of the last analysis of a project - successful or failed -
+   * without loading the analysis. Returns {@code null} if it can not find one.
+   */
+  DateTime retrieveLastAnalysisCreated(Project project);
+
+  /**
+   * Like {@link #retrieveLastSuccessfulAnalysis(Project)}, but loads a read-only
+   * view of the analysis with all its violations with one query.
+   */
+  QualityAnalysisView retrieveLastSuccessfulAnalysisView(Project project);
+
+  /**
+   * Like {@link #retrieveLastAnalysis(Project)}, but loads a read-only
+   * view of the analysis with all its violations with one query.
+   */
+  QualityAnalysisView retrieveLastAnalysisView(Project project);
 }
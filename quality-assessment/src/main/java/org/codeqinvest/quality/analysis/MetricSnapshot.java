@@ -0,0 +1,168 @@
+/*
+ * Copyright 2013 Felix Müller
+ *
+ * This file is part of CodeQ Invest.
+ *
+ * CodeQ Invest is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CodeQ Invest is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CodeQ Invest.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.codeqinvest.quality.analysis;
+
+import com.google.common.collect.HashBasedTable;
+import com.google.common.collect.Table;
+import org.codeqinvest.sonar.MetricCollectorService;
+import org.codeqinvest.sonar.ProjectMetrics;
+import org.codeqinvest.sonar.ResourceNotFoundException;
+import org.codeqinvest.sonar.SonarConnectionSettings;
+import org.sonar.wsclient.services.Resource;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Holds all metric values that were retrieved from Sonar during
+ * one quality analysis run. Every stage of the analysis reads its
+ * metric values from here, so that each distinct value is fetched
+ * at most once per analysis. The metrics of the quality profile are
+ * collected in bulk for all classes of the project, one page of classes
+ * at a time. Only the current page and the values of the classes that
+ * were explicitly kept stay in memory. Values that are not part of
+ * these pages are fetched lazily and kept, too.
+ *
+ * @author fmueller
+ */
+class MetricSnapshot {
+
+  private final SonarConnectionSettings sonarConnectionSettings;
+  private final MetricCollectorService metricCollectorService;
+
+  private Iterator<ProjectMetrics> pages = Collections.<ProjectMetrics>emptyList().iterator();
+  private ProjectMetrics currentPage = new ProjectMetrics(Collections.<String>emptySet());
+  private ProjectMetrics keptMetrics = new ProjectMetrics(Collections.<String>emptySet());
+  private final Table<String, String, Double> fetchedMetricValues = HashBasedTable.create();
+  private final Table<String, String, ResourceNotFoundException> missingMetricValues = HashBasedTable.create();
+
+  private int bulkReads;
+  private int hits;
+  private int misses;
+
+  MetricSnapshot(SonarConnectionSettings sonarConnectionSettings, MetricCollectorService metricCollectorService) {
+    this.sonarConnectionSettings = sonarConnectionSettings;
+    this.metricCollectorService = metricCollectorService;
+  }
+
+  /**
+   * Creates a snapshot that contains no values and is not able to fetch any.
+   */
+  static MetricSnapshot empty() {
+    return new MetricSnapshot(null, null);
+  }
+
+  /**
+   * Starts to collect the values of the given metrics for all classes of the project.
+   * The classes are loaded page by page with {@link #loadNextPage()}.
+   */
+  synchronized void collectMetricsForProject(Set<String> metricIdentifiers) {
+    pages = metricCollectorService.collectMetricsForProjectPageByPage(sonarConnectionSettings, metricIdentifiers);
+    currentPage = new ProjectMetrics(metricIdentifiers);
+    keptMetrics = new ProjectMetrics(metricIdentifiers);
+  }
+
+  /**
+   * Replaces the current page with the next page of classes. The values of
+   * the previous page are dropped, except for the classes that were kept.
+   *
+   * @return false if all pages were loaded already
+   */
+  synchronized boolean loadNextPage() {
+    if (pages.hasNext()) {
+      currentPage = pages.next();
+      return true;
+    }
+    currentPage = new ProjectMetrics(keptMetrics.getMetricIdentifiers());
+    return false;
+  }
+
+  /**
+   * Returns the classes of the current page.
+   */
+  synchronized List<Resource> getResources() {
+    return currentPage.getResources();
+  }
+
+  /**
+   * Keeps the bulk collected values of the given class of the current page
+   * for the remaining analysis run.
+   */
+  synchronized void keep(String resourceKey) {
+    keptMetrics.addResourceOf(currentPage, resourceKey);
+  }
+
+  synchronized double getMetricValue(String resourceKey, String metricIdentifier) throws ResourceNotFoundException {
+    if (keptMetrics.getMetricIdentifiers().contains(metricIdentifier)) {
+      if (currentPage.containsResource(resourceKey)) {
+        bulkReads++;
+        return currentPage.getMetricValue(resourceKey, metricIdentifier);
+      }
+      if (keptMetrics.containsResource(resourceKey)) {
+        bulkReads++;
+        return keptMetrics.getMetricValue(resourceKey, metricIdentifier);
+      }
+    }
+    if (fetchedMetricValues.contains(resourceKey, metricIdentifier)) {
+      hits++;
+      return fetchedMetricValues.get(resourceKey, metricIdentifier);
+    }
+    if (missingMetricValues.contains(resourceKey, metricIdentifier)) {
+      hits++;
+      throw missingMetricValues.get(resourceKey, metricIdentifier);
+    }
+
+    misses++;
+    if (metricCollectorService == null) {
+      throw new ResourceNotFoundException("No metric values available for resource " + resourceKey);
+    }
+    try {
+      double metricValue = metricCollectorService.collectMetricForResource(sonarConnectionSettings, resourceKey, metricIdentifier);
+      fetchedMetricValues.put(resourceKey, metricIdentifier, metricValue);
+      return metricValue;
+    } catch (ResourceNotFoundException e) {
+      missingMetricValues.put(resourceKey, metricIdentifier, e);
+      throw e;
+    }
+  }
+
+  /**
+   * Returns how many metric values were read from the values that were collected in bulk.
+   */
+  synchronized int getBulkReads() {
+    return bulkReads;
+  }
+
+  /**
+   * Returns how many metric values were read from this snapshot after they
+   * had been fetched from Sonar separately before.
+   */
+  synchronized int getHits() {
+    return hits;
+  }
+
+  /**
+   * Returns how many metric values had to be fetched from Sonar separately.
+   */
+  synchronized int getMisses() {
+    return misses;
+  }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2013 Felix Müller
+ *
+ * This file is part of CodeQ Invest.
+ *
+ * CodeQ Invest is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CodeQ Invest is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CodeQ Invest.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.codeqinvest.quality.analysis;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+import org.codeqinvest.quality.Project;
+import org.joda.time.DateTime;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.JoinColumn;
+import javax.persistence.ManyToOne;
+import javax.persistence.Table;
+import java.io.Serializable;
+
+/**
+ * Sums up the violations of all artefacts of a package and its sub packages
+ * for one successful analysis. The aggregate with an empty package name
+ * covers the whole project. Project and creation time are copied from
+ * the analysis, so that trends of a package can be read with one query.
+ * Aggregates are only inserted by the {@link QualityAnalysisBulkWriter},
+ * so their ids are generated by the database.
+ *
+ * @author fmueller
+ */
+@Getter
+@EqualsAndHashCode(exclude = {"analysis", "project"})
+@ToString(exclude = {"analysis", "project"})
+@Entity
+@Table(name = "PACKAGE_AGGREGATE")
+public class PackageAggregate implements Serializable {
+
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private Long id;
+
+  @ManyToOne(optional = false)
+  @JoinColumn(name = "ANALYSIS_ID", nullable = false, updatable = false)
+  private QualityAnalysis analysis;
+
+  @ManyToOne(optional = false)
+  @JoinColumn(name = "PROJECT_ID", nullable = false, updatable = false)
+  private Project project;
+
+  @Column(nullable = false)
+  private DateTime created;
+
+  @Column(nullable = false)
+  private String packageName;
+
+  @Column(nullable = false)
+  private long remediationCosts;
+
+  @Column(nullable = false)
+  private long nonRemediationCosts;
+
+  @Column(nullable = false)
+  private double weightedProfit;
+
+  @Column(nullable = false)
+  private double meanChangeProbability;
+
+  @Column(nullable = false)
+  private int violationCount;
+
+  protected PackageAggregate() {
+  }
+
+  public PackageAggregate(QualityAnalysis analysis, String packageName, long remediationCosts, long nonRemediationCosts,
+                          double weightedProfit, double meanChangeProbability, int violationCount) {
+    this.analysis = analysis;
+    this.project = analysis.getProject();
+    this.created = analysis.getCreated();
+    this.packageName = packageName;
+    this.remediationCosts = remediationCosts;
+    this.nonRemediationCosts = nonRemediationCosts;
+    this.weightedProfit = weightedProfit;
+    this.meanChangeProbability = meanChangeProbability;
+    this.violationCount = violationCount;
+  }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2013 Felix Müller
+ *
+ * This file is part of CodeQ Invest.
+ *
+ * CodeQ Invest is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CodeQ Invest is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CodeQ Invest.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.codeqinvest.quality.analysis;
+
+import com.google.common.base.Splitter;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import org.codeqinvest.quality.Artefact;
+import org.codeqinvest.quality.QualityViolation;
+import org.codeqinvest.quality.QualityViolationView;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Sums up the violations of an analysis for every package, whereby the
+ * violations of an artefact are added to all enclosing packages and to the
+ * project aggregate with the empty package name.
+ * <p/>
+ * The weighted profit of a package is calculated like the profit of the
+ * investment opportunities tree: every artefact adds the weighted profit of
+ * its first violation if it is positive.
+ *
+ * @author fmueller
+ */
+@Component
+class PackageAggregateCalculator {
+
+  private static final Splitter PACKAGE_SPLITTER = Splitter.on('.');
+
+  private final ViolationProfitCalculator profitCalculator;
+
+  @Autowired
+  PackageAggregateCalculator(ViolationProfitCalculator profitCalculator) {
+    this.profitCalculator = profitCalculator;
+  }
+
+  List<PackageAggregate> calculatePackageAggregates(QualityAnalysis analysis, List<QualityViolation> violations) {
+    Map<String, Sums> sumsByPackage = Maps.newTreeMap();
+    Set<String> addedArtefacts = Sets.newHashSet();
+    for (QualityViolation violation : violations) {
+      Artefact artefact = violation.getArtefact();
+      boolean isFirstViolationOfArtefact = addedArtefacts.add(artefact.getName());
+      double weightedProfit = isFirstViolationOfArtefact ? profitCalculator.calculateWeightedProfit(QualityViolationView.of(violation)) : 0.0;
+
+      for (String packageName : getAllPackageNames(artefact)) {
+        Sums sums = sumsByPackage.get(packageName);
+        if (sums == null) {
+          sums = new Sums();
+          sumsByPackage.put(packageName, sums);
+        }
+        sums.add(violation, isFirstViolationOfArtefact, weightedProfit);
+      }
+    }
+
+    List<PackageAggregate> aggregates = new ArrayList<PackageAggregate>(sumsByPackage.size());
+    for (Map.Entry<String, Sums> packageSums : sumsByPackage.entrySet()) {
+      Sums sums = packageSums.getValue();
+      aggregates.add(new PackageAggregate(analysis, packageSums.getKey(), sums.remediationCosts, sums.nonRemediationCosts,
+          sums.weightedProfit, sums.sumOfChangeProbabilities / sums.numberOfArtefacts, sums.numberOfViolations));
+    }
+    return aggregates;
+  }
+
+  /**
+   * @return the empty project package name and the names of all packages that enclose the artefact
+   */
+  private List<String> getAllPackageNames(Artefact artefact) {
+    List<String> segments = Lists.newArrayList(PACKAGE_SPLITTER.split(artefact.getName()));
+    List<String> packageNames = new ArrayList<String>(segments.size());
+    StringBuilder packagePath = new StringBuilder();
+    packageNames.add("");
+    for (int i = 0; i < segments.size() - 1; i++) {
+      if (packagePath.length() > 0) {
+        packagePath.append('.');
+      }
+      packagePath.append(segments.get(i));
+      packageNames.add(packagePath.toString());
+    }
+    return packageNames;
+  }
+
+  private static double getChangeProbability(Artefact artefact) {
+    return artefact.hasManualEstimate() ? artefact.getManualEstimate() / 100.0 : artefact.getChangeProbability();
+  }
+
+  private static final class Sums {
+
+    private long remediationCosts;
+    private long nonRemediationCosts;
+    private double weightedProfit;
+    private double sumOfChangeProbabilities;
+    private int numberOfArtefacts;
+    private int numberOfViolations;
+
+    void add(QualityViolation violation, boolean isFirstViolationOfArtefact, double weightedProfitOfArtefact) {
+      remediationCosts += violation.getRemediationCosts();
+      nonRemediationCosts += violation.getNonRemediationCosts();
+      numberOfViolations++;
+      if (isFirstViolationOfArtefact) {
+        if (weightedProfitOfArtefact > 0.0) {
+          weightedProfit += weightedProfitOfArtefact;
+        }
+        sumOfChangeProbabilities += getChangeProbability(violation.getArtefact());
+        numberOfArtefacts++;
+      }
+    }
+  }
+}
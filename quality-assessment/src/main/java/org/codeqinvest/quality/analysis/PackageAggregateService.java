@@ -0,0 +1,52 @@
+/*
+ * Copyright 2013 Felix Müller
+ *
+ * This file is part of CodeQ Invest.
+ *
+ * CodeQ Invest is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CodeQ Invest is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CodeQ Invest.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.codeqinvest.quality.analysis;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Updates the {@link PackageAggregate}s of successful analyses. They are
+ * written together with the analysis by the {@link QualityAnalysisBulkWriter}
+ * and have to be updated whenever the manual estimates of its artefacts change.
+ *
+ * @author fmueller
+ */
+@Service
+public class PackageAggregateService {
+
+  private final PackageAggregateRepository packageAggregateRepository;
+  private final QualityAnalysisBulkWriter qualityAnalysisBulkWriter;
+
+  @Autowired
+  PackageAggregateService(PackageAggregateRepository packageAggregateRepository, QualityAnalysisBulkWriter qualityAnalysisBulkWriter) {
+    this.packageAggregateRepository = packageAggregateRepository;
+    this.qualityAnalysisBulkWriter = qualityAnalysisBulkWriter;
+  }
+
+  /**
+   * Replaces the package aggregates of the analysis with aggregates of its current violations.
+   */
+  @Transactional
+  public void updatePackageAggregates(QualityAnalysis analysis) {
+    packageAggregateRepository.deleteByAnalysis(analysis);
+    qualityAnalysisBulkWriter.writePackageAggregates(analysis, analysis.getViolations());
+  }
+}
@@ -23,12 +23,14 @@ import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.ToString;
 import org.codeqinvest.quality.Artefact;
+import org.codeqinvest.quality.CodeChangeSettings;
 import org.codeqinvest.quality.Project;
 import org.codeqinvest.quality.QualityViolation;
 import org.joda.time.DateTime;
 
 import javax.persistence.CascadeType;
 import javax.persistence.Column;
+import javax.persistence.Embedded;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.Id;
@@ -37,6 +39,7 @@ import javax.persistence.ManyToOne;
 import javax.persistence.OneToMany;
 import javax.persistence.Table;
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
 
@@ -71,6 +74,13 @@ public class QualityAnalysis implements Serializable {
 
   private String failureReason;
 
+  /**
+   * The settings the change probabilities of this analysis were calculated with.
+   * They are {@code null} for analyses that were created before they were stored.
+   */
+  @Embedded
+  private CodeChangeSettings codeChangeSettings;
+
   protected QualityAnalysis() {
   }
 
@@ -79,6 +89,9 @@ public class QualityAnalysis implements Serializable {
     this.violations = violations;
     this.successful = successful;
     this.failureReason = failureReason;
+    if (project != null && project.getCodeChangeSettings() != null) {
+      codeChangeSettings = CodeChangeSettings.copyOf(project.getCodeChangeSettings());
+    }
     created = DateTime.now();
   }
 
@@ -90,6 +103,17 @@ public class QualityAnalysis implements Serializable {
     return new QualityAnalysis(project, violations, false, failureReason);
   }
 
+  /**
+   * Creates a copy of this analysis without violations, so that it can be
+   * persisted without cascading to the violations.
+   */
+  QualityAnalysis withoutViolations() {
+    QualityAnalysis analysis = new QualityAnalysis(project, new ArrayList<QualityViolation>(), successful, failureReason);
+    analysis.created = created;
+    analysis.codeChangeSettings = codeChangeSettings;
+    return analysis;
+  }
+
   public Set<Artefact> getAllArtefacts() {
     Set<Artefact> artefacts = Sets.newHashSet();
     for (QualityViolation violation : violations) {
@@ -0,0 +1,249 @@
+/*
+ * Copyright 2013 Felix Müller
+ *
+ * This file is part of CodeQ Invest.
+ *
+ * CodeQ Invest is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CodeQ Invest is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CodeQ Invest.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.codeqinvest.quality.analysis;
+
+import lombok.extern.slf4j.Slf4j;
+import org.codeqinvest.quality.Artefact;
+import org.codeqinvest.quality.QualityViolation;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.sql.DataSource;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Persists quality analyses with JDBC batch inserts instead of cascading
+ * the persist operation from the analysis to every single violation and
+ * artefact. The ids of the violations and artefacts of an analysis are
+ * allocated as one block from the {@code ID_POOL} table, which is used
+ * by the id generators of these entities as well. The pool is the only
+ * source of these ids: the id columns have no default, so every insert
+ * into these tables has to allocate its ids from the pool first.
+ * <p/>
+ * Successful analyses are written together with their package aggregates,
+ * which are batch inserted as well and get their ids from the database.
+ * After the commit, the saved analysis replaces the cached last analysis
+ * of its project.
+ *
+ * @author fmueller
+ */
+@Slf4j
+@Component
+public class QualityAnalysisBulkWriter {
+
+  static final int BATCH_SIZE = 500;
+
+  private static final String INSERT_ARTEFACT = "INSERT INTO ARTEFACT "
+      + "(ID, NAME, SONARIDENTIFIER, CHANGEPROBABILITY, SECURECHANGEPROBABILITY, MANUALESTIMATE) "
+      + "VALUES (?, ?, ?, ?, ?, ?)";
+
+  private static final String INSERT_VIOLATION = "INSERT INTO QUALITY_VIOLATION "
+      + "(ID, ANALYSIS_ID, REQUIREMENT_ID, ARTEFACT_ID, REMEDIATIONCOSTS, NONREMEDIATIONCOSTS, WEIGHTINGMETRICVALUE, WEIGHTINGMETRICIDENTIFIER) "
+      + "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+  private static final String INSERT_PACKAGE_AGGREGATE = "INSERT INTO PACKAGE_AGGREGATE "
+      + "(ANALYSIS_ID, PROJECT_ID, CREATED, PACKAGENAME, REMEDIATIONCOSTS, NONREMEDIATIONCOSTS, WEIGHTEDPROFIT, MEANCHANGEPROBABILITY, VIOLATIONCOUNT) "
+      + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  private final JdbcTemplate jdbcTemplate;
+  private final TransactionTemplate allocationTransaction;
+  private final LastQualityAnalysisIdCache lastAnalysisIdCache;
+  private final PackageAggregateCalculator packageAggregateCalculator;
+
+  @Autowired
+  QualityAnalysisBulkWriter(DataSource dataSource, PlatformTransactionManager transactionManager, LastQualityAnalysisIdCache lastAnalysisIdCache,
+                            PackageAggregateCalculator packageAggregateCalculator) {
+    this.jdbcTemplate = new JdbcTemplate(dataSource);
+    // ids are allocated in their own short transaction to not block other writers until the analysis is committed
+    this.allocationTransaction = new TransactionTemplate(transactionManager);
+    this.allocationTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    this.lastAnalysisIdCache = lastAnalysisIdCache;
+    this.packageAggregateCalculator = packageAggregateCalculator;
+  }
+
+  /**
+   * Persists the analysis with all its violations and their artefacts
+   * and, if the analysis was successful, its package aggregates.
+   *
+   * @return the persisted analysis loaded from the database, its violations are loaded lazily
+   */
+  @Transactional
+  public QualityAnalysis write(QualityAnalysis analysis) {
+    QualityAnalysis persistedAnalysis = analysis.withoutViolations();
+    entityManager.persist(persistedAnalysis);
+    entityManager.flush();
+    final long analysisId = persistedAnalysis.getId();
+
+    final Map<Artefact, Long> artefactIds = insertArtefacts(analysis.getViolations());
+    final Map<QualityViolation, Long> violationIds = allocateViolationIds(analysis.getViolations());
+    jdbcTemplate.batchUpdate(INSERT_VIOLATION, violationIds.keySet(), BATCH_SIZE, new ParameterizedPreparedStatementSetter<QualityViolation>() {
+
+      @Override
+      public void setValues(PreparedStatement ps, QualityViolation violation) throws SQLException {
+        ps.setLong(1, violationIds.get(violation));
+        ps.setLong(2, analysisId);
+        ps.setLong(3, violation.getRequirement().getId());
+        ps.setLong(4, artefactIds.get(violation.getArtefact()));
+        ps.setInt(5, violation.getRemediationCosts());
+        ps.setInt(6, violation.getNonRemediationCosts());
+        ps.setDouble(7, violation.getWeightingMetricValue());
+        ps.setString(8, violation.getWeightingMetricIdentifier());
+      }
+    });
+    log.info("Wrote quality analysis {} with {} violations and {} artefacts", analysisId, violationIds.size(), artefactIds.size());
+    if (analysis.isSuccessful()) {
+      writePackageAggregates(persistedAnalysis, analysis.getViolations());
+    }
+    updateLastAnalysisAfterCommit(analysis.getProject().getId(), analysisId, analysis.isSuccessful());
+
+    entityManager.detach(persistedAnalysis);
+    return entityManager.find(QualityAnalysis.class, analysisId);
+  }
+
+  /**
+   * Inserts the package aggregates of the violations of the persisted analysis.
+   * Has to be called within the transaction that writes the analysis.
+   */
+  void writePackageAggregates(QualityAnalysis analysis, List<QualityViolation> violations) {
+    List<PackageAggregate> aggregates = packageAggregateCalculator.calculatePackageAggregates(analysis, violations);
+    final long analysisId = analysis.getId();
+    final long projectId = analysis.getProject().getId();
+    jdbcTemplate.batchUpdate(INSERT_PACKAGE_AGGREGATE, aggregates, BATCH_SIZE, new ParameterizedPreparedStatementSetter<PackageAggregate>() {
+
+      @Override
+      public void setValues(PreparedStatement ps, PackageAggregate aggregate) throws SQLException {
+        ps.setLong(1, analysisId);
+        ps.setLong(2, projectId);
+        ps.setTimestamp(3, new Timestamp(aggregate.getCreated().getMillis()));
+        ps.setString(4, aggregate.getPackageName());
+        ps.setLong(5, aggregate.getRemediationCosts());
+        ps.setLong(6, aggregate.getNonRemediationCosts());
+        ps.setDouble(7, aggregate.getWeightedProfit());
+        ps.setDouble(8, aggregate.getMeanChangeProbability());
+        ps.setInt(9, aggregate.getViolationCount());
+      }
+    });
+    log.info("Wrote {} package aggregates for quality analysis {}", aggregates.size(), analysisId);
+  }
+
+  /**
+   * Other transactions would not see the analysis before the commit, so they
+   * could cache the id of the previous analysis again if it was replaced earlier.
+   */
+  private void updateLastAnalysisAfterCommit(final long projectId, final long analysisId, final boolean successful) {
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+
+      @Override
+      public void afterCommit() {
+        lastAnalysisIdCache.analysisSaved(projectId, analysisId, successful);
+      }
+    });
+  }
+
+  /**
+   * Inserts all artefacts of the violations that are not persisted yet.
+   *
+   * @return the ids of all artefacts of the violations
+   */
+  private Map<Artefact, Long> insertArtefacts(List<QualityViolation> violations) {
+    final Map<Artefact, Long> artefactIds = new IdentityHashMap<Artefact, Long>();
+    List<Artefact> newArtefacts = new ArrayList<Artefact>();
+    for (QualityViolation violation : violations) {
+      Artefact artefact = violation.getArtefact();
+      if (!artefactIds.containsKey(artefact)) {
+        artefactIds.put(artefact, artefact.getId());
+        if (artefact.getId() == null) {
+          newArtefacts.add(artefact);
+        }
+      }
+    }
+
+    long nextId = allocateIds("ARTEFACT", newArtefacts.size());
+    for (Artefact artefact : newArtefacts) {
+      artefactIds.put(artefact, nextId++);
+    }
+    jdbcTemplate.batchUpdate(INSERT_ARTEFACT, newArtefacts, BATCH_SIZE, new ParameterizedPreparedStatementSetter<Artefact>() {
+
+      @Override
+      public void setValues(PreparedStatement ps, Artefact artefact) throws SQLException {
+        ps.setLong(1, artefactIds.get(artefact));
+        ps.setString(2, artefact.getName());
+        ps.setString(3, artefact.getSonarIdentifier());
+        ps.setDouble(4, artefact.getChangeProbability());
+        ps.setDouble(5, artefact.getSecureChangeProbability());
+        if (artefact.hasManualEstimate()) {
+          ps.setInt(6, artefact.getManualEstimate());
+        } else {
+          ps.setNull(6, Types.INTEGER);
+        }
+      }
+    });
+    return artefactIds;
+  }
+
+  private Map<QualityViolation, Long> allocateViolationIds(List<QualityViolation> violations) {
+    Map<QualityViolation, Long> violationIds = new IdentityHashMap<QualityViolation, Long>();
+    long nextId = allocateIds("QUALITY_VIOLATION", violations.size());
+    for (QualityViolation violation : violations) {
+      violationIds.put(violation, nextId++);
+    }
+    return violationIds;
+  }
+
+  /**
+   * Reserves the given number of ids in the pool.
+   *
+   * @return the first of the reserved ids
+   */
+  private long allocateIds(final String name, final int numberOfIds) {
+    if (numberOfIds == 0) {
+      return 0L;
+    }
+    return allocationTransaction.execute(new TransactionCallback<Long>() {
+
+      @Override
+      public Long doInTransaction(TransactionStatus status) {
+        jdbcTemplate.update("UPDATE ID_POOL SET NEXT_ID = NEXT_ID + ? WHERE NAME = ?", numberOfIds, name);
+        return jdbcTemplate.queryForObject("SELECT NEXT_ID FROM ID_POOL WHERE NAME = ?", Long.class, name) - numberOfIds;
+      }
+    });
+  }
+}
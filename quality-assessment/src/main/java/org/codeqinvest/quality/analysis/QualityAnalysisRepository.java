@@ -19,6 +19,8 @@
 package org.codeqinvest.quality.analysis;
 
 import org.codeqinvest.quality.Project;
+import org.joda.time.DateTime;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 
@@ -33,6 +35,27 @@ public interface QualityAnalysisRepository extends JpaRepository<QualityAnalysis
 
   List<QualityAnalysis> findByProjectAndSuccessfulOrderByCreatedDesc(Project project, boolean successful);
 
+  @Query("select q.id from QualityAnalysis q where q.project = ?1 order by q.created desc")
+  List<Long> findIdsByProjectOrderByCreatedDesc(Project project, Pageable pageable);
+
+  @Query("select q.id from QualityAnalysis q where q.project = ?1 and q.successful = ?2 order by q.created desc")
+  List<Long> findIdsByProjectAndSuccessfulOrderByCreatedDesc(Project project, boolean successful, Pageable pageable);
+
+  @Query("select q.created from QualityAnalysis q where q.project = ?1 order by q.created desc")
+  List<DateTime> findCreatedByProjectOrderByCreatedDesc(Project project, Pageable pageable);
+
   @Query("select q from QualityAnalysis q left join fetch q.violations where q.id = ?1")
   QualityAnalysis findOneByIdWithViolations(Long id);
+
+  /**
+   * Selects the analysis with all its violations, their requirements and artefacts
+   * with one statement. Each row contains the attributes of one violation.
+   */
+  @Query("select new org.codeqinvest.quality.analysis.QualityViolationViewRow(q.id, p.name, q.created, q.successful, q.failureReason, "
+      + "r.id, r.criteria.metricIdentifier, r.criteria.criteria.operator, r.criteria.criteria.threshold, r.automaticallyFixable, "
+      + "a.id, a.name, a.changeProbability, a.secureChangeProbability, a.manualEstimate, "
+      + "v.remediationCosts, v.nonRemediationCosts, v.weightingMetricValue) "
+      + "from QualityAnalysis q join q.project p left join q.violations v left join v.requirement r left join v.artefact a "
+      + "where q.id = ?1 order by v.id")
+  List<QualityViolationViewRow> findViewRowsById(Long id);
 }
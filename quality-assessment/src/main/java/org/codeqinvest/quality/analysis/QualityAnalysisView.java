@@ -0,0 +1,85 @@
+/*
+ * Copyright 2013 Felix Müller
+ *
+ * This file is part of CodeQ Invest.
+ *
+ * CodeQ Invest is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CodeQ Invest is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CodeQ Invest.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.codeqinvest.quality.analysis;
+
+import com.google.common.collect.Sets;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+import org.codeqinvest.quality.ArtefactView;
+import org.codeqinvest.quality.QualityViolation;
+import org.codeqinvest.quality.QualityViolationView;
+import org.joda.time.DateTime;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Read-only copy of a {@link QualityAnalysis} with all its violations, their
+ * requirements and artefacts. It is loaded with one query by the
+ * {@link LastQualityAnalysisService} and used by the dashboards and the
+ * investment planning, which only read the analysis.
+ *
+ * @author fmueller
+ */
+@Getter
+@EqualsAndHashCode
+@ToString
+public class QualityAnalysisView {
+
+  private final Long id;
+  private final String projectName;
+  private final DateTime created;
+  private final boolean successful;
+  private final String failureReason;
+  private final List<QualityViolationView> violations;
+
+  public QualityAnalysisView(Long id, String projectName, DateTime created, boolean successful, String failureReason,
+                             List<QualityViolationView> violations) {
+    this.id = id;
+    this.projectName = projectName;
+    this.created = created;
+    this.successful = successful;
+    this.failureReason = failureReason;
+    this.violations = Collections.unmodifiableList(new ArrayList<QualityViolationView>(violations));
+  }
+
+  public static QualityAnalysisView of(QualityAnalysis analysis) {
+    List<QualityViolationView> violations = new ArrayList<QualityViolationView>();
+    for (QualityViolation violation : analysis.getViolations()) {
+      violations.add(QualityViolationView.of(violation));
+    }
+    return new QualityAnalysisView(analysis.getId(),
+        analysis.getProject() != null ? analysis.getProject().getName() : null,
+        analysis.getCreated(),
+        analysis.isSuccessful(),
+        analysis.getFailureReason(),
+        violations);
+  }
+
+  public Set<ArtefactView> getAllArtefacts() {
+    Set<ArtefactView> artefacts = Sets.newHashSet();
+    for (QualityViolationView violation : violations) {
+      artefacts.add(violation.getArtefact());
+    }
+    return artefacts;
+  }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2013 Felix Müller
+ *
+ * This file is part of CodeQ Invest.
+ *
+ * CodeQ Invest is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CodeQ Invest is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CodeQ Invest.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.codeqinvest.quality.analysis;
+
+import com.google.common.collect.Maps;
+import org.codeqinvest.quality.ArtefactView;
+import org.codeqinvest.quality.QualityRequirementView;
+import org.codeqinvest.quality.QualityViolationView;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Converts the rows of {@link QualityAnalysisRepository#findViewRowsById(Long)}
+ * into a {@link QualityAnalysisView}. Requirements and artefacts that occur in
+ * many rows are converted only once.
+ *
+ * @author fmueller
+ */
+final class QualityAnalysisViewRows {
+
+  private QualityAnalysisViewRows() {
+  }
+
+  /**
+   * @return the analysis or {@code null} if there are no rows
+   */
+  static QualityAnalysisView toView(List<QualityViolationViewRow> rows) {
+    if (rows.isEmpty()) {
+      return null;
+    }
+
+    Map<Long, QualityRequirementView> requirements = Maps.newHashMap();
+    Map<Long, ArtefactView> artefacts = Maps.newHashMap();
+    List<QualityViolationView> violations = new ArrayList<QualityViolationView>(rows.size());
+    for (QualityViolationViewRow row : rows) {
+      // the analysis has no violations if the left joined columns are null
+      if (!row.hasViolation()) {
+        continue;
+      }
+
+      QualityRequirementView requirement = requirements.get(row.getRequirementId());
+      if (requirement == null) {
+        requirement = new QualityRequirementView(row.getRequirementId(), row.getMetricIdentifier(), row.getOperator(),
+            row.getThreshold(), row.getAutomaticallyFixable());
+        requirements.put(row.getRequirementId(), requirement);
+      }
+
+      ArtefactView artefact = artefacts.get(row.getArtefactId());
+      if (artefact == null) {
+        artefact = new ArtefactView(row.getArtefactId(), row.getArtefactName(), row.getChangeProbability(),
+            row.getSecureChangeProbability(), row.getManualEstimate());
+        artefacts.put(row.getArtefactId(), artefact);
+      }
+
+      violations.add(new QualityViolationView(requirement, artefact, row.getRemediationCosts(), row.getNonRemediationCosts(),
+          row.getWeightingMetricValue()));
+    }
+
+    QualityViolationViewRow firstRow = rows.get(0);
+    return new QualityAnalysisView(firstRow.getAnalysisId(), firstRow.getProjectName(), firstRow.getCreated(),
+        firstRow.getSuccessful(), firstRow.getFailureReason(), violations);
+  }
+}
@@ -0,0 +1,342 @@
+/*
+ * Copyright 2013 Felix Müller
+ *
+ * This file is part of CodeQ Invest.
+ *
+ * CodeQ Invest is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CodeQ Invest is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CodeQ Invest.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.codeqinvest.quality.analysis;
+
+import lombok.extern.slf4j.Slf4j;
+import org.joda.time.DateTimeUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Executes all analyzer runs with a bounded thread pool. The size of the pool,
+ * the capacity of its queue and the policy for analyses that do not fit into
+ * the queue can be configured in the external properties file with the keys
+ * {@code analyzer.poolSize}, {@code analyzer.queueCapacity} and
+ * {@code analyzer.rejectionPolicy}. The state of the pool is exposed via JMX.
+ * <p/>
+ * There is at most one queued and one running analysis per project. A run that
+ * is requested while the project waits for its analysis is attached to the
+ * waiting one. A run that is requested while the project is analyzed is
+ * executed once after the current analysis is finished. The jobs of runs that
+ * are replaced by another run or rejected by the pool are discarded.
+ *
+ * @author fmueller
+ */
+@Slf4j
+@Component
+@ManagedResource(objectName = "org.codeqinvest:type=QualityAnalyzerPool", description = "Thread pool of the quality analyzer runs")
+public class QualityAnalyzerPool {
+
+  /**
+   * Determines what happens with an analysis if all threads are busy and the queue is full.
+   */
+  public enum RejectionPolicy {
+
+    /**
+     * The new analysis is not executed.
+     */
+    ABORT,
+
+    /**
+     * The oldest queued analysis is not executed in favour of the new one.
+     */
+    DISCARD_OLDEST
+  }
+
+  private final ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+  private final int queueCapacity;
+
+  private final Map<Long, TrackedAnalysis> analysesByProject = new HashMap<Long, TrackedAnalysis>();
+  private final Set<TrackedAnalysis> runningAnalyses = Collections.newSetFromMap(new ConcurrentHashMap<TrackedAnalysis, Boolean>());
+  private final AtomicLong completedAnalyses = new AtomicLong();
+  private final AtomicLong failedAnalyses = new AtomicLong();
+  private final AtomicLong rejectedAnalyses = new AtomicLong();
+  private final AtomicLong coalescedAnalyses = new AtomicLong();
+
+  @Autowired
+  QualityAnalyzerPool(@Value("${analyzer.poolSize:10}") int poolSize,
+                      @Value("${analyzer.queueCapacity:100}") int queueCapacity,
+                      @Value("${analyzer.rejectionPolicy:ABORT}") final RejectionPolicy rejectionPolicy) {
+    this.queueCapacity = queueCapacity;
+    executor.setCorePoolSize(poolSize);
+    executor.setMaxPoolSize(poolSize);
+    executor.setQueueCapacity(queueCapacity);
+    executor.setThreadNamePrefix("quality-analyzer-");
+    executor.setRejectedExecutionHandler(new RejectedExecutionHandler() {
+      @Override
+      public void rejectedExecution(Runnable analysis, ThreadPoolExecutor threadPoolExecutor) {
+        reject(analysis, threadPoolExecutor, rejectionPolicy);
+      }
+    });
+    executor.initialize();
+    log.info("Quality analyzer pool with {} threads, queue capacity {} and rejection policy {}", poolSize, queueCapacity, rejectionPolicy);
+  }
+
+  /**
+   * Executes the analyzer run with the next free thread of the pool. The run
+   * is coalesced with the runs of the same project that wait or are running.
+   */
+  void execute(AnalyzerRunnable analyzerRunnable) {
+    TrackedAnalysis analysis;
+    AnalyzerRunnable replacedRunnable;
+    synchronized (analysesByProject) {
+      TrackedAnalysis existingAnalysis = analysesByProject.get(analyzerRunnable.getProjectId());
+      if (existingAnalysis != null) {
+        replacedRunnable = existingAnalysis.coalesce(analyzerRunnable);
+        coalescedAnalyses.incrementAndGet();
+        analysis = null;
+      } else {
+        replacedRunnable = null;
+        analysis = new TrackedAnalysis(analyzerRunnable);
+        analysesByProject.put(analyzerRunnable.getProjectId(), analysis);
+      }
+    }
+    if (replacedRunnable != null) {
+      replacedRunnable.discard();
+    }
+    if (analysis != null) {
+      submit(analysis);
+    }
+  }
+
+  private void submit(TrackedAnalysis analysis) {
+    try {
+      executor.execute(analysis);
+    } catch (TaskRejectedException e) {
+      forget(analysis);
+      if (executor.getThreadPoolExecutor().isShutdown()) {
+        // the job stays queued and is resumed after the next startup
+        log.info("Analyzer run for project {} was not executed because the analyzer pool is shut down", analysis.projectName);
+      } else {
+        analysis.discard();
+        log.error("Analyzer run for project {} was rejected because the analyzer pool is exhausted!", analysis.projectName);
+      }
+    }
+  }
+
+  @ManagedAttribute(description = "Number of threads of the pool")
+  public int getPoolSize() {
+    return executor.getMaxPoolSize();
+  }
+
+  @ManagedAttribute(description = "Maximum number of queued analyses")
+  public int getQueueCapacity() {
+    return queueCapacity;
+  }
+
+  @ManagedAttribute(description = "Number of currently running analyses")
+  public int getActiveAnalyses() {
+    return runningAnalyses.size();
+  }
+
+  @ManagedAttribute(description = "Number of analyses that wait for a free thread")
+  public int getQueuedAnalyses() {
+    return executor.getThreadPoolExecutor().getQueue().size();
+  }
+
+  @ManagedAttribute(description = "Name of the project whose analysis is running the longest time")
+  public String getLongestRunningProject() {
+    TrackedAnalysis longestRunningAnalysis = findLongestRunningAnalysis();
+    return longestRunningAnalysis != null ? longestRunningAnalysis.projectName : null;
+  }
+
+  @ManagedAttribute(description = "Duration of the longest running analysis in milliseconds")
+  public long getLongestRunningAnalysisMillis() {
+    TrackedAnalysis longestRunningAnalysis = findLongestRunningAnalysis();
+    return longestRunningAnalysis != null ? DateTimeUtils.currentTimeMillis() - longestRunningAnalysis.startMillis : 0L;
+  }
+
+  @ManagedAttribute(description = "Number of successfully completed analyses")
+  public long getCompletedAnalyses() {
+    return completedAnalyses.get();
+  }
+
+  @ManagedAttribute(description = "Number of failed analyses")
+  public long getFailedAnalyses() {
+    return failedAnalyses.get();
+  }
+
+  @ManagedAttribute(description = "Number of analyses that were not executed because the pool was exhausted")
+  public long getRejectedAnalyses() {
+    return rejectedAnalyses.get();
+  }
+
+  @ManagedAttribute(description = "Number of requested analyses that were attached to an analysis of the same project")
+  public long getCoalescedAnalyses() {
+    return coalescedAnalyses.get();
+  }
+
+  @PreDestroy
+  void shutdown() {
+    executor.shutdown();
+  }
+
+  private void reject(Runnable analysis, ThreadPoolExecutor threadPoolExecutor, RejectionPolicy rejectionPolicy) {
+    rejectedAnalyses.incrementAndGet();
+    if (rejectionPolicy == RejectionPolicy.DISCARD_OLDEST && !threadPoolExecutor.isShutdown()) {
+      Runnable discardedAnalysis = threadPoolExecutor.getQueue().poll();
+      if (discardedAnalysis instanceof TrackedAnalysis) {
+        forget((TrackedAnalysis) discardedAnalysis);
+        ((TrackedAnalysis) discardedAnalysis).discard();
+        log.error("Analyzer run for project {} was discarded because the analyzer pool is exhausted!", ((TrackedAnalysis) discardedAnalysis).projectName);
+      }
+      threadPoolExecutor.execute(analysis);
+    } else {
+      throw new RejectedExecutionException("Analyzer pool is exhausted");
+    }
+  }
+
+  private void forget(TrackedAnalysis analysis) {
+    synchronized (analysesByProject) {
+      if (analysesByProject.get(analysis.projectId) == analysis) {
+        analysesByProject.remove(analysis.projectId);
+      }
+    }
+  }
+
+  private TrackedAnalysis findLongestRunningAnalysis() {
+    TrackedAnalysis longestRunningAnalysis = null;
+    for (TrackedAnalysis runningAnalysis : runningAnalyses) {
+      if (longestRunningAnalysis == null || runningAnalysis.startMillis < longestRunningAnalysis.startMillis) {
+        longestRunningAnalysis = runningAnalysis;
+      }
+    }
+    return longestRunningAnalysis;
+  }
+
+  /**
+   * Wraps one execution of an analyzer run, because the same runnable
+   * is executed several times by scheduled analyses. All fields except
+   * the start time are guarded by the lock of {@link #analysesByProject}.
+   */
+  private class TrackedAnalysis implements Runnable {
+
+    private final long projectId;
+    private final String projectName;
+    private AnalyzerRunnable analyzerRunnable;
+    private AnalyzerRunnable followUpRunnable;
+    private boolean started;
+    private volatile long startMillis;
+
+    TrackedAnalysis(AnalyzerRunnable analyzerRunnable) {
+      this.projectId = analyzerRunnable.getProjectId();
+      this.projectName = analyzerRunnable.getProjectName();
+      this.analyzerRunnable = analyzerRunnable;
+    }
+
+    /**
+     * Attaches the requested run to this analysis if it did not start yet, otherwise it
+     * becomes the follow-up run. A full analysis replaces an incremental one, because
+     * it covers everything the incremental analysis would do.
+     *
+     * @return the run that will not be executed or {@code null} if its job is executed anyway
+     */
+    AnalyzerRunnable coalesce(AnalyzerRunnable requestedRunnable) {
+      if (!started) {
+        log.info("Analyzer run for project {} is attached to the waiting one", projectName);
+        AnalyzerRunnable waitingRunnable = analyzerRunnable;
+        analyzerRunnable = preferFullAnalysis(waitingRunnable, requestedRunnable);
+        return replacedRunnable(analyzerRunnable, waitingRunnable, requestedRunnable);
+      }
+      log.info("Analyzer run for project {} is executed after the running one", projectName);
+      if (followUpRunnable == null) {
+        followUpRunnable = requestedRunnable;
+        return null;
+      }
+      AnalyzerRunnable waitingRunnable = followUpRunnable;
+      followUpRunnable = preferFullAnalysis(waitingRunnable, requestedRunnable);
+      return replacedRunnable(followUpRunnable, waitingRunnable, requestedRunnable);
+    }
+
+    void discard() {
+      AnalyzerRunnable runnable;
+      synchronized (analysesByProject) {
+        runnable = analyzerRunnable;
+      }
+      runnable.discard();
+    }
+
+    @Override
+    public void run() {
+      AnalyzerRunnable runnable;
+      synchronized (analysesByProject) {
+        started = true;
+        runnable = analyzerRunnable;
+      }
+      startMillis = DateTimeUtils.currentTimeMillis();
+      runningAnalyses.add(this);
+      try {
+        QualityAnalysis analysis = runnable.analyze();
+        if (analysis != null) {
+          if (analysis.isSuccessful()) {
+            completedAnalyses.incrementAndGet();
+          } else {
+            failedAnalyses.incrementAndGet();
+          }
+        }
+      } catch (RuntimeException e) {
+        failedAnalyses.incrementAndGet();
+        throw e;
+      } finally {
+        runningAnalyses.remove(this);
+        finished();
+      }
+    }
+
+    private void finished() {
+      TrackedAnalysis followUpAnalysis = null;
+      synchronized (analysesByProject) {
+        if (followUpRunnable != null) {
+          followUpAnalysis = new TrackedAnalysis(followUpRunnable);
+          analysesByProject.put(projectId, followUpAnalysis);
+        } else {
+          analysesByProject.remove(projectId);
+        }
+      }
+      if (followUpAnalysis != null) {
+        submit(followUpAnalysis);
+      }
+    }
+  }
+
+  private static AnalyzerRunnable replacedRunnable(AnalyzerRunnable keptRunnable, AnalyzerRunnable waitingRunnable, AnalyzerRunnable requestedRunnable) {
+    AnalyzerRunnable replacedRunnable = keptRunnable == waitingRunnable ? requestedRunnable : waitingRunnable;
+    return replacedRunnable.executesSameJobAs(keptRunnable) ? null : replacedRunnable;
+  }
+
+  private static AnalyzerRunnable preferFullAnalysis(AnalyzerRunnable waitingRunnable, AnalyzerRunnable requestedRunnable) {
+    return waitingRunnable.isIncremental() && !requestedRunnable.isIncremental() ? requestedRunnable : waitingRunnable;
+  }
+}
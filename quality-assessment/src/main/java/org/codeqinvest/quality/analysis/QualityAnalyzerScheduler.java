@@ -33,6 +33,19 @@ public interface QualityAnalyzerScheduler {
    */
   void executeAnalyzer(Project project);
 
+  /**
+   * Executes a scheduled run of the given project that was missed, e.g. due to
+   * a downtime of the application. Like scheduled runs it analyzes incrementally
+   * and it is subject to the limit of scheduled starts.
+   */
+  void catchUpAnalyzer(Project project);
+
+  /**
+   * Executes all analyzer runs that were queued or running when the application
+   * stopped. This should be called once on startup.
+   */
+  void resumeAnalyzers();
+
   /**
    * This method tries to schedule a {@link QualityAnalyzerService} for the given
    * project. The cron expression from the project is used as configuration for
@@ -42,4 +55,18 @@ public interface QualityAnalyzerScheduler {
    *         {@code false} if the project could not be scheduled due it is already scheduled
    */
   boolean scheduleAnalyzer(Project project);
+
+  /**
+   * Schedules the analyzer of the given project with its current cron expression.
+   * An already scheduled analyzer of the project is cancelled before.
+   */
+  void rescheduleAnalyzer(Project project);
+
+  /**
+   * Cancels the scheduled analyzer runs of the project with the given id.
+   * An analysis that is already running is not interrupted.
+   *
+   * @return {@code true} if the project was scheduled, otherwise {@code false}
+   */
+  boolean cancelAnalyzer(long projectId);
 }
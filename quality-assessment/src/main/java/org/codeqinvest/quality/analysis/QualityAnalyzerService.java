@@ -23,4 +23,10 @@ import org.codeqinvest.quality.Project;
 interface QualityAnalyzerService {
 
   QualityAnalysis analyzeProject(Project project);
+
+  /**
+   * Analyzes the project like {@link #analyzeProject(Project)}, but reuses the change
+   * probability of all artefacts that were not changed since the last successful analysis.
+   */
+  QualityAnalysis analyzeProjectIncrementally(Project project);
 }
@@ -19,52 +19,44 @@
 package org.codeqinvest.quality.analysis;
 
 import lombok.extern.slf4j.Slf4j;
-import org.codeqinvest.sonar.MetricCollectorService;
 import org.codeqinvest.sonar.ResourceNotFoundException;
-import org.codeqinvest.sonar.SonarConnectionSettings;
-import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 /**
+ * Calculates the costs of a quality violation. The needed metric
+ * values are read from the metric snapshot of the analysis.
+ *
  * @author fmueller
  */
 @Slf4j
 @Service
 class QualityViolationCostsCalculator {
 
-  private final MetricCollectorService metricCollectorService;
-
-  @Autowired
-  QualityViolationCostsCalculator(MetricCollectorService metricCollectorService) {
-    this.metricCollectorService = metricCollectorService;
-  }
-
-  public int calculateRemediationCosts(SonarConnectionSettings sonarConnectionSettings, ViolationOccurence violation) throws ResourceNotFoundException {
+  public int calculateRemediationCosts(MetricSnapshot metricSnapshot, ViolationOccurence violation) throws ResourceNotFoundException {
     log.info("Calculating remediation costs for {} with violated criteria {}", violation.getArtefact().getName(), violation.getRequirement().getCriteria());
-    return calculateCosts(sonarConnectionSettings, violation, violation.getRequirement().getRemediationCosts());
+    return calculateCosts(metricSnapshot, violation, violation.getRequirement().getRemediationCosts());
   }
 
-  public int calculateNonRemediationCosts(SonarConnectionSettings sonarConnectionSettings, ViolationOccurence violation) throws ResourceNotFoundException {
+  public int calculateNonRemediationCosts(MetricSnapshot metricSnapshot, ViolationOccurence violation) throws ResourceNotFoundException {
     log.info("Calculating non-remediation costs for {} with violated criteria {}", violation.getArtefact().getName(), violation.getRequirement().getCriteria());
-    return calculateCosts(sonarConnectionSettings, violation, violation.getRequirement().getNonRemediationCosts());
+    return calculateCosts(metricSnapshot, violation, violation.getRequirement().getNonRemediationCosts());
   }
 
-  private int calculateCosts(SonarConnectionSettings sonarConnectionSettings, ViolationOccurence violation, int costs) throws ResourceNotFoundException {
-    double metricDistance = calculateMetricDistance(sonarConnectionSettings, violation);
-    double weightingMetricValue = calculatedWeightingMetricValue(sonarConnectionSettings, violation);
+  private int calculateCosts(MetricSnapshot metricSnapshot, ViolationOccurence violation, int costs) throws ResourceNotFoundException {
+    double metricDistance = calculateMetricDistance(metricSnapshot, violation);
+    double weightingMetricValue = calculatedWeightingMetricValue(metricSnapshot, violation);
     return (int) Math.round(costs * metricDistance * weightingMetricValue);
   }
 
-  private double calculateMetricDistance(SonarConnectionSettings sonarConnectionSettings, ViolationOccurence violation) throws ResourceNotFoundException {
-    double currentMetricValue = metricCollectorService.collectMetricForResource(sonarConnectionSettings,
-        violation.getSonarIdentifierOfArtefact(), violation.getRequirement().getMetricIdentifier());
+  private double calculateMetricDistance(MetricSnapshot metricSnapshot, ViolationOccurence violation) throws ResourceNotFoundException {
+    double currentMetricValue = metricSnapshot.getMetricValue(violation.getSonarIdentifierOfArtefact(), violation.getRequirement().getMetricIdentifier());
     double metricDistance = Math.abs(violation.getRequirement().getThreshold() - currentMetricValue);
     String operator = violation.getRequirement().getOperator();
     return operator.equals("<") || operator.equals(">") ? metricDistance + 1 : metricDistance;
   }
 
-  private double calculatedWeightingMetricValue(SonarConnectionSettings sonarConnectionSettings, ViolationOccurence violation) throws ResourceNotFoundException {
-    return metricCollectorService.collectMetricForResource(sonarConnectionSettings,
-        violation.getSonarIdentifierOfArtefact(), violation.getRequirement().getWeightingMetricIdentifier()) / violation.getRequirement().getWeightingMetricValue();
+  private double calculatedWeightingMetricValue(MetricSnapshot metricSnapshot, ViolationOccurence violation) throws ResourceNotFoundException {
+    return metricSnapshot.getMetricValue(violation.getSonarIdentifierOfArtefact(), violation.getRequirement().getWeightingMetricIdentifier())
+        / violation.getRequirement().getWeightingMetricValue();
   }
 }
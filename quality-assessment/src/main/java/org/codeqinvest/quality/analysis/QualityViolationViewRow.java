@@ -0,0 +1,84 @@
+/*
+ * Copyright 2013 Felix Müller
+ *
+ * This file is part of CodeQ Invest.
+ *
+ * CodeQ Invest is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CodeQ Invest is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CodeQ Invest.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.codeqinvest.quality.analysis;
+
+import lombok.Getter;
+import org.joda.time.DateTime;
+
+/**
+ * One row of {@link QualityAnalysisRepository#findViewRowsById(Long)}. It contains
+ * the attributes of the analysis and of one of its violations together with the
+ * requirement and the artefact of the violation. The violation attributes are
+ * {@code null} if the analysis has no violations.
+ *
+ * @author fmueller
+ */
+@Getter
+public class QualityViolationViewRow {
+
+  private final Long analysisId;
+  private final String projectName;
+  private final DateTime created;
+  private final Boolean successful;
+  private final String failureReason;
+
+  private final Long requirementId;
+  private final String metricIdentifier;
+  private final String operator;
+  private final Double threshold;
+  private final Boolean automaticallyFixable;
+
+  private final Long artefactId;
+  private final String artefactName;
+  private final Double changeProbability;
+  private final Double secureChangeProbability;
+  private final Integer manualEstimate;
+
+  private final Integer remediationCosts;
+  private final Integer nonRemediationCosts;
+  private final Double weightingMetricValue;
+
+  public QualityViolationViewRow(Long analysisId, String projectName, DateTime created, Boolean successful, String failureReason,
+                                 Long requirementId, String metricIdentifier, String operator, Double threshold, Boolean automaticallyFixable,
+                                 Long artefactId, String artefactName, Double changeProbability, Double secureChangeProbability, Integer manualEstimate,
+                                 Integer remediationCosts, Integer nonRemediationCosts, Double weightingMetricValue) {
+    this.analysisId = analysisId;
+    this.projectName = projectName;
+    this.created = created;
+    this.successful = successful;
+    this.failureReason = failureReason;
+    this.requirementId = requirementId;
+    this.metricIdentifier = metricIdentifier;
+    this.operator = operator;
+    this.threshold = threshold;
+    this.automaticallyFixable = automaticallyFixable;
+    this.artefactId = artefactId;
+    this.artefactName = artefactName;
+    this.changeProbability = changeProbability;
+    this.secureChangeProbability = secureChangeProbability;
+    this.manualEstimate = manualEstimate;
+    this.remediationCosts = remediationCosts;
+    this.nonRemediationCosts = nonRemediationCosts;
+    this.weightingMetricValue = weightingMetricValue;
+  }
+
+  boolean hasViolation() {
+    return artefactId != null;
+  }
+}
@@ -22,10 +22,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.codeqinvest.quality.Artefact;
 import org.codeqinvest.quality.ChangeRiskAssessmentFunction;
 import org.codeqinvest.quality.QualityProfile;
-import org.codeqinvest.sonar.MetricCollectorService;
 import org.codeqinvest.sonar.ResourceNotFoundException;
-import org.codeqinvest.sonar.SonarConnectionSettings;
-import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 /**
@@ -35,19 +32,11 @@ import org.springframework.stereotype.Service;
 @Service
 class SecureChangeProbabilityCalculator {
 
-  private final MetricCollectorService metricCollectorService;
-
-  @Autowired
-  SecureChangeProbabilityCalculator(MetricCollectorService metricCollectorService) {
-    this.metricCollectorService = metricCollectorService;
-  }
-
-  public double calculateSecureChangeProbability(QualityProfile qualityProfile, SonarConnectionSettings sonarConnectionSettings, Artefact artefact) throws ResourceNotFoundException {
+  public double calculateSecureChangeProbability(QualityProfile qualityProfile, MetricSnapshot metricSnapshot, Artefact artefact) throws ResourceNotFoundException {
     log.info("Calculate secure change probability for artefact {}", artefact.getName());
     double secureChangeProbability = 1.0;
     for (ChangeRiskAssessmentFunction riskAssessmentFunction : qualityProfile.getChangeRiskAssessmentFunctions()) {
-      final double metricValueForArtefact = metricCollectorService.collectMetricForResource(sonarConnectionSettings,
-          artefact.getSonarIdentifier(),
+      final double metricValueForArtefact = metricSnapshot.getMetricValue(artefact.getSonarIdentifier(),
           riskAssessmentFunction.getMetricIdentifier());
       secureChangeProbability += riskAssessmentFunction.getRiskChargeAmount(metricValueForArtefact);
     }
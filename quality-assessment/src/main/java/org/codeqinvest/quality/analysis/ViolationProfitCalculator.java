@@ -0,0 +1,36 @@
+/*
+ * Copyright 2013 Felix Müller
+ *
+ * This file is part of CodeQ Invest.
+ *
+ * CodeQ Invest is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CodeQ Invest is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CodeQ Invest.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.codeqinvest.quality.analysis;
+
+import org.codeqinvest.quality.QualityViolationView;
+
+/**
+ * Calculates the profit of removing a violation. The profit model belongs
+ * to the investment module, which implements this interface, so that
+ * the quality assessment can store profits without depending on it.
+ *
+ * @author fmueller
+ */
+public interface ViolationProfitCalculator {
+
+  /**
+   * @return the profit of the violation divided by its weighting metric value
+   */
+  double calculateWeightedProfit(QualityViolationView violation);
+}
@@ -28,7 +28,9 @@ import java.util.List;
 /**
  * A value object that encapsulates the result of a
  * calculation for all violations of a project that is
- * computed in {@link ViolationsCalculatorService}.
+ * computed in {@link ViolationsCalculatorService}. A successful
+ * result also contains the metric snapshot of the analysis, so that
+ * later steps of the analysis do not have to fetch the values again.
  *
  * @author fmueller
  */
@@ -40,18 +42,25 @@ final class ViolationsAnalysisResult {
   private final boolean successful;
   private final List<ViolationOccurence> violations;
   private final Optional<String> failureReason;
+  private final MetricSnapshot metricSnapshot;
 
-  private ViolationsAnalysisResult(boolean successful, List<ViolationOccurence> violations, Optional<String> failureReason) {
+  private ViolationsAnalysisResult(boolean successful, List<ViolationOccurence> violations, Optional<String> failureReason,
+                                   MetricSnapshot metricSnapshot) {
     this.successful = successful;
     this.violations = violations;
     this.failureReason = failureReason;
+    this.metricSnapshot = metricSnapshot;
   }
 
   static ViolationsAnalysisResult createSuccessfulAnalysis(List<ViolationOccurence> violations) {
-    return new ViolationsAnalysisResult(true, violations, Optional.<String>absent());
+    return createSuccessfulAnalysis(violations, MetricSnapshot.empty());
+  }
+
+  static ViolationsAnalysisResult createSuccessfulAnalysis(List<ViolationOccurence> violations, MetricSnapshot metricSnapshot) {
+    return new ViolationsAnalysisResult(true, violations, Optional.<String>absent(), metricSnapshot);
   }
 
   static ViolationsAnalysisResult createFailedAnalysis(List<ViolationOccurence> violations, String failureReason) {
-    return new ViolationsAnalysisResult(false, violations, Optional.of(failureReason));
+    return new ViolationsAnalysisResult(false, violations, Optional.of(failureReason), MetricSnapshot.empty());
   }
 }
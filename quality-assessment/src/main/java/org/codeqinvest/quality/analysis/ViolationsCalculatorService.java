@@ -19,13 +19,15 @@
 package org.codeqinvest.quality.analysis;
 
 import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 import lombok.extern.slf4j.Slf4j;
 import org.codeqinvest.quality.Artefact;
 import org.codeqinvest.quality.Project;
 import org.codeqinvest.quality.QualityRequirement;
+import org.codeqinvest.quality.ChangeRiskAssessmentFunction;
+import org.codeqinvest.quality.QualityProfile;
 import org.codeqinvest.sonar.MetricCollectorService;
 import org.codeqinvest.sonar.ResourceNotFoundException;
-import org.codeqinvest.sonar.ResourcesCollectorService;
 import org.codeqinvest.sonar.SonarConnectionCheckerService;
 import org.sonar.wsclient.services.Resource;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -35,11 +37,15 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * This is a helper service that is only used internally
  * to calculate all quality violations for a given project. For that,
- * it collects all the necessary data from Sonar. Before it performs
+ * it collects all the necessary metric values of all classes from Sonar
+ * page by page into a {@link MetricSnapshot} and evaluates the requirements of the quality
+ * profile against each page as soon as it is loaded. Only the values of classes
+ * with violations are kept for the later stages of the analysis. Before it performs
  * these steps, it checks for the availability of the given
  * Sonar server instance.
  *
@@ -50,15 +56,12 @@ import java.util.Map;
 class ViolationsCalculatorService {
 
   private final SonarConnectionCheckerService sonarConnectionCheckerService;
-  private final ResourcesCollectorService resourcesCollectorService;
   private final MetricCollectorService metricCollectorService;
 
   @Autowired
   public ViolationsCalculatorService(SonarConnectionCheckerService sonarConnectionCheckerService,
-                                     ResourcesCollectorService resourcesCollectorService,
                                      MetricCollectorService metricCollectorService) {
     this.sonarConnectionCheckerService = sonarConnectionCheckerService;
-    this.resourcesCollectorService = resourcesCollectorService;
     this.metricCollectorService = metricCollectorService;
   }
 
@@ -69,47 +72,63 @@ class ViolationsCalculatorService {
     }
 
     log.info("Start violation analysis for project {}", project.getName());
+    MetricSnapshot metricSnapshot = new MetricSnapshot(project.getSonarConnectionSettings(), metricCollectorService);
+    metricSnapshot.collectMetricsForProject(getAllMetricIdentifiers(project.getProfile()));
+
     Map<String, Artefact> artefactsThatHaveAtLeastOneViolation = Maps.newHashMap();
     List<ViolationOccurence> violations = new ArrayList<ViolationOccurence>();
     long violationsOfCurrentArtefact = 0;
-    for (Resource resource : resourcesCollectorService.collectAllResourcesForProject(project.getSonarConnectionSettings())) {
-      log.info("Analyzing resource {}", resource.getLongName());
-      violationsOfCurrentArtefact = 0;
-      for (QualityRequirement qualityRequirement : project.getProfile().getRequirements()) {
-
-        final double weightingMetricValue;
-        final double metricValue;
-        try {
-          weightingMetricValue = metricCollectorService.collectMetricForResource(project.getSonarConnectionSettings(),
-              resource.getKey(), qualityRequirement.getWeightingMetricIdentifier());
-          metricValue = metricCollectorService.collectMetricForResource(project.getSonarConnectionSettings(),
-              resource.getKey(), qualityRequirement.getCriteria().getMetricIdentifier());
-        } catch (ResourceNotFoundException e) {
-          log.warn("Quality analysis run failed due one resource or metric could not be find in Sonar!", e);
-          return ViolationsAnalysisResult.createFailedAnalysis(violations, "resource " + resource.getKey()
-              + " or metric " + qualityRequirement.getCriteria().getMetricIdentifier() + " not available on Sonar");
-        }
+    while (metricSnapshot.loadNextPage()) {
+      for (Resource resource : metricSnapshot.getResources()) {
+        log.info("Analyzing resource {}", resource.getLongName());
+        violationsOfCurrentArtefact = 0;
+        for (QualityRequirement qualityRequirement : project.getProfile().getRequirements()) {
 
-        if (qualityRequirement.isViolated(metricValue)) {
-          final Artefact artefact;
-          if (artefactsThatHaveAtLeastOneViolation.containsKey(resource.getKey())) {
-            artefact = artefactsThatHaveAtLeastOneViolation.get(resource.getKey());
-          } else {
-            artefact = new Artefact(resource.getLongName(), resource.getKey());
-            artefactsThatHaveAtLeastOneViolation.put(resource.getKey(), artefact);
+          final double weightingMetricValue;
+          final double metricValue;
+          try {
+            weightingMetricValue = metricSnapshot.getMetricValue(resource.getKey(), qualityRequirement.getWeightingMetricIdentifier());
+            metricValue = metricSnapshot.getMetricValue(resource.getKey(), qualityRequirement.getCriteria().getMetricIdentifier());
+          } catch (ResourceNotFoundException e) {
+            log.warn("Quality analysis run failed due one resource or metric could not be find in Sonar!", e);
+            return ViolationsAnalysisResult.createFailedAnalysis(violations, "resource " + resource.getKey()
+                + " or metric " + qualityRequirement.getCriteria().getMetricIdentifier() + " not available on Sonar");
           }
 
-          log.debug("Create quality violation for artefact {} with violated requirement {}",
-              artefact.getName(), qualityRequirement.getCriteria());
-          violations.add(new ViolationOccurence(qualityRequirement, artefact, weightingMetricValue));
-          violationsOfCurrentArtefact++;
+          if (qualityRequirement.isViolated(metricValue)) {
+            final Artefact artefact;
+            if (artefactsThatHaveAtLeastOneViolation.containsKey(resource.getKey())) {
+              artefact = artefactsThatHaveAtLeastOneViolation.get(resource.getKey());
+            } else {
+              artefact = new Artefact(resource.getLongName(), resource.getKey());
+              artefactsThatHaveAtLeastOneViolation.put(resource.getKey(), artefact);
+              metricSnapshot.keep(resource.getKey());
+            }
+
+            log.debug("Create quality violation for artefact {} with violated requirement {}",
+                artefact.getName(), qualityRequirement.getCriteria());
+            violations.add(new ViolationOccurence(qualityRequirement, artefact, weightingMetricValue));
+            violationsOfCurrentArtefact++;
+          }
         }
+        log.info("Found {} violations at resource {}", violationsOfCurrentArtefact, resource.getLongName());
       }
-      log.info("Found {} violations at resource {}", violationsOfCurrentArtefact, resource.getLongName());
     }
 
     log.info("Successfully analysed project {} and found {} quality violations in {} artefacts",
         project.getName(), violations.size(), artefactsThatHaveAtLeastOneViolation.size());
-    return ViolationsAnalysisResult.createSuccessfulAnalysis(violations);
+    return ViolationsAnalysisResult.createSuccessfulAnalysis(violations, metricSnapshot);
+  }
+
+  private Set<String> getAllMetricIdentifiers(QualityProfile profile) {
+    Set<String> metricIdentifiers = Sets.newHashSet();
+    for (QualityRequirement qualityRequirement : profile.getRequirements()) {
+      metricIdentifiers.add(qualityRequirement.getWeightingMetricIdentifier());
+      metricIdentifiers.add(qualityRequirement.getCriteria().getMetricIdentifier());
+    }
+    for (ChangeRiskAssessmentFunction riskAssessmentFunction : profile.getChangeRiskAssessmentFunctions()) {
+      metricIdentifiers.add(riskAssessmentFunction.getMetricIdentifier());
+    }
+    return metricIdentifiers;
   }
 }
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2013 Felix Müller
+ *
+ * This file is part of CodeQ Invest.
+ *
+ * CodeQ Invest is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CodeQ Invest is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CodeQ Invest.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.codeqinvest.quality.analysis;
+
+import org.codeqinvest.quality.Project;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class AnalysisJobServiceTest {
+
+  private AnalysisJobRepository analysisJobRepository;
+  private AnalysisJobService analysisJobService;
+  private Project project;
+
+  @Before
+  public void setUpMockedSystem() {
+    analysisJobRepository = mock(AnalysisJobRepository.class);
+    when(analysisJobRepository.save(any(AnalysisJob.class))).thenAnswer(new Answer<AnalysisJob>() {
+      @Override
+      public AnalysisJob answer(InvocationOnMock invocation) {
+        return (AnalysisJob) invocation.getArguments()[0];
+      }
+    });
+    analysisJobService = new AnalysisJobService(analysisJobRepository, 7);
+    project = mock(Project.class);
+    when(project.getId()).thenReturn(1L);
+  }
+
+  @After
+  public void resetTime() {
+    DateTimeUtils.setCurrentMillisSystem();
+  }
+
+  @Test
+  public void queueNewJobWhenProjectHasNoQueuedJob() {
+    when(analysisJobRepository.findByProjectAndStateOrderByCreatedAsc(project, AnalysisJob.State.QUEUED))
+        .thenReturn(Collections.<AnalysisJob>emptyList());
+
+    AnalysisJob job = analysisJobService.enqueue(project, true);
+    assertThat(job.getState()).isEqualTo(AnalysisJob.State.QUEUED);
+    assertThat(job.isIncremental()).isTrue();
+    verify(analysisJobRepository).save(job);
+  }
+
+  @Test
+  public void lockProjectBeforeLookingForQueuedJob() {
+    when(analysisJobRepository.findByProjectAndStateOrderByCreatedAsc(project, AnalysisJob.State.QUEUED))
+        .thenReturn(Collections.<AnalysisJob>emptyList());
+
+    analysisJobService.enqueue(project, true);
+    InOrder inOrder = inOrder(analysisJobRepository);
+    inOrder.verify(analysisJobRepository).findOneProjectForUpdate(1L);
+    inOrder.verify(analysisJobRepository).findByProjectAndStateOrderByCreatedAsc(project, AnalysisJob.State.QUEUED);
+    inOrder.verify(analysisJobRepository).save(any(AnalysisJob.class));
+  }
+
+  @Test
+  public void reuseQueuedJobOfProject() {
+    AnalysisJob queuedJob = new AnalysisJob(project, false);
+    when(analysisJobRepository.findByProjectAndStateOrderByCreatedAsc(project, AnalysisJob.State.QUEUED))
+        .thenReturn(Arrays.asList(queuedJob));
+
+    assertThat(analysisJobService.enqueue(project, true)).isSameAs(queuedJob);
+    assertThat(queuedJob.isIncremental()).isFalse();
+    verify(analysisJobRepository, never()).save(any(AnalysisJob.class));
+  }
+
+  @Test
+  public void changeQueuedIncrementalJobToFullAnalysis() {
+    AnalysisJob queuedJob = new AnalysisJob(project, true);
+    when(analysisJobRepository.findByProjectAndStateOrderByCreatedAsc(project, AnalysisJob.State.QUEUED))
+        .thenReturn(Arrays.asList(queuedJob));
+
+    assertThat(analysisJobService.enqueue(project, false)).isSameAs(queuedJob);
+    assertThat(queuedJob.isIncremental()).isFalse();
+    verify(analysisJobRepository).save(queuedJob);
+  }
+
+  @Test
+  public void claimQueuedJob() {
+    AnalysisJob job = new AnalysisJob(project, false);
+    when(analysisJobRepository.updateStateAndStarted(eq(job.getId()), eq(AnalysisJob.State.QUEUED), eq(AnalysisJob.State.RUNNING), any(DateTime.class)))
+        .thenReturn(1);
+    assertThat(analysisJobService.claim(job)).isTrue();
+  }
+
+  @Test
+  public void failToClaimJobThatIsNotQueuedAnymore() {
+    AnalysisJob job = new AnalysisJob(project, false);
+    when(analysisJobRepository.updateStateAndStarted(eq(job.getId()), eq(AnalysisJob.State.QUEUED), eq(AnalysisJob.State.RUNNING), any(DateTime.class)))
+        .thenReturn(0);
+    assertThat(analysisJobService.claim(job)).isFalse();
+  }
+
+  @Test
+  public void finishJobWithStateDependingOnSuccess() {
+    AnalysisJob job = new AnalysisJob(project, false);
+    analysisJobService.finish(job, true);
+    analysisJobService.finish(job, false);
+    verify(analysisJobRepository).updateStateAndFinished(eq(job.getId()), eq(AnalysisJob.State.SUCCEEDED), any(DateTime.class));
+    verify(analysisJobRepository).updateStateAndFinished(eq(job.getId()), eq(AnalysisJob.State.FAILED), any(DateTime.class));
+  }
+
+  @Test
+  public void discardOnlyQueuedJob() {
+    AnalysisJob job = new AnalysisJob(project, false);
+    analysisJobService.discard(job);
+    verify(analysisJobRepository).updateStateAndFinished(eq(job.getId()), eq(AnalysisJob.State.QUEUED), eq(AnalysisJob.State.DISCARDED), any(DateTime.class));
+  }
+
+  @Test
+  public void deleteJobsThatWereFinishedBeforeRetentionPeriod() {
+    DateTimeUtils.setCurrentMillisFixed(new DateTime(2013, 8, 10, 12, 0).getMillis());
+    analysisJobService.finish(new AnalysisJob(project, false), true);
+    analysisJobService.resumeJobs();
+    verify(analysisJobRepository, times(2)).deleteByFinishedBefore(new DateTime(2013, 8, 3, 12, 0));
+  }
+
+  @Test
+  public void queueInterruptedJobsAgainBeforeResumingQueuedJobs() {
+    AnalysisJob queuedJob = new AnalysisJob(project, false);
+    when(analysisJobRepository.findByStateOrderByCreatedAsc(AnalysisJob.State.QUEUED)).thenReturn(Arrays.asList(queuedJob));
+
+    assertThat(analysisJobService.resumeJobs()).containsExactly(queuedJob);
+    InOrder inOrder = inOrder(analysisJobRepository);
+    inOrder.verify(analysisJobRepository).updateAllStates(AnalysisJob.State.RUNNING, AnalysisJob.State.QUEUED);
+    inOrder.verify(analysisJobRepository).findByStateOrderByCreatedAsc(AnalysisJob.State.QUEUED);
+  }
+}
@@ -24,9 +24,14 @@ import org.junit.Before;
 import org.junit.Test;
 import org.mockito.InOrder;
 
+import static org.fest.assertions.Assertions.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
 public class AnalyzerRunnableTest {
@@ -56,6 +61,13 @@ public class AnalyzerRunnableTest {
     inOrder.verifyNoMoreInteractions();
   }
 
+  @Test
+  public void triggerIncrementalAnalysisWhenRunnableIsIncremental() {
+    new AnalyzerRunnable(project, projectRepository, analyzerService, true).run();
+    verify(analyzerService).analyzeProjectIncrementally(project);
+    verifyNoMoreInteractions(analyzerService);
+  }
+
   @Test
   public void markProjectAsHadAnalysis() {
     analyzerRunnable.run();
@@ -75,4 +87,45 @@ public class AnalyzerRunnableTest {
     when(projectRepository.findOne(1L)).thenReturn(null);
     analyzerRunnable.run();
   }
+
+  @Test
+  public void claimJobBeforeAnalysisAndFinishItAfterwards() {
+    AnalysisJob job = new AnalysisJob(project, true);
+    AnalysisJobService analysisJobService = mock(AnalysisJobService.class);
+    when(analysisJobService.claim(job)).thenReturn(true);
+    QualityAnalysis analysis = QualityAnalysis.success(project, null);
+    when(analyzerService.analyzeProjectIncrementally(project)).thenReturn(analysis);
+
+    new AnalyzerRunnable(job, projectRepository, analyzerService, analysisJobService).run();
+    InOrder inOrder = inOrder(analysisJobService, analyzerService);
+    inOrder.verify(analysisJobService).claim(job);
+    inOrder.verify(analyzerService).analyzeProjectIncrementally(project);
+    inOrder.verify(analysisJobService).finish(job, true);
+  }
+
+  @Test
+  public void notAnalyzeProjectWhenJobIsAlreadyClaimed() {
+    AnalysisJob job = new AnalysisJob(project, false);
+    AnalysisJobService analysisJobService = mock(AnalysisJobService.class);
+    when(analysisJobService.claim(job)).thenReturn(false);
+
+    assertThat(new AnalyzerRunnable(job, projectRepository, analyzerService, analysisJobService).analyze()).isNull();
+    verify(analyzerService, never()).analyzeProject(any(Project.class));
+    verify(analysisJobService, never()).finish(any(AnalysisJob.class), any(Boolean.class));
+  }
+
+  @Test
+  public void finishJobAsFailedWhenAnalysisFails() {
+    AnalysisJob job = new AnalysisJob(project, false);
+    AnalysisJobService analysisJobService = mock(AnalysisJobService.class);
+    when(analysisJobService.claim(job)).thenReturn(true);
+    when(analyzerService.analyzeProject(project)).thenThrow(new IllegalStateException());
+
+    try {
+      new AnalyzerRunnable(job, projectRepository, analyzerService, analysisJobService).run();
+      fail("analysis should fail");
+    } catch (IllegalStateException e) {
+      verify(analysisJobService).finish(job, false);
+    }
+  }
 }
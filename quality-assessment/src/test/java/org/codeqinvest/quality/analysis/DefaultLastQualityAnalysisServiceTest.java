@@ -0,0 +1,152 @@
+/*
+ * Copyright 2013 Felix Müller
+ *
+ * This file is part of CodeQ Invest.
+ *
+ * CodeQ Invest is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CodeQ Invest is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CodeQ Invest.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.codeqinvest.quality.analysis;
+
+import org.codeqinvest.quality.Project;
+import org.joda.time.DateTime;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class DefaultLastQualityAnalysisServiceTest {
+
+  private Project project;
+  private QualityAnalysisRepository qualityAnalysisRepository;
+  private LastQualityAnalysisIdCache lastAnalysisIdCache;
+  private LastQualityAnalysisService lastQualityAnalysisService;
+
+  @Before
+  public void setUp() {
+    project = mock(Project.class);
+    when(project.getId()).thenReturn(1L);
+
+    qualityAnalysisRepository = mock(QualityAnalysisRepository.class);
+    when(qualityAnalysisRepository.findIdsByProjectOrderByCreatedDesc(any(Project.class), any(Pageable.class)))
+        .thenReturn(Arrays.asList(20L));
+    when(qualityAnalysisRepository.findIdsByProjectAndSuccessfulOrderByCreatedDesc(any(Project.class), anyBoolean(), any(Pageable.class)))
+        .thenReturn(Arrays.asList(10L));
+    when(qualityAnalysisRepository.findOneByIdWithViolations(anyLong())).thenReturn(mock(QualityAnalysis.class));
+
+    lastAnalysisIdCache = new LastQualityAnalysisIdCache();
+    lastQualityAnalysisService = new DefaultLastQualityAnalysisService(qualityAnalysisRepository, lastAnalysisIdCache);
+  }
+
+  @Test
+  public void shouldQueryOnlyTheLastAnalysisId() {
+    lastQualityAnalysisService.retrieveLastAnalysis(project);
+    verify(qualityAnalysisRepository).findIdsByProjectOrderByCreatedDesc(project, new PageRequest(0, 1));
+    verify(qualityAnalysisRepository).findOneByIdWithViolations(20L);
+  }
+
+  @Test
+  public void shouldQueryTheLastAnalysisIdOnlyOnce() {
+    lastQualityAnalysisService.retrieveLastAnalysis(project);
+    lastQualityAnalysisService.retrieveLastAnalysis(project);
+    verify(qualityAnalysisRepository, times(1)).findIdsByProjectOrderByCreatedDesc(any(Project.class), any(Pageable.class));
+    verify(qualityAnalysisRepository, times(2)).findOneByIdWithViolations(20L);
+  }
+
+  @Test
+  public void shouldCacheLastAnalysisAndLastSuccessfulAnalysisSeparately() {
+    lastQualityAnalysisService.retrieveLastAnalysis(project);
+    lastQualityAnalysisService.retrieveLastSuccessfulAnalysis(project);
+    verify(qualityAnalysisRepository).findOneByIdWithViolations(20L);
+    verify(qualityAnalysisRepository).findOneByIdWithViolations(10L);
+  }
+
+  @Test
+  public void savedAnalysisShouldReplaceCachedLastAnalysis() {
+    lastQualityAnalysisService.retrieveLastAnalysis(project);
+    lastQualityAnalysisService.retrieveLastSuccessfulAnalysis(project);
+    lastAnalysisIdCache.analysisSaved(1L, 30L, true);
+
+    lastQualityAnalysisService.retrieveLastAnalysis(project);
+    lastQualityAnalysisService.retrieveLastSuccessfulAnalysis(project);
+    verify(qualityAnalysisRepository, times(2)).findOneByIdWithViolations(30L);
+  }
+
+  @Test
+  public void savedFailedAnalysisShouldNotReplaceCachedLastSuccessfulAnalysis() {
+    lastQualityAnalysisService.retrieveLastSuccessfulAnalysis(project);
+    lastAnalysisIdCache.analysisSaved(1L, 30L, false);
+
+    lastQualityAnalysisService.retrieveLastSuccessfulAnalysis(project);
+    verify(qualityAnalysisRepository, times(2)).findOneByIdWithViolations(10L);
+    verify(qualityAnalysisRepository, never()).findOneByIdWithViolations(30L);
+  }
+
+  @Test
+  public void queriedIdShouldNotReplaceIdOfSavedAnalysis() {
+    lastAnalysisIdCache.analysisSaved(1L, 30L, true);
+    lastAnalysisIdCache.addLastAnalysisId(1L, 20L);
+    assertThat(lastAnalysisIdCache.getLastAnalysisId(1L)).isEqualTo(30L);
+  }
+
+  @Test
+  public void shouldReturnNullWhenProjectHasNoAnalysis() {
+    when(qualityAnalysisRepository.findIdsByProjectOrderByCreatedDesc(any(Project.class), any(Pageable.class)))
+        .thenReturn(Collections.<Long>emptyList());
+    assertThat(lastQualityAnalysisService.retrieveLastAnalysis(project)).isNull();
+    verify(qualityAnalysisRepository, never()).findOneByIdWithViolations(anyLong());
+  }
+
+  @Test
+  public void shouldQueryOnlyTheCreationTimeOfLastAnalysis() {
+    DateTime created = new DateTime(2013, 8, 1, 3, 0);
+    when(qualityAnalysisRepository.findCreatedByProjectOrderByCreatedDesc(any(Project.class), any(Pageable.class)))
+        .thenReturn(Arrays.asList(created));
+    assertThat(lastQualityAnalysisService.retrieveLastAnalysisCreated(project)).isEqualTo(created);
+    verify(qualityAnalysisRepository).findCreatedByProjectOrderByCreatedDesc(project, new PageRequest(0, 1));
+    verify(qualityAnalysisRepository, never()).findOneByIdWithViolations(anyLong());
+  }
+
+  @Test
+  public void shouldQueryAgainWhenCachedAnalysisWasDeleted() {
+    lastQualityAnalysisService.retrieveLastAnalysis(project);
+    when(qualityAnalysisRepository.findOneByIdWithViolations(20L)).thenReturn(null);
+    assertThat(lastQualityAnalysisService.retrieveLastAnalysis(project)).isNull();
+
+    lastQualityAnalysisService.retrieveLastAnalysis(project);
+    verify(qualityAnalysisRepository, times(2)).findIdsByProjectOrderByCreatedDesc(any(Project.class), any(Pageable.class));
+  }
+
+  @Test
+  public void shouldLoadViewOfLastSuccessfulAnalysisWithOneQuery() {
+    when(qualityAnalysisRepository.findViewRowsById(10L)).thenReturn(Collections.singletonList(
+        new QualityViolationViewRow(10L, "project", null, true, null, null, null, null, null, null, null, null, null, null, null, null, null, null)));
+    QualityAnalysisView analysis = lastQualityAnalysisService.retrieveLastSuccessfulAnalysisView(project);
+    assertThat(analysis.getId()).isEqualTo(10L);
+    verify(qualityAnalysisRepository).findViewRowsById(10L);
+    verify(qualityAnalysisRepository, never()).findOneByIdWithViolations(anyLong());
+  }
+}
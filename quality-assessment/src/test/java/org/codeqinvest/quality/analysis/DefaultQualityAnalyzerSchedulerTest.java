@@ -28,28 +28,49 @@ import org.codeqinvest.sonar.SonarConnectionSettings;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.InOrder;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.Arrays;
 
 import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
 import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 public class DefaultQualityAnalyzerSchedulerTest {
 
   private QualityAnalyzerScheduler analyzerScheduler;
   private ProjectRepository projectRepository;
+  private AnalysisJobService analysisJobService;
   private Project project;
 
   @Before
   public void setUpMockedSystem() {
     projectRepository = mock(ProjectRepository.class);
+    analysisJobService = mock(AnalysisJobService.class);
+    when(analysisJobService.enqueue(any(Project.class), anyBoolean())).thenAnswer(new Answer<AnalysisJob>() {
+      @Override
+      public AnalysisJob answer(InvocationOnMock invocation) {
+        return new AnalysisJob((Project) invocation.getArguments()[0], (Boolean) invocation.getArguments()[1]);
+      }
+    });
     analyzerScheduler = new DefaultQualityAnalyzerScheduler(projectRepository,
         mock(ViolationsCalculatorService.class),
         mock(ScmAvailabilityCheckerServiceFactory.class),
         mock(CodeChangeProbabilityCalculatorFactory.class),
         mock(SecureChangeProbabilityCalculator.class),
         mock(QualityViolationCostsCalculator.class),
-        mock(QualityAnalysisRepository.class));
+        mock(QualityAnalysisBulkWriter.class),
+        mock(IncrementalAnalysisBaselineService.class),
+        new QualityAnalyzerPool(1, 10, QualityAnalyzerPool.RejectionPolicy.ABORT),
+        analysisJobService,
+        0, 0);
     project = spy(new Project("MyProject", "* * 4 * * *", new QualityProfile("quality-profile"),
         mock(SonarConnectionSettings.class), mock(ScmConnectionSettings.class), CodeChangeSettings.defaultSetting(1)));
     project.setId(1L);
@@ -66,6 +87,42 @@ public class DefaultQualityAnalyzerSchedulerTest {
     assertThat(analyzerScheduler.scheduleAnalyzer(project)).isFalse();
   }
 
+  @Test
+  public void identifyScheduledProjectsByTheirId() {
+    analyzerScheduler.scheduleAnalyzer(project);
+    Project sameProjectWithOtherSettings = new Project("MyRenamedProject", "0 0 * * * *", new QualityProfile("other-profile"),
+        mock(SonarConnectionSettings.class), mock(ScmConnectionSettings.class), CodeChangeSettings.defaultSetting(2));
+    sameProjectWithOtherSettings.setId(1L);
+    assertThat(analyzerScheduler.scheduleAnalyzer(sameProjectWithOtherSettings)).isFalse();
+  }
+
+  @Test
+  public void cancelledProjectCanBeScheduledAgain() {
+    analyzerScheduler.scheduleAnalyzer(project);
+    assertThat(analyzerScheduler.cancelAnalyzer(1L)).isTrue();
+    assertThat(analyzerScheduler.scheduleAnalyzer(project)).isTrue();
+  }
+
+  @Test
+  public void failToCancelNotScheduledProject() {
+    assertThat(analyzerScheduler.cancelAnalyzer(1L)).isFalse();
+  }
+
+  @Test
+  public void rescheduledProjectShouldStayScheduled() {
+    analyzerScheduler.scheduleAnalyzer(project);
+    project.setCronExpression("0 0 * * * *");
+    analyzerScheduler.rescheduleAnalyzer(project);
+    assertThat(analyzerScheduler.scheduleAnalyzer(project)).isFalse();
+    assertThat(analyzerScheduler.cancelAnalyzer(1L)).isTrue();
+  }
+
+  @Test
+  public void rescheduleNotScheduledProject() {
+    analyzerScheduler.rescheduleAnalyzer(project);
+    assertThat(analyzerScheduler.scheduleAnalyzer(project)).isFalse();
+  }
+
   @Test
   public void executedProjectShouldBeMarkedAsHadAnalysis() {
     analyzerScheduler.executeAnalyzer(project);
@@ -78,6 +135,20 @@ public class DefaultQualityAnalyzerSchedulerTest {
     assertThat(project.hadAnalysis()).isFalse();
   }
 
+  @Test
+  public void executedProjectShouldBeQueuedAsFullAnalysisJob() {
+    analyzerScheduler.executeAnalyzer(project);
+    verify(analysisJobService).enqueue(project, false);
+  }
+
+  @Test
+  public void resumeQueuedAnalysisJobs() {
+    AnalysisJob job = new AnalysisJob(project, true);
+    when(analysisJobService.resumeJobs()).thenReturn(Arrays.asList(job));
+    analyzerScheduler.resumeAnalyzers();
+    verify(analysisJobService, timeout(5000)).claim(job);
+  }
+
   @Test
   public void executedProjectShouldBeSavedToDatabaseAfterMarkedAsHadAnalysis() {
     analyzerScheduler.executeAnalyzer(project);
@@ -49,7 +49,7 @@ import java.util.Arrays;
 
 import static org.fest.assertions.Assertions.assertThat;
 import static org.mockito.Matchers.any;
-import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.anyCollectionOf;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -74,6 +74,9 @@ public class DefaultQualityAnalyzerServiceIntegrationTest {
   @Autowired
   private QualityAnalysisRepository qualityAnalysisRepository;
 
+  @Autowired
+  private QualityAnalysisBulkWriter analysisWriter;
+
   @Before
   public void setUp() {
     profile = new QualityProfile("quality-profile");
@@ -114,17 +117,19 @@ public class DefaultQualityAnalyzerServiceIntegrationTest {
             new ViolationOccurence(secondRequirement, artefactC, 0))));
 
     CodeChangeProbabilityCalculator codeChangeProbabilityCalculator = mock(CodeChangeProbabilityCalculator.class);
-    when(codeChangeProbabilityCalculator.calculateCodeChangeProbability(any(ScmConnectionSettings.class), anyString())).thenReturn(1.0);
+    when(codeChangeProbabilityCalculator.calculateCodeChangeProbabilities(any(ScmConnectionSettings.class), anyCollectionOf(String.class)))
+        .thenAnswer(new FixedChangeProbabilityAnswer(1.0));
     CodeChangeProbabilityCalculatorFactory codeChangeProbabilityCalculatorFactory = mock(CodeChangeProbabilityCalculatorFactory.class);
     when(codeChangeProbabilityCalculatorFactory.getCodeChurnCalculatorFactory()).thenReturn(mock(CodeChurnCalculatorFactory.class));
     when(codeChangeProbabilityCalculatorFactory.create(any(CodeChangeSettings.class))).thenReturn(codeChangeProbabilityCalculator);
 
     SecureChangeProbabilityCalculator secureChangeProbabilityCalculator = mock(SecureChangeProbabilityCalculator.class);
     when(secureChangeProbabilityCalculator.calculateSecureChangeProbability(any(QualityProfile.class),
-        any(SonarConnectionSettings.class), any(Artefact.class))).thenReturn(1.0);
+        any(MetricSnapshot.class), any(Artefact.class))).thenReturn(1.0);
 
     QualityAnalyzerService qualityAnalyzerService = new DefaultQualityAnalyzerService(violationsCalculatorService, scmAvailabilityCheckerServiceFactory,
-        codeChangeProbabilityCalculatorFactory, secureChangeProbabilityCalculator, costsCalculator, qualityAnalysisRepository);
+        codeChangeProbabilityCalculatorFactory, secureChangeProbabilityCalculator, costsCalculator, analysisWriter,
+        mock(IncrementalAnalysisBaselineService.class));
 
     QualityAnalysis analysis = qualityAnalyzerService.analyzeProject(project);
     QualityAnalysis analysisFromDb = qualityAnalysisRepository.findOne(analysis.getId());
@@ -18,6 +18,7 @@
  */
 package org.codeqinvest.quality.analysis;
 
+import com.google.common.collect.Sets;
 import org.codeqinvest.codechanges.CodeChangeProbabilityCalculator;
 import org.codeqinvest.codechanges.scm.CodeChurnCalculationException;
 import org.codeqinvest.codechanges.scm.ScmAvailabilityCheckerService;
@@ -33,7 +34,6 @@ import org.codeqinvest.quality.QualityProfile;
 import org.codeqinvest.quality.QualityRequirement;
 import org.codeqinvest.quality.QualityViolation;
 import org.codeqinvest.sonar.ResourceNotFoundException;
-import org.codeqinvest.sonar.SonarConnectionSettings;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -42,11 +42,14 @@ import java.util.Collections;
 import java.util.List;
 
 import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.AdditionalAnswers.returnsFirstArg;
 import static org.mockito.Matchers.any;
-import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.anyCollectionOf;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 
 public class DefaultQualityAnalyzerServiceTest {
@@ -60,7 +63,8 @@ public class DefaultQualityAnalyzerServiceTest {
   private ScmAvailabilityCheckerServiceFactory scmAvailabilityCheckerServiceFactory;
   private SecureChangeProbabilityCalculator secureChangeProbabilityCalculator;
   private QualityViolationCostsCalculator costsCalculator;
-  private QualityAnalysisRepository qualityAnalysisRepository;
+  private QualityAnalysisBulkWriter analysisWriter;
+  private IncrementalAnalysisBaselineService incrementalAnalysisBaselineService;
 
   @Before
   public void setUp() throws ResourceNotFoundException {
@@ -81,10 +85,12 @@ public class DefaultQualityAnalyzerServiceTest {
 
     secureChangeProbabilityCalculator = mock(SecureChangeProbabilityCalculator.class);
     when(secureChangeProbabilityCalculator.calculateSecureChangeProbability(any(QualityProfile.class),
-        any(SonarConnectionSettings.class), any(Artefact.class))).thenReturn(1.0);
+        any(MetricSnapshot.class), any(Artefact.class))).thenReturn(1.0);
 
     costsCalculator = mock(QualityViolationCostsCalculator.class);
-    qualityAnalysisRepository = new DummyQualityAnalysisRepository();
+    analysisWriter = mock(QualityAnalysisBulkWriter.class);
+    when(analysisWriter.write(any(QualityAnalysis.class))).thenAnswer(returnsFirstArg());
+    incrementalAnalysisBaselineService = mock(IncrementalAnalysisBaselineService.class);
   }
 
   @Test
@@ -131,18 +137,44 @@ public class DefaultQualityAnalyzerServiceTest {
         .thenReturn(ViolationsAnalysisResult.createSuccessfulAnalysis(Arrays.asList(violationA, violationB)));
 
     CodeChangeProbabilityCalculator codeChangeProbabilityCalculator = mock(CodeChangeProbabilityCalculator.class);
-    when(codeChangeProbabilityCalculator.calculateCodeChangeProbability(any(ScmConnectionSettings.class), anyString())).thenReturn(1.2);
+    when(codeChangeProbabilityCalculator.calculateCodeChangeProbabilities(any(ScmConnectionSettings.class), anyCollectionOf(String.class)))
+        .thenAnswer(new FixedChangeProbabilityAnswer(1.2));
     CodeChangeProbabilityCalculatorFactory codeChangeProbabilityCalculatorFactory = createMockedCodeChangeProbabilityCalculatorFactory();
     when(codeChangeProbabilityCalculatorFactory.create(any(CodeChangeSettings.class))).thenReturn(codeChangeProbabilityCalculator);
 
     QualityAnalyzerService qualityAnalyzerService = new DefaultQualityAnalyzerService(violationsCalculatorService,
-        scmAvailabilityCheckerServiceFactory, codeChangeProbabilityCalculatorFactory, secureChangeProbabilityCalculator, costsCalculator, qualityAnalysisRepository);
+        scmAvailabilityCheckerServiceFactory, codeChangeProbabilityCalculatorFactory, secureChangeProbabilityCalculator, costsCalculator, analysisWriter, incrementalAnalysisBaselineService);
     qualityAnalyzerService.analyzeProject(project);
 
     assertThat(artefactA.getChangeProbability()).isEqualTo(1.2);
     assertThat(artefactB.getChangeProbability()).isEqualTo(1.2);
   }
 
+  @Test
+  public void calculateChangeProbabilityOfAllArtefactsWithOneRequest() throws CodeChurnCalculationException, ScmConnectionEncodingException {
+    Artefact artefactA = new Artefact("org.A", "org.A");
+    Artefact artefactB = new Artefact("org.B", "org.B");
+
+    ViolationsCalculatorService violationsCalculatorService = mock(ViolationsCalculatorService.class);
+    when(violationsCalculatorService.calculateAllViolation(any(Project.class))).thenReturn(ViolationsAnalysisResult.createSuccessfulAnalysis(
+        Arrays.asList(new ViolationOccurence(firstRequirement, artefactA, 0),
+            new ViolationOccurence(secondRequirement, artefactA, 0),
+            new ViolationOccurence(firstRequirement, artefactB, 0))));
+
+    CodeChangeProbabilityCalculator codeChangeProbabilityCalculator = mock(CodeChangeProbabilityCalculator.class);
+    when(codeChangeProbabilityCalculator.calculateCodeChangeProbabilities(any(ScmConnectionSettings.class), anyCollectionOf(String.class)))
+        .thenAnswer(new FixedChangeProbabilityAnswer(0.5));
+    CodeChangeProbabilityCalculatorFactory codeChangeProbabilityCalculatorFactory = createMockedCodeChangeProbabilityCalculatorFactory();
+    when(codeChangeProbabilityCalculatorFactory.create(any(CodeChangeSettings.class))).thenReturn(codeChangeProbabilityCalculator);
+
+    QualityAnalyzerService qualityAnalyzerService = new DefaultQualityAnalyzerService(violationsCalculatorService,
+        scmAvailabilityCheckerServiceFactory, codeChangeProbabilityCalculatorFactory, secureChangeProbabilityCalculator, costsCalculator, analysisWriter, incrementalAnalysisBaselineService);
+    qualityAnalyzerService.analyzeProject(project);
+
+    verify(codeChangeProbabilityCalculator).calculateCodeChangeProbabilities(any(ScmConnectionSettings.class), eq(Sets.newHashSet("org/A.java", "org/B.java")));
+    verifyNoMoreInteractions(codeChangeProbabilityCalculator);
+  }
+
   @Test
   public void addSecureChangeProbabilityToArtefacts() throws CodeChurnCalculationException, ScmConnectionEncodingException, ResourceNotFoundException {
     Artefact artefactA = new Artefact("A", "A");
@@ -156,17 +188,18 @@ public class DefaultQualityAnalyzerServiceTest {
         .thenReturn(ViolationsAnalysisResult.createSuccessfulAnalysis(Arrays.asList(violationA, violationB)));
 
     CodeChangeProbabilityCalculator codeChangeProbabilityCalculator = mock(CodeChangeProbabilityCalculator.class);
-    when(codeChangeProbabilityCalculator.calculateCodeChangeProbability(any(ScmConnectionSettings.class), anyString())).thenReturn(1.0);
+    when(codeChangeProbabilityCalculator.calculateCodeChangeProbabilities(any(ScmConnectionSettings.class), anyCollectionOf(String.class)))
+        .thenAnswer(new FixedChangeProbabilityAnswer(1.0));
     CodeChangeProbabilityCalculatorFactory codeChangeProbabilityCalculatorFactory = createMockedCodeChangeProbabilityCalculatorFactory();
     when(codeChangeProbabilityCalculatorFactory.create(any(CodeChangeSettings.class))).thenReturn(codeChangeProbabilityCalculator);
 
     when(secureChangeProbabilityCalculator.calculateSecureChangeProbability(any(QualityProfile.class),
-        any(SonarConnectionSettings.class), eq(artefactA))).thenReturn(1.115);
+        any(MetricSnapshot.class), eq(artefactA))).thenReturn(1.115);
     when(secureChangeProbabilityCalculator.calculateSecureChangeProbability(any(QualityProfile.class),
-        any(SonarConnectionSettings.class), eq(artefactB))).thenReturn(1.341);
+        any(MetricSnapshot.class), eq(artefactB))).thenReturn(1.341);
 
     QualityAnalyzerService qualityAnalyzerService = new DefaultQualityAnalyzerService(violationsCalculatorService,
-        scmAvailabilityCheckerServiceFactory, codeChangeProbabilityCalculatorFactory, secureChangeProbabilityCalculator, costsCalculator, qualityAnalysisRepository);
+        scmAvailabilityCheckerServiceFactory, codeChangeProbabilityCalculatorFactory, secureChangeProbabilityCalculator, costsCalculator, analysisWriter, incrementalAnalysisBaselineService);
     qualityAnalyzerService.analyzeProject(project);
 
     assertThat(artefactA.getSecureChangeProbability()).isEqualTo(1.115);
@@ -184,15 +217,16 @@ public class DefaultQualityAnalyzerServiceTest {
         .thenReturn(ViolationsAnalysisResult.createSuccessfulAnalysis(Arrays.asList(violation)));
 
     CodeChangeProbabilityCalculator codeChangeProbabilityCalculator = mock(CodeChangeProbabilityCalculator.class);
-    when(codeChangeProbabilityCalculator.calculateCodeChangeProbability(any(ScmConnectionSettings.class), anyString())).thenReturn(1.0);
+    when(codeChangeProbabilityCalculator.calculateCodeChangeProbabilities(any(ScmConnectionSettings.class), anyCollectionOf(String.class)))
+        .thenAnswer(new FixedChangeProbabilityAnswer(1.0));
     CodeChangeProbabilityCalculatorFactory codeChangeProbabilityCalculatorFactory = createMockedCodeChangeProbabilityCalculatorFactory();
     when(codeChangeProbabilityCalculatorFactory.create(any(CodeChangeSettings.class))).thenReturn(codeChangeProbabilityCalculator);
 
     when(secureChangeProbabilityCalculator.calculateSecureChangeProbability(any(QualityProfile.class),
-        any(SonarConnectionSettings.class), any(Artefact.class))).thenThrow(ResourceNotFoundException.class);
+        any(MetricSnapshot.class), any(Artefact.class))).thenThrow(ResourceNotFoundException.class);
 
     QualityAnalyzerService qualityAnalyzerService = new DefaultQualityAnalyzerService(violationsCalculatorService,
-        scmAvailabilityCheckerServiceFactory, codeChangeProbabilityCalculatorFactory, secureChangeProbabilityCalculator, costsCalculator, qualityAnalysisRepository);
+        scmAvailabilityCheckerServiceFactory, codeChangeProbabilityCalculatorFactory, secureChangeProbabilityCalculator, costsCalculator, analysisWriter, incrementalAnalysisBaselineService);
     QualityAnalysis analysis = qualityAnalyzerService.analyzeProject(project);
 
     assertThat(analysis.isSuccessful()).isFalse();
@@ -207,15 +241,16 @@ public class DefaultQualityAnalyzerServiceTest {
         .thenReturn(ViolationsAnalysisResult.createSuccessfulAnalysis(Arrays.asList(violation)));
 
     CodeChangeProbabilityCalculator codeChangeProbabilityCalculator = mock(CodeChangeProbabilityCalculator.class);
-    when(codeChangeProbabilityCalculator.calculateCodeChangeProbability(any(ScmConnectionSettings.class), anyString())).thenReturn(1.0);
+    when(codeChangeProbabilityCalculator.calculateCodeChangeProbabilities(any(ScmConnectionSettings.class), anyCollectionOf(String.class)))
+        .thenAnswer(new FixedChangeProbabilityAnswer(1.0));
     CodeChangeProbabilityCalculatorFactory codeChangeProbabilityCalculatorFactory = createMockedCodeChangeProbabilityCalculatorFactory();
     when(codeChangeProbabilityCalculatorFactory.create(any(CodeChangeSettings.class))).thenReturn(codeChangeProbabilityCalculator);
 
     QualityAnalyzerService qualityAnalyzerService = new DefaultQualityAnalyzerService(violationsCalculatorService,
-        scmAvailabilityCheckerServiceFactory, codeChangeProbabilityCalculatorFactory, secureChangeProbabilityCalculator, costsCalculator, qualityAnalysisRepository);
+        scmAvailabilityCheckerServiceFactory, codeChangeProbabilityCalculatorFactory, secureChangeProbabilityCalculator, costsCalculator, analysisWriter, incrementalAnalysisBaselineService);
     qualityAnalyzerService.analyzeProject(project);
-    verify(costsCalculator).calculateRemediationCosts(project.getSonarConnectionSettings(), violation);
-    verify(costsCalculator).calculateNonRemediationCosts(project.getSonarConnectionSettings(), violation);
+    verify(costsCalculator).calculateRemediationCosts(any(MetricSnapshot.class), eq(violation));
+    verify(costsCalculator).calculateNonRemediationCosts(any(MetricSnapshot.class), eq(violation));
   }
 
   @Test
@@ -226,7 +261,7 @@ public class DefaultQualityAnalyzerServiceTest {
 
     QualityAnalyzerService qualityAnalyzerService = new DefaultQualityAnalyzerService(violationsCalculatorService,
         scmAvailabilityCheckerServiceFactory, mock(CodeChangeProbabilityCalculatorFactory.class),
-        secureChangeProbabilityCalculator, costsCalculator, qualityAnalysisRepository);
+        secureChangeProbabilityCalculator, costsCalculator, analysisWriter, incrementalAnalysisBaselineService);
 
     QualityAnalysis analysis = qualityAnalyzerService.analyzeProject(project);
     assertThat(analysis.isSuccessful()).isFalse();
@@ -247,7 +282,7 @@ public class DefaultQualityAnalyzerServiceTest {
 
     QualityAnalyzerService qualityAnalyzerService = new DefaultQualityAnalyzerService(violationsCalculatorService,
         notAvailableCheckerServiceFactory, mock(CodeChangeProbabilityCalculatorFactory.class),
-        secureChangeProbabilityCalculator, costsCalculator, qualityAnalysisRepository);
+        secureChangeProbabilityCalculator, costsCalculator, analysisWriter, incrementalAnalysisBaselineService);
 
     QualityAnalysis analysis = qualityAnalyzerService.analyzeProject(project);
     assertThat(analysis.isSuccessful()).isFalse();
@@ -274,13 +309,14 @@ public class DefaultQualityAnalyzerServiceTest {
         .thenReturn(ViolationsAnalysisResult.createSuccessfulAnalysis(Arrays.asList(new ViolationOccurence(firstRequirement, new Artefact("A", "A"), 0))));
 
     CodeChangeProbabilityCalculator codeChangeProbabilityCalculator = mock(CodeChangeProbabilityCalculator.class);
-    when(codeChangeProbabilityCalculator.calculateCodeChangeProbability(any(ScmConnectionSettings.class), anyString())).thenReturn(1.0);
+    when(codeChangeProbabilityCalculator.calculateCodeChangeProbabilities(any(ScmConnectionSettings.class), anyCollectionOf(String.class)))
+        .thenAnswer(new FixedChangeProbabilityAnswer(1.0));
     CodeChangeProbabilityCalculatorFactory codeChangeProbabilityCalculatorFactory = createMockedCodeChangeProbabilityCalculatorFactory();
     when(codeChangeProbabilityCalculatorFactory.create(any(CodeChangeSettings.class))).thenReturn(codeChangeProbabilityCalculator);
 
-    when(costsCalculator.calculateRemediationCosts(any(SonarConnectionSettings.class), any(ViolationOccurence.class))).thenThrow(ResourceNotFoundException.class);
+    when(costsCalculator.calculateRemediationCosts(any(MetricSnapshot.class), any(ViolationOccurence.class))).thenThrow(ResourceNotFoundException.class);
     QualityAnalyzerService qualityAnalyzerService = new DefaultQualityAnalyzerService(violationsCalculatorService, scmAvailabilityCheckerServiceFactory,
-        codeChangeProbabilityCalculatorFactory, secureChangeProbabilityCalculator, costsCalculator, qualityAnalysisRepository);
+        codeChangeProbabilityCalculatorFactory, secureChangeProbabilityCalculator, costsCalculator, analysisWriter, incrementalAnalysisBaselineService);
 
     QualityAnalysis analysis = qualityAnalyzerService.analyzeProject(project);
     assertThat(analysis.isSuccessful()).isFalse();
@@ -293,29 +329,72 @@ public class DefaultQualityAnalyzerServiceTest {
         .thenReturn(ViolationsAnalysisResult.createSuccessfulAnalysis(Arrays.asList(new ViolationOccurence(firstRequirement, new Artefact("A", "A"), 0))));
 
     CodeChangeProbabilityCalculator codeChangeProbabilityCalculator = mock(CodeChangeProbabilityCalculator.class);
-    when(codeChangeProbabilityCalculator.calculateCodeChangeProbability(any(ScmConnectionSettings.class), anyString())).thenReturn(1.0);
+    when(codeChangeProbabilityCalculator.calculateCodeChangeProbabilities(any(ScmConnectionSettings.class), anyCollectionOf(String.class)))
+        .thenAnswer(new FixedChangeProbabilityAnswer(1.0));
     CodeChangeProbabilityCalculatorFactory codeChangeProbabilityCalculatorFactory = createMockedCodeChangeProbabilityCalculatorFactory();
     when(codeChangeProbabilityCalculatorFactory.create(any(CodeChangeSettings.class))).thenReturn(codeChangeProbabilityCalculator);
 
-    when(costsCalculator.calculateNonRemediationCosts(any(SonarConnectionSettings.class), any(ViolationOccurence.class))).thenThrow(ResourceNotFoundException.class);
+    when(costsCalculator.calculateNonRemediationCosts(any(MetricSnapshot.class), any(ViolationOccurence.class))).thenThrow(ResourceNotFoundException.class);
     QualityAnalyzerService qualityAnalyzerService = new DefaultQualityAnalyzerService(violationsCalculatorService, scmAvailabilityCheckerServiceFactory,
-        codeChangeProbabilityCalculatorFactory, secureChangeProbabilityCalculator, costsCalculator, qualityAnalysisRepository);
+        codeChangeProbabilityCalculatorFactory, secureChangeProbabilityCalculator, costsCalculator, analysisWriter, incrementalAnalysisBaselineService);
 
     QualityAnalysis analysis = qualityAnalyzerService.analyzeProject(project);
     assertThat(analysis.isSuccessful()).isFalse();
   }
 
+  @Test
+  public void reuseChangeProbabilityOfUnchangedArtefactsInIncrementalAnalysis() throws CodeChurnCalculationException, ScmConnectionEncodingException {
+    Artefact artefactA = new Artefact("org.A", "org.A");
+    Artefact artefactB = new Artefact("org.B", "org.B");
+    Artefact previousArtefactA = new Artefact("org.A", "org.A");
+    previousArtefactA.setChangeProbability(0.7);
+    Artefact previousArtefactB = new Artefact("org.B", "org.B");
+    previousArtefactB.setChangeProbability(0.4);
+    when(incrementalAnalysisBaselineService.createBaseline(project)).thenReturn(IncrementalAnalysisBaseline.forCommitWindow(
+        Sets.newHashSet(previousArtefactA, previousArtefactB), Sets.newHashSet("/trunk/src/main/java/org/B.java")));
+
+    ViolationsCalculatorService violationsCalculatorService = mock(ViolationsCalculatorService.class);
+    when(violationsCalculatorService.calculateAllViolation(any(Project.class))).thenReturn(ViolationsAnalysisResult.createSuccessfulAnalysis(
+        Arrays.asList(new ViolationOccurence(firstRequirement, artefactA, 0), new ViolationOccurence(firstRequirement, artefactB, 0))));
+
+    CodeChangeProbabilityCalculator codeChangeProbabilityCalculator = mock(CodeChangeProbabilityCalculator.class);
+    when(codeChangeProbabilityCalculator.calculateCodeChangeProbabilities(any(ScmConnectionSettings.class), anyCollectionOf(String.class)))
+        .thenAnswer(new FixedChangeProbabilityAnswer(1.2));
+    CodeChangeProbabilityCalculatorFactory codeChangeProbabilityCalculatorFactory = createMockedCodeChangeProbabilityCalculatorFactory();
+    when(codeChangeProbabilityCalculatorFactory.create(any(CodeChangeSettings.class))).thenReturn(codeChangeProbabilityCalculator);
+
+    QualityAnalyzerService qualityAnalyzerService = new DefaultQualityAnalyzerService(violationsCalculatorService, scmAvailabilityCheckerServiceFactory,
+        codeChangeProbabilityCalculatorFactory, secureChangeProbabilityCalculator, costsCalculator, analysisWriter, incrementalAnalysisBaselineService);
+    QualityAnalysis analysis = qualityAnalyzerService.analyzeProjectIncrementally(project);
+
+    assertThat(analysis.isSuccessful()).isTrue();
+    assertThat(artefactA.getChangeProbability()).isEqualTo(0.7);
+    assertThat(artefactB.getChangeProbability()).isEqualTo(1.2);
+    verify(codeChangeProbabilityCalculator).calculateCodeChangeProbabilities(any(ScmConnectionSettings.class), eq(Sets.newHashSet("org/B.java")));
+    verifyNoMoreInteractions(codeChangeProbabilityCalculator);
+  }
+
+  @Test
+  public void fullAnalysisShouldNotRetrieveIncrementalBaseline() throws CodeChurnCalculationException, ScmConnectionEncodingException {
+    QualityAnalyzerService qualityAnalyzerService = createMockedSystemWithArtefactsAndViolations(
+        Arrays.asList(new ViolationOccurence(firstRequirement, new Artefact("A", "A"), 12)));
+
+    qualityAnalyzerService.analyzeProject(project);
+    verifyZeroInteractions(incrementalAnalysisBaselineService);
+  }
+
   private QualityAnalyzerService createMockedSystemWithArtefactsAndViolations(List<ViolationOccurence> violations) throws CodeChurnCalculationException, ScmConnectionEncodingException {
     ViolationsCalculatorService violationsCalculatorService = mock(ViolationsCalculatorService.class);
     when(violationsCalculatorService.calculateAllViolation(any(Project.class))).thenReturn(ViolationsAnalysisResult.createSuccessfulAnalysis(violations));
 
     CodeChangeProbabilityCalculator codeChangeProbabilityCalculator = mock(CodeChangeProbabilityCalculator.class);
-    when(codeChangeProbabilityCalculator.calculateCodeChangeProbability(any(ScmConnectionSettings.class), anyString())).thenReturn(1.0);
+    when(codeChangeProbabilityCalculator.calculateCodeChangeProbabilities(any(ScmConnectionSettings.class), anyCollectionOf(String.class)))
+        .thenAnswer(new FixedChangeProbabilityAnswer(1.0));
     CodeChangeProbabilityCalculatorFactory codeChangeProbabilityCalculatorFactory = createMockedCodeChangeProbabilityCalculatorFactory();
     when(codeChangeProbabilityCalculatorFactory.create(any(CodeChangeSettings.class))).thenReturn(codeChangeProbabilityCalculator);
 
     return new DefaultQualityAnalyzerService(violationsCalculatorService, scmAvailabilityCheckerServiceFactory,
-        codeChangeProbabilityCalculatorFactory, secureChangeProbabilityCalculator, costsCalculator, qualityAnalysisRepository);
+        codeChangeProbabilityCalculatorFactory, secureChangeProbabilityCalculator, costsCalculator, analysisWriter, incrementalAnalysisBaselineService);
   }
 
   private <T extends Exception> QualityAnalyzerService createMockedSystemThatThrowsExceptionInCodeChangeCalculation(Class<T> exception) throws CodeChurnCalculationException, ScmConnectionEncodingException {
@@ -324,11 +403,12 @@ public class DefaultQualityAnalyzerServiceTest {
         .thenReturn(ViolationsAnalysisResult.createSuccessfulAnalysis(Arrays.asList(new ViolationOccurence(firstRequirement, new Artefact("A", "A"), 0))));
 
     CodeChangeProbabilityCalculator codeChangeProbabilityCalculator = mock(CodeChangeProbabilityCalculator.class);
-    when(codeChangeProbabilityCalculator.calculateCodeChangeProbability(any(ScmConnectionSettings.class), anyString())).thenThrow(exception);
+    when(codeChangeProbabilityCalculator.calculateCodeChangeProbabilities(any(ScmConnectionSettings.class), anyCollectionOf(String.class)))
+        .thenThrow(exception);
     CodeChangeProbabilityCalculatorFactory codeChangeProbabilityCalculatorFactory = createMockedCodeChangeProbabilityCalculatorFactory();
     when(codeChangeProbabilityCalculatorFactory.create(any(CodeChangeSettings.class))).thenReturn(codeChangeProbabilityCalculator);
     return new DefaultQualityAnalyzerService(violationsCalculatorService, scmAvailabilityCheckerServiceFactory,
-        codeChangeProbabilityCalculatorFactory, secureChangeProbabilityCalculator, costsCalculator, qualityAnalysisRepository);
+        codeChangeProbabilityCalculatorFactory, secureChangeProbabilityCalculator, costsCalculator, analysisWriter, incrementalAnalysisBaselineService);
   }
 
   private CodeChangeProbabilityCalculatorFactory createMockedCodeChangeProbabilityCalculatorFactory() {
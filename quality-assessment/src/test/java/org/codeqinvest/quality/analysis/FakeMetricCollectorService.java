@@ -20,15 +20,27 @@ package org.codeqinvest.quality.analysis;
 
 import com.google.common.collect.Maps;
 import org.codeqinvest.sonar.MetricCollectorService;
+import org.codeqinvest.sonar.ProjectMetrics;
 import org.codeqinvest.sonar.ResourceNotFoundException;
+import org.codeqinvest.sonar.SonarClientRegistry;
 import org.codeqinvest.sonar.SonarConnectionSettings;
+import org.sonar.wsclient.services.Measure;
+import org.sonar.wsclient.services.Resource;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 class FakeMetricCollectorService extends MetricCollectorService {
 
-  private final Map<String, Map<String, Double>> metricValues = Maps.newHashMap();
+  private final Map<String, Map<String, Double>> metricValues = Maps.newLinkedHashMap();
+
+  FakeMetricCollectorService() {
+    super(new SonarClientRegistry());
+  }
 
   public void addMetricValue(String resourceKey, String metricIdentifier, double metricValue) {
     if (!metricValues.containsKey(resourceKey)) {
@@ -44,4 +56,23 @@ class FakeMetricCollectorService extends MetricCollectorService {
     }
     return metricValues.get(resourceKey).get(metricIdentifier);
   }
+
+  @Override
+  public Iterator<ProjectMetrics> collectMetricsForProjectPageByPage(SonarConnectionSettings connectionSettings, Set<String> metricIdentifiers) {
+    List<ProjectMetrics> pages = new ArrayList<ProjectMetrics>();
+    for (Map.Entry<String, Map<String, Double>> resourceValues : metricValues.entrySet()) {
+      Resource resource = new Resource();
+      resource.setKey(resourceValues.getKey());
+      resource.setLongName(resourceValues.getKey());
+      List<Measure> measures = new ArrayList<Measure>();
+      for (Map.Entry<String, Double> metricValue : resourceValues.getValue().entrySet()) {
+        measures.add(new Measure().setMetricKey(metricValue.getKey()).setValue(metricValue.getValue()));
+      }
+      resource.setMeasures(measures);
+      ProjectMetrics page = new ProjectMetrics(metricIdentifiers);
+      page.addResource(resource);
+      pages.add(page);
+    }
+    return pages.iterator();
+  }
 }
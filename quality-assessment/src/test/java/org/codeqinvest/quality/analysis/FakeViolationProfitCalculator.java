@@ -18,26 +18,18 @@
  */
 package org.codeqinvest.quality.analysis;
 
-import org.codeqinvest.sonar.ResourcesCollectorService;
-import org.codeqinvest.sonar.SonarConnectionSettings;
-import org.sonar.wsclient.services.Resource;
+import org.codeqinvest.quality.QualityViolationView;
+import org.springframework.stereotype.Component;
 
-import java.util.Collection;
-import java.util.LinkedList;
-
-class FakeResourcesCollectorService extends ResourcesCollectorService {
-
-  private final Collection<Resource> resources = new LinkedList<Resource>();
-
-  public void addResource(String key) {
-    Resource resource = new Resource();
-    resource.setKey(key);
-    resource.setLongName(key);
-    resources.add(resource);
-  }
+/**
+ * The profit model is implemented by the investment module,
+ * which is not available for the tests of this module.
+ */
+@Component
+class FakeViolationProfitCalculator implements ViolationProfitCalculator {
 
   @Override
-  public Collection<Resource> collectAllResourcesForProject(SonarConnectionSettings connectionSettings) {
-    return resources;
+  public double calculateWeightedProfit(QualityViolationView violation) {
+    return violation.getNonRemediationCosts() - violation.getRemediationCosts();
   }
 }
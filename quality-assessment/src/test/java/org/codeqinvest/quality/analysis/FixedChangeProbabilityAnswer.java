@@ -0,0 +1,48 @@
+/*
+ * Copyright 2013 Felix Müller
+ *
+ * This file is part of CodeQ Invest.
+ *
+ * CodeQ Invest is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CodeQ Invest is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CodeQ Invest.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.codeqinvest.quality.analysis;
+
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Answers calls of {@code CodeChangeProbabilityCalculator#calculateCodeChangeProbabilities}
+ * with the same change probability for every requested file.
+ */
+class FixedChangeProbabilityAnswer implements Answer<Map<String, Double>> {
+
+  private final double changeProbability;
+
+  FixedChangeProbabilityAnswer(double changeProbability) {
+    this.changeProbability = changeProbability;
+  }
+
+  @Override
+  public Map<String, Double> answer(InvocationOnMock invocation) throws Throwable {
+    Map<String, Double> changeProbabilities = new HashMap<String, Double>();
+    for (Object file : (Collection<?>) invocation.getArguments()[1]) {
+      changeProbabilities.put((String) file, changeProbability);
+    }
+    return changeProbabilities;
+  }
+}
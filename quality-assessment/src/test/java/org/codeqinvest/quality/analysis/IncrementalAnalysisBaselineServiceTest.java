@@ -0,0 +1,157 @@
+/*
+ * Copyright 2013 Felix Müller
+ *
+ * This file is part of CodeQ Invest.
+ *
+ * CodeQ Invest is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CodeQ Invest is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CodeQ Invest.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.codeqinvest.quality.analysis;
+
+import com.google.common.collect.Sets;
+import org.codeqinvest.codechanges.scm.ChangedFilesRetriever;
+import org.codeqinvest.codechanges.scm.CodeChurnCalculationException;
+import org.codeqinvest.codechanges.scm.ScmConnectionSettings;
+import org.codeqinvest.codechanges.scm.factory.ChangedFilesRetrieverFactory;
+import org.codeqinvest.quality.Artefact;
+import org.codeqinvest.quality.CodeChangeSettings;
+import org.codeqinvest.quality.Project;
+import org.codeqinvest.quality.QualityCriteria;
+import org.codeqinvest.quality.QualityProfile;
+import org.codeqinvest.quality.QualityRequirement;
+import org.codeqinvest.quality.QualityViolation;
+import org.joda.time.DateTime;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+public class IncrementalAnalysisBaselineServiceTest {
+
+  private Project project;
+  private QualityRequirement requirement;
+  private Artefact artefact;
+  private LastQualityAnalysisService lastQualityAnalysisService;
+  private ChangedFilesRetriever changedFilesRetriever;
+  private ChangedFilesRetrieverFactory changedFilesRetrieverFactory;
+  private IncrementalAnalysisBaselineService baselineService;
+
+  @Before
+  public void setUp() {
+    project = mock(Project.class);
+    when(project.getScmSettings()).thenReturn(new ScmConnectionSettings("http://svn.localhost"));
+    when(project.getCodeChangeSettings()).thenReturn(CodeChangeSettings.commitBasedSettings(10));
+
+    QualityProfile profile = new QualityProfile("quality-profile");
+    requirement = new QualityRequirement(profile, 100, 200, 10, "nloc", new QualityCriteria("cc", ">", 10));
+    artefact = new Artefact("org.A", "org.A");
+    artefact.setChangeProbability(0.5);
+    QualityAnalysis lastAnalysis = QualityAnalysis.success(project, Arrays.asList(new QualityViolation(artefact, requirement, 0, 0, 0, "nloc")));
+
+    lastQualityAnalysisService = mock(LastQualityAnalysisService.class);
+    when(lastQualityAnalysisService.retrieveLastSuccessfulAnalysis(project)).thenReturn(lastAnalysis);
+    changedFilesRetriever = mock(ChangedFilesRetriever.class);
+    changedFilesRetrieverFactory = mock(ChangedFilesRetrieverFactory.class);
+    when(changedFilesRetrieverFactory.create(any(ScmConnectionSettings.class))).thenReturn(changedFilesRetriever);
+    baselineService = new IncrementalAnalysisBaselineService(lastQualityAnalysisService, changedFilesRetrieverFactory);
+  }
+
+  @Test
+  public void baselineShouldContainChangeProbabilitiesOfLastSuccessfulAnalysis() throws CodeChurnCalculationException {
+    when(changedFilesRetriever.retrieveChangedFiles(any(ScmConnectionSettings.class), any(DateTime.class)))
+        .thenReturn(Sets.newHashSet("/trunk/org/B.java"));
+    IncrementalAnalysisBaseline baseline = baselineService.createBaseline(project);
+    assertThat(baseline.getChangeProbabilityOfUnchangedArtefact(artefact).get()).isEqualTo(0.5);
+  }
+
+  @Test
+  public void emptyBaselineWhenThereIsNoSuccessfulAnalysis() {
+    when(lastQualityAnalysisService.retrieveLastSuccessfulAnalysis(project)).thenReturn(null);
+    assertThat(baselineService.createBaseline(project)).isSameAs(IncrementalAnalysisBaseline.none());
+    verifyZeroInteractions(changedFilesRetrieverFactory);
+  }
+
+  @Test
+  public void emptyBaselineWhenChangedFilesAreNotRetrievable() throws CodeChurnCalculationException {
+    when(changedFilesRetriever.retrieveChangedFiles(any(ScmConnectionSettings.class), any(DateTime.class)))
+        .thenThrow(CodeChurnCalculationException.class);
+    assertThat(baselineService.createBaseline(project)).isSameAs(IncrementalAnalysisBaseline.none());
+  }
+
+  @Test
+  public void emptyBaselineWhenCodeChangeSettingsWereChanged() {
+    when(project.getCodeChangeSettings()).thenReturn(CodeChangeSettings.commitBasedSettings(20));
+    assertThat(baselineService.createBaseline(project)).isSameAs(IncrementalAnalysisBaseline.none());
+    verifyZeroInteractions(changedFilesRetrieverFactory);
+  }
+
+  @Test
+  public void emptyBaselineWhenLastAnalysisHasNoCodeChangeSettings() {
+    when(project.getCodeChangeSettings()).thenReturn(null);
+    QualityAnalysis analysisWithoutSettings = QualityAnalysis.success(project, Arrays.asList(new QualityViolation(artefact, requirement, 0, 0, 0, "nloc")));
+    when(lastQualityAnalysisService.retrieveLastSuccessfulAnalysis(project)).thenReturn(analysisWithoutSettings);
+    when(project.getCodeChangeSettings()).thenReturn(CodeChangeSettings.commitBasedSettings(10));
+    assertThat(baselineService.createBaseline(project)).isSameAs(IncrementalAnalysisBaseline.none());
+  }
+
+  @Test
+  public void changedFilesOfDayWindowShouldBeRetrievedSinceStartOfPreviousWindow() throws CodeChurnCalculationException {
+    QualityAnalysis lastAnalysis = createLastAnalysisWithSettings(CodeChangeSettings.defaultSetting(30));
+    when(changedFilesRetriever.retrieveChangedFiles(any(ScmConnectionSettings.class), any(DateTime.class)))
+        .thenReturn(Sets.<String>newHashSet());
+
+    baselineService.createBaseline(project);
+    verify(changedFilesRetriever).retrieveChangedFiles(project.getScmSettings(),
+        lastAnalysis.getCreated().toLocalDate().minusDays(30).toDateTimeAtStartOfDay());
+  }
+
+  @Test
+  public void changeProbabilityOfUnchangedFileShouldNotBeReusedWhenDayWindowMoves() throws CodeChurnCalculationException {
+    createLastAnalysisWithSettings(CodeChangeSettings.weightedSetting(30));
+    when(changedFilesRetriever.retrieveChangedFiles(any(ScmConnectionSettings.class), any(DateTime.class)))
+        .thenReturn(Sets.<String>newHashSet());
+    assertThat(baselineService.createBaseline(project).getChangeProbabilityOfUnchangedArtefact(artefact).isPresent()).isFalse();
+  }
+
+  @Test
+  public void zeroChangeProbabilityOfFileWithoutChurnInMovedDayWindowShouldBeReused() throws CodeChurnCalculationException {
+    artefact.setChangeProbability(0.0);
+    createLastAnalysisWithSettings(CodeChangeSettings.defaultSetting(30));
+    when(changedFilesRetriever.retrieveChangedFiles(any(ScmConnectionSettings.class), any(DateTime.class)))
+        .thenReturn(Sets.newHashSet("/trunk/org/B.java"));
+    assertThat(baselineService.createBaseline(project).getChangeProbabilityOfUnchangedArtefact(artefact).get()).isEqualTo(0.0);
+  }
+
+  @Test
+  public void zeroChangeProbabilityOfFileWithChurnInMovedDayWindowShouldNotBeReused() throws CodeChurnCalculationException {
+    artefact.setChangeProbability(0.0);
+    createLastAnalysisWithSettings(CodeChangeSettings.defaultSetting(30));
+    when(changedFilesRetriever.retrieveChangedFiles(any(ScmConnectionSettings.class), any(DateTime.class)))
+        .thenReturn(Sets.newHashSet("/trunk/org/A.java"));
+    assertThat(baselineService.createBaseline(project).getChangeProbabilityOfUnchangedArtefact(artefact).isPresent()).isFalse();
+  }
+
+  private QualityAnalysis createLastAnalysisWithSettings(CodeChangeSettings codeChangeSettings) {
+    when(project.getCodeChangeSettings()).thenReturn(codeChangeSettings);
+    QualityAnalysis lastAnalysis = QualityAnalysis.success(project, Arrays.asList(new QualityViolation(artefact, requirement, 0, 0, 0, "nloc")));
+    when(lastQualityAnalysisService.retrieveLastSuccessfulAnalysis(project)).thenReturn(lastAnalysis);
+    return lastAnalysis;
+  }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2013 Felix Müller
+ *
+ * This file is part of CodeQ Invest.
+ *
+ * CodeQ Invest is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CodeQ Invest is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CodeQ Invest.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.codeqinvest.quality.analysis;
+
+import com.google.common.collect.Sets;
+import org.codeqinvest.quality.Artefact;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class IncrementalAnalysisBaselineTest {
+
+  private Artefact previousArtefact;
+
+  @Before
+  public void createPreviousArtefact() {
+    previousArtefact = new Artefact("org.project.A", "project:org.project.A");
+    previousArtefact.setChangeProbability(0.3);
+  }
+
+  @Test
+  public void reuseChangeProbabilityOfUnchangedArtefact() {
+    IncrementalAnalysisBaseline baseline = IncrementalAnalysisBaseline.forCommitWindow(Sets.newHashSet(previousArtefact),
+        Sets.newHashSet("/trunk/src/main/java/org/project/B.java"));
+    assertThat(baseline.getChangeProbabilityOfUnchangedArtefact(new Artefact("org.project.A", "project:org.project.A")).get())
+        .isEqualTo(0.3);
+  }
+
+  @Test
+  public void noChangeProbabilityForChangedArtefact() {
+    IncrementalAnalysisBaseline baseline = IncrementalAnalysisBaseline.forCommitWindow(Sets.newHashSet(previousArtefact),
+        Sets.newHashSet("/trunk/src/main/java/org/project/A.java"));
+    assertThat(baseline.getChangeProbabilityOfUnchangedArtefact(new Artefact("org.project.A", "project:org.project.A")).isPresent())
+        .isFalse();
+  }
+
+  @Test
+  public void onlyWholePathSegmentsShouldMatchChangedFiles() {
+    IncrementalAnalysisBaseline baseline = IncrementalAnalysisBaseline.forCommitWindow(Sets.newHashSet(previousArtefact),
+        Sets.newHashSet("/trunk/src/main/java/xorg/project/A.java"));
+    assertThat(baseline.getChangeProbabilityOfUnchangedArtefact(new Artefact("org.project.A", "project:org.project.A")).isPresent())
+        .isTrue();
+  }
+
+  @Test
+  public void noChangeProbabilityForArtefactThatWasNotPartOfPreviousAnalysis() {
+    IncrementalAnalysisBaseline baseline = IncrementalAnalysisBaseline.forCommitWindow(Sets.newHashSet(previousArtefact),
+        Collections.<String>emptySet());
+    assertThat(baseline.getChangeProbabilityOfUnchangedArtefact(new Artefact("org.project.C", "project:org.project.C")).isPresent())
+        .isFalse();
+  }
+
+  @Test
+  public void emptyBaselineShouldNeverReuseChangeProbabilities() {
+    assertThat(IncrementalAnalysisBaseline.none().getChangeProbabilityOfUnchangedArtefact(previousArtefact).isPresent())
+        .isFalse();
+  }
+
+  @Test
+  public void dayWindowShouldNotReuseChangeProbabilityOfUnchangedArtefactWithChurn() {
+    IncrementalAnalysisBaseline baseline = IncrementalAnalysisBaseline.forDayWindow(Sets.newHashSet(previousArtefact),
+        Collections.<String>emptySet());
+    assertThat(baseline.getChangeProbabilityOfUnchangedArtefact(new Artefact("org.project.A", "project:org.project.A")).isPresent())
+        .isFalse();
+  }
+
+  @Test
+  public void dayWindowShouldReuseZeroChangeProbabilityOfUnchangedArtefact() {
+    previousArtefact.setChangeProbability(0.0);
+    IncrementalAnalysisBaseline baseline = IncrementalAnalysisBaseline.forDayWindow(Sets.newHashSet(previousArtefact),
+        Collections.<String>emptySet());
+    assertThat(baseline.getChangeProbabilityOfUnchangedArtefact(new Artefact("org.project.A", "project:org.project.A")).get())
+        .isEqualTo(0.0);
+  }
+
+  @Test
+  public void dayWindowShouldNotReuseZeroChangeProbabilityOfChangedArtefact() {
+    previousArtefact.setChangeProbability(0.0);
+    IncrementalAnalysisBaseline baseline = IncrementalAnalysisBaseline.forDayWindow(Sets.newHashSet(previousArtefact),
+        Sets.newHashSet("/trunk/src/main/java/org/project/A.java"));
+    assertThat(baseline.getChangeProbabilityOfUnchangedArtefact(new Artefact("org.project.A", "project:org.project.A")).isPresent())
+        .isFalse();
+  }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2013 Felix Müller
+ *
+ * This file is part of CodeQ Invest.
+ *
+ * CodeQ Invest is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CodeQ Invest is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CodeQ Invest.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.codeqinvest.quality.analysis;
+
+import org.joda.time.DateTime;
+import org.junit.Test;
+import org.springframework.scheduling.support.SimpleTriggerContext;
+
+import java.util.Date;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class JitteredCronTriggerTest {
+
+  private static final String EVERY_DAY_AT_THREE = "0 0 3 * * *";
+
+  @Test
+  public void jitterShouldBeDeterministicForProject() {
+    assertThat(JitteredCronTrigger.computeJitterSeconds(42L, 600))
+        .isEqualTo(JitteredCronTrigger.computeJitterSeconds(42L, 600));
+  }
+
+  @Test
+  public void jitterShouldBeSmallerThanMaximum() {
+    for (long projectId = 1L; projectId <= 100L; projectId++) {
+      assertThat(JitteredCronTrigger.computeJitterSeconds(projectId, 60)).isGreaterThanOrEqualTo(0).isLessThan(60);
+    }
+  }
+
+  @Test
+  public void jitterShouldDifferBetweenProjects() {
+    int jitterOfFirstProject = JitteredCronTrigger.computeJitterSeconds(1L, 3600);
+    boolean differentJitter = false;
+    for (long projectId = 2L; projectId <= 10L; projectId++) {
+      differentJitter |= JitteredCronTrigger.computeJitterSeconds(projectId, 3600) != jitterOfFirstProject;
+    }
+    assertThat(differentJitter).isTrue();
+  }
+
+  @Test
+  public void noJitterWithoutMaximum() {
+    assertThat(JitteredCronTrigger.computeJitterSeconds(42L, 0)).isEqualTo(0);
+  }
+
+  @Test
+  public void delayNextExecutionByJitter() {
+    JitteredCronTrigger trigger = new JitteredCronTrigger(EVERY_DAY_AT_THREE, 42L, 600);
+    Date lastExecution = new DateTime(2013, 7, 1, 3, 0).plus(trigger.getJitterMillis()).toDate();
+
+    Date nextExecution = trigger.nextExecutionTime(triggerContext(lastExecution, lastExecution));
+    assertThat(nextExecution).isEqualTo(new DateTime(2013, 7, 2, 3, 0).plus(trigger.getJitterMillis()).toDate());
+  }
+
+  @Test
+  public void notSkipExecutionWhoseDelayIsNotOverYet() {
+    JitteredCronTrigger trigger = new JitteredCronTrigger(EVERY_DAY_AT_THREE, 42L, 600);
+    Date lastExecution = new DateTime(2013, 7, 1, 3, 0).minusHours(1).toDate();
+    Date completionAfterCronTimeButBeforeDelay = new DateTime(2013, 7, 2, 3, 0).toDate();
+
+    Date nextExecution = trigger.nextExecutionTime(triggerContext(lastExecution, completionAfterCronTimeButBeforeDelay));
+    assertThat(nextExecution).isEqualTo(new DateTime(2013, 7, 2, 3, 0).plus(trigger.getJitterMillis()).toDate());
+  }
+
+  private static SimpleTriggerContext triggerContext(Date lastExecution, Date lastCompletion) {
+    SimpleTriggerContext triggerContext = new SimpleTriggerContext();
+    triggerContext.update(lastExecution, lastExecution, lastCompletion);
+    return triggerContext;
+  }
+}
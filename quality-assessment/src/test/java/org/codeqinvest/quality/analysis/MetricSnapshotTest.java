@@ -0,0 +1,116 @@
+/*
+ * Copyright 2013 Felix Müller
+ *
+ * This file is part of CodeQ Invest.
+ *
+ * CodeQ Invest is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CodeQ Invest is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CodeQ Invest.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.codeqinvest.quality.analysis;
+
+import com.google.common.collect.Sets;
+import org.codeqinvest.sonar.MetricCollectorService;
+import org.codeqinvest.sonar.ResourceNotFoundException;
+import org.codeqinvest.sonar.SonarConnectionSettings;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.fest.assertions.Fail.fail;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class MetricSnapshotTest {
+
+  private final SonarConnectionSettings connectionSettings = new SonarConnectionSettings("http://localhost", "project");
+
+  private MetricCollectorService metricCollectorService;
+  private MetricSnapshot metricSnapshot;
+
+  @Before
+  public void setUp() {
+    FakeMetricCollectorService fakeMetricCollectorService = new FakeMetricCollectorService();
+    fakeMetricCollectorService.addMetricValue("A", "ncloc", 120.0);
+    fakeMetricCollectorService.addMetricValue("A", "cc", 12.0);
+    fakeMetricCollectorService.addMetricValue("B", "ncloc", 30.0);
+    metricCollectorService = spy(fakeMetricCollectorService);
+    metricSnapshot = new MetricSnapshot(connectionSettings, metricCollectorService);
+  }
+
+  @Test
+  public void shouldReadBulkCollectedValuesWithoutFurtherRequests() throws ResourceNotFoundException {
+    metricSnapshot.collectMetricsForProject(Sets.newHashSet("ncloc"));
+
+    assertThat(metricSnapshot.loadNextPage()).isTrue();
+    assertThat(metricSnapshot.getResources()).hasSize(1);
+    assertThat(metricSnapshot.getMetricValue("A", "ncloc")).isEqualTo(120.0);
+    assertThat(metricSnapshot.loadNextPage()).isTrue();
+    assertThat(metricSnapshot.getMetricValue("B", "ncloc")).isEqualTo(30.0);
+    assertThat(metricSnapshot.loadNextPage()).isFalse();
+    assertThat(metricSnapshot.getBulkReads()).isEqualTo(2);
+    assertThat(metricSnapshot.getHits()).isEqualTo(0);
+    assertThat(metricSnapshot.getMisses()).isEqualTo(0);
+    verify(metricCollectorService, times(0)).collectMetricForResource(connectionSettings, "A", "ncloc");
+  }
+
+  @Test
+  public void shouldDropValuesOfPreviousPagesExceptKeptOnes() throws ResourceNotFoundException {
+    metricSnapshot.collectMetricsForProject(Sets.newHashSet("ncloc"));
+
+    metricSnapshot.loadNextPage();
+    metricSnapshot.keep("A");
+    metricSnapshot.loadNextPage();
+    assertThat(metricSnapshot.loadNextPage()).isFalse();
+    assertThat(metricSnapshot.getResources()).isEmpty();
+
+    assertThat(metricSnapshot.getMetricValue("A", "ncloc")).isEqualTo(120.0);
+    assertThat(metricSnapshot.getMetricValue("B", "ncloc")).isEqualTo(30.0);
+    assertThat(metricSnapshot.getBulkReads()).isEqualTo(1);
+    assertThat(metricSnapshot.getMisses()).isEqualTo(1);
+    verify(metricCollectorService, times(0)).collectMetricForResource(connectionSettings, "A", "ncloc");
+    verify(metricCollectorService, times(1)).collectMetricForResource(connectionSettings, "B", "ncloc");
+  }
+
+  @Test
+  public void shouldFetchValuesOfNotCollectedMetricsOnlyOnce() throws ResourceNotFoundException {
+    metricSnapshot.collectMetricsForProject(Sets.newHashSet("ncloc"));
+
+    assertThat(metricSnapshot.getMetricValue("A", "cc")).isEqualTo(12.0);
+    assertThat(metricSnapshot.getMetricValue("A", "cc")).isEqualTo(12.0);
+    assertThat(metricSnapshot.getBulkReads()).isEqualTo(0);
+    assertThat(metricSnapshot.getHits()).isEqualTo(1);
+    assertThat(metricSnapshot.getMisses()).isEqualTo(1);
+    verify(metricCollectorService, times(1)).collectMetricForResource(connectionSettings, "A", "cc");
+  }
+
+  @Test
+  public void shouldRememberMissingValues() throws ResourceNotFoundException {
+    for (int i = 0; i < 2; i++) {
+      try {
+        metricSnapshot.getMetricValue("B", "cc");
+        fail("value should be missing");
+      } catch (ResourceNotFoundException e) {
+        // expected
+      }
+    }
+    assertThat(metricSnapshot.getHits()).isEqualTo(1);
+    assertThat(metricSnapshot.getMisses()).isEqualTo(1);
+    verify(metricCollectorService, times(1)).collectMetricForResource(connectionSettings, "B", "cc");
+  }
+
+  @Test(expected = ResourceNotFoundException.class)
+  public void emptySnapshotShouldNotProvideAnyValue() throws ResourceNotFoundException {
+    MetricSnapshot.empty().getMetricValue("A", "ncloc");
+  }
+}
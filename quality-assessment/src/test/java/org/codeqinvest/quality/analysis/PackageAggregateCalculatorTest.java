@@ -0,0 +1,122 @@
+/*
+ * Copyright 2013 Felix Müller
+ *
+ * This file is part of CodeQ Invest.
+ *
+ * CodeQ Invest is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CodeQ Invest is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CodeQ Invest.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.codeqinvest.quality.analysis;
+
+import org.codeqinvest.quality.Artefact;
+import org.codeqinvest.quality.Project;
+import org.codeqinvest.quality.QualityCriteria;
+import org.codeqinvest.quality.QualityProfile;
+import org.codeqinvest.quality.QualityRequirement;
+import org.codeqinvest.quality.QualityViolation;
+import org.codeqinvest.quality.QualityViolationView;
+import org.fest.assertions.Delta;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class PackageAggregateCalculatorTest {
+
+  private QualityAnalysis analysis;
+  private QualityRequirement requirement;
+  private ViolationProfitCalculator profitCalculator;
+  private PackageAggregateCalculator packageAggregateCalculator;
+
+  @Before
+  public void setUp() {
+    analysis = QualityAnalysis.success(mock(Project.class), Arrays.<QualityViolation>asList());
+    requirement = new QualityRequirement(new QualityProfile(), 100, 200, 10, "nloc", new QualityCriteria("cc", ">", 10));
+    profitCalculator = mock(ViolationProfitCalculator.class);
+    when(profitCalculator.calculateWeightedProfit(any(QualityViolationView.class))).thenReturn(10.0);
+    packageAggregateCalculator = new PackageAggregateCalculator(profitCalculator);
+  }
+
+  @Test
+  public void shouldAggregateViolationsForAllEnclosingPackages() {
+    List<PackageAggregate> aggregates = packageAggregateCalculator.calculatePackageAggregates(analysis, Arrays.asList(
+        new QualityViolation(artefact("org.project.A", 0.4), requirement, 10, 20, 1, "nloc"),
+        new QualityViolation(artefact("org.project.sub.B", 0.2), requirement, 30, 40, 1, "nloc")));
+
+    assertThat(aggregates).hasSize(4);
+    assertThat(aggregates.get(0).getPackageName()).isEqualTo("");
+    assertThat(aggregates.get(1).getPackageName()).isEqualTo("org");
+    assertThat(aggregates.get(2).getPackageName()).isEqualTo("org.project");
+    assertThat(aggregates.get(2).getRemediationCosts()).isEqualTo(40L);
+    assertThat(aggregates.get(2).getNonRemediationCosts()).isEqualTo(60L);
+    assertThat(aggregates.get(2).getViolationCount()).isEqualTo(2);
+    assertThat(aggregates.get(2).getWeightedProfit()).isEqualTo(20.0);
+    assertThat(aggregates.get(2).getMeanChangeProbability()).isEqualTo(0.3, Delta.delta(0.0001));
+    assertThat(aggregates.get(3).getPackageName()).isEqualTo("org.project.sub");
+    assertThat(aggregates.get(3).getViolationCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void shouldAddWeightedProfitOfFirstViolationOfEachArtefactOnlyOnce() {
+    Artefact artefact = artefact("org.A", 0.5);
+    List<PackageAggregate> aggregates = packageAggregateCalculator.calculatePackageAggregates(analysis, Arrays.asList(
+        new QualityViolation(artefact, requirement, 10, 20, 1, "nloc"),
+        new QualityViolation(artefact, requirement, 30, 40, 1, "nloc")));
+
+    verify(profitCalculator, times(1)).calculateWeightedProfit(any(QualityViolationView.class));
+    PackageAggregate packageAggregate = aggregates.get(1);
+    assertThat(packageAggregate.getWeightedProfit()).isEqualTo(10.0);
+    assertThat(packageAggregate.getMeanChangeProbability()).isEqualTo(0.5);
+    assertThat(packageAggregate.getViolationCount()).isEqualTo(2);
+  }
+
+  @Test
+  public void shouldIgnoreNegativeWeightedProfits() {
+    when(profitCalculator.calculateWeightedProfit(any(QualityViolationView.class))).thenReturn(-5.0);
+    List<PackageAggregate> aggregates = packageAggregateCalculator.calculatePackageAggregates(analysis, Arrays.asList(
+        new QualityViolation(artefact("org.A", 0.5), requirement, 10, 20, 1, "nloc")));
+    assertThat(aggregates.get(1).getWeightedProfit()).isEqualTo(0.0);
+  }
+
+  @Test
+  public void shouldPreferManualEstimateForMeanChangeProbability() {
+    Artefact artefact = artefact("org.A", 0.5);
+    artefact.setManualEstimate(90);
+    List<PackageAggregate> aggregates = packageAggregateCalculator.calculatePackageAggregates(analysis, Arrays.asList(
+        new QualityViolation(artefact, requirement, 10, 20, 1, "nloc")));
+    assertThat(aggregates.get(1).getMeanChangeProbability()).isEqualTo(0.9);
+  }
+
+  @Test
+  public void artefactsWithoutPackageShouldOnlyBeAddedToProjectAggregate() {
+    List<PackageAggregate> aggregates = packageAggregateCalculator.calculatePackageAggregates(analysis, Arrays.asList(
+        new QualityViolation(artefact("A", 0.5), requirement, 10, 20, 1, "nloc")));
+    assertThat(aggregates).hasSize(1);
+    assertThat(aggregates.get(0).getPackageName()).isEqualTo("");
+    assertThat(aggregates.get(0).getAnalysis()).isSameAs(analysis);
+  }
+
+  private Artefact artefact(String name, double changeProbability) {
+    Artefact artefact = new Artefact(name, name);
+    artefact.setChangeProbability(changeProbability);
+    return artefact;
+  }
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright 2013 Felix Müller
+ *
+ * This file is part of CodeQ Invest.
+ *
+ * CodeQ Invest is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CodeQ Invest is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CodeQ Invest.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.codeqinvest.quality.analysis;
+
+import lombok.extern.slf4j.Slf4j;
+import org.codeqinvest.codechanges.scm.ScmConnectionSettings;
+import org.codeqinvest.quality.Artefact;
+import org.codeqinvest.quality.CodeChangeSettings;
+import org.codeqinvest.quality.Project;
+import org.codeqinvest.quality.QualityCriteria;
+import org.codeqinvest.quality.QualityProfile;
+import org.codeqinvest.quality.QualityRequirement;
+import org.codeqinvest.quality.QualityViolation;
+import org.codeqinvest.sonar.SonarConnectionSettings;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.transaction.TransactionConfiguration;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+@Slf4j
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(locations = {"classpath:META-INF/spring/module-context.xml", "classpath:inmemory-db-context.xml"})
+@Transactional
+@TransactionConfiguration(defaultRollback = true)
+public class QualityAnalysisBulkWriterIntegrationTest {
+
+  private static final int NUMBER_OF_ARTEFACTS = 2000;
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  @Autowired
+  private QualityAnalysisBulkWriter analysisWriter;
+
+  @Autowired
+  private QualityAnalysisRepository qualityAnalysisRepository;
+
+  @Autowired
+  private PackageAggregateRepository packageAggregateRepository;
+
+  private Project project;
+  private QualityRequirement firstRequirement;
+  private QualityRequirement secondRequirement;
+
+  @Before
+  public void setUpExampleProject() {
+    QualityProfile profile = new QualityProfile("quality-profile");
+    firstRequirement = new QualityRequirement(profile, 100, 200, 10, "nloc", new QualityCriteria("cc", ">", 10));
+    secondRequirement = new QualityRequirement(profile, 80, 300, 10, "nloc", new QualityCriteria("ec", "<", 15));
+    profile.addRequirement(firstRequirement);
+    profile.addRequirement(secondRequirement);
+
+    SonarConnectionSettings sonarConnectionSettings = new SonarConnectionSettings("http://localhost", "myProject::123");
+    ScmConnectionSettings scmConnectionSettings = new ScmConnectionSettings("http://svn.localhost");
+    project = new Project("myProject", "0 0 * * *", profile, sonarConnectionSettings, scmConnectionSettings, CodeChangeSettings.defaultSetting(1));
+
+    entityManager.persist(profile);
+    entityManager.persist(project);
+  }
+
+  @Test
+  public void writtenAnalysisShouldBeLoadedWithAllViolations() {
+    Artefact artefactA = new Artefact("org.A", "A");
+    artefactA.setChangeProbability(0.4);
+    artefactA.setManualEstimate(80);
+    Artefact artefactB = new Artefact("org.B", "B");
+    QualityAnalysis analysis = QualityAnalysis.success(project, Arrays.asList(
+        new QualityViolation(artefactA, firstRequirement, 10, 20, 12, "nloc"),
+        new QualityViolation(artefactA, secondRequirement, 30, 40, 1, "nloc"),
+        new QualityViolation(artefactB, firstRequirement, 50, 60, 22, "nloc")));
+
+    QualityAnalysis writtenAnalysis = analysisWriter.write(analysis);
+    entityManager.clear();
+
+    QualityAnalysis analysisFromDb = qualityAnalysisRepository.findOneByIdWithViolations(writtenAnalysis.getId());
+    assertThat(analysisFromDb.getCreated().getMillis()).isEqualTo(analysis.getCreated().getMillis());
+    assertThat(analysisFromDb.isSuccessful()).isTrue();
+    assertThat(analysisFromDb.getViolations()).hasSize(3);
+    assertThat(analysisFromDb.getAllArtefacts()).hasSize(2);
+    for (QualityViolation violation : analysisFromDb.getViolations()) {
+      if (violation.getArtefact().getName().equals("org.A")) {
+        assertThat(violation.getArtefact().getChangeProbability()).isEqualTo(0.4);
+        assertThat(violation.getArtefact().getManualEstimate()).isEqualTo(80);
+      } else {
+        assertThat(violation.getRemediationCosts()).isEqualTo(50);
+        assertThat(violation.getArtefact().hasManualEstimate()).isFalse();
+      }
+    }
+  }
+
+  @Test
+  public void successfulAnalysisShouldBeWrittenWithPackageAggregates() {
+    QualityAnalysis writtenAnalysis = analysisWriter.write(QualityAnalysis.success(project, Arrays.asList(
+        new QualityViolation(new Artefact("org.A", "A"), firstRequirement, 10, 20, 12, "nloc"),
+        new QualityViolation(new Artefact("org.sub.B", "B"), secondRequirement, 30, 40, 1, "nloc"))));
+    entityManager.flush();
+
+    List<PackageAggregate> aggregates = packageAggregateRepository.findByAnalysisIdOrderByPackageName(writtenAnalysis.getId());
+    assertThat(aggregates).hasSize(3);
+    assertThat(aggregates.get(1).getPackageName()).isEqualTo("org");
+    assertThat(aggregates.get(1).getRemediationCosts()).isEqualTo(40L);
+    assertThat(aggregates.get(1).getViolationCount()).isEqualTo(2);
+    assertThat(packageAggregateRepository.findByProjectAndPackageNameOrderByCreatedAsc(project, "org.sub")).hasSize(1);
+  }
+
+  @Test
+  public void failedAnalysisShouldBeWrittenWithoutPackageAggregates() {
+    QualityAnalysis writtenAnalysis = analysisWriter.write(QualityAnalysis.failed(project, Arrays.asList(
+        new QualityViolation(new Artefact("org.A", "A"), firstRequirement, 0, 0, 0, "nloc")), "failure"));
+    entityManager.flush();
+
+    assertThat(packageAggregateRepository.findByAnalysisIdOrderByPackageName(writtenAnalysis.getId())).isEmpty();
+  }
+
+  @Test
+  public void idsOfWrittenAndCascadedViolationsShouldNotCollide() {
+    analysisWriter.write(createAnalysisWithManyViolations());
+    qualityAnalysisRepository.save(createAnalysisWithManyViolations());
+    analysisWriter.write(createAnalysisWithManyViolations());
+    entityManager.flush();
+
+    assertThat(qualityAnalysisRepository.findByProjectOrderByCreatedDesc(project)).hasSize(3);
+  }
+
+  @Test
+  public void batchInsertsShouldBeFasterThanCascadingPersist() {
+    // both ways are warmed up, so that class loading and query compilation are not measured
+    qualityAnalysisRepository.save(createAnalysisWithViolations(10));
+    entityManager.flush();
+    analysisWriter.write(createAnalysisWithViolations(10));
+
+    long start = System.currentTimeMillis();
+    qualityAnalysisRepository.save(createAnalysisWithManyViolations());
+    entityManager.flush();
+    long cascadeMillis = System.currentTimeMillis() - start;
+
+    start = System.currentTimeMillis();
+    analysisWriter.write(createAnalysisWithManyViolations());
+    long batchMillis = System.currentTimeMillis() - start;
+
+    log.info("Persisted {} violations with cascading persist in {} ms and with batch inserts in {} ms",
+        2 * NUMBER_OF_ARTEFACTS, cascadeMillis, batchMillis);
+    assertThat(batchMillis).isLessThan(cascadeMillis);
+  }
+
+  private QualityAnalysis createAnalysisWithManyViolations() {
+    return createAnalysisWithViolations(NUMBER_OF_ARTEFACTS);
+  }
+
+  private QualityAnalysis createAnalysisWithViolations(int numberOfArtefacts) {
+    List<QualityViolation> violations = new ArrayList<QualityViolation>();
+    for (int i = 0; i < numberOfArtefacts; i++) {
+      Artefact artefact = new Artefact("org.A" + i, "A" + i);
+      violations.add(new QualityViolation(artefact, firstRequirement, 10, 20, i, "nloc"));
+      violations.add(new QualityViolation(artefact, secondRequirement, 30, 40, i, "nloc"));
+    }
+    return QualityAnalysis.success(project, violations);
+  }
+}
@@ -0,0 +1,219 @@
+/*
+ * Copyright 2013 Felix Müller
+ *
+ * This file is part of CodeQ Invest.
+ *
+ * CodeQ Invest is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CodeQ Invest is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CodeQ Invest.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.codeqinvest.quality.analysis;
+
+import com.google.common.collect.ImmutableMap;
+import org.codeqinvest.codechanges.scm.ScmConnectionSettings;
+import org.codeqinvest.quality.Artefact;
+import org.codeqinvest.quality.CodeChangeSettings;
+import org.codeqinvest.quality.Project;
+import org.codeqinvest.quality.QualityCriteria;
+import org.codeqinvest.quality.QualityProfile;
+import org.codeqinvest.quality.QualityRequirement;
+import org.codeqinvest.quality.QualityViolation;
+import org.codeqinvest.sonar.SonarConnectionSettings;
+import org.hibernate.Filter;
+import org.hibernate.Session;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.transaction.TransactionConfiguration;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.sql.DataSource;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+/**
+ * Loads a history of many analyses and checks with {@code EXPLAIN PLAN}
+ * of HSQL that the lookups of {@link QualityAnalysisRepository} and
+ * {@link PackageAggregateRepository} use indexes instead of scanning whole
+ * tables. New queries with a {@link Query} annotation are checked automatically.
+ * Derived queries have no HQL at hand and are written down by hand instead,
+ * new derived query methods fail the test until they are added to that list.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(locations = {"classpath:META-INF/spring/module-context.xml", "classpath:inmemory-db-context.xml"})
+@Transactional
+@TransactionConfiguration(defaultRollback = true)
+public class QualityAnalysisQueryPlanIntegrationTest {
+
+  private static final int NUMBER_OF_PROJECTS = 3;
+  private static final int NUMBER_OF_ANALYSES_PER_PROJECT = 1000;
+
+  private static final String FULL_SCAN = "access=FULL SCAN";
+
+  private static final List<Class<?>> REPOSITORIES = Arrays.<Class<?>>asList(QualityAnalysisRepository.class, PackageAggregateRepository.class);
+
+  private static final List<String> DERIVED_QUERY_PREFIXES = Arrays.asList("find", "read", "get", "query", "count", "delete", "remove");
+
+  /**
+   * The derived queries of the repositories written as HQL and keyed by repository and method name.
+   */
+  private static final Map<String, String> DERIVED_QUERIES = ImmutableMap.of(
+      "QualityAnalysisRepository.findByProjectOrderByCreatedDesc",
+      "select q from QualityAnalysis q where q.project = ?1 order by q.created desc",
+      "QualityAnalysisRepository.findByProjectAndSuccessfulOrderByCreatedDesc",
+      "select q from QualityAnalysis q where q.project = ?1 and q.successful = ?2 order by q.created desc",
+      "PackageAggregateRepository.findByProjectAndPackageNameOrderByCreatedAsc",
+      "select p from PackageAggregate p where p.project = ?1 and p.packageName = ?2 order by p.created asc");
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  @Autowired
+  private DataSource dataSource;
+
+  @Autowired
+  private QualityAnalysisBulkWriter analysisWriter;
+
+  private JdbcTemplate jdbcTemplate;
+
+  @Before
+  public void setUpAnalysisHistory() {
+    jdbcTemplate = new JdbcTemplate(dataSource);
+
+    QualityProfile profile = new QualityProfile("quality-profile");
+    QualityRequirement firstRequirement = new QualityRequirement(profile, 100, 200, 10, "nloc", new QualityCriteria("cc", ">", 10));
+    QualityRequirement secondRequirement = new QualityRequirement(profile, 80, 300, 10, "nloc", new QualityCriteria("ec", "<", 15));
+    profile.addRequirement(firstRequirement);
+    profile.addRequirement(secondRequirement);
+    entityManager.persist(profile);
+
+    for (int i = 0; i < NUMBER_OF_PROJECTS; i++) {
+      SonarConnectionSettings sonarConnectionSettings = new SonarConnectionSettings("http://localhost", "myProject::" + i);
+      ScmConnectionSettings scmConnectionSettings = new ScmConnectionSettings("http://svn.localhost");
+      Project project = new Project("myProject" + i, "0 0 * * *", profile, sonarConnectionSettings, scmConnectionSettings, CodeChangeSettings.defaultSetting(1));
+      entityManager.persist(project);
+
+      for (int j = 0; j < NUMBER_OF_ANALYSES_PER_PROJECT; j++) {
+        Artefact artefact = new Artefact("org.A" + j, "A" + j);
+        List<QualityViolation> violations = Arrays.asList(
+            new QualityViolation(artefact, firstRequirement, 10, 20, j, "nloc"),
+            new QualityViolation(artefact, secondRequirement, 30, 40, j, "nloc"));
+        analysisWriter.write(j % 10 == 0
+            ? QualityAnalysis.failed(project, violations, "failure")
+            : QualityAnalysis.success(project, violations));
+      }
+    }
+    entityManager.flush();
+  }
+
+  @Test
+  public void annotatedRepositoryQueriesShouldNotScanWholeTables() {
+    for (Class<?> repository : REPOSITORIES) {
+      for (Method method : repository.getDeclaredMethods()) {
+        Query query = method.getAnnotation(Query.class);
+        if (query != null) {
+          for (String plan : explain(query.value())) {
+            assertThat(plan).as(method.getName()).excludes(FULL_SCAN);
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void allDerivedRepositoryQueriesShouldBeWrittenDownAsHql() {
+    for (Class<?> repository : REPOSITORIES) {
+      for (Method method : repository.getDeclaredMethods()) {
+        if (method.getAnnotation(Query.class) == null && isDerivedQuery(method)) {
+          String key = repository.getSimpleName() + "." + method.getName();
+          assertThat(DERIVED_QUERIES.keySet()).as(key + " is missing in DERIVED_QUERIES").contains(key);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void derivedRepositoryQueriesShouldNotScanWholeTables() {
+    for (Map.Entry<String, String> query : DERIVED_QUERIES.entrySet()) {
+      for (String plan : explain(query.getValue())) {
+        assertThat(plan).as(query.getKey()).excludes(FULL_SCAN);
+      }
+    }
+  }
+
+  @Test
+  public void lookupsOfLastAnalysisIdShouldUseProjectIndex() {
+    for (String plan : explain("select q.id from QualityAnalysis q where q.project = ?1 and q.successful = ?2 order by q.created desc")) {
+      assertThat(plan).contains("index=QUALITY_ANALYSIS_PROJECT_IDX");
+    }
+    for (String plan : explain("select q.id from QualityAnalysis q where q.project = ?1 order by q.created desc")) {
+      assertThat(plan).contains("index=QUALITY_ANALYSIS_PROJECT_IDX");
+    }
+  }
+
+  @Test
+  public void trendOfPackageShouldUseProjectIndex() {
+    for (String plan : explain("select p from PackageAggregate p where p.project = ?1 and p.packageName = ?2 order by p.created asc")) {
+      assertThat(plan).contains("index=PACKAGE_AGGREGATE_PROJECT_IDX");
+    }
+  }
+
+  @Test
+  public void lookupOfViolationsByArtefactShouldNotScanWholeTable() {
+    for (String plan : explain("select v from QualityViolation v where v.artefact.id = ?1")) {
+      assertThat(plan).excludes(FULL_SCAN);
+    }
+  }
+
+  private static boolean isDerivedQuery(Method method) {
+    for (String prefix : DERIVED_QUERY_PREFIXES) {
+      if (method.getName().startsWith(prefix)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Translates the HQL query into SQL and returns the plans of HSQL for all resulting statements.
+   */
+  private List<String> explain(String hqlQuery) {
+    SessionFactoryImplementor sessionFactory = (SessionFactoryImplementor) entityManager.unwrap(Session.class).getSessionFactory();
+    String[] sqlStatements = sessionFactory.getQueryPlanCache()
+        .getHQLQueryPlan(hqlQuery, false, Collections.<String, Filter>emptyMap())
+        .getSqlStrings();
+
+    List<String> plans = new ArrayList<String>(sqlStatements.length);
+    for (String sql : sqlStatements) {
+      StringBuilder plan = new StringBuilder(sql).append('\n');
+      for (String line : jdbcTemplate.queryForList("EXPLAIN PLAN FOR " + sql, new Object[0], String.class)) {
+        plan.append(line).append('\n');
+      }
+      plans.add(plan.toString());
+    }
+    return plans;
+  }
+}
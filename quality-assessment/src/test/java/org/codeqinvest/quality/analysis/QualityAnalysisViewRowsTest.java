@@ -0,0 +1,86 @@
+/*
+ * Copyright 2013 Felix Müller
+ *
+ * This file is part of CodeQ Invest.
+ *
+ * CodeQ Invest is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CodeQ Invest is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CodeQ Invest.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.codeqinvest.quality.analysis;
+
+import org.codeqinvest.quality.QualityViolationView;
+import org.joda.time.DateTime;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class QualityAnalysisViewRowsTest {
+
+  private final DateTime created = new DateTime(2013, 8, 1, 12, 0);
+
+  @Test
+  public void shouldReturnNullWhenThereAreNoRows() {
+    assertThat(QualityAnalysisViewRows.toView(Collections.<QualityViolationViewRow>emptyList())).isNull();
+  }
+
+  @Test
+  public void shouldConvertAnalysisWithoutViolations() {
+    List<QualityViolationViewRow> rows = Collections.singletonList(new QualityViolationViewRow(1L, "project", created, false, "failure",
+        null, null, null, null, null, null, null, null, null, null, null, null, null));
+    QualityAnalysisView analysis = QualityAnalysisViewRows.toView(rows);
+    assertThat(analysis.getId()).isEqualTo(1L);
+    assertThat(analysis.getProjectName()).isEqualTo("project");
+    assertThat(analysis.getCreated()).isEqualTo(created);
+    assertThat(analysis.isSuccessful()).isFalse();
+    assertThat(analysis.getFailureReason()).isEqualTo("failure");
+    assertThat(analysis.getViolations()).isEmpty();
+  }
+
+  @Test
+  public void shouldConvertViolationsInOrderOfRows() {
+    List<QualityViolationViewRow> rows = Arrays.asList(
+        violationRow(5L, "cc", 11L, "org.A", 10),
+        violationRow(6L, "ncss", 12L, "org.B", 20));
+    List<QualityViolationView> violations = QualityAnalysisViewRows.toView(rows).getViolations();
+    assertThat(violations).hasSize(2);
+    assertThat(violations.get(0).getRequirement().getMetricIdentifier()).isEqualTo("cc");
+    assertThat(violations.get(0).getArtefact().getName()).isEqualTo("org.A");
+    assertThat(violations.get(0).getRemediationCosts()).isEqualTo(10);
+    assertThat(violations.get(1).getRequirement().getMetricIdentifier()).isEqualTo("ncss");
+    assertThat(violations.get(1).getArtefact().getName()).isEqualTo("org.B");
+    assertThat(violations.get(1).getRemediationCosts()).isEqualTo(20);
+  }
+
+  @Test
+  public void shouldShareArtefactsAndRequirementsOfManyViolations() {
+    List<QualityViolationViewRow> rows = Arrays.asList(
+        violationRow(5L, "cc", 11L, "org.A", 10),
+        violationRow(6L, "ncss", 11L, "org.A", 20),
+        violationRow(5L, "cc", 12L, "org.B", 30));
+    List<QualityViolationView> violations = QualityAnalysisViewRows.toView(rows).getViolations();
+    assertThat(violations.get(0).getArtefact()).isSameAs(violations.get(1).getArtefact());
+    assertThat(violations.get(0).getRequirement()).isSameAs(violations.get(2).getRequirement());
+    assertThat(QualityAnalysisViewRows.toView(rows).getAllArtefacts()).hasSize(2);
+  }
+
+  private QualityViolationViewRow violationRow(Long requirementId, String metricIdentifier, Long artefactId, String artefactName, int remediationCosts) {
+    return new QualityViolationViewRow(1L, "project", created, true, null,
+        requirementId, metricIdentifier, "<", 10.0, false,
+        artefactId, artefactName, 0.5, 1.0, null,
+        remediationCosts, 5, 1.0);
+  }
+}
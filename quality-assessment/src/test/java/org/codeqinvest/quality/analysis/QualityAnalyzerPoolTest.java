@@ -0,0 +1,244 @@
+/*
+ * Copyright 2013 Felix Müller
+ *
+ * This file is part of CodeQ Invest.
+ *
+ * CodeQ Invest is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CodeQ Invest is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CodeQ Invest.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.codeqinvest.quality.analysis;
+
+import org.codeqinvest.quality.Project;
+import org.codeqinvest.quality.repository.ProjectRepository;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class QualityAnalyzerPoolTest {
+
+  private final CountDownLatch startedAnalysis = new CountDownLatch(1);
+  private final CountDownLatch finishAnalysis = new CountDownLatch(1);
+
+  private Project project;
+  private Project otherProject;
+  private ProjectRepository projectRepository;
+  private QualityAnalyzerService analyzerService;
+  private QualityAnalyzerPool analyzerPool;
+
+  @Before
+  public void setUpMockedSystem() {
+    projectRepository = mock(ProjectRepository.class);
+    project = mockProject(1L, "MyProject");
+    otherProject = mockProject(2L, "OtherProject");
+    analyzerService = mock(QualityAnalyzerService.class);
+    QualityAnalysis analysis = QualityAnalysis.success(project, null);
+    when(analyzerService.analyzeProject(any(Project.class))).thenReturn(analysis);
+    when(analyzerService.analyzeProjectIncrementally(any(Project.class))).thenReturn(analysis);
+  }
+
+  @After
+  public void shutdownPool() {
+    finishAnalysis.countDown();
+    analyzerPool.shutdown();
+  }
+
+  @Test
+  public void countCompletedAndFailedAnalyses() throws InterruptedException {
+    analyzerPool = new QualityAnalyzerPool(1, 10, QualityAnalyzerPool.RejectionPolicy.ABORT);
+    Project thirdProject = mockProject(3L, "ThirdProject");
+    QualityAnalysis successfulAnalysis = QualityAnalysis.success(project, null);
+    QualityAnalysis failedAnalysis = QualityAnalysis.failed(otherProject, null, "error");
+    when(analyzerService.analyzeProject(project)).thenReturn(successfulAnalysis);
+    when(analyzerService.analyzeProject(otherProject)).thenReturn(failedAnalysis);
+    when(analyzerService.analyzeProject(thirdProject)).thenThrow(new IllegalStateException());
+
+    analyzerPool.execute(analyzerRunnable(project));
+    analyzerPool.execute(analyzerRunnable(otherProject));
+    analyzerPool.execute(analyzerRunnable(thirdProject));
+    waitUntilFinished(3L);
+
+    assertThat(analyzerPool.getCompletedAnalyses()).isEqualTo(1L);
+    assertThat(analyzerPool.getFailedAnalyses()).isEqualTo(2L);
+  }
+
+  @Test
+  public void exposeRunningAndQueuedAnalyses() throws InterruptedException {
+    analyzerPool = new QualityAnalyzerPool(1, 10, QualityAnalyzerPool.RejectionPolicy.ABORT);
+    when(analyzerService.analyzeProject(project)).thenAnswer(new BlockingAnswer());
+
+    analyzerPool.execute(analyzerRunnable(project));
+    analyzerPool.execute(analyzerRunnable(otherProject));
+    assertThat(startedAnalysis.await(5L, TimeUnit.SECONDS)).isTrue();
+
+    assertThat(analyzerPool.getActiveAnalyses()).isEqualTo(1);
+    assertThat(analyzerPool.getQueuedAnalyses()).isEqualTo(1);
+    assertThat(analyzerPool.getLongestRunningProject()).isEqualTo("MyProject");
+    assertThat(analyzerPool.getLongestRunningAnalysisMillis()).isGreaterThanOrEqualTo(0L);
+  }
+
+  @Test
+  public void rejectAnalysesWhenPoolIsExhausted() throws InterruptedException {
+    analyzerPool = new QualityAnalyzerPool(1, 1, QualityAnalyzerPool.RejectionPolicy.ABORT);
+    when(analyzerService.analyzeProject(project)).thenAnswer(new BlockingAnswer());
+
+    analyzerPool.execute(analyzerRunnable(project));
+    assertThat(startedAnalysis.await(5L, TimeUnit.SECONDS)).isTrue();
+    analyzerPool.execute(analyzerRunnable(otherProject));
+    analyzerPool.execute(analyzerRunnable(mockProject(3L, "ThirdProject")));
+
+    assertThat(analyzerPool.getQueuedAnalyses()).isEqualTo(1);
+    assertThat(analyzerPool.getRejectedAnalyses()).isEqualTo(1L);
+  }
+
+  @Test
+  public void rejectedProjectShouldBeAnalyzableAgain() throws InterruptedException {
+    analyzerPool = new QualityAnalyzerPool(1, 1, QualityAnalyzerPool.RejectionPolicy.ABORT);
+    when(analyzerService.analyzeProject(project)).thenAnswer(new BlockingAnswer());
+    Project thirdProject = mockProject(3L, "ThirdProject");
+
+    analyzerPool.execute(analyzerRunnable(project));
+    assertThat(startedAnalysis.await(5L, TimeUnit.SECONDS)).isTrue();
+    analyzerPool.execute(analyzerRunnable(otherProject));
+    analyzerPool.execute(analyzerRunnable(thirdProject));
+    finishAnalysis.countDown();
+    waitUntilFinished(2L);
+    analyzerPool.execute(analyzerRunnable(thirdProject));
+    waitUntilFinished(3L);
+
+    verify(analyzerService).analyzeProject(thirdProject);
+  }
+
+  @Test
+  public void attachRequestedAnalysisToWaitingAnalysisOfSameProject() throws InterruptedException {
+    analyzerPool = new QualityAnalyzerPool(1, 10, QualityAnalyzerPool.RejectionPolicy.ABORT);
+    when(analyzerService.analyzeProject(otherProject)).thenAnswer(new BlockingAnswer());
+
+    analyzerPool.execute(analyzerRunnable(otherProject));
+    assertThat(startedAnalysis.await(5L, TimeUnit.SECONDS)).isTrue();
+    analyzerPool.execute(incrementalAnalyzerRunnable(project));
+    analyzerPool.execute(analyzerRunnable(project));
+    analyzerPool.execute(incrementalAnalyzerRunnable(project));
+    assertThat(analyzerPool.getQueuedAnalyses()).isEqualTo(1);
+
+    finishAnalysis.countDown();
+    waitUntilFinished(2L);
+    verify(analyzerService).analyzeProject(project);
+    verify(analyzerService, never()).analyzeProjectIncrementally(any(Project.class));
+    assertThat(analyzerPool.getCoalescedAnalyses()).isEqualTo(2L);
+  }
+
+  @Test
+  public void executeAtMostOneFollowUpAnalysisOfRunningProject() throws InterruptedException {
+    analyzerPool = new QualityAnalyzerPool(2, 10, QualityAnalyzerPool.RejectionPolicy.ABORT);
+    when(analyzerService.analyzeProject(project)).thenAnswer(new BlockingAnswer());
+
+    analyzerPool.execute(analyzerRunnable(project));
+    assertThat(startedAnalysis.await(5L, TimeUnit.SECONDS)).isTrue();
+    analyzerPool.execute(analyzerRunnable(project));
+    analyzerPool.execute(analyzerRunnable(project));
+    assertThat(analyzerPool.getActiveAnalyses()).isEqualTo(1);
+    assertThat(analyzerPool.getQueuedAnalyses()).isEqualTo(0);
+
+    finishAnalysis.countDown();
+    waitUntilFinished(2L);
+    verify(analyzerService, times(2)).analyzeProject(project);
+  }
+
+  @Test
+  public void discardJobOfRejectedAnalysis() throws InterruptedException {
+    analyzerPool = new QualityAnalyzerPool(1, 1, QualityAnalyzerPool.RejectionPolicy.ABORT);
+    when(analyzerService.analyzeProject(project)).thenAnswer(new BlockingAnswer());
+    AnalysisJobService analysisJobService = mock(AnalysisJobService.class);
+    AnalysisJob queuedJob = new AnalysisJob(otherProject, false);
+    AnalysisJob rejectedJob = new AnalysisJob(mockProject(3L, "ThirdProject"), false);
+
+    analyzerPool.execute(analyzerRunnable(project));
+    assertThat(startedAnalysis.await(5L, TimeUnit.SECONDS)).isTrue();
+    analyzerPool.execute(new AnalyzerRunnable(queuedJob, projectRepository, analyzerService, analysisJobService));
+    analyzerPool.execute(new AnalyzerRunnable(rejectedJob, projectRepository, analyzerService, analysisJobService));
+
+    verify(analysisJobService).discard(rejectedJob);
+    verify(analysisJobService, never()).discard(queuedJob);
+  }
+
+  @Test
+  public void discardJobOfReplacedAnalysisOnlyIfItIsNotExecutedAnyway() throws InterruptedException {
+    analyzerPool = new QualityAnalyzerPool(1, 10, QualityAnalyzerPool.RejectionPolicy.ABORT);
+    when(analyzerService.analyzeProject(otherProject)).thenAnswer(new BlockingAnswer());
+    AnalysisJobService analysisJobService = mock(AnalysisJobService.class);
+    AnalysisJob incrementalJob = new AnalysisJob(project, true);
+    AnalysisJob fullJob = new AnalysisJob(project, false);
+
+    analyzerPool.execute(analyzerRunnable(otherProject));
+    assertThat(startedAnalysis.await(5L, TimeUnit.SECONDS)).isTrue();
+    analyzerPool.execute(new AnalyzerRunnable(incrementalJob, projectRepository, analyzerService, analysisJobService));
+    analyzerPool.execute(new AnalyzerRunnable(fullJob, projectRepository, analyzerService, analysisJobService));
+    analyzerPool.execute(new AnalyzerRunnable(fullJob, projectRepository, analyzerService, analysisJobService));
+
+    verify(analysisJobService).discard(incrementalJob);
+    verify(analysisJobService, never()).discard(fullJob);
+  }
+
+  @Test
+  public void noLongestRunningProjectWhenPoolIsIdle() {
+    analyzerPool = new QualityAnalyzerPool(1, 1, QualityAnalyzerPool.RejectionPolicy.ABORT);
+    assertThat(analyzerPool.getLongestRunningProject()).isNull();
+    assertThat(analyzerPool.getLongestRunningAnalysisMillis()).isEqualTo(0L);
+  }
+
+  private Project mockProject(long id, String name) {
+    Project mockedProject = mock(Project.class);
+    when(mockedProject.getId()).thenReturn(id);
+    when(mockedProject.getName()).thenReturn(name);
+    when(projectRepository.findOne(id)).thenReturn(mockedProject);
+    return mockedProject;
+  }
+
+  private AnalyzerRunnable analyzerRunnable(Project project) {
+    return new AnalyzerRunnable(project, projectRepository, analyzerService);
+  }
+
+  private AnalyzerRunnable incrementalAnalyzerRunnable(Project project) {
+    return new AnalyzerRunnable(project, projectRepository, analyzerService, true);
+  }
+
+  private void waitUntilFinished(long numberOfAnalyses) throws InterruptedException {
+    long timeout = System.currentTimeMillis() + 5000L;
+    while (analyzerPool.getCompletedAnalyses() + analyzerPool.getFailedAnalyses() < numberOfAnalyses && System.currentTimeMillis() < timeout) {
+      Thread.sleep(10L);
+    }
+  }
+
+  private class BlockingAnswer implements Answer<QualityAnalysis> {
+
+    @Override
+    public QualityAnalysis answer(InvocationOnMock invocation) throws Throwable {
+      startedAnalysis.countDown();
+      finishAnalysis.await();
+      return QualityAnalysis.success(project, null);
+    }
+  }
+}
@@ -22,6 +22,7 @@ import org.codeqinvest.quality.Artefact;
 import org.codeqinvest.quality.QualityCriteria;
 import org.codeqinvest.quality.QualityProfile;
 import org.codeqinvest.quality.QualityRequirement;
+import com.google.common.collect.Sets;
 import org.codeqinvest.sonar.ResourceNotFoundException;
 import org.codeqinvest.sonar.SonarConnectionSettings;
 import org.junit.Before;
@@ -36,18 +37,21 @@ public class QualityViolationCostsCalculatorTest {
 
   private QualityViolationCostsCalculator costsCalculator;
   private FakeMetricCollectorService metricCollectorService;
-  private SonarConnectionSettings connectionSettings;
+  private MetricSnapshot metricSnapshot;
   private Artefact artefact;
 
   @Before
   public void setUp() {
     artefact = new Artefact("A", "A");
     metricCollectorService = new FakeMetricCollectorService();
-    costsCalculator = new QualityViolationCostsCalculator(metricCollectorService);
-    connectionSettings = mock(SonarConnectionSettings.class);
+    costsCalculator = new QualityViolationCostsCalculator();
 
     metricCollectorService.addMetricValue("A", "metric", 2.0);
     metricCollectorService.addMetricValue("A", "nloc", 120.0);
+    metricSnapshot = new MetricSnapshot(mock(SonarConnectionSettings.class), metricCollectorService);
+    metricSnapshot.collectMetricsForProject(Sets.newHashSet("metric", "nloc"));
+    metricSnapshot.loadNextPage();
+    metricSnapshot.keep("A");
   }
 
   @Test
@@ -56,7 +60,7 @@ public class QualityViolationCostsCalculatorTest {
     ViolationOccurence violation = new ViolationOccurence(requirement, artefact, 0);
 
     // 20 * (abs(10.0 - 2.0) + 1) * (120.0 / 100.0) = 216 min
-    assertThat(costsCalculator.calculateRemediationCosts(connectionSettings, violation)).isEqualTo(216);
+    assertThat(costsCalculator.calculateRemediationCosts(metricSnapshot, violation)).isEqualTo(216);
   }
 
   @Test
@@ -65,7 +69,7 @@ public class QualityViolationCostsCalculatorTest {
     ViolationOccurence violation = new ViolationOccurence(requirement, artefact, 0);
 
     // 20 * (abs(1.0 - 2.0) + 1) * (120.0 / 100.0) = 48 min
-    assertThat(costsCalculator.calculateRemediationCosts(connectionSettings, violation)).isEqualTo(48);
+    assertThat(costsCalculator.calculateRemediationCosts(metricSnapshot, violation)).isEqualTo(48);
   }
 
   @Test
@@ -74,6 +78,6 @@ public class QualityViolationCostsCalculatorTest {
     ViolationOccurence violation = new ViolationOccurence(requirement, artefact, 0);
 
     // 30 * abs(5.0 - 2.0) * (120.0 / 100.0) = 108 min
-    assertThat(costsCalculator.calculateNonRemediationCosts(connectionSettings, violation)).isEqualTo(108);
+    assertThat(costsCalculator.calculateNonRemediationCosts(metricSnapshot, violation)).isEqualTo(108);
   }
 }
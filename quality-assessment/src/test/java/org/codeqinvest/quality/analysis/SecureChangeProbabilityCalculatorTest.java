@@ -42,7 +42,7 @@ public class SecureChangeProbabilityCalculatorTest {
   @Before
   public void setUpMockedSystem() {
     metricCollectorService = new FakeMetricCollectorService();
-    secureChangeProbabilityCalculator = new SecureChangeProbabilityCalculator(metricCollectorService);
+    secureChangeProbabilityCalculator = new SecureChangeProbabilityCalculator();
     profile = new QualityProfile("quality-profile");
     artefact = new Artefact("A", "A");
   }
@@ -50,7 +50,7 @@ public class SecureChangeProbabilityCalculatorTest {
   @Test
   public void profileWithNoChangeRiskAssessmentFunctions() throws ResourceNotFoundException {
     assertThat(secureChangeProbabilityCalculator.calculateSecureChangeProbability(
-        profile, mock(SonarConnectionSettings.class), mock(Artefact.class))).isEqualTo(1.0);
+        profile, new MetricSnapshot(mock(SonarConnectionSettings.class), metricCollectorService), mock(Artefact.class))).isEqualTo(1.0);
   }
 
   @Test
@@ -60,7 +60,7 @@ public class SecureChangeProbabilityCalculatorTest {
     profile.addChangeRiskAssessmentFunction(new ChangeRiskAssessmentFunction(profile, "metric", Sets.newHashSet(new RiskCharge(0.2, "<", 10.0))));
 
     assertThat(secureChangeProbabilityCalculator.calculateSecureChangeProbability(
-        profile, mock(SonarConnectionSettings.class), artefact)).isEqualTo(1.2);
+        profile, new MetricSnapshot(mock(SonarConnectionSettings.class), metricCollectorService), artefact)).isEqualTo(1.2);
   }
 
   @Test
@@ -74,6 +74,6 @@ public class SecureChangeProbabilityCalculatorTest {
     profile.addChangeRiskAssessmentFunction(new ChangeRiskAssessmentFunction(profile, "metric3", Sets.newHashSet(new RiskCharge(0.005, ">=", 0.0))));
 
     assertThat(secureChangeProbabilityCalculator.calculateSecureChangeProbability(
-        profile, mock(SonarConnectionSettings.class), artefact)).isEqualTo(1.315);
+        profile, new MetricSnapshot(mock(SonarConnectionSettings.class), metricCollectorService), artefact)).isEqualTo(1.315);
   }
 }
@@ -18,28 +18,33 @@
  */
 package org.codeqinvest.quality.analysis;
 
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Sets;
 import org.codeqinvest.codechanges.scm.ScmConnectionSettings;
 import org.codeqinvest.quality.Artefact;
+import org.codeqinvest.quality.ChangeRiskAssessmentFunction;
 import org.codeqinvest.quality.CodeChangeSettings;
 import org.codeqinvest.quality.Project;
 import org.codeqinvest.quality.QualityCriteria;
 import org.codeqinvest.quality.QualityProfile;
 import org.codeqinvest.quality.QualityRequirement;
+import org.codeqinvest.quality.RiskCharge;
 import org.codeqinvest.sonar.MetricCollectorService;
+import org.codeqinvest.sonar.ProjectMetrics;
 import org.codeqinvest.sonar.ResourceNotFoundException;
-import org.codeqinvest.sonar.ResourcesCollectorService;
+import org.codeqinvest.sonar.SonarClientRegistry;
 import org.codeqinvest.sonar.SonarConnectionCheckerService;
 import org.codeqinvest.sonar.SonarConnectionSettings;
 import org.junit.Before;
 import org.junit.Test;
 import org.sonar.wsclient.services.Resource;
 
-import java.util.Arrays;
-
 import static org.fest.assertions.Assertions.assertThat;
 import static org.mockito.Matchers.any;
-import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.anySetOf;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
 public class ViolationsCalculatorServiceTest {
@@ -78,32 +83,28 @@ public class ViolationsCalculatorServiceTest {
     when(connectionCheckerService.isReachable(any(SonarConnectionSettings.class))).thenReturn(false);
 
     ViolationsCalculatorService violationsCalculatorService = new ViolationsCalculatorService(connectionCheckerService,
-        new ResourcesCollectorService(), new MetricCollectorService());
+        new MetricCollectorService(new SonarClientRegistry()));
     assertThat(violationsCalculatorService.calculateAllViolation(project).isSuccessful()).isFalse();
   }
 
   @Test
   public void failedViolationAnalysisResultWhenOneMetricValueIsNotReachable() throws ResourceNotFoundException {
     Resource dummyResource = new Resource();
-    ResourcesCollectorService resourcesCollectorService = mock(ResourcesCollectorService.class);
-    when(resourcesCollectorService.collectAllResourcesForProject(any(SonarConnectionSettings.class)))
-        .thenReturn(Arrays.asList(dummyResource));
+    dummyResource.setKey("A");
+    ProjectMetrics projectMetrics = new ProjectMetrics(Sets.newHashSet("cc", "ec", "nloc"));
+    projectMetrics.addResource(dummyResource);
 
     MetricCollectorService metricCollectorService = mock(MetricCollectorService.class);
-    when(metricCollectorService.collectMetricForResource(any(SonarConnectionSettings.class), anyString(), anyString()))
-        .thenThrow(ResourceNotFoundException.class);
+    when(metricCollectorService.collectMetricsForProjectPageByPage(any(SonarConnectionSettings.class), anySetOf(String.class)))
+        .thenReturn(Iterators.singletonIterator(projectMetrics));
 
     ViolationsCalculatorService violationsCalculatorService = new ViolationsCalculatorService(connectionCheckerService,
-        resourcesCollectorService, metricCollectorService);
+        metricCollectorService);
     assertThat(violationsCalculatorService.calculateAllViolation(project).isSuccessful()).isFalse();
   }
 
   @Test
   public void noViolationsWhenNoRequirementsAreViolated() {
-    FakeResourcesCollectorService resourcesCollectorService = new FakeResourcesCollectorService();
-    resourcesCollectorService.addResource("A");
-    resourcesCollectorService.addResource("B");
-
     FakeMetricCollectorService metricCollectorService = new FakeMetricCollectorService();
     metricCollectorService.addMetricValue("A", "cc", 11.0);
     metricCollectorService.addMetricValue("A", "ec", 14.0);
@@ -113,7 +114,7 @@ public class ViolationsCalculatorServiceTest {
     metricCollectorService.addMetricValue("B", "nloc", 1.0);
 
     ViolationsCalculatorService violationsCalculatorService = new ViolationsCalculatorService(connectionCheckerService,
-        resourcesCollectorService, metricCollectorService);
+        metricCollectorService);
 
     ViolationsAnalysisResult analysisResult = violationsCalculatorService.calculateAllViolation(project);
     assertThat(analysisResult.isSuccessful()).isTrue();
@@ -122,10 +123,6 @@ public class ViolationsCalculatorServiceTest {
 
   @Test
   public void violationsWhenRequirementsAreViolatedInOneArtefact() {
-    FakeResourcesCollectorService resourcesCollectorService = new FakeResourcesCollectorService();
-    resourcesCollectorService.addResource("A");
-    resourcesCollectorService.addResource("B");
-
     FakeMetricCollectorService metricCollectorService = new FakeMetricCollectorService();
     metricCollectorService.addMetricValue("A", "cc", 11.0);
     metricCollectorService.addMetricValue("A", "ec", 14.0);
@@ -135,7 +132,7 @@ public class ViolationsCalculatorServiceTest {
     metricCollectorService.addMetricValue("B", "nloc", 50.0);
 
     ViolationsCalculatorService violationsCalculatorService = new ViolationsCalculatorService(connectionCheckerService,
-        resourcesCollectorService, metricCollectorService);
+        metricCollectorService);
 
     ViolationsAnalysisResult analysisResult = violationsCalculatorService.calculateAllViolation(project);
     assertThat(analysisResult.isSuccessful()).isTrue();
@@ -146,12 +143,22 @@ public class ViolationsCalculatorServiceTest {
   }
 
   @Test
-  public void violationsWhenRequirementsAreViolatedInManyArtefact() {
-    FakeResourcesCollectorService resourcesCollectorService = new FakeResourcesCollectorService();
-    resourcesCollectorService.addResource("A");
-    resourcesCollectorService.addResource("B");
-    resourcesCollectorService.addResource("C");
+  public void collectsAllMetricsOfQualityProfileWithOneRequest() {
+    profile.addChangeRiskAssessmentFunction(new ChangeRiskAssessmentFunction(profile, "coverage", Sets.newHashSet(new RiskCharge(0.2, "<", 80.0))));
+    MetricCollectorService metricCollectorService = mock(MetricCollectorService.class);
+    when(metricCollectorService.collectMetricsForProjectPageByPage(any(SonarConnectionSettings.class), anySetOf(String.class)))
+        .thenReturn(Iterators.<ProjectMetrics>emptyIterator());
 
+    ViolationsCalculatorService violationsCalculatorService = new ViolationsCalculatorService(connectionCheckerService,
+        metricCollectorService);
+    violationsCalculatorService.calculateAllViolation(project);
+
+    verify(metricCollectorService).collectMetricsForProjectPageByPage(project.getSonarConnectionSettings(), Sets.newHashSet("cc", "ec", "nloc", "coverage"));
+    verifyNoMoreInteractions(metricCollectorService);
+  }
+
+  @Test
+  public void violationsWhenRequirementsAreViolatedInManyArtefact() {
     FakeMetricCollectorService metricCollectorService = new FakeMetricCollectorService();
     metricCollectorService.addMetricValue("A", "cc", 9.0);
     metricCollectorService.addMetricValue("A", "ec", 20.0);
@@ -164,7 +171,7 @@ public class ViolationsCalculatorServiceTest {
     metricCollectorService.addMetricValue("C", "nloc", 21.0);
 
     ViolationsCalculatorService violationsCalculatorService = new ViolationsCalculatorService(connectionCheckerService,
-        resourcesCollectorService, metricCollectorService);
+        metricCollectorService);
 
     ViolationsAnalysisResult analysisResult = violationsCalculatorService.calculateAllViolation(project);
     assertThat(analysisResult.isSuccessful()).isTrue();
@@ -21,11 +21,17 @@ package org.codeqinvest.quality.analysis;
 import lombok.extern.slf4j.Slf4j;
 import org.codeqinvest.quality.Project;
 import org.codeqinvest.quality.repository.ProjectRepository;
+import org.joda.time.DateTime;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.ApplicationListener;
 import org.springframework.context.event.ContextRefreshedEvent;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -34,6 +40,13 @@ import java.util.concurrent.atomic.AtomicBoolean;
  * and scans for projects in the database. It schedules for
  * each project a corresponding job that will be executed according
  * to the cron setting of the project.
+ * <p/>
+ * Analyzer runs that were queued or running when the application stopped
+ * are resumed. Projects that missed a scheduled run while the application
+ * was down are caught up. A run counts as missed when its start time,
+ * including the start jitter of the project, passed since the last analysis.
+ * The number of caught up runs is limited by {@code analyzer.maxCatchUpAnalyses},
+ * the longest missed ones first.
  *
  * @author fmueller
  */
@@ -43,13 +56,22 @@ class QualityAnalyzerRunsSchedulerOnStartup implements ApplicationListener<Conte
 
   private final QualityAnalyzerScheduler analyzerScheduler;
   private final ProjectRepository projectRepository;
+  private final LastQualityAnalysisService lastQualityAnalysisService;
+  private final int maxCatchUpAnalyses;
+  private final int maxStartJitterSeconds;
 
   private final AtomicBoolean alreadyExecuted = new AtomicBoolean(false);
 
   @Autowired
-  QualityAnalyzerRunsSchedulerOnStartup(QualityAnalyzerScheduler analyzerScheduler, ProjectRepository projectRepository) {
+  QualityAnalyzerRunsSchedulerOnStartup(QualityAnalyzerScheduler analyzerScheduler, ProjectRepository projectRepository,
+                                        LastQualityAnalysisService lastQualityAnalysisService,
+                                        @Value("${analyzer.maxCatchUpAnalyses:0}") int maxCatchUpAnalyses,
+                                        @Value("${analyzer.maxStartJitterSeconds:0}") int maxStartJitterSeconds) {
     this.analyzerScheduler = analyzerScheduler;
     this.projectRepository = projectRepository;
+    this.lastQualityAnalysisService = lastQualityAnalysisService;
+    this.maxCatchUpAnalyses = maxCatchUpAnalyses;
+    this.maxStartJitterSeconds = maxStartJitterSeconds;
   }
 
   @Override
@@ -60,8 +82,49 @@ class QualityAnalyzerRunsSchedulerOnStartup implements ApplicationListener<Conte
       for (Project project : projects) {
         analyzerScheduler.scheduleAnalyzer(project);
       }
+      analyzerScheduler.resumeAnalyzers();
+      catchUpMissedAnalyses(projects);
     } else {
       log.info("Projects already scheduled.");
     }
   }
+
+  private void catchUpMissedAnalyses(List<Project> projects) {
+    if (maxCatchUpAnalyses <= 0) {
+      return;
+    }
+    List<MissedAnalysis> missedAnalyses = new ArrayList<MissedAnalysis>();
+    Date now = DateTime.now().toDate();
+    for (Project project : projects) {
+      DateTime lastAnalysisCreated = lastQualityAnalysisService.retrieveLastAnalysisCreated(project);
+      if (lastAnalysisCreated != null) {
+        Date missedExecutionTime = new JitteredCronTrigger(project.getCronExpression(), project.getId(), maxStartJitterSeconds)
+            .nextExecutionTimeAfter(lastAnalysisCreated.toDate());
+        if (missedExecutionTime.before(now)) {
+          missedAnalyses.add(new MissedAnalysis(project, missedExecutionTime));
+        }
+      }
+    }
+    Collections.sort(missedAnalyses, new Comparator<MissedAnalysis>() {
+      @Override
+      public int compare(MissedAnalysis missedAnalysis, MissedAnalysis otherMissedAnalysis) {
+        return missedAnalysis.executionTime.compareTo(otherMissedAnalysis.executionTime);
+      }
+    });
+    log.info("{} projects missed scheduled analyzer runs, catching up at most {}", missedAnalyses.size(), maxCatchUpAnalyses);
+    for (MissedAnalysis missedAnalysis : missedAnalyses.subList(0, Math.min(maxCatchUpAnalyses, missedAnalyses.size()))) {
+      analyzerScheduler.catchUpAnalyzer(missedAnalysis.project);
+    }
+  }
+
+  private static final class MissedAnalysis {
+
+    private final Project project;
+    private final Date executionTime;
+
+    MissedAnalysis(Project project, Date executionTime) {
+      this.project = project;
+      this.executionTime = executionTime;
+    }
+  }
 }
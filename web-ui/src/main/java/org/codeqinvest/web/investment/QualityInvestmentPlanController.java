@@ -25,7 +25,7 @@ import org.codeqinvest.investment.QualityInvestmentPlan;
 import org.codeqinvest.investment.QualityInvestmentPlanService;
 import org.codeqinvest.quality.Project;
 import org.codeqinvest.quality.analysis.LastQualityAnalysisService;
-import org.codeqinvest.quality.analysis.QualityAnalysis;
+import org.codeqinvest.quality.analysis.QualityAnalysisView;
 import org.codeqinvest.quality.repository.ProjectRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
@@ -87,7 +87,7 @@ class QualityInvestmentPlanController {
       return null;
     }
 
-    QualityAnalysis lastAnalysis = lastQualityAnalysisService.retrieveLastSuccessfulAnalysis(project);
+    QualityAnalysisView lastAnalysis = lastQualityAnalysisService.retrieveLastSuccessfulAnalysisView(project);
     if (lastAnalysis == null) {
       response.setStatus(400);
       return null;
@@ -27,7 +27,7 @@ import org.codeqinvest.investment.roi.RoiDistribution;
 import org.codeqinvest.investment.roi.RoiDistributionCalculator;
 import org.codeqinvest.quality.Project;
 import org.codeqinvest.quality.analysis.LastQualityAnalysisService;
-import org.codeqinvest.quality.analysis.QualityAnalysis;
+import org.codeqinvest.quality.analysis.QualityAnalysisView;
 import org.codeqinvest.quality.repository.ProjectRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
@@ -74,7 +74,7 @@ class RoiDistributionController {
   @ResponseBody
   EnhancedRoiDistribution retrieveRoiDistribution(@PathVariable long projectId, @RequestParam(required = false) String basePackage) throws InvestmentParsingException {
     Project project = projectRepository.findOne(projectId);
-    QualityAnalysis lastAnalysis = lastQualityAnalysisService.retrieveLastSuccessfulAnalysis(project);
+    QualityAnalysisView lastAnalysis = lastQualityAnalysisService.retrieveLastSuccessfulAnalysisView(project);
 
     Set<RoiDistribution> roiDistributions = Sets.newHashSet();
     for (int i = 0; i < RoiDistributionChartRepresentation.DEFAULT_INVESTMENTS.length; i++) {
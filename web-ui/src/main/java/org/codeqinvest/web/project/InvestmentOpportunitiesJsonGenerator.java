@@ -29,9 +29,9 @@ import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.Setter;
 import org.codeqinvest.investment.profit.WeightedProfitCalculator;
-import org.codeqinvest.quality.Artefact;
-import org.codeqinvest.quality.QualityViolation;
-import org.codeqinvest.quality.analysis.QualityAnalysis;
+import org.codeqinvest.quality.ArtefactView;
+import org.codeqinvest.quality.QualityViolationView;
+import org.codeqinvest.quality.analysis.QualityAnalysisView;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
@@ -63,12 +63,12 @@ public class InvestmentOpportunitiesJsonGenerator {
     this.weightedProfitCalculator = weightedProfitCalculator;
   }
 
-  public String generate(QualityAnalysis analysis) throws JsonProcessingException {
+  public String generate(QualityAnalysisView analysis) throws JsonProcessingException {
     Set<String> alreadyAddedArtefacts = Sets.newHashSet();
     Map<String, PackageNode> nodeLookupTable = Maps.newHashMap();
-    RootNode rootNode = new RootNode(analysis.getProject().getName());
+    RootNode rootNode = new RootNode(analysis.getProjectName());
 
-    for (QualityViolation violation : analysis.getViolations()) {
+    for (QualityViolationView violation : analysis.getViolations()) {
       addArtefact(violation, rootNode, alreadyAddedArtefacts, nodeLookupTable);
     }
 
@@ -78,8 +78,8 @@ public class InvestmentOpportunitiesJsonGenerator {
     return MAPPER.writeValueAsString(rootNode);
   }
 
-  private void addArtefact(QualityViolation violation, RootNode root, Set<String> alreadyAddedArtefacts, Map<String, PackageNode> nodeLookupTable) {
-    Artefact artefact = violation.getArtefact();
+  private void addArtefact(QualityViolationView violation, RootNode root, Set<String> alreadyAddedArtefacts, Map<String, PackageNode> nodeLookupTable) {
+    ArtefactView artefact = violation.getArtefact();
     if (!alreadyAddedArtefacts.contains(artefact.getName())) {
 
       alreadyAddedArtefacts.add(artefact.getName());
@@ -124,7 +124,7 @@ public class InvestmentOpportunitiesJsonGenerator {
     return last;
   }
 
-  private List<String> getAllPackageNamesReversed(Artefact artefact) {
+  private List<String> getAllPackageNamesReversed(ArtefactView artefact) {
     List<String> packages = new ArrayList<String>();
     StringBuilder packagePath = new StringBuilder();
     for (String packageName : PACKAGE_SPLITTER.split(artefact.getName())) {
@@ -248,7 +248,7 @@ public class InvestmentOpportunitiesJsonGenerator {
 
     private final double value;
 
-    ArtefactNode(Artefact artefact, double value) {
+    ArtefactNode(ArtefactView artefact, double value) {
       super(artefact.getShortClassName(), artefact.getName());
       this.value = value;
 
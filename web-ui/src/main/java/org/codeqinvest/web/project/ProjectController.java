@@ -22,7 +22,7 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import lombok.extern.slf4j.Slf4j;
 import org.codeqinvest.quality.Project;
 import org.codeqinvest.quality.analysis.LastQualityAnalysisService;
-import org.codeqinvest.quality.analysis.QualityAnalysis;
+import org.codeqinvest.quality.analysis.QualityAnalysisView;
 import org.codeqinvest.quality.repository.ProjectRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
@@ -61,7 +61,7 @@ class ProjectController {
   @RequestMapping(value = "/{projectId}", method = RequestMethod.GET)
   String showProject(@PathVariable long projectId, Model model) throws JsonProcessingException {
     Project project = projectRepository.findOne(projectId);
-    QualityAnalysis lastAnalysis = lastQualityAnalysisService.retrieveLastAnalysis(project);
+    QualityAnalysisView lastAnalysis = lastQualityAnalysisService.retrieveLastAnalysisView(project);
 
     model.addAttribute("currentUrl", "/projects/" + projectId);
     model.addAttribute("project", project);
@@ -22,6 +22,7 @@ import com.google.common.collect.Sets;
 import lombok.extern.slf4j.Slf4j;
 import org.codeqinvest.quality.Artefact;
 import org.codeqinvest.quality.QualityViolation;
+import org.codeqinvest.quality.analysis.PackageAggregateService;
 import org.codeqinvest.quality.analysis.QualityAnalysis;
 import org.codeqinvest.quality.analysis.QualityAnalysisRepository;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -39,10 +40,12 @@ import java.util.Set;
 class DefaultManualEstimatesUpdater implements ManualEstimatesUpdater {
 
   private final QualityAnalysisRepository qualityAnalysisRepository;
+  private final PackageAggregateService packageAggregateService;
 
   @Autowired
-  DefaultManualEstimatesUpdater(QualityAnalysisRepository qualityAnalysisRepository) {
+  DefaultManualEstimatesUpdater(QualityAnalysisRepository qualityAnalysisRepository, PackageAggregateService packageAggregateService) {
     this.qualityAnalysisRepository = qualityAnalysisRepository;
+    this.packageAggregateService = packageAggregateService;
   }
 
   /**
@@ -65,6 +68,7 @@ class DefaultManualEstimatesUpdater implements ManualEstimatesUpdater {
     }
 
     QualityAnalysis updatedAnalysis = qualityAnalysisRepository.save(analysis);
+    packageAggregateService.updatePackageAggregates(updatedAnalysis);
     log.info("Updated {} artefacts with manual estimates for project {}", updatedArtefacts, updatedAnalysis.getProject().getName());
     return updatedAnalysis;
   }
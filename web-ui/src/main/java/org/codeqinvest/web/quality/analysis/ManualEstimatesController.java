@@ -67,7 +67,7 @@ class ManualEstimatesController {
   JsonNode updateManualEstimates(@PathVariable long projectId, @RequestBody Set<ManualEstimate> manualEstimates) throws IOException {
     Project project = projectRepository.findOne(projectId);
     QualityAnalysis lastAnalysis = lastQualityAnalysisService.retrieveLastSuccessfulAnalysis(project);
-    lastAnalysis = manualEstimatesUpdater.updateManualEstimates(lastAnalysis, manualEstimates);
-    return MAPPER.readTree(investmentOpportunitiesJsonGenerator.generate(lastAnalysis));
+    manualEstimatesUpdater.updateManualEstimates(lastAnalysis, manualEstimates);
+    return MAPPER.readTree(investmentOpportunitiesJsonGenerator.generate(lastQualityAnalysisService.retrieveLastSuccessfulAnalysisView(project)));
   }
 }
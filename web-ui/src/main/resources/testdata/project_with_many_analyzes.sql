@@ -29,30 +29,34 @@ INSERT INTO ARTEFACT (ID, NAME, SONARIDENTIFIER, CHANGEPROBABILITY, SECURECHANGE
   (14, 'project.validation.BankValidator', 'DUMMY', 0.41, 1.1),
   (15, 'project.validation.PaymentValidator', 'DUMMY', 0.73, 1.04);
 
-INSERT INTO QUALITY_VIOLATION (ANALYSIS_ID, REQUIREMENT_ID, ARTEFACT_ID, REMEDIATIONCOSTS, NONREMEDIATIONCOSTS, WEIGHTINGMETRICVALUE, WEIGHTINGMETRICIDENTIFIER)
+INSERT INTO QUALITY_VIOLATION (ID, ANALYSIS_ID, REQUIREMENT_ID, ARTEFACT_ID, REMEDIATIONCOSTS, NONREMEDIATIONCOSTS, WEIGHTINGMETRICVALUE, WEIGHTINGMETRICIDENTIFIER)
   VALUES
-  (3, 1, 1, 20, 40, 100, 'ncloc'),
-  (3, 4, 2, 20, 40, 50, 'ncloc'),
-  (3, 2, 2, 6, 10, 50, 'ncloc'),
-  (3, 4, 3, 480, 1440, 200, 'ncloc'),
-  (3, 6, 3, 110, 330, 200, 'ncloc'),
-  (3, 5, 3, 40, 120, 200, 'ncloc'),
-  (3, 4, 4, 240, 960, 80, 'ncloc'),
-  (3, 5, 5, 30, 90, 60, 'ncloc'),
-  (3, 3, 5, 4, 8, 60, 'ncloc'),
-  (3, 2, 6, 3, 5, 40, 'ncloc'),
-  (3, 2, 7, 2, 4, 20, 'ncloc'),
-  (3, 4, 8, 200, 800, 240, 'ncloc'),
-  (3, 2, 8, 60, 100, 240, 'ncloc'),
-  (3, 6, 8, 50, 150, 240, 'ncloc'),
-  (3, 5, 8, 40, 120, 240, 'ncloc'),
-  (3, 1, 9, 30, 60, 310, 'ncloc'),
-  (3, 4, 9, 600, 1800, 310, 'ncloc'),
-  (3, 1, 10, 5, 10, 80, 'ncloc'),
-  (3, 2, 10, 75, 125, 80, 'ncloc'),
-  (3, 1, 11, 5, 10, 70, 'ncloc'),
-  (3, 2, 11, 30, 50, 70, 'ncloc'),
-  (3, 4, 12, 300, 900, 140, 'ncloc'),
-  (3, 6, 13, 50, 150, 90, 'ncloc'),
-  (3, 4, 14, 400, 1200, 180, 'ncloc'),
-  (3, 4, 15, 195, 585, 280, 'ncloc');
+  (1, 3, 1, 1, 20, 40, 100, 'ncloc'),
+  (2, 3, 4, 2, 20, 40, 50, 'ncloc'),
+  (3, 3, 2, 2, 6, 10, 50, 'ncloc'),
+  (4, 3, 4, 3, 480, 1440, 200, 'ncloc'),
+  (5, 3, 6, 3, 110, 330, 200, 'ncloc'),
+  (6, 3, 5, 3, 40, 120, 200, 'ncloc'),
+  (7, 3, 4, 4, 240, 960, 80, 'ncloc'),
+  (8, 3, 5, 5, 30, 90, 60, 'ncloc'),
+  (9, 3, 3, 5, 4, 8, 60, 'ncloc'),
+  (10, 3, 2, 6, 3, 5, 40, 'ncloc'),
+  (11, 3, 2, 7, 2, 4, 20, 'ncloc'),
+  (12, 3, 4, 8, 200, 800, 240, 'ncloc'),
+  (13, 3, 2, 8, 60, 100, 240, 'ncloc'),
+  (14, 3, 6, 8, 50, 150, 240, 'ncloc'),
+  (15, 3, 5, 8, 40, 120, 240, 'ncloc'),
+  (16, 3, 1, 9, 30, 60, 310, 'ncloc'),
+  (17, 3, 4, 9, 600, 1800, 310, 'ncloc'),
+  (18, 3, 1, 10, 5, 10, 80, 'ncloc'),
+  (19, 3, 2, 10, 75, 125, 80, 'ncloc'),
+  (20, 3, 1, 11, 5, 10, 70, 'ncloc'),
+  (21, 3, 2, 11, 30, 50, 70, 'ncloc'),
+  (22, 3, 4, 12, 300, 900, 140, 'ncloc'),
+  (23, 3, 6, 13, 50, 150, 90, 'ncloc'),
+  (24, 3, 4, 14, 400, 1200, 180, 'ncloc'),
+  (25, 3, 4, 15, 195, 585, 280, 'ncloc');
+
+-- the test data is inserted with fixed ids, so the pooled ids have to start behind them
+UPDATE ID_POOL SET NEXT_ID = (SELECT MAX(ID) + 1 FROM ARTEFACT) WHERE NAME = 'ARTEFACT';
+UPDATE ID_POOL SET NEXT_ID = (SELECT MAX(ID) + 1 FROM QUALITY_VIOLATION) WHERE NAME = 'QUALITY_VIOLATION';
@@ -13,6 +13,10 @@ INSERT INTO ARTEFACT (ID, NAME, SONARIDENTIFIER, CHANGEPROBABILITY, SECURECHANGE
   VALUES
   (16, 'project.web.AbstractController', 'DUMMY', 0.0, 1.0);
 
-INSERT INTO QUALITY_VIOLATION (ANALYSIS_ID, REQUIREMENT_ID, ARTEFACT_ID, REMEDIATIONCOSTS, NONREMEDIATIONCOSTS, WEIGHTINGMETRICVALUE, WEIGHTINGMETRICIDENTIFIER)
+INSERT INTO QUALITY_VIOLATION (ID, ANALYSIS_ID, REQUIREMENT_ID, ARTEFACT_ID, REMEDIATIONCOSTS, NONREMEDIATIONCOSTS, WEIGHTINGMETRICVALUE, WEIGHTINGMETRICIDENTIFIER)
   VALUES
-  (4, 1, 16, 20, 40, 100, 'ncloc');
+  (26, 4, 1, 16, 20, 40, 100, 'ncloc');
+
+-- the test data is inserted with fixed ids, so the pooled ids have to start behind them
+UPDATE ID_POOL SET NEXT_ID = (SELECT MAX(ID) + 1 FROM ARTEFACT) WHERE NAME = 'ARTEFACT';
+UPDATE ID_POOL SET NEXT_ID = (SELECT MAX(ID) + 1 FROM QUALITY_VIOLATION) WHERE NAME = 'QUALITY_VIOLATION';
@@ -20,12 +20,18 @@ package org.codeqinvest.quality.analysis;
 
 import org.codeqinvest.quality.Project;
 import org.codeqinvest.quality.repository.ProjectRepository;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeUtils;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
 import java.util.Arrays;
 
+import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -35,11 +41,17 @@ public class QualityAnalyzerRunsSchedulerOnStartupTest {
   private QualityAnalyzerRunsSchedulerOnStartup analyzerRunsSchedulerOnStartup;
   private QualityAnalyzerScheduler analyzerScheduler;
   private ProjectRepository projectRepository;
+  private LastQualityAnalysisService lastQualityAnalysisService;
 
   private Project projectA;
   private Project projectB;
   private Project projectC;
 
+  @After
+  public void resetTime() {
+    DateTimeUtils.setCurrentMillisSystem();
+  }
+
   @Before
   public void setUpMockedSystem() {
     analyzerScheduler = mock(QualityAnalyzerScheduler.class);
@@ -50,7 +62,9 @@ public class QualityAnalyzerRunsSchedulerOnStartupTest {
     projectRepository = mock(ProjectRepository.class);
     when(projectRepository.findAll()).thenReturn(Arrays.asList(projectA, projectB, projectC));
 
-    analyzerRunsSchedulerOnStartup = new QualityAnalyzerRunsSchedulerOnStartup(analyzerScheduler, projectRepository);
+    lastQualityAnalysisService = mock(LastQualityAnalysisService.class);
+
+    analyzerRunsSchedulerOnStartup = new QualityAnalyzerRunsSchedulerOnStartup(analyzerScheduler, projectRepository, lastQualityAnalysisService, 0, 0);
   }
 
   @Test
@@ -69,4 +83,75 @@ public class QualityAnalyzerRunsSchedulerOnStartupTest {
     verify(analyzerScheduler, times(1)).scheduleAnalyzer(projectB);
     verify(analyzerScheduler, times(1)).scheduleAnalyzer(projectC);
   }
+
+  @Test
+  public void resumeAnalyzersOnce() {
+    analyzerRunsSchedulerOnStartup.onApplicationEvent(null);
+    analyzerRunsSchedulerOnStartup.onApplicationEvent(null);
+    verify(analyzerScheduler, times(1)).resumeAnalyzers();
+  }
+
+  @Test
+  public void catchUpLongestMissedAnalysesUpToLimit() {
+    when(projectA.getCronExpression()).thenReturn("0 0 3 * * *");
+    when(projectB.getCronExpression()).thenReturn("0 0 3 * * *");
+    when(projectC.getCronExpression()).thenReturn("0 0 3 * * *");
+    lastAnalysisCreatedAt(projectA, DateTime.now().minusDays(2));
+    lastAnalysisCreatedAt(projectB, DateTime.now().minusDays(5));
+    lastAnalysisCreatedAt(projectC, DateTime.now().minusDays(3));
+
+    new QualityAnalyzerRunsSchedulerOnStartup(analyzerScheduler, projectRepository, lastQualityAnalysisService, 2, 0).onApplicationEvent(null);
+    verify(analyzerScheduler).catchUpAnalyzer(projectB);
+    verify(analyzerScheduler).catchUpAnalyzer(projectC);
+    verify(analyzerScheduler, never()).catchUpAnalyzer(projectA);
+  }
+
+  @Test
+  public void notCatchUpProjectsWithoutMissedAnalysis() {
+    when(projectA.getCronExpression()).thenReturn("0 0 3 * * *");
+    lastAnalysisCreatedAt(projectA, DateTime.now().plusMinutes(1));
+
+    new QualityAnalyzerRunsSchedulerOnStartup(analyzerScheduler, projectRepository, lastQualityAnalysisService, 2, 0).onApplicationEvent(null);
+    verify(analyzerScheduler, never()).catchUpAnalyzer(any(Project.class));
+  }
+
+  @Test
+  public void notCatchUpAnalysesByDefault() {
+    when(projectA.getCronExpression()).thenReturn("0 0 3 * * *");
+    lastAnalysisCreatedAt(projectA, DateTime.now().minusDays(2));
+
+    analyzerRunsSchedulerOnStartup.onApplicationEvent(null);
+    verify(analyzerScheduler, never()).catchUpAnalyzer(any(Project.class));
+  }
+
+  @Test
+  public void notCatchUpProjectsWhoseJitteredRunIsNotDueYet() {
+    int maxStartJitterSeconds = 3600;
+    int jitterSeconds = JitteredCronTrigger.computeJitterSeconds(1L, maxStartJitterSeconds);
+    assertThat(jitterSeconds).isGreaterThan(60);
+    DateTime todaysRun = DateTime.now().withTime(3, 0, 0, 0);
+    DateTimeUtils.setCurrentMillisFixed(todaysRun.plusSeconds(jitterSeconds / 2).getMillis());
+
+    when(projectA.getId()).thenReturn(1L);
+    when(projectA.getCronExpression()).thenReturn("0 0 3 * * *");
+    lastAnalysisCreatedAt(projectA, todaysRun.minusDays(1).plusSeconds(jitterSeconds));
+
+    new QualityAnalyzerRunsSchedulerOnStartup(analyzerScheduler, projectRepository, lastQualityAnalysisService, 2, maxStartJitterSeconds)
+        .onApplicationEvent(null);
+    verify(analyzerScheduler, never()).catchUpAnalyzer(any(Project.class));
+  }
+
+  @Test
+  public void notLoadLastAnalysesToFindMissedRuns() {
+    when(projectA.getCronExpression()).thenReturn("0 0 3 * * *");
+    lastAnalysisCreatedAt(projectA, DateTime.now().minusDays(2));
+
+    new QualityAnalyzerRunsSchedulerOnStartup(analyzerScheduler, projectRepository, lastQualityAnalysisService, 2, 0).onApplicationEvent(null);
+    verify(lastQualityAnalysisService, never()).retrieveLastAnalysis(any(Project.class));
+    verify(analyzerScheduler).catchUpAnalyzer(projectA);
+  }
+
+  private void lastAnalysisCreatedAt(Project project, DateTime created) {
+    when(lastQualityAnalysisService.retrieveLastAnalysisCreated(project)).thenReturn(created);
+  }
 }
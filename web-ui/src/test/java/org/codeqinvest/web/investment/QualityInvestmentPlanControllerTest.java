@@ -25,7 +25,7 @@ import org.codeqinvest.investment.QualityInvestmentPlanEntry;
 import org.codeqinvest.investment.QualityInvestmentPlanService;
 import org.codeqinvest.quality.Project;
 import org.codeqinvest.quality.analysis.LastQualityAnalysisService;
-import org.codeqinvest.quality.analysis.QualityAnalysis;
+import org.codeqinvest.quality.analysis.QualityAnalysisView;
 import org.codeqinvest.quality.repository.ProjectRepository;
 import org.junit.Before;
 import org.junit.Test;
@@ -60,10 +60,10 @@ public class QualityInvestmentPlanControllerTest {
     QualityInvestmentPlan dummyInvestmentPlan = new QualityInvestmentPlan("", 90, 110, 122, Sets.<QualityInvestmentPlanEntry>newTreeSet());
 
     Project mockedProject = mock(Project.class);
-    QualityAnalysis mockedAnalysis = mock(QualityAnalysis.class);
+    QualityAnalysisView mockedAnalysis = mock(QualityAnalysisView.class);
 
     when(projectRepository.findOne(1L)).thenReturn(mockedProject);
-    when(lastQualityAnalysisService.retrieveLastSuccessfulAnalysis(mockedProject)).thenReturn(mockedAnalysis);
+    when(lastQualityAnalysisService.retrieveLastSuccessfulAnalysisView(mockedProject)).thenReturn(mockedAnalysis);
     when(investmentPlanService.computeInvestmentPlan(eq(mockedAnalysis), anyString(), anyInt())).thenReturn(dummyInvestmentPlan);
 
     mockMvc = MockMvcBuilders.standaloneSetup(new QualityInvestmentPlanController(projectRepository,
@@ -120,7 +120,7 @@ public class QualityInvestmentPlanControllerTest {
 
   @Test
   public void projectShouldHaveLastSuccessfulAnalysis() throws Exception {
-    when(lastQualityAnalysisService.retrieveLastSuccessfulAnalysis(any(Project.class))).thenReturn(null);
+    when(lastQualityAnalysisService.retrieveLastSuccessfulAnalysisView(any(Project.class))).thenReturn(null);
     mockMvc.perform(put("/projects/1/investment")
         .contentType(MediaType.APPLICATION_JSON)
         .content("{\"basePackage\": \"\", \"investment\": \"1h\"}"))
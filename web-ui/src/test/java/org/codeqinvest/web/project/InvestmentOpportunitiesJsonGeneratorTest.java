@@ -25,7 +25,9 @@ import org.codeqinvest.investment.profit.WeightedProfitCalculator;
 import org.codeqinvest.quality.Artefact;
 import org.codeqinvest.quality.Project;
 import org.codeqinvest.quality.QualityViolation;
+import org.codeqinvest.quality.QualityViolationView;
 import org.codeqinvest.quality.analysis.QualityAnalysis;
+import org.codeqinvest.quality.analysis.QualityAnalysisView;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -71,7 +73,7 @@ public class InvestmentOpportunitiesJsonGeneratorTest {
     QualityViolation violation = new QualityViolation(artefact, null, 5, 10, 0, "");
     QualityAnalysis analysis = QualityAnalysis.success(project, Arrays.asList(violation));
 
-    when(weightedProfitCalculator.calculateWeightedProfit(violation)).thenReturn(1234.0);
+    when(weightedProfitCalculator.calculateWeightedProfit(QualityViolationView.of(violation))).thenReturn(1234.0);
 
     JsonNode generatedJson = generate(analysis);
     ArrayNode rootPackagNode = (ArrayNode) generatedJson.get("children");
@@ -102,11 +104,11 @@ public class InvestmentOpportunitiesJsonGeneratorTest {
     QualityAnalysis analysis = QualityAnalysis.success(project,
         Arrays.asList(violation1, violation2, violation3, violation4, violation5));
 
-    when(weightedProfitCalculator.calculateWeightedProfit(violation1)).thenReturn(10.0);
-    when(weightedProfitCalculator.calculateWeightedProfit(violation2)).thenReturn(20.0);
-    when(weightedProfitCalculator.calculateWeightedProfit(violation3)).thenReturn(30.0);
-    when(weightedProfitCalculator.calculateWeightedProfit(violation4)).thenReturn(40.0);
-    when(weightedProfitCalculator.calculateWeightedProfit(violation5)).thenReturn(50.0);
+    when(weightedProfitCalculator.calculateWeightedProfit(QualityViolationView.of(violation1))).thenReturn(10.0);
+    when(weightedProfitCalculator.calculateWeightedProfit(QualityViolationView.of(violation2))).thenReturn(20.0);
+    when(weightedProfitCalculator.calculateWeightedProfit(QualityViolationView.of(violation3))).thenReturn(30.0);
+    when(weightedProfitCalculator.calculateWeightedProfit(QualityViolationView.of(violation4))).thenReturn(40.0);
+    when(weightedProfitCalculator.calculateWeightedProfit(QualityViolationView.of(violation5))).thenReturn(50.0);
 
     JsonNode generatedJson = generate(analysis);
     ArrayNode rootPackagNode = (ArrayNode) generatedJson.get("children");
@@ -136,10 +138,10 @@ public class InvestmentOpportunitiesJsonGeneratorTest {
 
     QualityAnalysis analysis = QualityAnalysis.success(project, Arrays.asList(violation1, violation2, violation3, violation4));
 
-    when(weightedProfitCalculator.calculateWeightedProfit(violation1)).thenReturn(10.0);
-    when(weightedProfitCalculator.calculateWeightedProfit(violation2)).thenReturn(20.0);
-    when(weightedProfitCalculator.calculateWeightedProfit(violation3)).thenReturn(-10.0);
-    when(weightedProfitCalculator.calculateWeightedProfit(violation4)).thenReturn(-20.0);
+    when(weightedProfitCalculator.calculateWeightedProfit(QualityViolationView.of(violation1))).thenReturn(10.0);
+    when(weightedProfitCalculator.calculateWeightedProfit(QualityViolationView.of(violation2))).thenReturn(20.0);
+    when(weightedProfitCalculator.calculateWeightedProfit(QualityViolationView.of(violation3))).thenReturn(-10.0);
+    when(weightedProfitCalculator.calculateWeightedProfit(QualityViolationView.of(violation4))).thenReturn(-20.0);
 
     JsonNode generatedJson = generate(analysis);
     ArrayNode rootPackagNode = (ArrayNode) generatedJson.get("children");
@@ -147,7 +149,7 @@ public class InvestmentOpportunitiesJsonGeneratorTest {
   }
 
   private JsonNode generate(QualityAnalysis analysis) throws IOException {
-    String jsonString = generator.generate(analysis);
+    String jsonString = generator.generate(QualityAnalysisView.of(analysis));
     return mapper.readTree(jsonString);
   }
 }